@@ -1,13 +1,11 @@
 package org.openmrs.module.fhir.mapper.bundler;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.dstu3.model.CodeableConcept;
 import org.hl7.fhir.dstu3.model.Observation;
 import org.hl7.fhir.dstu3.model.Reference;
 import org.hl7.fhir.dstu3.model.Type;
 import org.openmrs.Obs;
-import org.openmrs.module.fhir.MRSProperties;
 import org.openmrs.module.fhir.mapper.model.CompoundObservation;
 import org.openmrs.module.fhir.mapper.model.FHIREncounter;
 import org.openmrs.module.fhir.mapper.model.FHIRResource;
@@ -21,7 +19,6 @@ import org.springframework.stereotype.Component;
 import java.util.ArrayList;
 import java.util.List;
 
-import static java.util.Arrays.asList;
 import static org.openmrs.module.fhir.mapper.model.ObservationType.*;
 
 @Component("FHIRObservationMapper")
@@ -82,15 +79,7 @@ public class ObservationMapper implements EmrObsResourceHandler {
     }
 
     private boolean hasIgnoredConcept(Obs obs) {
-        String globalPropertyValue = globalPropertyLookUpService.getGlobalPropertyValue(MRSProperties.GLOBAL_PROPERTY_IGNORED_CONCEPT_LIST);
-        if (StringUtils.isBlank(globalPropertyValue)) return false;
-        List<String> conceptIds = asList(StringUtils.split(globalPropertyValue, ","));
-        for (String conceptId : conceptIds) {
-            if (obs.getConcept().getId().equals(Integer.parseInt(conceptId.trim()))) {
-                return true;
-            }
-        }
-        return false;
+        return globalPropertyLookUpService.getIgnoredConceptIds().contains(obs.getConcept().getId());
     }
 
     private FHIRResource mapObsToFhirResource(Obs openmrsObs, FHIREncounter fhirEncounter, SystemProperties systemProperties) {
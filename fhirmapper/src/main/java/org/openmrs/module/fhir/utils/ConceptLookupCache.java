@@ -0,0 +1,104 @@
+package org.openmrs.module.fhir.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, least recently used cache of resolved concept and drug ids. Ids are cached instead of the entities,
+ * as entities are bound to the hibernate session they were loaded in.
+ */
+public class ConceptLookupCache {
+
+    private final long timeToLive;
+    private final Map<String, CachedId> cachedIds;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long generation;
+
+    public ConceptLookupCache(final int maxSize, long timeToLive) {
+        this.timeToLive = timeToLive;
+        this.cachedIds = new LinkedHashMap<String, CachedId>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedId> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public Integer get(String key) {
+        synchronized (cachedIds) {
+            CachedId cachedId = cachedIds.get(key);
+            if (cachedId != null && cachedId.expiresAt > System.currentTimeMillis()) {
+                hits.incrementAndGet();
+                return cachedId.id;
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Returns a marker to be passed to {@link #put(String, Integer, long)} for a value that is about to be resolved.
+     */
+    public long getGeneration() {
+        synchronized (cachedIds) {
+            return generation;
+        }
+    }
+
+    public void put(String key, Integer id, long resolvedInGeneration) {
+        synchronized (cachedIds) {
+            if (resolvedInGeneration != generation) {
+                //cache was cleared while resolving, the value may already be stale
+                return;
+            }
+            cachedIds.put(key, new CachedId(id, System.currentTimeMillis() + timeToLive));
+        }
+    }
+
+    public void putIfAbsent(String key, Integer id, long resolvedInGeneration) {
+        synchronized (cachedIds) {
+            if (!cachedIds.containsKey(key)) {
+                put(key, id, resolvedInGeneration);
+            }
+        }
+    }
+
+    public void evict(String key) {
+        synchronized (cachedIds) {
+            cachedIds.remove(key);
+        }
+    }
+
+    public void clear() {
+        synchronized (cachedIds) {
+            cachedIds.clear();
+            generation++;
+        }
+    }
+
+    public int size() {
+        synchronized (cachedIds) {
+            return cachedIds.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static class CachedId {
+        private final Integer id;
+        private final long expiresAt;
+
+        private CachedId(Integer id, long expiresAt) {
+            this.id = id;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package org.openmrs.module.fhir.utils;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hl7.fhir.dstu3.model.*;
+import org.hl7.fhir.instance.model.api.IIdType;
+
+import java.util.*;
+
+/**
+ * Lookup tables over the entries of a bundle, so that resolving references does not scan the whole bundle.
+ * The index is built once and kept with the bundle. It is rebuilt when entries are added or the entry list is replaced,
+ * code replacing an entry or its resource in place has to {@link #rebuild(Bundle)} it.
+ */
+public class FHIRBundleIndex {
+    private static final String USER_DATA_KEY = FHIRBundleIndex.class.getName();
+
+    private final Bundle bundle;
+    private final List<Bundle.BundleEntryComponent> indexedEntries;
+    private final int entryCount;
+    private final Map<String, List<Integer>> entriesByQualifiedId = new HashMap<>();
+    private final Map<String, List<Integer>> entriesByIdPart = new HashMap<>();
+    private final Map<String, List<Integer>> entriesByFullUrlSuffix = new HashMap<>();
+    private final Map<String, Resource> resourcesByFullUrl = new HashMap<>();
+    private final Map<String, List<Resource>> resourcesByType = new HashMap<>();
+    private List<Resource> topLevelResources;
+
+    private FHIRBundleIndex(Bundle bundle) {
+        this.bundle = bundle;
+        List<Bundle.BundleEntryComponent> entries = bundle.getEntry();
+        this.indexedEntries = entries;
+        this.entryCount = entries.size();
+        for (int position = 0; position < entries.size(); position++) {
+            Bundle.BundleEntryComponent entry = entries.get(position);
+            Resource resource = entry.getResource();
+            addTo(resourcesByType, resource.getResourceType().name(), resource);
+            IdType resourceId = resource.getIdElement();
+            if (resourceId.hasResourceType()) {
+                addTo(entriesByQualifiedId, resourceId.getValue(), position);
+            }
+            if (resourceId.getIdPart() != null) {
+                addTo(entriesByIdPart, resourceId.getIdPart(), position);
+            }
+            String fullUrl = entry.getFullUrl();
+            if (StringUtils.isNotBlank(fullUrl)) {
+                if (!resourcesByFullUrl.containsKey(fullUrl)) {
+                    resourcesByFullUrl.put(fullUrl, resource);
+                }
+                for (String suffix : getSuffixes(fullUrl)) {
+                    addTo(entriesByFullUrlSuffix, suffix, position);
+                }
+            }
+        }
+    }
+
+    public static FHIRBundleIndex of(Bundle bundle) {
+        Object index = bundle.getUserData(USER_DATA_KEY);
+        if (index instanceof FHIRBundleIndex && ((FHIRBundleIndex) index).isCurrent()) {
+            return (FHIRBundleIndex) index;
+        }
+        return rebuild(bundle);
+    }
+
+    public static FHIRBundleIndex rebuild(Bundle bundle) {
+        FHIRBundleIndex bundleIndex = new FHIRBundleIndex(bundle);
+        bundle.setUserData(USER_DATA_KEY, bundleIndex);
+        return bundleIndex;
+    }
+
+    public Resource getFirstResourceOfType(String resourceName) {
+        List<Resource> resources = resourcesByType.get(resourceName);
+        return resources != null ? resources.get(0) : null;
+    }
+
+    public List<Resource> getResourcesOfType(String resourceName) {
+        List<Resource> resources = resourcesByType.get(resourceName);
+        return resources != null ? new ArrayList<>(resources) : new ArrayList<Resource>();
+    }
+
+    public Resource getResourceByFullUrl(String fullUrl) {
+        return resourcesByFullUrl.get(fullUrl);
+    }
+
+    /**
+     * Matches entries by qualified id, by id part, or by a full url ending with the id part. Unlike the scan this
+     * replaced, a full url only ends with the id part when the id part follows a '/' or ':', or is the whole url,
+     * so that an id part does not match the tail of a longer id.
+     */
+    public List<Resource> findResourcesByReference(List<Reference> references) {
+        List<Resource> matchedResources = new ArrayList<>();
+        for (Reference resourceRef : references) {
+            IIdType resourceReference = resourceRef.getReferenceElement();
+            SortedSet<Integer> positions = new TreeSet<>();
+            if (resourceReference.hasResourceType()) {
+                addAll(positions, entriesByQualifiedId.get(resourceReference.getValue()));
+            }
+            addAll(positions, entriesByIdPart.get(resourceReference.getIdPart()));
+            addAll(positions, entriesByFullUrlSuffix.get(resourceReference.getIdPart()));
+            for (Integer position : positions) {
+                matchedResources.add(bundle.getEntry().get(position).getResource());
+            }
+        }
+        return matchedResources;
+    }
+
+    public List<Resource> getTopLevelResources() {
+        if (topLevelResources == null) {
+            List<Resource> compositionRefResources = getCompositionRefResources();
+            Set<String> childRefs = getChildReferences(compositionRefResources);
+            List<Resource> resources = new ArrayList<>();
+            for (Resource compositionRefResource : compositionRefResources) {
+                if (!childRefs.contains(compositionRefResource.getId())) {
+                    resources.add(compositionRefResource);
+                }
+            }
+            topLevelResources = resources;
+        }
+        return new ArrayList<>(topLevelResources);
+    }
+
+    private List<Resource> getCompositionRefResources() {
+        List<Resource> resources = new ArrayList<>();
+        Composition composition = (Composition) getFirstResourceOfType("Composition");
+        for (Composition.SectionComponent section : composition.getSection()) {
+            List<Resource> sectionResources = findResourcesByReference(section.getEntry());
+            Resource resourceForReference = sectionResources.isEmpty() ? null : sectionResources.get(0);
+            if (!(resourceForReference instanceof Encounter)) {
+                resources.add(resourceForReference);
+            }
+        }
+        return resources;
+    }
+
+    private Set<String> getChildReferences(List<Resource> compositionRefResources) {
+        Set<String> childRefs = new HashSet<>();
+        for (Resource compositionRefResource : compositionRefResources) {
+            // add all observation as part of observation target
+            // add all observation as part of diagnosticreport result
+            // add all diagnostic reports as part of procedure.report
+            // add all medication requests as part of medicationrequest.priorprescription
+            if (compositionRefResource instanceof DiagnosticReport) {
+                addReferences(childRefs, ((DiagnosticReport) compositionRefResource).getResult());
+            }
+            if (compositionRefResource instanceof MedicationRequest) {
+                Reference priorPrescription = ((MedicationRequest) compositionRefResource).getPriorPrescription();
+                if (!priorPrescription.isEmpty()) {
+                    addReferences(childRefs, Collections.singletonList(priorPrescription));
+                }
+            }
+            if (compositionRefResource instanceof Procedure) {
+                addReferences(childRefs, ((Procedure) compositionRefResource).getReport());
+            }
+            if (compositionRefResource instanceof Observation) {
+                for (Observation.ObservationRelatedComponent related : ((Observation) compositionRefResource).getRelated()) {
+                    addReferences(childRefs, Collections.singletonList(related.getTarget()));
+                }
+            }
+        }
+        return childRefs;
+    }
+
+    private void addReferences(Set<String> childRefs, List<Reference> references) {
+        for (Reference reference : references) {
+            if (StringUtils.isNotEmpty(reference.getReference())) {
+                childRefs.add(reference.getReference());
+            }
+        }
+    }
+
+    private boolean isCurrent() {
+        List<Bundle.BundleEntryComponent> entries = bundle.getEntry();
+        return entries == indexedEntries && entries.size() == entryCount;
+    }
+
+    /**
+     * The suffixes an id part can be matched against. Id parts have no '/', so only the whole url and the suffixes
+     * within its last path segment are kept, however deep the url.
+     */
+    private List<String> getSuffixes(String fullUrl) {
+        List<String> suffixes = new ArrayList<>();
+        suffixes.add(fullUrl);
+        for (int index = fullUrl.lastIndexOf('/') + 1; index < fullUrl.length(); index++) {
+            if (index > 0 && (fullUrl.charAt(index - 1) == '/' || fullUrl.charAt(index - 1) == ':')) {
+                suffixes.add(fullUrl.substring(index));
+            }
+        }
+        return suffixes;
+    }
+
+    private static <T> void addTo(Map<String, List<T>> map, String key, T value) {
+        List<T> values = map.get(key);
+        if (values == null) {
+            values = new ArrayList<>();
+            map.put(key, values);
+        }
+        values.add(value);
+    }
+
+    private static void addAll(Set<Integer> positions, List<Integer> matchedPositions) {
+        if (matchedPositions != null) {
+            positions.addAll(matchedPositions);
+        }
+    }
+}
@@ -3,39 +3,179 @@ package org.openmrs.module.fhir.utils;
 import org.apache.commons.lang3.StringUtils;
 import org.codehaus.jackson.map.DeserializationConfig;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.openmrs.GlobalProperty;
 import org.openmrs.api.AdministrationService;
+import org.openmrs.api.GlobalPropertyListener;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.mapper.model.OpenMRSOrderTypeMap;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static java.util.Arrays.asList;
+import static org.openmrs.module.fhir.MRSProperties.GLOBAL_PROPERTY_IGNORED_CONCEPT_LIST;
 import static org.openmrs.module.fhir.MRSProperties.GLOBAL_PROPERTY_ORDER_TYPE_TO_FHIR_CODE_MAPPINGS;
 
+/**
+ * Reads global properties through a cache, along with values parsed from them. The service registers itself as a
+ * listener of global property changes on first use, and a changed or deleted property is read again on its next lookup.
+ * Listeners are told of a change before it is committed, so the property is evicted again once the change commits,
+ * a lookup in between could have cached the old value. The listener is removed with the Spring context.
+ */
 @Component
-public class GlobalPropertyLookUpService {
+public class GlobalPropertyLookUpService implements GlobalPropertyListener, DisposableBean {
+    private static final String NOT_SET = "";
+    private static final Object NO_VALUE = new Object();
+    private static final String INTEGER_VALUE = "integer";
+    private static final String IGNORED_CONCEPT_IDS = "ignoredConceptIds";
+    private static final String ORDER_TYPES = "orderTypes";
 
-    public String getGlobalPropertyValue(String propertyName) {
-        AdministrationService administrationService = Context.getAdministrationService();
-        String propertyValue = administrationService.getGlobalProperty(propertyName);
+    private final ObjectMapper orderTypesMapper;
+    private final ConcurrentMap<String, String> values = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<String>, Object> parsedValues = new ConcurrentHashMap<>();
+    private volatile boolean listening;
+
+    public GlobalPropertyLookUpService() {
+        orderTypesMapper = new ObjectMapper();
+        orderTypesMapper.configure(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
 
-        if (propertyValue != null && !propertyValue.isEmpty()) {
-            return propertyValue;
+    public String getGlobalPropertyValue(String propertyName) {
+        String cachedValue = values.get(propertyName);
+        if (cachedValue == null) {
+            listenToChanges();
+            AdministrationService administrationService = Context.getAdministrationService();
+            String propertyValue = administrationService.getGlobalProperty(propertyName);
+            cachedValue = propertyValue != null ? propertyValue : NOT_SET;
+            values.put(propertyName, cachedValue);
         }
-        return null;
+        return NOT_SET.equals(cachedValue) ? null : cachedValue;
+    }
+
+    public Integer getGlobalPropertyIntegerValue(final String propertyName) {
+        return getParsedValue(propertyName, INTEGER_VALUE, new ValueParser<Integer>() {
+            @Override
+            public Integer parse(String value) {
+                return Integer.parseInt(value.trim());
+            }
+        });
+    }
+
+    public Set<Integer> getIgnoredConceptIds() {
+        Set<Integer> conceptIds = getParsedValue(GLOBAL_PROPERTY_IGNORED_CONCEPT_LIST, IGNORED_CONCEPT_IDS, new ValueParser<Set<Integer>>() {
+            @Override
+            public Set<Integer> parse(String value) {
+                Set<Integer> conceptIds = new HashSet<>();
+                for (String conceptId : StringUtils.split(value, ",")) {
+                    if (StringUtils.isNotBlank(conceptId)) conceptIds.add(Integer.parseInt(conceptId.trim()));
+                }
+                return Collections.unmodifiableSet(conceptIds);
+            }
+        });
+        return conceptIds != null ? conceptIds : Collections.<Integer>emptySet();
     }
 
     public List<OpenMRSOrderTypeMap> getConfiguredOrderTypes() {
-        String orderTypes = getGlobalPropertyValue(GLOBAL_PROPERTY_ORDER_TYPE_TO_FHIR_CODE_MAPPINGS);
-        if (StringUtils.isBlank(orderTypes)) return Collections.emptyList();
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        try {
-            return asList(mapper.readValue(orderTypes, OpenMRSOrderTypeMap[].class));
-        } catch (Exception e) {
-            throw new RuntimeException(String.format("Invalid Property value for %s", GLOBAL_PROPERTY_ORDER_TYPE_TO_FHIR_CODE_MAPPINGS));
+        List<OpenMRSOrderTypeMap> orderTypes = getParsedValue(GLOBAL_PROPERTY_ORDER_TYPE_TO_FHIR_CODE_MAPPINGS, ORDER_TYPES, new ValueParser<List<OpenMRSOrderTypeMap>>() {
+            @Override
+            public List<OpenMRSOrderTypeMap> parse(String value) {
+                try {
+                    return Collections.unmodifiableList(asList(orderTypesMapper.readValue(value, OpenMRSOrderTypeMap[].class)));
+                } catch (Exception e) {
+                    throw new RuntimeException(String.format("Invalid Property value for %s", GLOBAL_PROPERTY_ORDER_TYPE_TO_FHIR_CODE_MAPPINGS));
+                }
+            }
+        });
+        return orderTypes != null ? orderTypes : Collections.<OpenMRSOrderTypeMap>emptyList();
+    }
+
+    @Override
+    public boolean supportsPropertyName(String propertyName) {
+        return true;
+    }
+
+    @Override
+    public void globalPropertyChanged(GlobalProperty newValue) {
+        evict(newValue.getProperty());
+    }
+
+    @Override
+    public void globalPropertyDeleted(String propertyName) {
+        evict(propertyName);
+    }
+
+    @Override
+    public void destroy() {
+        synchronized (this) {
+            if (listening) {
+                Context.getAdministrationService().removeGlobalPropertyListener(this);
+                listening = false;
+            }
         }
+        clearCache();
+    }
+
+    public void clearCache() {
+        values.clear();
+        parsedValues.clear();
+    }
+
+    /**
+     * Parses the value of a property once, the parsed value is kept until the property changes.
+     * Blank values are not parsed, null is returned for them.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getParsedValue(String propertyName, String kind, ValueParser<T> parser) {
+        List<String> key = Arrays.asList(propertyName, kind);
+        Object parsedValue = parsedValues.get(key);
+        if (parsedValue == null) {
+            String value = getGlobalPropertyValue(propertyName);
+            parsedValue = StringUtils.isBlank(value) ? NO_VALUE : parser.parse(value);
+            parsedValues.put(key, parsedValue);
+        }
+        return parsedValue == NO_VALUE ? null : (T) parsedValue;
+    }
+
+    private void evict(final String propertyName) {
+        evictNow(propertyName);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    evictNow(propertyName);
+                }
+            });
+        }
+    }
+
+    private void evictNow(String propertyName) {
+        values.remove(propertyName);
+        for (Iterator<List<String>> keys = parsedValues.keySet().iterator(); keys.hasNext(); ) {
+            if (keys.next().get(0).equals(propertyName)) keys.remove();
+        }
+    }
+
+    private void listenToChanges() {
+        if (listening) return;
+        synchronized (this) {
+            if (!listening) {
+                Context.getAdministrationService().addGlobalPropertyListener(this);
+                listening = true;
+            }
+        }
+    }
+
+    private interface ValueParser<T> {
+        T parse(String value);
     }
 }
@@ -14,6 +14,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static org.apache.commons.collections4.CollectionUtils.exists;
 import static org.apache.commons.collections4.CollectionUtils.select;
@@ -29,8 +30,13 @@ public class OMRSConceptLookup {
     public static final String TR_DRUG_REST_URL = "/ws/rest/v1/tr/drugs";
     public static final String WS_REST_V1_TR_CONCEPTS = "/ws/rest/v1/tr/concepts/";
 
+    private static final int CACHE_MAX_SIZE = 10000;
+    private static final long CACHE_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(30);
+
     private Logger logger = Logger.getLogger(OMRSConceptLookup.class);
     private ConceptMapType conceptMapTypeByName;
+    private final ConceptLookupCache conceptLookupCache = new ConceptLookupCache(CACHE_MAX_SIZE, CACHE_TIME_TO_LIVE);
+    private volatile boolean valueSetsWarmedUp;
 
     @Autowired
     public OMRSConceptLookup(ConceptService conceptService, IdMappingRepository repository, GlobalPropertyLookUpService globalPropertyLookUpService) {
@@ -54,10 +60,16 @@ public class OMRSConceptLookup {
             } else {
                 String uuid = getUuid(coding.getSystem());
                 if (StringUtils.isNotBlank(uuid)) {
+                    String key = codeKey(coding.getSystem());
+                    identifiedConcept = findCachedConcept(key);
+                    if (identifiedConcept != null) {
+                        return identifiedConcept;
+                    }
+                    long generation = conceptLookupCache.getGeneration();
                     IdMapping idMapping = idMappingsRepository.findByExternalId(uuid, IdMappingType.CONCEPT);
                     if (idMapping != null) {
                         if (IdMappingType.CONCEPT.equalsIgnoreCase(idMapping.getType())) {
-                            identifiedConcept = conceptService.getConceptByUuid(idMapping.getInternalId());
+                            identifiedConcept = cacheConcept(key, conceptService.getConceptByUuid(idMapping.getInternalId()), generation);
                         } else if (IdMappingType.CONCEPT_REFERENCE_TERM.equalsIgnoreCase(idMapping.getType())) {
                             referenceTermMap.put(conceptService.getConceptReferenceTermByUuid(idMapping.getInternalId()), coding.getDisplay());
                         }
@@ -89,9 +101,15 @@ public class OMRSConceptLookup {
 
     public Concept findConceptFromValueSetCode(String system, String code) {
         String valueSet = StringUtils.replace(StringUtils.substringAfterLast(system, "/"), "-", " ");
+        String key = valueSetKey(valueSet, code);
+        Concept cachedConcept = findCachedConcept(key);
+        if (cachedConcept != null) {
+            return cachedConcept;
+        }
+        long generation = conceptLookupCache.getGeneration();
         Concept valueSetConcept = conceptService.getConceptByName(valueSet);
         Concept answerConcept = findAnswerConceptFromValueSetCode(valueSetConcept, code);
-        return answerConcept == null ? conceptService.getConceptByName(code) : answerConcept;
+        return cacheConcept(key, answerConcept == null ? conceptService.getConceptByName(code) : answerConcept, generation);
     }
 
     public boolean referenceTermCodeFound(Concept concept, final String code) {
@@ -113,18 +131,65 @@ public class OMRSConceptLookup {
     }
 
     public Concept findTRConceptOfType(TrValueSetType type) {
+        String key = trValueSetKey(type);
+        Concept cachedConcept = findCachedConcept(key);
+        if (cachedConcept != null) {
+            return cachedConcept;
+        }
+        long generation = conceptLookupCache.getGeneration();
         String globalPropertyValue = globalPropertyLookUpService.getGlobalPropertyValue(type.getGlobalPropertyKey());
         if (globalPropertyValue != null) {
-            return conceptService.getConcept(Integer.parseInt(globalPropertyValue));
+            return cacheConcept(key, conceptService.getConcept(Integer.parseInt(globalPropertyValue)), generation);
         } else {
-            return conceptService.getConceptByName(type.getDefaultConceptName());
+            return cacheConcept(key, conceptService.getConceptByName(type.getDefaultConceptName()), generation);
         }
     }
 
     public Concept findValuesetConceptFromTrValuesetType(TrValueSetType type, String valuesetCode) {
+        String key = trValueSetCodeKey(type, valuesetCode);
+        Concept cachedConcept = findCachedConcept(key);
+        if (cachedConcept != null) {
+            return cachedConcept;
+        }
+        long generation = conceptLookupCache.getGeneration();
         Concept valuesetConcept = findTRConceptOfType(type);
         Concept answerConcept = findAnswerConceptFromValueSetCode(valuesetConcept, valuesetCode);
-        return answerConcept == null ? conceptService.getConceptByName(valuesetCode) : answerConcept;
+        return cacheConcept(key, answerConcept == null ? conceptService.getConceptByName(valuesetCode) : answerConcept, generation);
+    }
+
+    /**
+     * Resolves the concepts of all TR value sets and indexes their answers by code, so that the first encounters
+     * downloaded do not have to scan the value set answers.
+     */
+    public void warmUpValueSets() {
+        if (valueSetsWarmedUp) return;
+        long generation = conceptLookupCache.getGeneration();
+        for (TrValueSetType type : TrValueSetType.values()) {
+            indexAnswers(findTRConceptOfType(type), type, generation);
+            Concept valueSetConcept = conceptService.getConceptByName(type.getDefaultConceptName());
+            if (valueSetConcept != null) {
+                for (ConceptAnswer answer : valueSetConcept.getAnswers(false)) {
+                    Concept answerConcept = answer.getAnswerConcept();
+                    for (String code : getValueSetCodes(answerConcept)) {
+                        conceptLookupCache.putIfAbsent(valueSetKey(type.getDefaultConceptName(), code), answerConcept.getId(), generation);
+                    }
+                }
+            }
+        }
+        valueSetsWarmedUp = true;
+        logger.info(String.format("Warmed up concept lookup cache with %d entries", conceptLookupCache.size()));
+    }
+
+    /**
+     * To be called when concepts, drugs or their mappings are changed, e.g. by the TR concept and drug sync.
+     */
+    public void clearCache() {
+        conceptLookupCache.clear();
+        valueSetsWarmedUp = false;
+    }
+
+    public ConceptLookupCache getConceptLookupCache() {
+        return conceptLookupCache;
     }
 
     public Concept findAnswerConceptFromValueSetCode(Concept codedConcept, String valueSetCode) {
@@ -182,13 +247,86 @@ public class OMRSConceptLookup {
     }
 
     private Drug findDrug(String drugExternalId) {
+        String key = drugKey(drugExternalId);
+        Integer drugId = conceptLookupCache.get(key);
+        if (drugId != null) {
+            Drug drug = conceptService.getDrug(drugId);
+            if (drug != null) return drug;
+            conceptLookupCache.evict(key);
+        }
+        long generation = conceptLookupCache.getGeneration();
         IdMapping idMapping = idMappingsRepository.findByExternalId(drugExternalId, IdMappingType.MEDICATION);
         if (idMapping != null) {
-            return conceptService.getDrugByUuid(idMapping.getInternalId());
+            Drug drug = conceptService.getDrugByUuid(idMapping.getInternalId());
+            if (drug != null) {
+                conceptLookupCache.put(key, drug.getId(), generation);
+            }
+            return drug;
         }
         return null;
     }
 
+    private void indexAnswers(Concept valueSetConcept, TrValueSetType type, long generation) {
+        if (valueSetConcept == null) return;
+        for (ConceptAnswer answer : valueSetConcept.getAnswers(false)) {
+            Concept answerConcept = answer.getAnswerConcept();
+            for (String code : getValueSetCodes(answerConcept)) {
+                conceptLookupCache.putIfAbsent(trValueSetCodeKey(type, code), answerConcept.getId(), generation);
+            }
+        }
+    }
+
+    private List<String> getValueSetCodes(Concept concept) {
+        List<String> codes = new ArrayList<>();
+        for (ConceptMap conceptMap : concept.getConceptMappings()) {
+            codes.add(conceptMap.getConceptReferenceTerm().getCode());
+        }
+        for (ConceptName shortName : concept.getShortNames()) {
+            codes.add(shortName.getName());
+        }
+        if (concept.getName() != null) {
+            codes.add(concept.getName().getName());
+        }
+        return codes;
+    }
+
+    private Concept findCachedConcept(String key) {
+        Integer conceptId = conceptLookupCache.get(key);
+        if (conceptId == null) return null;
+        Concept concept = conceptService.getConcept(conceptId);
+        if (concept == null) {
+            conceptLookupCache.evict(key);
+        }
+        return concept;
+    }
+
+    private Concept cacheConcept(String key, Concept concept, long generation) {
+        if (concept != null && concept.getId() != null) {
+            conceptLookupCache.put(key, concept.getId(), generation);
+        }
+        return concept;
+    }
+
+    private static String codeKey(String system) {
+        return "code:" + system;
+    }
+
+    private static String valueSetKey(String valueSet, String code) {
+        return "valueset:" + StringUtils.lowerCase(valueSet) + ":" + code;
+    }
+
+    private static String trValueSetKey(TrValueSetType type) {
+        return "trvalueset:" + type.name();
+    }
+
+    private static String trValueSetCodeKey(TrValueSetType type, String code) {
+        return "trvalueset:" + type.name() + ":" + code;
+    }
+
+    private static String drugKey(String drugExternalId) {
+        return "drug:" + drugExternalId;
+    }
+
     private boolean isValueSetUrl(String systemSimple) {
         return StringUtils.contains(systemSimple, "tr/vs/");
     }
@@ -44,8 +44,7 @@ public class OMRSLocationService {
     }
 
     public Integer getHIEFacilityLocationTag() {
-        String hieFacilityLocationTag = globalPropertyLookUpService.getGlobalPropertyValue(GLOBAL_PROPERTY_SHR_HIE_FACILITY_LOCATION_TAG_ID);
-        return hieFacilityLocationTag != null ? Integer.parseInt(hieFacilityLocationTag) : null;
+        return globalPropertyLookUpService.getGlobalPropertyIntegerValue(GLOBAL_PROPERTY_SHR_HIE_FACILITY_LOCATION_TAG_ID);
     }
 
     public boolean isLoginLocation(Location location) {
@@ -58,8 +57,8 @@ public class OMRSLocationService {
     }
 
     public Integer getLoginLocationTagId() {
-        String loginLocationTagIdPropertyValue = globalPropertyLookUpService.getGlobalPropertyValue(GLOBAL_PROPERTY_SHR_LOGIN_LOCATION_TAG_ID);
-        return loginLocationTagIdPropertyValue != null ? Integer.parseInt(loginLocationTagIdPropertyValue) : getLocationTagIdByName();
+        Integer loginLocationTagId = globalPropertyLookUpService.getGlobalPropertyIntegerValue(GLOBAL_PROPERTY_SHR_LOGIN_LOCATION_TAG_ID);
+        return loginLocationTagId != null ? loginLocationTagId : getLocationTagIdByName();
     }
 
     public Integer getLocationTagIdByName() {
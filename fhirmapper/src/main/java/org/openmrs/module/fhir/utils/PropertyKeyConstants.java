@@ -10,20 +10,40 @@ public class PropertyKeyConstants {
     public static final String MCI_PATIENT_CONTEXT = "mci.patientContext";
     public static final String MCI_PATIENT_CATCHMENT_PATH_PATTERN = "mci.catchmentPathPattern";
     public static final String MCI_MAX_FAILED_EVENT = "mci.maxFailedEventCount";
+    public static final String MCI_SEARCH_TIMEOUT = "mci.searchTimeoutMillis";
+    public static final String MCI_PATIENT_CACHE_TTL = "mci.patientCacheTtlSeconds";
+    public static final String MCI_PATIENT_CACHE_SIZE = "mci.patientCacheSize";
 
     public static final String SHR_REFERENCE_PATH = "shr.referenceUrl";
     public static final String SHR_CATCHMENT_PATH_PATTERN = "shr.catchmentPathPattern"; ///catchments/%s/encounters
     public static final String SHR_PATIENT_ENC_PATH_PATTERN = "shr.patientEncPathPattern"; ///patients/%s/encounters
     public static final String SHR_MAX_FAILED_EVENT = "shr.maxFailedEventCount";
+    public static final String SHR_ENCOUNTER_PUSH_WORKERS = "shr.encounterPushWorkers";
+    public static final String SHR_ENCOUNTER_PUSH_MAX_IN_FLIGHT = "shr.encounterPushMaxInFlight";
+    public static final String SHR_ENCOUNTER_PULL_PARSER_THREADS = "shr.encounterPullParserThreads";
+    public static final String SHR_ENCOUNTER_PULL_MAX_IN_FLIGHT = "shr.encounterPullMaxInFlight";
+    public static final String SHR_ENCOUNTER_PULL_BOOTSTRAP_BATCH_SIZE = "shr.encounterPullBootstrapBatchSize";
+    public static final String SHR_PATIENT_ENCOUNTER_BACKFILL_WORKERS = "shr.patientEncounterBackfillWorkers";
+    public static final String SHR_WIRE_FORMAT = "shr.wireFormat"; //xml or json
 
     public static final String IDP_SERVER_URL = "idP.referenceUrl";
     public static final String IDP_SIGNIN_PATH = "idP.signinPath";
+    public static final String IDP_TOKEN_REFRESH_LEAD = "idP.tokenRefreshLeadSeconds";
 
     public static final String FACILITY_CATCHMENTS = "facility.catchments";
+    public static final String FACILITY_CATCHMENT_DOWNLOAD_THREADS = "facility.catchmentDownloadThreads";
     public static final String FACILITY_EMAIL_KEY = "facility.email";
     public static final String FACILITY_PASSWORD_KEY = "facility.password";
     public static final String FACILITY_ID = "facility.facilityId";
 
+    public static final String HTTP_MAX_TOTAL_CONNECTIONS = "http.maxTotalConnections";
+    public static final String HTTP_MAX_CONNECTIONS_PER_ROUTE = "http.maxConnectionsPerRoute";
+    public static final String HTTP_CONNECT_TIMEOUT = "http.connectTimeoutMillis";
+    public static final String HTTP_SOCKET_TIMEOUT = "http.socketTimeoutMillis";
+    public static final String HTTP_CONNECTION_REQUEST_TIMEOUT = "http.connectionRequestTimeoutMillis";
+    public static final String HTTP_KEEP_ALIVE = "http.keepAliveMillis";
+    public static final String HTTP_IDLE_CONNECTION_TIMEOUT = "http.idleConnectionTimeoutMillis";
+
     public static final String TR_REFERENCE_PATH = "tr.referenceUrl";
     public static final String TR_VALUESET_PATH_INFO = "tr.valueset.url.pathInfo";
     public static final String TR_VALUESET_RELATIONSHIP_TYPE = "tr.valueset.relationshipType";
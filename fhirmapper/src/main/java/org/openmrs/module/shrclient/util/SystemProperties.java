@@ -7,18 +7,27 @@ import org.openmrs.module.fhir.utils.PropertyKeyConstants;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.openmrs.module.fhir.utils.PropertyKeyConstants.*;
 
+/**
+ * Read only view over the module configuration. A single instance is shared by all mappers until the
+ * configuration files change, so parsed values are kept once computed.
+ */
 public class SystemProperties {
-    private Properties frProperties;
-    private Properties trProperties;
-    private Properties prProperties;
-    private Properties facilityInstanceProperties;
-    private Properties mciProperties;
-    private Properties shrProperties;
-    private Properties fhirMappingProperties;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Properties frProperties;
+    private final Properties trProperties;
+    private final Properties prProperties;
+    private final Properties facilityInstanceProperties;
+    private final Properties mciProperties;
+    private final Properties shrProperties;
+    private final Properties fhirMappingProperties;
+    private final ConcurrentHashMap<String, Map<String, String>> parsedMaps = new ConcurrentHashMap<>();
 
     public SystemProperties(Properties frProperties,
                             Properties trProperties, Properties prProperties,
@@ -94,7 +103,17 @@ public class SystemProperties {
     }
 
     private HashMap<String, String> getMap(String property) {
-        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, String> map = property != null ? parsedMaps.get(property) : null;
+        if (map == null) {
+            map = parseMap(property);
+            if (property != null && map != null) {
+                parsedMaps.putIfAbsent(property, map);
+            }
+        }
+        return map != null ? new HashMap<>(map) : null;
+    }
+
+    private Map<String, String> parseMap(String property) {
         TypeReference<HashMap<String, String>> typeRef
                 = new TypeReference<HashMap<String, String>>() {
         };
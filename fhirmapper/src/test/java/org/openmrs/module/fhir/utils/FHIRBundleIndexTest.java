@@ -0,0 +1,115 @@
+package org.openmrs.module.fhir.utils;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Composition;
+import org.hl7.fhir.dstu3.model.DiagnosticReport;
+import org.hl7.fhir.dstu3.model.Encounter;
+import org.hl7.fhir.dstu3.model.Observation;
+import org.hl7.fhir.dstu3.model.Reference;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class FHIRBundleIndexTest {
+    private static final String ENCOUNTER_URL = "urn:uuid:85c310fd-1f9d-4c1e-a16b-4e53a636c46d";
+    private static final String OBSERVATION_URL = "urn:uuid:b052c4dc-d425-4ef7-90f8-0376d6e9e29a";
+    private static final String REPORT_URL = "urn:uuid:2f933127-feb9-4131-be06-4c92980d0b7b";
+
+    private Bundle bundle;
+    private Encounter encounter;
+    private Observation observation;
+    private DiagnosticReport diagnosticReport;
+
+    @Before
+    public void setUp() throws Exception {
+        encounter = new Encounter();
+        observation = new Observation();
+        diagnosticReport = new DiagnosticReport();
+        diagnosticReport.addResult(new Reference(OBSERVATION_URL));
+
+        Composition composition = new Composition();
+        composition.setEncounter(new Reference(ENCOUNTER_URL));
+        composition.addSection().addEntry(new Reference(ENCOUNTER_URL));
+        composition.addSection().addEntry(new Reference(OBSERVATION_URL));
+        composition.addSection().addEntry(new Reference(REPORT_URL));
+
+        bundle = new Bundle();
+        addEntry("urn:uuid:199c90a7-6c15-4c8e-8681-2659526fee5e", composition);
+        addEntry(ENCOUNTER_URL, encounter);
+        addEntry(OBSERVATION_URL, observation);
+        addEntry(REPORT_URL, diagnosticReport);
+    }
+
+    @Test
+    public void shouldFindResourcesByReferenceAndType() throws Exception {
+        assertSame(encounter, FHIRBundleHelper.getEncounter(bundle));
+        assertSame(observation, FHIRBundleHelper.findResourceByReference(bundle, new Reference(OBSERVATION_URL)));
+        assertEquals(asList((Resource) diagnosticReport), FHIRBundleHelper.identifyResourcesByName(bundle, "DiagnosticReport"));
+        assertNull(FHIRBundleHelper.findResourcesByReference(bundle, asList(new Reference("urn:uuid:not-in-bundle"))));
+    }
+
+    @Test
+    public void shouldIdentifyTopLevelResources() throws Exception {
+        List<Resource> topLevelResources = FHIRBundleHelper.identifyTopLevelResources(bundle);
+
+        assertEquals(asList((Resource) diagnosticReport), topLevelResources);
+    }
+
+    @Test
+    public void shouldBuildIndexOnceAndRebuildWhenEntriesAreAdded() throws Exception {
+        FHIRBundleIndex bundleIndex = FHIRBundleIndex.of(bundle);
+        assertSame(bundleIndex, FHIRBundleIndex.of(bundle));
+
+        Observation newObservation = new Observation();
+        addEntry("urn:uuid:9a1ddb2c-3f0b-4c4e-9d5e-10cbd5a7c7e1", newObservation);
+
+        assertSame(newObservation, FHIRBundleHelper.findResourceByReference(bundle, new Reference("urn:uuid:9a1ddb2c-3f0b-4c4e-9d5e-10cbd5a7c7e1")));
+    }
+
+    @Test
+    public void shouldRebuildIndexWhenTheEntryListIsReplaced() throws Exception {
+        FHIRBundleIndex.of(bundle);
+        Observation replacedObservation = new Observation();
+        List<Bundle.BundleEntryComponent> entries = new ArrayList<>(bundle.getEntry());
+        entries.set(2, new Bundle.BundleEntryComponent().setFullUrl(OBSERVATION_URL).setResource(replacedObservation));
+        replacedObservation.setId(OBSERVATION_URL);
+
+        bundle.setEntry(entries);
+
+        assertSame(replacedObservation, FHIRBundleHelper.findResourceByReference(bundle, new Reference(OBSERVATION_URL)));
+    }
+
+    @Test
+    public void shouldFindAnEntryReplacedInPlaceOnceTheIndexIsRebuilt() throws Exception {
+        FHIRBundleIndex.of(bundle);
+        Observation replacedObservation = new Observation();
+        replacedObservation.setId(OBSERVATION_URL);
+
+        bundle.getEntry().get(2).setResource(replacedObservation);
+        FHIRBundleIndex.rebuild(bundle);
+
+        assertSame(replacedObservation, FHIRBundleHelper.findResourceByReference(bundle, new Reference(OBSERVATION_URL)));
+    }
+
+    @Test
+    public void shouldMatchTheEndOfAFullUrlOnlyAfterASeparator() throws Exception {
+        Observation observationWithoutId = new Observation();
+        bundle.addEntry().setFullUrl("http://shr/patients/HID1/encounters/E1#Observation/obs-11").setResource(observationWithoutId);
+
+        assertSame(observationWithoutId, FHIRBundleHelper.findResourceByReference(bundle, new Reference("obs-11")));
+        assertNull(FHIRBundleHelper.findResourcesByReference(bundle, asList(new Reference("bs-11"))));
+    }
+
+    private void addEntry(String fullUrl, Resource resource) {
+        resource.setId(fullUrl);
+        bundle.addEntry().setFullUrl(fullUrl).setResource(resource);
+    }
+}
@@ -3,6 +3,7 @@ package org.openmrs.module.fhir.utils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.openmrs.api.context.Context;
 import org.openmrs.web.test.BaseModuleWebContextSensitiveTest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.DirtiesContext;
@@ -31,4 +32,14 @@ public class GlobalPropertyLookupServiceIT extends BaseModuleWebContextSensitive
     public void shouldReturnConfiguredGlobalPropertyValue() throws Exception {
         assertEquals(555, Integer.parseInt(globalPropertyLookUpService.getGlobalPropertyValue("concept.causeOfDeath")));
     }
+
+    @Test
+    public void shouldReadAChangedGlobalPropertyAgain() throws Exception {
+        assertEquals(Integer.valueOf(555), globalPropertyLookUpService.getGlobalPropertyIntegerValue("concept.causeOfDeath"));
+
+        Context.getAdministrationService().setGlobalProperty("concept.causeOfDeath", "556");
+
+        assertEquals("556", globalPropertyLookUpService.getGlobalPropertyValue("concept.causeOfDeath"));
+        assertEquals(Integer.valueOf(556), globalPropertyLookUpService.getGlobalPropertyIntegerValue("concept.causeOfDeath"));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package org.openmrs.module.fhir.utils;
+
+import org.hl7.fhir.dstu3.model.Coding;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.openmrs.Concept;
+import org.openmrs.ConceptAnswer;
+import org.openmrs.ConceptMap;
+import org.openmrs.ConceptName;
+import org.openmrs.Drug;
+import org.openmrs.api.ConceptService;
+import org.openmrs.module.shrclient.dao.IdMappingRepository;
+import org.openmrs.module.shrclient.model.IdMapping;
+import org.openmrs.module.shrclient.model.IdMappingType;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Locale;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class OMRSConceptLookupTest {
+
+    private static final String VALUE_SET_URI = "http://www.bdshr-tr.com/tr/vs/";
+    private static final String TR_DRUG_URI = "http://www.bdshr-tr.com/ws/rest/v1/tr/drugs/";
+
+    @Mock
+    private ConceptService conceptService;
+    @Mock
+    private IdMappingRepository idMappingRepository;
+    @Mock
+    private GlobalPropertyLookUpService globalPropertyLookUpService;
+
+    private OMRSConceptLookup conceptLookup;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        conceptLookup = new OMRSConceptLookup(conceptService, idMappingRepository, globalPropertyLookUpService);
+    }
+
+    @Test
+    public void shouldResolveValueSetCodeOnlyOnce() throws Exception {
+        Concept answer = createConcept(11, "Oral");
+        Concept valueSet = createConcept(10, "Route of Administration");
+        when(valueSet.getAnswers(false)).thenReturn(asList(new ConceptAnswer(answer)));
+        when(conceptService.getConceptByName("Route of Administration")).thenReturn(valueSet);
+        when(conceptService.getConcept(11)).thenReturn(answer);
+
+        assertEquals(answer, conceptLookup.findConceptFromValueSetCode(VALUE_SET_URI + "Route-of-Administration", "Oral"));
+        assertEquals(answer, conceptLookup.findConceptFromValueSetCode(VALUE_SET_URI + "Route-of-Administration", "Oral"));
+
+        verify(conceptService, times(1)).getConceptByName("Route of Administration");
+    }
+
+    @Test
+    public void shouldResolveValueSetCodesFromWarmedUpValueSets() throws Exception {
+        Concept answer = createConcept(11, "Oral");
+        Concept valueSet = createConcept(10, "Route of Administration");
+        when(valueSet.getAnswers(false)).thenReturn(asList(new ConceptAnswer(answer)));
+        when(conceptService.getConceptByName("Route of Administration")).thenReturn(valueSet);
+        when(conceptService.getConcept(10)).thenReturn(valueSet);
+        when(conceptService.getConcept(11)).thenReturn(answer);
+
+        conceptLookup.warmUpValueSets();
+
+        assertEquals(answer, conceptLookup.findValuesetConceptFromTrValuesetType(TrValueSetType.ROUTE_OF_ADMINISTRATION, "Oral"));
+        assertEquals(answer, conceptLookup.findConceptFromValueSetCode(VALUE_SET_URI + "Route-of-Administration", "Oral"));
+        verify(conceptService, times(2)).getConceptByName("Route of Administration");
+    }
+
+    @Test
+    public void shouldResolveTRDrugOnlyOnceUntilCacheIsCleared() throws Exception {
+        Drug drug = new Drug(5);
+        drug.setUuid("drug-uuid");
+        when(idMappingRepository.findByExternalId("tr-drug-id", IdMappingType.MEDICATION)).thenReturn(
+                new IdMapping("drug-uuid", "tr-drug-id", IdMappingType.MEDICATION, TR_DRUG_URI + "tr-drug-id", new Date()));
+        when(conceptService.getDrugByUuid("drug-uuid")).thenReturn(drug);
+        when(conceptService.getDrug(5)).thenReturn(drug);
+        Coding coding = new Coding(TR_DRUG_URI + "tr-drug-id", "tr-drug-id", "Paracetamol");
+
+        assertEquals(drug, conceptLookup.findDrug(asList(coding)));
+        assertEquals(drug, conceptLookup.findDrug(asList(coding)));
+        conceptLookup.clearCache();
+        assertEquals(drug, conceptLookup.findDrug(asList(coding)));
+
+        verify(conceptService, times(2)).getDrugByUuid("drug-uuid");
+    }
+
+    private Concept createConcept(int id, String name) {
+        Concept concept = mock(Concept.class);
+        when(concept.getId()).thenReturn(id);
+        when(concept.getName()).thenReturn(new ConceptName(name, Locale.ENGLISH));
+        when(concept.getConceptMappings()).thenReturn(new ArrayList<ConceptMap>());
+        when(concept.getShortNames()).thenReturn(new ArrayList<ConceptName>());
+        return concept;
+    }
+}
@@ -49,7 +49,7 @@ public class OMRSLocationServiceTest {
             HIEFacilityTag.setId(10);
             add(HIEFacilityTag);
         }});
-        when(globalPropertyLookUpService.getGlobalPropertyValue(GLOBAL_PROPERTY_SHR_HIE_FACILITY_LOCATION_TAG_ID)).thenReturn("10");
+        when(globalPropertyLookUpService.getGlobalPropertyIntegerValue(GLOBAL_PROPERTY_SHR_HIE_FACILITY_LOCATION_TAG_ID)).thenReturn(10);
 
         assertTrue(omrsLocationService.isLocationHIEFacility(hieLocation));
     }
@@ -57,7 +57,7 @@ public class OMRSLocationServiceTest {
     @Test
     public void shouldNotMarkLocationAsHIEFacilityIfNotTaggedAsHIEFacility() throws Exception {
         Location someOtherLocation = new Location();
-        when(globalPropertyLookUpService.getGlobalPropertyValue(GLOBAL_PROPERTY_SHR_HIE_FACILITY_LOCATION_TAG_ID)).thenReturn("10");
+        when(globalPropertyLookUpService.getGlobalPropertyIntegerValue(GLOBAL_PROPERTY_SHR_HIE_FACILITY_LOCATION_TAG_ID)).thenReturn(10);
 
         assertFalse(omrsLocationService.isLocationHIEFacility(someOtherLocation));
     }
@@ -69,7 +69,7 @@ public class OMRSLocationServiceTest {
 
     @Test
     public void shouldNotMarkALocationAsHIEFacilityIfNoGlobalPropertyIsConfiguredAsHIELocationTagId() throws Exception {
-        when(globalPropertyLookUpService.getGlobalPropertyValue(GLOBAL_PROPERTY_SHR_HIE_FACILITY_LOCATION_TAG_ID)).thenReturn(null);
+        when(globalPropertyLookUpService.getGlobalPropertyIntegerValue(GLOBAL_PROPERTY_SHR_HIE_FACILITY_LOCATION_TAG_ID)).thenReturn(null);
 
         assertFalse(omrsLocationService.isLocationHIEFacility(new Location()));
     }
@@ -104,7 +104,7 @@ public class OMRSLocationServiceTest {
             loginLocationTag.setId(1);
             add(loginLocationTag);
         }});
-        when(globalPropertyLookUpService.getGlobalPropertyValue(GLOBAL_PROPERTY_SHR_LOGIN_LOCATION_TAG_ID)).thenReturn("1");
+        when(globalPropertyLookUpService.getGlobalPropertyIntegerValue(GLOBAL_PROPERTY_SHR_LOGIN_LOCATION_TAG_ID)).thenReturn(1);
 
         assertTrue(omrsLocationService.isLoginLocation(loginLocation));
     }
@@ -121,7 +121,7 @@ public class OMRSLocationServiceTest {
         tags.add(loginLocationTag);
         loginLocation.setTags(tags);
         
-        when(globalPropertyLookUpService.getGlobalPropertyValue(GLOBAL_PROPERTY_SHR_LOGIN_LOCATION_TAG_ID)).thenReturn(null);
+        when(globalPropertyLookUpService.getGlobalPropertyIntegerValue(GLOBAL_PROPERTY_SHR_LOGIN_LOCATION_TAG_ID)).thenReturn(null);
         when(locationService.getLocationTags(MRS_LOGIN_LOCATION_TAG_NAME)).thenReturn(asList(loginLocationTag));
 
         assertTrue(omrsLocationService.isLoginLocation(loginLocation));
@@ -10,6 +10,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class AddressHierarchyEntryTranslationRepository {
@@ -89,4 +91,32 @@ public class AddressHierarchyEntryTranslationRepository {
             }
         });
     }
+
+    public List<AddressHierarchyEntryTranslation> findAll() {
+        return database.executeInTransaction(new Database.TxWork<List<AddressHierarchyEntryTranslation>>() {
+            @Override
+            public List<AddressHierarchyEntryTranslation> execute(Connection connection) {
+                List<AddressHierarchyEntryTranslation> translations = new ArrayList<>();
+                PreparedStatement statement = null;
+                ResultSet resultSet = null;
+                try {
+                    statement = connection.prepareStatement("SELECT address_hierarchy_entry_id, local_name FROM " + ADDRESS_HIERARCHY_TRANSLATION_TABLE);
+                    resultSet = statement.executeQuery();
+                    while (resultSet.next()) {
+                        translations.add(new AddressHierarchyEntryTranslation(resultSet.getInt("address_hierarchy_entry_id"), resultSet.getString("local_name")));
+                    }
+                } catch (SQLException e) {
+                    throw new RuntimeException("Error occurred while reading address hierarchy entry translations", e);
+                } finally {
+                    try {
+                        if (resultSet != null) resultSet.close();
+                        if (statement != null) statement.close();
+                    } catch (SQLException e) {
+                        logger.warn("Could not close db statement or result set", e);
+                    }
+                }
+                return translations;
+            }
+        });
+    }
 }
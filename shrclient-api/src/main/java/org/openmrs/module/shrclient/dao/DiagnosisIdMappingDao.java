@@ -31,44 +31,40 @@ public class DiagnosisIdMappingDao extends IdMappingDao {
     }
 
     @Override
-    public PreparedStatement getInsertIdMappingStatement(Connection connection, IdMapping idMapping) throws SQLException {
+    public void setInsertParameters(PreparedStatement statement, IdMapping idMapping) throws SQLException {
         DiagnosisIdMapping diagnosisIdMapping = (DiagnosisIdMapping) idMapping;
-        PreparedStatement statement = connection.prepareStatement(getInsertMappingSql());
         statement.setString(1, diagnosisIdMapping.getInternalId());
         statement.setString(2, diagnosisIdMapping.getExternalId());
         statement.setString(3, diagnosisIdMapping.getUri());
         statement.setTimestamp(4, diagnosisIdMapping.getCreatedAt());
-
-        return statement;
+        statement.setString(5, diagnosisIdMapping.getHealthId());
     }
+
     @Override
     protected PreparedStatement getBatchStatement(Connection connection, List<IdMapping> idMappings) throws SQLException {
         if (idMappings.size() == 0) {
             return null;
         }
-        String updateURIByInternalIdSql = String.format("update %s set uri=? where internal_id=?", getMappingTable());
+        String updateURIByInternalIdSql = String.format("update %s set uri=?, health_id=? where internal_id=?", getMappingTable());
         PreparedStatement preparedStatement = connection.prepareStatement(updateURIByInternalIdSql);
         for (IdMapping idMapping : idMappings) {
             preparedStatement.setString(1, idMapping.getUri());
-            preparedStatement.setString(2, idMapping.getInternalId());
+            preparedStatement.setString(2, idMapping.getHealthId());
+            preparedStatement.setString(3, idMapping.getInternalId());
             preparedStatement.addBatch();
         }
         return preparedStatement;
     }
 
     @Override
-    public PreparedStatement getUpdateIdMappingStatement(Connection connection, IdMapping idMapping) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(getUpdateMappingSql());
+    public void setUpdateParameters(PreparedStatement statement, IdMapping idMapping) throws SQLException {
         statement.setString(1, idMapping.getInternalId());
         statement.setString(2, idMapping.getExternalId());
-        return statement;
     }
-    
+
     @Override
-    public PreparedStatement getCheckMappingExistsStatement(Connection connection, IdMapping idMapping) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(getMappingExistsQuery());
-        statement.setString(1, idMapping.getExternalId());
-        return statement;
+    protected String getMappingKey(String internalId, String externalId) {
+        return externalId;
     }
 
     @Override
@@ -89,18 +85,16 @@ public class DiagnosisIdMappingDao extends IdMappingDao {
 
     @Override
     public String getFetchByHealthIdSql() {
-        return String.format("select map.internal_id, map.external_id, map.uri, map.created_at from %s map where map.uri like ?", getMappingTable());
+        return String.format("select map.internal_id, map.external_id, map.uri, map.created_at from %s map where map.health_id = ?", getMappingTable());
     }
 
-    private String getInsertMappingSql() {
-        return String.format("insert into %s (internal_id, external_id, uri, created_at) values (?,?,?,?)", getMappingTable());
+    @Override
+    public String getInsertMappingSql() {
+        return String.format("insert into %s (internal_id, external_id, uri, created_at, health_id) values (?,?,?,?,?)", getMappingTable());
     }
 
-    private String getUpdateMappingSql() {
+    @Override
+    public String getUpdateMappingSql() {
         return String.format("update %s set internal_id = ? where external_id = ?", getMappingTable());
     }
-
-    private String getMappingExistsQuery() {
-        return String.format("select distinct map.internal_id from %s map where map.external_id=?", getMappingTable());
-    }
 }
@@ -14,6 +14,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Date;
+import java.util.List;
 
 import static org.openmrs.module.fhir.utils.DateUtil.getDateFromTimestamp;
 
@@ -31,36 +32,23 @@ public class EncounterIdMappingDao extends IdMappingDao {
     }
 
     @Override
-    public PreparedStatement getInsertIdMappingStatement(Connection connection, IdMapping idMapping) throws SQLException {
+    public void setInsertParameters(PreparedStatement statement, IdMapping idMapping) throws SQLException {
         EncounterIdMapping encounterIdMapping = (EncounterIdMapping) idMapping;
-        PreparedStatement statement = connection.prepareStatement(getInsertMappingSql());
         statement.setString(1, encounterIdMapping.getInternalId());
         statement.setString(2, encounterIdMapping.getExternalId());
         statement.setString(3, encounterIdMapping.getUri());
         statement.setTimestamp(4, encounterIdMapping.getCreatedAt());
         statement.setTimestamp(5, encounterIdMapping.getLastSyncTimestamp());
         statement.setTimestamp(6, encounterIdMapping.getServerUpdateTimestamp());
-
-        return statement;
+        statement.setString(7, encounterIdMapping.getHealthId());
     }
 
     @Override
-    public PreparedStatement getUpdateIdMappingStatement(Connection connection, IdMapping idMapping) throws SQLException {
+    public void setUpdateParameters(PreparedStatement statement, IdMapping idMapping) throws SQLException {
         EncounterIdMapping encounterIdMapping = (EncounterIdMapping) idMapping;
-        PreparedStatement statement = connection.prepareStatement(getUpdateMappingSql());
         statement.setTimestamp(1, encounterIdMapping.getLastSyncTimestamp());
         statement.setTimestamp(2, encounterIdMapping.getServerUpdateTimestamp());
         statement.setString(3, encounterIdMapping.getInternalId());
-
-        return statement;
-    }
-
-    @Override
-    public PreparedStatement getCheckMappingExistsStatement(Connection connection, IdMapping idMapping) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(getMappingExistsQuery());
-        statement.setString(1, idMapping.getInternalId());
-        statement.setString(2, idMapping.getExternalId());
-        return statement;
     }
 
     @Override
@@ -83,19 +71,34 @@ public class EncounterIdMappingDao extends IdMappingDao {
 
     @Override
     public String getFetchByHealthIdSql() {
-        return String.format("select map.internal_id, map.external_id, map.uri, map.created_at, map.last_sync_datetime, map.server_update_datetime from %s map where map.uri like ?", getMappingTable());
+        return String.format("select map.internal_id, map.external_id, map.uri, map.created_at, map.last_sync_datetime, map.server_update_datetime from %s map where map.health_id = ?", getMappingTable());
     }
 
-    private String getInsertMappingSql() {
-        return String.format("insert into %s (internal_id, external_id, uri, created_at, last_sync_datetime, server_update_datetime) values (?,?,?,?,?,?)", getMappingTable());
+    @Override
+    protected PreparedStatement getBatchStatement(Connection connection, List<IdMapping> idMappings) throws SQLException {
+        if (idMappings.size() == 0) {
+            return null;
+        }
+        String updateURIByInternalIdSql = String.format("update %s set uri=?, health_id=?, last_sync_datetime=? where internal_id=?", getMappingTable());
+        PreparedStatement preparedStatement = connection.prepareStatement(updateURIByInternalIdSql);
+        for (IdMapping idMapping : idMappings) {
+            preparedStatement.setString(1, idMapping.getUri());
+            preparedStatement.setString(2, idMapping.getHealthId());
+            preparedStatement.setTimestamp(3, idMapping.getLastSyncTimestamp());
+            preparedStatement.setString(4, idMapping.getInternalId());
+            preparedStatement.addBatch();
+        }
+        return preparedStatement;
     }
 
-    private String getUpdateMappingSql() {
-        return String.format("update %s set last_sync_datetime = ?, server_update_datetime = ? where internal_id = ?", getMappingTable());
+    @Override
+    public String getInsertMappingSql() {
+        return String.format("insert into %s (internal_id, external_id, uri, created_at, last_sync_datetime, server_update_datetime, health_id) values (?,?,?,?,?,?,?)", getMappingTable());
     }
 
-    private String getMappingExistsQuery() {
-        return String.format("select distinct map.internal_id from %s map where map.internal_id=? and map.external_id=?", getMappingTable());
+    @Override
+    public String getUpdateMappingSql() {
+        return String.format("update %s set last_sync_datetime = ?, server_update_datetime = ? where internal_id = ?", getMappingTable());
     }
 
 }
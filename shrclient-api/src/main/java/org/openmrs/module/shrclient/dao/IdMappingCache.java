@@ -0,0 +1,103 @@
+package org.openmrs.module.shrclient.dao;
+
+import org.openmrs.module.shrclient.model.IdMapping;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, least recently used cache of id mappings. Lookups that found nothing are cached as well, for a shorter time,
+ * since mappings can be added by other modules (e.g. concepts synced from TR) without going through this client.
+ */
+public class IdMappingCache {
+
+    public interface Loader {
+        IdMapping load();
+    }
+
+    private static final IdMapping NOT_FOUND = new IdMapping();
+
+    private final long timeToLive;
+    private final long notFoundTimeToLive;
+    private final Map<String, CachedIdMapping> cachedIdMappings;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long evictions;
+
+    public IdMappingCache(final int maxSize, long timeToLive, long notFoundTimeToLive) {
+        this.timeToLive = timeToLive;
+        this.notFoundTimeToLive = notFoundTimeToLive;
+        this.cachedIdMappings = new LinkedHashMap<String, CachedIdMapping>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedIdMapping> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public IdMapping get(String key, Loader loader) {
+        long now = System.currentTimeMillis();
+        long evictionsBeforeLoad;
+        synchronized (cachedIdMappings) {
+            CachedIdMapping cachedIdMapping = cachedIdMappings.get(key);
+            if (cachedIdMapping != null && cachedIdMapping.expiresAt > now) {
+                hits.incrementAndGet();
+                return cachedIdMapping.idMapping == NOT_FOUND ? null : cachedIdMapping.idMapping;
+            }
+            evictionsBeforeLoad = evictions;
+        }
+        misses.incrementAndGet();
+        IdMapping idMapping = loader.load();
+        synchronized (cachedIdMappings) {
+            if (evictions != evictionsBeforeLoad) {
+                //a mapping was saved while loading, the loaded value may already be stale
+                return idMapping;
+            }
+            if (idMapping != null) {
+                cachedIdMappings.put(key, new CachedIdMapping(idMapping, now + timeToLive));
+            } else {
+                cachedIdMappings.put(key, new CachedIdMapping(NOT_FOUND, now + notFoundTimeToLive));
+            }
+        }
+        return idMapping;
+    }
+
+    public void evict(String key) {
+        synchronized (cachedIdMappings) {
+            cachedIdMappings.remove(key);
+            evictions++;
+        }
+    }
+
+    public void clear() {
+        synchronized (cachedIdMappings) {
+            cachedIdMappings.clear();
+            evictions++;
+        }
+    }
+
+    public int size() {
+        synchronized (cachedIdMappings) {
+            return cachedIdMappings.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static class CachedIdMapping {
+        private final IdMapping idMapping;
+        private final long expiresAt;
+
+        private CachedIdMapping(IdMapping idMapping, long expiresAt) {
+            this.idMapping = idMapping;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
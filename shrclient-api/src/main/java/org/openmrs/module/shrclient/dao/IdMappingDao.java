@@ -11,7 +11,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public abstract class IdMappingDao {
 
@@ -31,76 +35,100 @@ public abstract class IdMappingDao {
 
     public abstract String getFetchByHealthIdSql();
 
-    public abstract PreparedStatement getInsertIdMappingStatement(Connection connection, IdMapping idMapping) throws SQLException;
+    public abstract String getInsertMappingSql();
 
-    public abstract PreparedStatement getUpdateIdMappingStatement(Connection connection, IdMapping idMapping) throws SQLException;
+    public abstract String getUpdateMappingSql();
 
-    public abstract PreparedStatement getCheckMappingExistsStatement(Connection connection, IdMapping idMapping) throws SQLException;
+    public abstract void setInsertParameters(PreparedStatement statement, IdMapping idMapping) throws SQLException;
+
+    public abstract void setUpdateParameters(PreparedStatement statement, IdMapping idMapping) throws SQLException;
 
     public abstract IdMapping buildIdMapping(ResultSet resultSet) throws SQLException;
 
-    private boolean mappingExists(final IdMapping idMapping) {
-        return database.executeInTransaction(new Database.TxWork<Boolean>() {
-            @Override
-            public Boolean execute(Connection connection) {
-                PreparedStatement statement = null;
-                ResultSet resultSet = null;
-                boolean result = false;
-                try {
-                    statement = getCheckMappingExistsStatement(connection, idMapping);
-                    resultSet = statement.executeQuery();
-                    while (resultSet.next()) {
-                        if (null != resultSet.getObject(1)) {
-                            result = true;
-                            break;
-                        }
-                    }
-                } catch (Exception e) {
-                    throw new RuntimeException("Error occurred while querying id mapping", e);
-                } finally {
-                    try {
-                        if (resultSet != null) resultSet.close();
-                        if (statement != null) statement.close();
-                    } catch (SQLException e) {
-                        logger.warn("Could not close db statement or result set", e);
-                    }
-                }
-                return result;
-            }
-        });
+    /**
+     * Identifies a mapping row. Two mappings with the same key are the same row, and the second is saved as an update.
+     */
+    protected String getMappingKey(String internalId, String externalId) {
+        return internalId + ":" + externalId;
     }
 
     protected void saveOrUpdateIdMapping(final IdMapping idMapping) {
         database.executeInTransaction(new Database.TxWork<Object>() {
             @Override
             public Object execute(Connection connection) {
-                PreparedStatement statement = null;
                 try {
-                    if (!mappingExists(idMapping)) {
-                        statement = getInsertIdMappingStatement(connection, idMapping);
-                        statement.execute();
-                    } else {
-                        statement = getUpdateIdMappingStatement(connection, idMapping);
-                        if (null != statement) {
-                            statement.executeUpdate();
-                        }
-                    }
-
+                    saveOrUpdateIdMappings(connection, Collections.singletonList(idMapping));
                 } catch (Exception e) {
                     throw new RuntimeException("Error occurred while creating id mapping", e);
-                } finally {
-                    try {
-                        if (statement != null) statement.close();
-                    } catch (SQLException e) {
-                        logger.warn("Could not close db statement or resultset", e);
-                    }
                 }
                 return null;
             }
-
         });
     }
 
+    /**
+     * Saves the mappings with one query for the existing rows, one insert batch and one update batch.
+     */
+    protected void saveOrUpdateIdMappings(Connection connection, List<IdMapping> idMappings) throws SQLException {
+        if (idMappings.isEmpty()) return;
+        Set<String> existingMappings = findExistingMappingKeys(connection, idMappings);
+        PreparedStatement insertBatch = null;
+        PreparedStatement updateBatch = null;
+        try {
+            for (IdMapping idMapping : idMappings) {
+                if (existingMappings.add(getMappingKey(idMapping.getInternalId(), idMapping.getExternalId()))) {
+                    if (insertBatch == null) insertBatch = connection.prepareStatement(getInsertMappingSql());
+                    setInsertParameters(insertBatch, idMapping);
+                    insertBatch.addBatch();
+                } else {
+                    if (updateBatch == null) updateBatch = connection.prepareStatement(getUpdateMappingSql());
+                    setUpdateParameters(updateBatch, idMapping);
+                    updateBatch.addBatch();
+                }
+            }
+            if (insertBatch != null) insertBatch.executeBatch();
+            if (updateBatch != null) updateBatch.executeBatch();
+        } finally {
+            try {
+                if (insertBatch != null) insertBatch.close();
+                if (updateBatch != null) updateBatch.close();
+            } catch (SQLException e) {
+                logger.warn("Could not close db statement or resultset", e);
+            }
+        }
+    }
+
+    private Set<String> findExistingMappingKeys(Connection connection, List<IdMapping> idMappings) throws SQLException {
+        Set<String> externalIds = new LinkedHashSet<>();
+        for (IdMapping idMapping : idMappings) {
+            externalIds.add(idMapping.getExternalId());
+        }
+        String query = String.format("select map.internal_id, map.external_id from %s map where map.external_id in (%s)",
+                getMappingTable(), StringUtils.repeat("?", ",", externalIds.size()));
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        Set<String> mappingKeys = new HashSet<>();
+        try {
+            statement = connection.prepareStatement(query);
+            int parameterIndex = 1;
+            for (String externalId : externalIds) {
+                statement.setString(parameterIndex++, externalId);
+            }
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                mappingKeys.add(getMappingKey(resultSet.getString(1), resultSet.getString(2)));
+            }
+        } finally {
+            try {
+                if (resultSet != null) resultSet.close();
+                if (statement != null) statement.close();
+            } catch (SQLException e) {
+                logger.warn("Could not close db statement or result set", e);
+            }
+        }
+        return mappingKeys;
+    }
+
     protected IdMapping findByExternalId(final String externalId) {
         List<IdMapping> idMappings = getIdMappings(externalId, getFetchByExternalIdSql());
         return idMappings.size() > 0 ? idMappings.get(0) : null;
@@ -116,8 +144,7 @@ public abstract class IdMappingDao {
     }
 
     protected List<IdMapping> findByHealthId(String healthID) {
-        String likeHealthId = "%" + healthID + "%";
-        return getIdMappings(likeHealthId, getFetchByHealthIdSql());
+        return getIdMappings(healthID, getFetchByHealthIdSql());
     }
 
     protected PreparedStatement getBatchStatement(Connection connection, List<IdMapping> idMappings) throws SQLException {
@@ -11,8 +11,15 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class IdMappingRepository {
@@ -26,6 +33,20 @@ public class IdMappingRepository {
     Database database;
     Logger logger = Logger.getLogger(IdMappingRepository.class);
 
+    /**
+     * Mappings of these types change rarely and are looked up for almost every concept, drug, facility and provider
+     * that is mapped, so their lookups by internal or external id are cached.
+     */
+    private static final List<String> CACHED_TYPES = Arrays.asList(IdMappingType.CONCEPT, IdMappingType.CONCEPT_REFERENCE_TERM,
+            IdMappingType.MEDICATION, IdMappingType.FACILITY, IdMappingType.PROVIDER);
+    private static final int CACHE_MAX_SIZE = 20000;
+    private static final long CACHE_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(30);
+    private static final long CACHE_NOT_FOUND_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(1);
+
+    private final IdMappingCache idMappingCache = new IdMappingCache(CACHE_MAX_SIZE, CACHE_TIME_TO_LIVE, CACHE_NOT_FOUND_TIME_TO_LIVE);
+
+    private final ThreadLocal<DeferredWrites> deferredWrites = new ThreadLocal<>();
+
 
     @Autowired
     public IdMappingRepository(Database database) {
@@ -39,22 +60,127 @@ public class IdMappingRepository {
     }
 
     public void saveOrUpdateIdMapping(IdMapping idMapping) {
-        idMappingDao(idMapping.getType()).saveOrUpdateIdMapping(idMapping);
+        DeferredWrites writes = deferredWrites.get();
+        if (writes != null) {
+            writes.add(idMapping);
+            return;
+        }
+        try {
+            idMappingDao(idMapping.getType()).saveOrUpdateIdMapping(idMapping);
+        } finally {
+            evictFromCache(idMapping);
+        }
     }
 
-    public IdMapping findByExternalId(String externalId, String idMappingType) {
-        return idMappingDao(idMappingType).findByExternalId(externalId);
+    /**
+     * Saves all mappings in one transaction, batching the statements of each mapping table.
+     */
+    public void saveOrUpdateAll(Collection<? extends IdMapping> idMappings) {
+        final Map<IdMappingDao, List<IdMapping>> mappingsByDao = new LinkedHashMap<>();
+        for (IdMapping idMapping : idMappings) {
+            IdMappingDao idMappingDao = idMappingDao(idMapping.getType());
+            if (!mappingsByDao.containsKey(idMappingDao)) {
+                mappingsByDao.put(idMappingDao, new ArrayList<IdMapping>());
+            }
+            mappingsByDao.get(idMappingDao).add(idMapping);
+        }
+        if (mappingsByDao.isEmpty()) return;
+        try {
+            database.executeInTransaction(new Database.TxWork<Object>() {
+                @Override
+                public Object execute(Connection connection) {
+                    try {
+                        for (Map.Entry<IdMappingDao, List<IdMapping>> daoMappings : mappingsByDao.entrySet()) {
+                            daoMappings.getKey().saveOrUpdateIdMappings(connection, daoMappings.getValue());
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException("Error occurred while saving id mappings", e);
+                    }
+                    return null;
+                }
+            });
+        } finally {
+            for (IdMapping idMapping : idMappings) {
+                evictFromCache(idMapping);
+            }
+        }
+    }
+
+    /**
+     * Holds back the mappings saved on the current thread until {@link #flushDeferredWrites()}, which saves them all
+     * in one go. Lookups by internal or external id made meanwhile on the same thread see the held back mappings.
+     */
+    public void deferWrites() {
+        if (deferredWrites.get() == null) {
+            deferredWrites.set(new DeferredWrites());
+        }
+    }
+
+    public void flushDeferredWrites() {
+        DeferredWrites writes = deferredWrites.get();
+        deferredWrites.remove();
+        if (writes != null) {
+            saveOrUpdateAll(writes.idMappings);
+        }
+    }
+
+    /**
+     * Drops the writes held back, and the cached lookups of the writes already saved by queries in between, as the
+     * transaction they were saved in is rolled back along with the batch.
+     */
+    public void discardDeferredWrites() {
+        DeferredWrites writes = deferredWrites.get();
+        deferredWrites.remove();
+        if (writes != null) {
+            for (IdMapping idMapping : writes.flushedIdMappings) {
+                evictFromCache(idMapping);
+            }
+        }
+    }
+
+    public IdMapping findByExternalId(final String externalId, final String idMappingType) {
+        DeferredWrites writes = deferredWrites.get();
+        if (writes != null && writes.byExternalId.containsKey(deferredKey(idMappingType, externalId))) {
+            return writes.byExternalId.get(deferredKey(idMappingType, externalId));
+        }
+        if (!CACHED_TYPES.contains(idMappingType)) {
+            return idMappingDao(idMappingType).findByExternalId(externalId);
+        }
+        return idMappingCache.get(externalIdKey(idMappingType, externalId), new IdMappingCache.Loader() {
+            @Override
+            public IdMapping load() {
+                return idMappingDao(idMappingType).findByExternalId(externalId);
+            }
+        });
     }
 
     public List<IdMapping> findMappingsByExternalId(String externalId, String idMappingType) {
+        flushPendingWrites();
         return idMappingDao(idMappingType).findMappingsByExternalId(externalId);
     }
 
-    public IdMapping findByInternalId(String internalId, String idMappingType) {
-        return idMappingDao(idMappingType).findByInternalId(internalId);
+    public IdMapping findByInternalId(final String internalId, final String idMappingType) {
+        DeferredWrites writes = deferredWrites.get();
+        if (writes != null && writes.byInternalId.containsKey(deferredKey(idMappingType, internalId))) {
+            return writes.byInternalId.get(deferredKey(idMappingType, internalId));
+        }
+        if (!CACHED_TYPES.contains(idMappingType)) {
+            return idMappingDao(idMappingType).findByInternalId(internalId);
+        }
+        return idMappingCache.get(internalIdKey(idMappingType, internalId), new IdMappingCache.Loader() {
+            @Override
+            public IdMapping load() {
+                return idMappingDao(idMappingType).findByInternalId(internalId);
+            }
+        });
+    }
+
+    public IdMappingCache getIdMappingCache() {
+        return idMappingCache;
     }
 
     public List<IdMapping> findByHealthId(String healthId, String idMappingType) {
+        flushPendingWrites();
         return idMappingDao(idMappingType).findByHealthId(healthId);
     }
 
@@ -89,6 +215,7 @@ public class IdMappingRepository {
                 return null;
             }
         });
+        idMappingCache.clear();
     }
 
     private List<IdMapping> updateHealthIds(List<IdMapping> idMappings, String originalHID, String replaceHID) {
@@ -101,6 +228,41 @@ public class IdMappingRepository {
         return idMappings;
     }
 
+    /**
+     * Saves the writes held back so far, leaving later writes still deferred, for queries the held back writes can not answer.
+     */
+    private void flushPendingWrites() {
+        DeferredWrites writes = deferredWrites.get();
+        if (writes != null && !writes.idMappings.isEmpty()) {
+            saveOrUpdateAll(writes.idMappings);
+            DeferredWrites laterWrites = new DeferredWrites();
+            laterWrites.flushedIdMappings.addAll(writes.flushedIdMappings);
+            laterWrites.flushedIdMappings.addAll(writes.idMappings);
+            deferredWrites.set(laterWrites);
+        }
+    }
+
+    private String deferredKey(String idMappingType, String id) {
+        //lookups go by mapping table, whatever the type of the row found
+        return idMappingDao(idMappingType).getMappingTable() + ":" + id;
+    }
+
+    private void evictFromCache(IdMapping idMapping) {
+        //a row of a shared mapping table is found by lookups of any type served by that table
+        for (String cachedType : CACHED_TYPES) {
+            idMappingCache.evict(internalIdKey(cachedType, idMapping.getInternalId()));
+            idMappingCache.evict(externalIdKey(cachedType, idMapping.getExternalId()));
+        }
+    }
+
+    private String internalIdKey(String idMappingType, String internalId) {
+        return idMappingType + ":internal:" + internalId;
+    }
+
+    private String externalIdKey(String idMappingType, String externalId) {
+        return idMappingType + ":external:" + externalId;
+    }
+
     private void close(Statement... statements) throws SQLException {
         for (Statement statement : statements) {
             if (statement != null)
@@ -134,4 +296,17 @@ public class IdMappingRepository {
         else
             return shrIdMappingDao;
     }
+
+    private class DeferredWrites {
+        private final List<IdMapping> idMappings = new ArrayList<>();
+        private final List<IdMapping> flushedIdMappings = new ArrayList<>();
+        private final Map<String, IdMapping> byExternalId = new HashMap<>();
+        private final Map<String, IdMapping> byInternalId = new HashMap<>();
+
+        private void add(IdMapping idMapping) {
+            idMappings.add(idMapping);
+            byExternalId.put(deferredKey(idMapping.getType(), idMapping.getExternalId()), idMapping);
+            byInternalId.put(deferredKey(idMapping.getType(), idMapping.getInternalId()), idMapping);
+        }
+    }
 }
@@ -29,31 +29,19 @@ public class OrderIdMappingDao extends IdMappingDao {
     }
 
     @Override
-    public PreparedStatement getInsertIdMappingStatement(Connection connection, IdMapping idMapping) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(getInsertMappingSql());
+    public void setInsertParameters(PreparedStatement statement, IdMapping idMapping) throws SQLException {
         statement.setString(1, idMapping.getInternalId());
         statement.setString(2, idMapping.getExternalId());
         statement.setString(3, idMapping.getType());
         statement.setString(4, idMapping.getUri());
         statement.setTimestamp(5, idMapping.getCreatedAt());
-
-        return statement;
-    }
-
-    @Override
-    public PreparedStatement getUpdateIdMappingStatement(Connection connection, IdMapping idMapping) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(getUpdateMappingSql());
-        statement.setString(1, idMapping.getInternalId());
-        statement.setString(2, idMapping.getExternalId());
-        return statement;
+        statement.setString(6, idMapping.getHealthId());
     }
 
     @Override
-    public PreparedStatement getCheckMappingExistsStatement(Connection connection, IdMapping idMapping) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(getMappingExistsQuery());
+    public void setUpdateParameters(PreparedStatement statement, IdMapping idMapping) throws SQLException {
         statement.setString(1, idMapping.getInternalId());
         statement.setString(2, idMapping.getExternalId());
-        return statement;
     }
 
     @Override
@@ -75,7 +63,7 @@ public class OrderIdMappingDao extends IdMappingDao {
 
     @Override
     public String getFetchByHealthIdSql() {
-        return String.format("select map.internal_id, map.external_id, map.type, map.uri, map.created_at from %s map where map.uri like ?", getMappingTable());
+        return String.format("select map.internal_id, map.external_id, map.type, map.uri, map.created_at from %s map where map.health_id = ?", getMappingTable());
     }
 
     @Override
@@ -83,25 +71,24 @@ public class OrderIdMappingDao extends IdMappingDao {
         if (idMappings.size() == 0) {
             return null;
         }
-        String updateURIByInternalIdSql = String.format("update %s set uri=? where internal_id=?", getMappingTable());
+        String updateURIByInternalIdSql = String.format("update %s set uri=?, health_id=? where internal_id=?", getMappingTable());
         PreparedStatement preparedStatement = connection.prepareStatement(updateURIByInternalIdSql);
         for (IdMapping idMapping : idMappings) {
             preparedStatement.setString(1, idMapping.getUri());
-            preparedStatement.setString(2, idMapping.getInternalId());
+            preparedStatement.setString(2, idMapping.getHealthId());
+            preparedStatement.setString(3, idMapping.getInternalId());
             preparedStatement.addBatch();
         }
         return preparedStatement;
     }
 
-    private String getInsertMappingSql() {
-        return String.format("insert into %s (internal_id, external_id, type, uri, created_at) values (?,?,?,?,?)", getMappingTable());
+    @Override
+    public String getInsertMappingSql() {
+        return String.format("insert into %s (internal_id, external_id, type, uri, created_at, health_id) values (?,?,?,?,?,?)", getMappingTable());
     }
 
-    private String getUpdateMappingSql() {
+    @Override
+    public String getUpdateMappingSql() {
         return String.format("update %s set internal_id = ? where external_id = ?", getMappingTable());
     }
-
-    private String getMappingExistsQuery() {
-        return String.format("select distinct map.internal_id from %s map where map.internal_id=? and map.external_id=?", getMappingTable());
-    }
 }
\ No newline at end of file
@@ -8,7 +8,6 @@ import org.openmrs.module.shrclient.util.Database;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -26,30 +25,17 @@ public class ProviderIdMappingDao extends IdMappingDao {
     }
 
     @Override
-    public PreparedStatement getInsertIdMappingStatement(Connection connection, IdMapping idMapping) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(getInsertMappingSql());
+    public void setInsertParameters(PreparedStatement statement, IdMapping idMapping) throws SQLException {
         statement.setString(1, idMapping.getInternalId());
         statement.setString(2, idMapping.getExternalId());
         statement.setString(3, idMapping.getUri());
         statement.setTimestamp(4, idMapping.getCreatedAt());
-
-        return statement;
-    }
-
-    @Override
-    public PreparedStatement getUpdateIdMappingStatement(Connection connection, IdMapping idMapping) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(getUpdateMappingSql());
-        statement.setString(1, idMapping.getInternalId());
-        statement.setString(2, idMapping.getExternalId());
-        return statement;
     }
 
     @Override
-    public PreparedStatement getCheckMappingExistsStatement(Connection connection, IdMapping idMapping) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(getMappingExistsQuery());
+    public void setUpdateParameters(PreparedStatement statement, IdMapping idMapping) throws SQLException {
         statement.setString(1, idMapping.getInternalId());
         statement.setString(2, idMapping.getExternalId());
-        return statement;
     }
 
     @Override
@@ -70,18 +56,16 @@ public class ProviderIdMappingDao extends IdMappingDao {
 
     @Override
     public String getFetchByHealthIdSql() {
-        return String.format("select map.internal_id, map.external_id, map.uri, map.created_at from %s map where map.uri like ?", getMappingTable());
+        return String.format("select map.internal_id, map.external_id, map.uri, map.created_at from %s map where map.uri like concat('%%', ?, '%%')", getMappingTable());
     }
 
-    private String getInsertMappingSql() {
+    @Override
+    public String getInsertMappingSql() {
         return String.format("insert into %s (internal_id, external_id, uri, created_at) values (?,?,?,?)", getMappingTable());
     }
 
-    private String getUpdateMappingSql() {
+    @Override
+    public String getUpdateMappingSql() {
         return String.format("update %s set internal_id = ? where external_id = ?", getMappingTable());
     }
-
-    private String getMappingExistsQuery() {
-        return String.format("select distinct map.internal_id from %s map where map.internal_id=? and map.external_id=?", getMappingTable());
-    }
 }
\ No newline at end of file
@@ -8,7 +8,6 @@ import org.openmrs.module.shrclient.util.Database;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -31,8 +30,7 @@ public class SHRIdMappingDao extends IdMappingDao {
     }
 
     @Override
-    public PreparedStatement getInsertIdMappingStatement(Connection connection, IdMapping idMapping) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(getInsertMappingSql());
+    public void setInsertParameters(PreparedStatement statement, IdMapping idMapping) throws SQLException {
         statement.setString(1, idMapping.getInternalId());
         statement.setString(2, idMapping.getExternalId());
         statement.setString(3, idMapping.getType());
@@ -40,26 +38,13 @@ public class SHRIdMappingDao extends IdMappingDao {
         statement.setTimestamp(5, idMapping.getCreatedAt());
         statement.setTimestamp(6, idMapping.getLastSyncTimestamp());
         statement.setTimestamp(7, idMapping.getServerUpdateTimestamp());
-
-        return statement;
     }
 
     @Override
-    public PreparedStatement getUpdateIdMappingStatement(Connection connection, IdMapping idMapping) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(getUpdateMappingSql());
+    public void setUpdateParameters(PreparedStatement statement, IdMapping idMapping) throws SQLException {
         statement.setTimestamp(1, idMapping.getLastSyncTimestamp());
         statement.setTimestamp(2, idMapping.getServerUpdateTimestamp());
         statement.setString(3, idMapping.getInternalId());
-
-        return statement;
-    }
-
-    @Override
-    public PreparedStatement getCheckMappingExistsStatement(Connection connection, IdMapping idMapping) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(getMappingExistsQuery());
-        statement.setString(1, idMapping.getInternalId());
-        statement.setString(2, idMapping.getExternalId());
-        return statement;
     }
 
     @Override
@@ -82,18 +67,16 @@ public class SHRIdMappingDao extends IdMappingDao {
 
     @Override
     public String getFetchByHealthIdSql() {
-        return String.format("select map.internal_id, map.external_id, map.type, map.uri, map.created_at, map.last_sync_datetime, map.server_update_datetime from %s map where map.uri like ?", getMappingTable());
+        return String.format("select map.internal_id, map.external_id, map.type, map.uri, map.created_at, map.last_sync_datetime, map.server_update_datetime from %s map where map.uri like concat('%%', ?, '%%')", getMappingTable());
     }
 
-    private String getInsertMappingSql() {
+    @Override
+    public String getInsertMappingSql() {
         return String.format("insert into %s (internal_id, external_id, type, uri, created_at, last_sync_datetime, server_update_datetime) values (?,?,?,?,?,?,?)", getMappingTable());
     }
 
-    private String getUpdateMappingSql() {
+    @Override
+    public String getUpdateMappingSql() {
         return String.format("update %s set last_sync_datetime = ?,server_update_datetime = ? where internal_id = ?", getMappingTable());
     }
-
-    private String getMappingExistsQuery() {
-        return String.format("select distinct map.internal_id from %s map where map.internal_id=? and map.external_id=?", getMappingTable());
-    }
 }
@@ -1,5 +1,6 @@
 package org.openmrs.module.shrclient.model;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 
 import java.sql.Timestamp;
@@ -56,6 +57,15 @@ public class IdMapping {
         return uri;
     }
 
+    /**
+     * Health id of the patient, for mappings of encounters and of resources within encounters. Null when the uri is
+     * not under a patient.
+     */
+    public String getHealthId() {
+        if (!StringUtils.contains(uri, "patients/")) return null;
+        return StringUtils.substringBefore(StringUtils.substringAfter(uri, "patients/"), "/encounters");
+    }
+
     public Date getLastSyncDateTime() {
         return lastSyncDateTime;
     }
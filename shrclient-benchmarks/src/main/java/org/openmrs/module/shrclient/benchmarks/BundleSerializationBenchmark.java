@@ -0,0 +1,66 @@
+package org.openmrs.module.shrclient.benchmarks;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and parsing a bundle in the XML and JSON wire formats, with parsers reused by the thread as the module does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BundleSerializationBenchmark {
+
+    @State(Scope.Thread)
+    public static class EncodedBundle {
+        private IParser xmlParser;
+        private IParser jsonParser;
+        private String xml;
+        private String json;
+
+        @Setup(Level.Trial)
+        public void encode(EncounterState encounterState) {
+            FhirContext fhirContext = FhirContext.forDstu3();
+            xmlParser = fhirContext.newXmlParser();
+            jsonParser = fhirContext.newJsonParser();
+            xml = xmlParser.encodeResourceToString(encounterState.getBundle());
+            json = jsonParser.encodeResourceToString(encounterState.getBundle());
+        }
+    }
+
+    @Benchmark
+    public String encodeXml(EncounterState state, EncodedBundle encoded) {
+        return encoded.xmlParser.encodeResourceToString(state.getBundle());
+    }
+
+    @Benchmark
+    public String encodeJson(EncounterState state, EncodedBundle encoded) {
+        return encoded.jsonParser.encodeResourceToString(state.getBundle());
+    }
+
+    @Benchmark
+    public Bundle parseXml(EncodedBundle encoded) {
+        return encoded.xmlParser.parseResource(Bundle.class, encoded.xml);
+    }
+
+    @Benchmark
+    public Bundle parseJson(EncodedBundle encoded) {
+        return encoded.jsonParser.parseResource(Bundle.class, encoded.json);
+    }
+}
@@ -0,0 +1,28 @@
+package org.openmrs.module.shrclient.benchmarks;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping an OpenMRS encounter to the bundle pushed to SHR.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompositionBundleCreatorBenchmark {
+
+    @Benchmark
+    public Bundle create(EncounterState state) {
+        return state.getBundleCreator().create(state.getEncounter(), MappingFixture.HEALTH_ID, state.getSystemProperties());
+    }
+}
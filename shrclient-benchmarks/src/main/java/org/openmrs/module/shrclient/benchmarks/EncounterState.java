@@ -0,0 +1,69 @@
+package org.openmrs.module.shrclient.benchmarks;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.openmrs.Encounter;
+import org.openmrs.module.fhir.mapper.bundler.CompositionBundleCreator;
+import org.openmrs.module.fhir.mapper.emr.FHIRSubResourceMapper;
+import org.openmrs.module.shrclient.util.SystemProperties;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A synthetic encounter of the configured size and the bundle created for it by {@link CompositionBundleCreator}.
+ * Sizes can be changed from the command line, e.g. -p obsCount=500 -p orderCount=20 -p nestingDepth=4.
+ */
+@State(Scope.Thread)
+public class EncounterState {
+    @Param({"10", "100"})
+    public int obsCount;
+
+    @Param({"0", "10"})
+    public int orderCount;
+
+    @Param({"1", "3"})
+    public int nestingDepth;
+
+    private MappingFixture fixture;
+    private Encounter encounter;
+    private Bundle bundle;
+
+    @Setup(Level.Trial)
+    public void createEncounter() {
+        fixture = new MappingFixture();
+        encounter = fixture.createEncounter(obsCount, orderCount, nestingDepth);
+        bundle = getBundleCreator().create(encounter, MappingFixture.HEALTH_ID, getSystemProperties());
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        fixture.close();
+    }
+
+    public MappingFixture getFixture() {
+        return fixture;
+    }
+
+    public Encounter getEncounter() {
+        return encounter;
+    }
+
+    public Bundle getBundle() {
+        return bundle;
+    }
+
+    public SystemProperties getSystemProperties() {
+        return fixture.getSystemProperties();
+    }
+
+    public CompositionBundleCreator getBundleCreator() {
+        return fixture.getBean(CompositionBundleCreator.class);
+    }
+
+    public FHIRSubResourceMapper getSubResourceMapper() {
+        return fixture.getBean(FHIRSubResourceMapper.class);
+    }
+}
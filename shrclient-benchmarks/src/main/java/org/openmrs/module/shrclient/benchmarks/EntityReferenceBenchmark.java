@@ -0,0 +1,107 @@
+package org.openmrs.module.shrclient.benchmarks;
+
+import org.hl7.fhir.dstu3.model.BaseResource;
+import org.openmrs.Encounter;
+import org.openmrs.Location;
+import org.openmrs.Patient;
+import org.openmrs.Provider;
+import org.openmrs.module.fhir.mapper.model.EntityReference;
+import org.openmrs.module.shrclient.util.SystemProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and parsing the reference urls of patients, providers, facilities, encounters and resources.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityReferenceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class References {
+        private final EntityReference entityReference = new EntityReference();
+        private SystemProperties systemProperties;
+        private HashMap<String, String> resourceIds;
+        private String patientUrl;
+        private String providerUrl;
+        private String facilityUrl;
+        private String encounterUrl;
+        private String resourceUrl;
+
+        @Setup(Level.Trial)
+        public void buildUrls() {
+            systemProperties = MappingFixture.createSystemProperties();
+            resourceIds = new HashMap<>();
+            resourceIds.put(EntityReference.HEALTH_ID_REFERENCE, MappingFixture.HEALTH_ID);
+            resourceIds.put(EntityReference.ENCOUNTER_ID_REFERENCE, MappingFixture.SHR_ENCOUNTER_ID);
+            resourceIds.put(EntityReference.REFERENCE_RESOURCE_NAME, "ProcedureRequest");
+            resourceIds.put(EntityReference.REFERENCE_ID, UUID.randomUUID().toString());
+
+            HashMap<String, String> encounterIds = new HashMap<>();
+            encounterIds.put(EntityReference.HEALTH_ID_REFERENCE, MappingFixture.HEALTH_ID);
+            encounterIds.put(EntityReference.REFERENCE_ID, MappingFixture.SHR_ENCOUNTER_ID);
+
+            patientUrl = entityReference.build(Patient.class, systemProperties, MappingFixture.HEALTH_ID);
+            providerUrl = entityReference.build(Provider.class, systemProperties, "1022");
+            facilityUrl = entityReference.build(Location.class, systemProperties, "10019841");
+            encounterUrl = entityReference.build(Encounter.class, systemProperties, encounterIds);
+            resourceUrl = entityReference.build(BaseResource.class, systemProperties, resourceIds);
+        }
+    }
+
+    @Benchmark
+    public String buildPatientReference(References references) {
+        return references.entityReference.build(Patient.class, references.systemProperties, MappingFixture.HEALTH_ID);
+    }
+
+    @Benchmark
+    public String buildProviderReference(References references) {
+        return references.entityReference.build(Provider.class, references.systemProperties, "1022");
+    }
+
+    @Benchmark
+    public String buildResourceReference(References references) {
+        return references.entityReference.build(BaseResource.class, references.systemProperties, references.resourceIds);
+    }
+
+    @Benchmark
+    public String parsePatientReference(References references) {
+        return references.entityReference.parse(Patient.class, references.patientUrl);
+    }
+
+    @Benchmark
+    public String parseProviderReference(References references) {
+        return references.entityReference.parse(Provider.class, references.providerUrl);
+    }
+
+    @Benchmark
+    public String parseFacilityReference(References references) {
+        return references.entityReference.parse(Location.class, references.facilityUrl);
+    }
+
+    @Benchmark
+    public String parseEncounterReference(References references) {
+        return references.entityReference.parse(Encounter.class, references.encounterUrl);
+    }
+
+    @Benchmark
+    public String parseResourceReference(References references) {
+        return references.entityReference.parse(BaseResource.class, references.resourceUrl);
+    }
+}
@@ -0,0 +1,59 @@
+package org.openmrs.module.shrclient.benchmarks;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Composition;
+import org.hl7.fhir.dstu3.model.Reference;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.openmrs.module.fhir.utils.FHIRBundleHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving the resources of a bundle, on a bundle seen for the first time and on one that is already indexed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FHIRBundleHelperBenchmark {
+
+    @State(Scope.Thread)
+    public static class BundleState extends EncounterState {
+        private Bundle unindexedBundle;
+
+        @Setup(Level.Invocation)
+        public void copyBundle() {
+            unindexedBundle = getBundle().copy();
+        }
+    }
+
+    @Benchmark
+    public List<Resource> identifyTopLevelResources(BundleState state) {
+        return FHIRBundleHelper.identifyTopLevelResources(state.unindexedBundle);
+    }
+
+    @Benchmark
+    public void findResourceByReference(EncounterState state, Blackhole blackhole) {
+        Bundle bundle = state.getBundle();
+        Composition composition = FHIRBundleHelper.getComposition(bundle);
+        for (Composition.SectionComponent section : composition.getSection()) {
+            for (Reference reference : section.getEntry()) {
+                blackhole.consume(FHIRBundleHelper.findResourceByReference(bundle, reference));
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.openmrs.module.shrclient.benchmarks;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.openmrs.Encounter;
+import org.openmrs.module.fhir.mapper.model.ShrEncounterBundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping the resources of a downloaded bundle to the obs and orders of an OpenMRS encounter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FHIRSubResourceMapperBenchmark {
+
+    /**
+     * Every invocation maps a copy of the bundle into an empty encounter, as a freshly downloaded bundle is not indexed yet.
+     */
+    @State(Scope.Thread)
+    public static class DownloadState extends EncounterState {
+        private Bundle downloadedBundle;
+        private Encounter emrEncounter;
+
+        @Setup(Level.Invocation)
+        public void download() {
+            downloadedBundle = getBundle().copy();
+            emrEncounter = getFixture().createEmptyEncounter();
+        }
+    }
+
+    @Benchmark
+    public Encounter map(DownloadState state) {
+        ShrEncounterBundle shrEncounterBundle = new ShrEncounterBundle(state.downloadedBundle, MappingFixture.HEALTH_ID, MappingFixture.SHR_ENCOUNTER_ID);
+        state.getSubResourceMapper().map(state.emrEncounter, shrEncounterBundle, state.getSystemProperties());
+        return state.emrEncounter;
+    }
+}
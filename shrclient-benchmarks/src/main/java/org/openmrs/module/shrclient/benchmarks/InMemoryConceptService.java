@@ -0,0 +1,82 @@
+package org.openmrs.module.shrclient.benchmarks;
+
+import org.openmrs.Concept;
+import org.openmrs.ConceptClass;
+import org.openmrs.ConceptDatatype;
+import org.openmrs.ConceptNumeric;
+import org.openmrs.Drug;
+import org.openmrs.api.ConceptService;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Concepts, drugs, classes and datatypes kept in maps, answering the lookups the FHIR mappers make on {@link ConceptService}.
+ */
+public class InMemoryConceptService {
+    private final Map<Integer, Concept> conceptsById = new HashMap<>();
+    private final Map<String, Concept> conceptsByUuid = new HashMap<>();
+    private final Map<String, Concept> conceptsByName = new HashMap<>();
+    private final Map<String, Drug> drugsByUuid = new HashMap<>();
+    private final Map<String, ConceptClass> conceptClassesByName = new HashMap<>();
+    private final Map<String, ConceptDatatype> conceptDatatypesByName = new HashMap<>();
+
+    private final ConceptService conceptService = ServiceStub.of(ConceptService.class)
+            .answer("getConcept", args -> args[0] instanceof Integer ? conceptsById.get(args[0]) : findByIdOrName((String) args[0]))
+            .answer("getConceptByUuid", args -> conceptsByUuid.get(args[0]))
+            .answer("getConceptByName", args -> conceptsByName.get(args[0]))
+            .answer("getConceptNumeric", args -> asConceptNumeric(conceptsById.get(args[0])))
+            .answer("getDrugByUuid", args -> drugsByUuid.get(args[0]))
+            .answer("getConceptClassByName", args -> conceptClassesByName.get(args[0]))
+            .answer("getConceptDatatypeByName", args -> conceptDatatypesByName.get(args[0]))
+            .answer("saveConcept", args -> add((Concept) args[0]))
+            .as(ConceptService.class);
+
+    public ConceptService getService() {
+        return conceptService;
+    }
+
+    public Concept add(Concept concept) {
+        conceptsById.put(concept.getConceptId(), concept);
+        conceptsByUuid.put(concept.getUuid(), concept);
+        conceptsByName.put(concept.getName().getName(), concept);
+        return concept;
+    }
+
+    public Drug add(Drug drug) {
+        drugsByUuid.put(drug.getUuid(), drug);
+        return drug;
+    }
+
+    public ConceptClass addConceptClass(String name) {
+        ConceptClass conceptClass = new ConceptClass();
+        conceptClass.setName(name);
+        conceptClassesByName.put(name, conceptClass);
+        return conceptClass;
+    }
+
+    public ConceptDatatype addConceptDatatype(String name, String uuid, String hl7Abbreviation) {
+        ConceptDatatype conceptDatatype = new ConceptDatatype();
+        conceptDatatype.setName(name);
+        conceptDatatype.setUuid(uuid);
+        conceptDatatype.setHl7Abbreviation(hl7Abbreviation);
+        conceptDatatypesByName.put(name, conceptDatatype);
+        return conceptDatatype;
+    }
+
+    public int size() {
+        return conceptsById.size();
+    }
+
+    private Concept findByIdOrName(String idOrName) {
+        try {
+            return conceptsById.get(Integer.valueOf(idOrName));
+        } catch (NumberFormatException e) {
+            return conceptsByName.get(idOrName);
+        }
+    }
+
+    private ConceptNumeric asConceptNumeric(Concept concept) {
+        return concept instanceof ConceptNumeric ? (ConceptNumeric) concept : null;
+    }
+}
@@ -0,0 +1,73 @@
+package org.openmrs.module.shrclient.benchmarks;
+
+import org.openmrs.module.shrclient.dao.IdMappingRepository;
+import org.openmrs.module.shrclient.model.IdMapping;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Id mappings of concepts, providers and facilities kept in maps.
+ * Mappings saved while an encounter is mapped are counted and dropped, so every invocation maps the bundle as a first download.
+ */
+public class InMemoryIdMappingRepository extends IdMappingRepository {
+    private final Map<String, IdMapping> mappingsByInternalId = new HashMap<>();
+    private final Map<String, IdMapping> mappingsByExternalId = new HashMap<>();
+    private final AtomicLong droppedWrites = new AtomicLong();
+
+    public InMemoryIdMappingRepository() {
+        super(null);
+    }
+
+    public IdMapping add(IdMapping idMapping) {
+        mappingsByInternalId.put(key(idMapping.getType(), idMapping.getInternalId()), idMapping);
+        mappingsByExternalId.put(key(idMapping.getType(), idMapping.getExternalId()), idMapping);
+        return idMapping;
+    }
+
+    @Override
+    public IdMapping findByExternalId(String externalId, String idMappingType) {
+        return mappingsByExternalId.get(key(idMappingType, externalId));
+    }
+
+    @Override
+    public List<IdMapping> findMappingsByExternalId(String externalId, String idMappingType) {
+        return ServiceStub.listOf(findByExternalId(externalId, idMappingType));
+    }
+
+    @Override
+    public IdMapping findByInternalId(String internalId, String idMappingType) {
+        return mappingsByInternalId.get(key(idMappingType, internalId));
+    }
+
+    @Override
+    public List<IdMapping> findByHealthId(String healthId, String idMappingType) {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void saveOrUpdateIdMapping(IdMapping idMapping) {
+        droppedWrites.incrementAndGet();
+    }
+
+    @Override
+    public void saveOrUpdateAll(Collection<? extends IdMapping> idMappings) {
+        droppedWrites.addAndGet(idMappings.size());
+    }
+
+    @Override
+    public void replaceHealthId(String toBeReplaced, String toReplaceWith) {
+    }
+
+    public long getDroppedWrites() {
+        return droppedWrites.get();
+    }
+
+    private String key(String idMappingType, String id) {
+        return idMappingType.toLowerCase() + ":" + id;
+    }
+}
@@ -0,0 +1,289 @@
+package org.openmrs.module.shrclient.benchmarks;
+
+import org.openmrs.CareSetting;
+import org.openmrs.Concept;
+import org.openmrs.ConceptClass;
+import org.openmrs.ConceptDatatype;
+import org.openmrs.ConceptName;
+import org.openmrs.ConceptNumeric;
+import org.openmrs.Encounter;
+import org.openmrs.EncounterRole;
+import org.openmrs.EncounterType;
+import org.openmrs.Location;
+import org.openmrs.Obs;
+import org.openmrs.OrderType;
+import org.openmrs.Patient;
+import org.openmrs.Provider;
+import org.openmrs.TestOrder;
+import org.openmrs.Visit;
+import org.openmrs.VisitType;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.EncounterService;
+import org.openmrs.api.LocationService;
+import org.openmrs.api.OrderService;
+import org.openmrs.api.ProviderService;
+import org.openmrs.api.UserService;
+import org.openmrs.api.VisitService;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.ServiceContext;
+import org.openmrs.module.fhir.MRSProperties;
+import org.openmrs.module.shrclient.model.IdMapping;
+import org.openmrs.module.shrclient.model.IdMappingType;
+import org.openmrs.module.shrclient.util.SystemProperties;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.openmrs.module.fhir.utils.PropertyKeyConstants.*;
+
+/**
+ * The FHIR mapping components of fhirmapper wired by Spring as in the module, with the OpenMRS services and the id mapping
+ * repository replaced by in-memory stubs. Builds synthetic encounters with TR mapped concepts, a provider and lab orders.
+ */
+public class MappingFixture {
+    public static final String HEALTH_ID = "98001046534";
+    public static final String SHR_ENCOUNTER_ID = "shr-enc-benchmark";
+
+    private static final String TR_CONCEPT_URL = "http://tr.com/openmrs/ws/rest/v1/tr/concepts/";
+    private static final String PROVIDER_URL = "http://pr.com/api/1.0/providers";
+    private static final String PROVIDER_IDENTIFIER = "1022";
+    private static final int LEAF_CONCEPTS = 50;
+    private static final int TEST_CONCEPTS = 20;
+    private static final int OBS_PER_GROUP = 5;
+
+    private final InMemoryConceptService conceptService = new InMemoryConceptService();
+    private final InMemoryIdMappingRepository idMappingRepository = new InMemoryIdMappingRepository();
+    private final AnnotationConfigApplicationContext applicationContext;
+    private final SystemProperties systemProperties;
+
+    private final Patient patient = new Patient();
+    private final Provider provider = new Provider();
+    private final EncounterRole encounterRole = new EncounterRole();
+    private final Location location = new Location();
+    private final EncounterType encounterType = new EncounterType("Consultation", "Consultation");
+    private final VisitType visitType = new VisitType("OPD", "Outpatient visit");
+    private final OrderType labOrderType = new OrderType();
+    private final CareSetting careSetting = new CareSetting();
+    private final List<Concept> leafConcepts = new ArrayList<>();
+    private final List<Concept> groupConcepts = new ArrayList<>();
+    private final List<Concept> testConcepts = new ArrayList<>();
+    private ConceptDatatype numericDatatype;
+    private ConceptDatatype notApplicableDatatype;
+    private ConceptClass groupClass;
+    private int nextConceptId = 1;
+
+    public MappingFixture() {
+        registerServices();
+        systemProperties = createSystemProperties();
+        createReferenceData();
+        applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.getBeanFactory().registerSingleton("conceptService", conceptService.getService());
+        applicationContext.getBeanFactory().registerSingleton("idMappingRepository", idMappingRepository);
+        applicationContext.getBeanFactory().registerSingleton("locationService", Context.getLocationService());
+        applicationContext.getBeanFactory().registerSingleton("orderService", Context.getOrderService());
+        applicationContext.getBeanFactory().registerSingleton("providerService", Context.getProviderService());
+        applicationContext.getBeanFactory().registerSingleton("encounterService", Context.getEncounterService());
+        applicationContext.getBeanFactory().registerSingleton("visitService", Context.getVisitService());
+        applicationContext.scan("org.openmrs.module.fhir");
+        applicationContext.refresh();
+    }
+
+    public <T> T getBean(Class<T> beanType) {
+        return applicationContext.getBean(beanType);
+    }
+
+    public SystemProperties getSystemProperties() {
+        return systemProperties;
+    }
+
+    public InMemoryIdMappingRepository getIdMappingRepository() {
+        return idMappingRepository;
+    }
+
+    public void close() {
+        applicationContext.close();
+    }
+
+    /**
+     * An encounter with obsCount observations that have values and orderCount lab orders.
+     * Above a nesting depth of 1 the observations are grouped by {@value #OBS_PER_GROUP} under a chain of nestingDepth - 1 group observations.
+     */
+    public Encounter createEncounter(int obsCount, int orderCount, int nestingDepth) {
+        Encounter encounter = createEmptyEncounter();
+        encounter.setEncounterType(encounterType);
+        encounter.setLocation(location);
+        encounter.setVisit(createVisit(encounter.getEncounterDatetime()));
+        encounter.addProvider(encounterRole, provider);
+
+        int leafIndex = 0;
+        while (leafIndex < obsCount) {
+            if (nestingDepth <= 1) {
+                encounter.addObs(createLeafObs(leafIndex++));
+                continue;
+            }
+            Obs topLevelObs = createGroupObs(0);
+            Obs group = topLevelObs;
+            for (int level = 1; level < nestingDepth - 1; level++) {
+                Obs childGroup = createGroupObs(level);
+                group.addGroupMember(childGroup);
+                group = childGroup;
+            }
+            for (int member = 0; member < OBS_PER_GROUP && leafIndex < obsCount; member++) {
+                group.addGroupMember(createLeafObs(leafIndex++));
+            }
+            encounter.addObs(topLevelObs);
+        }
+
+        for (int orderIndex = 0; orderIndex < orderCount; orderIndex++) {
+            TestOrder order = new TestOrder();
+            order.setOrderType(labOrderType);
+            order.setConcept(testConcepts.get(orderIndex % testConcepts.size()));
+            order.setOrderer(provider);
+            order.setCareSetting(careSetting);
+            order.setDateActivated(encounter.getEncounterDatetime());
+            encounter.addOrder(order);
+        }
+        return encounter;
+    }
+
+    /**
+     * The encounter a downloaded bundle is mapped into.
+     */
+    public Encounter createEmptyEncounter() {
+        Encounter encounter = new Encounter();
+        encounter.setPatient(patient);
+        encounter.setEncounterDatetime(new Date());
+        return encounter;
+    }
+
+    private void registerServices() {
+        ServiceContext serviceContext = ServiceContext.getInstance();
+        serviceContext.setConceptService(conceptService.getService());
+        serviceContext.setAdministrationService(ServiceStub.of(AdministrationService.class)
+                .answer("getGlobalProperty", args -> args.length > 1 ? args[1] : null)
+                .as(AdministrationService.class));
+        serviceContext.setProviderService(ServiceStub.of(ProviderService.class)
+                .answer("getProviderByIdentifier", args -> PROVIDER_IDENTIFIER.equals(args[0]) ? provider : null)
+                .answer("getProviderByUuid", args -> provider.getUuid().equals(args[0]) ? provider : null)
+                .answer("getProvidersByPerson", args -> ServiceStub.listOf(provider))
+                .as(ProviderService.class));
+        serviceContext.setOrderService(ServiceStub.of(OrderService.class)
+                .answer("getOrderTypeByName", args -> labOrderType.getName().equals(args[0]) ? labOrderType : null)
+                .answer("getCareSettingByName", args -> careSetting)
+                .as(OrderService.class));
+        serviceContext.setLocationService(ServiceStub.of(LocationService.class).as(LocationService.class));
+        serviceContext.setEncounterService(ServiceStub.of(EncounterService.class).as(EncounterService.class));
+        serviceContext.setVisitService(ServiceStub.of(VisitService.class).as(VisitService.class));
+        serviceContext.setUserService(ServiceStub.of(UserService.class).as(UserService.class));
+        new Context().setServiceContext(serviceContext);
+    }
+
+    static SystemProperties createSystemProperties() {
+        Properties frProperties = new Properties();
+        frProperties.setProperty(FACILITY_REFERENCE_PATH, "http://fr.com/api/1.0/facilities");
+        Properties trProperties = new Properties();
+        trProperties.setProperty(TR_REFERENCE_PATH, "http://tr.com");
+        trProperties.setProperty(TR_VALUESET_PATH_INFO, "openmrs/ws/rest/v1/tr/vs");
+        Properties prProperties = new Properties();
+        prProperties.setProperty(PROVIDER_REFERENCE_PATH, PROVIDER_URL);
+        Properties facilityInstanceProperties = new Properties();
+        facilityInstanceProperties.setProperty(FACILITY_ID, "10019841");
+        Properties mciProperties = new Properties();
+        mciProperties.setProperty(MCI_REFERENCE_PATH, "http://mci.com");
+        mciProperties.setProperty(MCI_PATIENT_CONTEXT, "/api/default/patients");
+        Properties shrProperties = new Properties();
+        shrProperties.setProperty(SHR_REFERENCE_PATH, "http://shr.com");
+        shrProperties.setProperty(SHR_PATIENT_ENC_PATH_PATTERN, "/patients/%s/encounters");
+        Properties fhirMappingProperties = new Properties();
+        fhirMappingProperties.setProperty(VISIT_TYPE_TO_ENCOUNTER_CLASS_MAP, "{\"OPD\":\"AMB\",\"IPD\":\"IMP\"}");
+        fhirMappingProperties.setProperty(ENCOUNTER_CLASS_TO_VISIT_TYPE_MAP, "{\"AMB\":\"OPD\",\"IMP\":\"IPD\"}");
+        fhirMappingProperties.setProperty(MRS_ENCOUNTER_TYPE_TO_FHIR_ENCOUNTER_TYPE_MAP, "{}");
+        fhirMappingProperties.setProperty(FHIR_ENCOUNTER_TYPE_TO_MRS_ENCOUNTER_TYPE_MAP, "{}");
+        return new SystemProperties(frProperties, trProperties, prProperties, facilityInstanceProperties,
+                mciProperties, shrProperties, fhirMappingProperties);
+    }
+
+    private void createReferenceData() {
+        numericDatatype = conceptService.addConceptDatatype("Numeric", ConceptDatatype.NUMERIC_UUID, "NM");
+        ConceptDatatype textDatatype = conceptService.addConceptDatatype("Text", ConceptDatatype.TEXT_UUID, "ST");
+        notApplicableDatatype = conceptService.addConceptDatatype("N/A", ConceptDatatype.N_A_UUID, "ZZ");
+        ConceptClass miscClass = conceptService.addConceptClass("Misc");
+        ConceptClass testClass = conceptService.addConceptClass("Test");
+        groupClass = conceptService.addConceptClass("ConvSet");
+        conceptService.addConceptClass(MRSProperties.MRS_CONCEPT_CLASS_LAB_SET);
+
+        for (int index = 0; index < LEAF_CONCEPTS; index++) {
+            boolean numeric = index % 2 == 0;
+            Concept concept;
+            if (numeric) {
+                ConceptNumeric conceptNumeric = new ConceptNumeric();
+                conceptNumeric.setUnits("mg/dL");
+                concept = conceptNumeric;
+            } else {
+                concept = new Concept();
+            }
+            leafConcepts.add(addTRConcept(concept, "Synthetic Observation " + index, miscClass, numeric ? numericDatatype : textDatatype));
+        }
+        for (int index = 0; index < TEST_CONCEPTS; index++) {
+            testConcepts.add(addTRConcept(new Concept(), "Synthetic Test " + index, testClass, numericDatatype));
+        }
+
+        patient.setUuid(UUID.randomUUID().toString());
+        provider.setIdentifier(PROVIDER_IDENTIFIER);
+        idMappingRepository.add(new IdMapping(provider.getUuid(), PROVIDER_IDENTIFIER, IdMappingType.PROVIDER,
+                String.format("%s/%s.json", PROVIDER_URL, PROVIDER_IDENTIFIER), new Date()));
+        labOrderType.setName(MRSProperties.MRS_LAB_ORDER_TYPE);
+        careSetting.setName(MRSProperties.MRS_CARE_SETTING_FOR_OUTPATIENT);
+    }
+
+    private Concept addTRConcept(Concept concept, String name, ConceptClass conceptClass, ConceptDatatype datatype) {
+        concept.setConceptId(nextConceptId++);
+        ConceptName conceptName = new ConceptName(name, Context.getLocale());
+        conceptName.setLocalePreferred(true);
+        concept.setFullySpecifiedName(conceptName);
+        concept.setConceptClass(conceptClass);
+        concept.setDatatype(datatype);
+        conceptService.add(concept);
+        String trConceptId = UUID.randomUUID().toString();
+        idMappingRepository.add(new IdMapping(concept.getUuid(), trConceptId, IdMappingType.CONCEPT, TR_CONCEPT_URL + trConceptId, new Date()));
+        return concept;
+    }
+
+    private Concept getGroupConcept(int level) {
+        while (groupConcepts.size() <= level) {
+            groupConcepts.add(addTRConcept(new Concept(), "Synthetic Group " + groupConcepts.size(), groupClass, notApplicableDatatype));
+        }
+        return groupConcepts.get(level);
+    }
+
+    private Obs createGroupObs(int level) {
+        Obs obs = new Obs();
+        obs.setConcept(getGroupConcept(level));
+        return obs;
+    }
+
+    private Obs createLeafObs(int index) {
+        Obs obs = new Obs();
+        Concept concept = leafConcepts.get(index % leafConcepts.size());
+        obs.setConcept(concept);
+        if (concept.getDatatype() == numericDatatype) {
+            obs.setValueNumeric(index * 1.5);
+        } else {
+            obs.setValueText("Synthetic value " + index);
+        }
+        return obs;
+    }
+
+    private Visit createVisit(Date encounterDatetime) {
+        Visit visit = new Visit();
+        visit.setPatient(patient);
+        visit.setVisitType(visitType);
+        visit.setStartDatetime(encounterDatetime);
+        visit.setStopDatetime(encounterDatetime);
+        return visit;
+    }
+}
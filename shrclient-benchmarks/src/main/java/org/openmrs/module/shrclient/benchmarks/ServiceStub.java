@@ -0,0 +1,96 @@
+package org.openmrs.module.shrclient.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stands in for an OpenMRS service interface. Methods are answered by name, everything else returns an empty value.
+ */
+public class ServiceStub implements InvocationHandler {
+    private final Map<String, Answer> answers = new HashMap<>();
+    private final String serviceName;
+
+    public interface Answer {
+        Object answer(Object[] args);
+    }
+
+    private ServiceStub(String serviceName) {
+        this.serviceName = serviceName;
+    }
+
+    public static ServiceStub of(Class<?> serviceType) {
+        return new ServiceStub(serviceType.getSimpleName());
+    }
+
+    public ServiceStub answer(String methodName, Answer answer) {
+        answers.put(methodName, answer);
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T as(Class<T> serviceType) {
+        return (T) Proxy.newProxyInstance(serviceType.getClassLoader(), new Class[]{serviceType}, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeObjectMethod(proxy, method, args);
+        }
+        Answer answer = answers.get(method.getName());
+        if (answer != null) {
+            return answer.answer(args != null ? args : new Object[0]);
+        }
+        return emptyValue(method.getReturnType());
+    }
+
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        if ("equals".equals(method.getName())) {
+            return proxy == args[0];
+        }
+        if ("hashCode".equals(method.getName())) {
+            return System.identityHashCode(proxy);
+        }
+        return serviceName + " stub";
+    }
+
+    private Object emptyValue(Class<?> returnType) {
+        if (!returnType.isPrimitive()) {
+            if (returnType.isAssignableFrom(ArrayList.class) && Collection.class.isAssignableFrom(returnType)) {
+                return new ArrayList<>();
+            }
+            if (returnType.isAssignableFrom(HashSet.class) && Set.class.isAssignableFrom(returnType)) {
+                return new HashSet<>();
+            }
+            if (returnType.isAssignableFrom(HashMap.class) && Map.class.isAssignableFrom(returnType)) {
+                return new HashMap<>();
+            }
+            return null;
+        }
+        if (returnType == boolean.class) return false;
+        if (returnType == void.class) return null;
+        if (returnType == char.class) return (char) 0;
+        if (returnType == long.class) return 0L;
+        if (returnType == double.class) return 0d;
+        if (returnType == float.class) return 0f;
+        if (returnType == byte.class) return (byte) 0;
+        if (returnType == short.class) return (short) 0;
+        return 0;
+    }
+
+    static <T> List<T> listOf(T value) {
+        List<T> values = new ArrayList<>();
+        if (value != null) {
+            values.add(value);
+        }
+        return values;
+    }
+}
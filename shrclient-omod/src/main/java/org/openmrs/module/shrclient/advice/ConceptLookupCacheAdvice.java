@@ -0,0 +1,54 @@
+package org.openmrs.module.shrclient.advice;
+
+import org.apache.log4j.Logger;
+import org.openmrs.module.fhir.utils.OMRSConceptLookup;
+import org.openmrs.module.shrclient.util.PlatformUtil;
+import org.springframework.aop.AfterReturningAdvice;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Clears the concept lookup cache when concepts, drugs or reference terms are changed, e.g. by the TR concept and drug sync.
+ */
+public class ConceptLookupCacheAdvice implements AfterReturningAdvice {
+    private static final Logger logger = Logger.getLogger(ConceptLookupCacheAdvice.class);
+    private static final List<String> MODIFYING_METHOD_PREFIXES = Arrays.asList("save", "retire", "unretire", "purge");
+    private static final List<String> CACHED_TYPES = Arrays.asList("Concept", "Drug", "ConceptReferenceTerm");
+
+    private OMRSConceptLookup conceptLookup;
+
+    public ConceptLookupCacheAdvice() {
+    }
+
+    public ConceptLookupCacheAdvice(OMRSConceptLookup conceptLookup) {
+        this.conceptLookup = conceptLookup;
+    }
+
+    @Override
+    public void afterReturning(Object returnValue, Method method, Object[] args, Object target) throws Throwable {
+        if (!isModifyingCachedType(method.getName())) return;
+        OMRSConceptLookup lookup = getConceptLookup();
+        if (lookup != null) {
+            logger.debug(String.format("Clearing concept lookup cache after %s", method.getName()));
+            lookup.clearCache();
+        }
+    }
+
+    private boolean isModifyingCachedType(String methodName) {
+        for (String prefix : MODIFYING_METHOD_PREFIXES) {
+            if (methodName.startsWith(prefix) && CACHED_TYPES.contains(methodName.substring(prefix.length()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private OMRSConceptLookup getConceptLookup() {
+        if (conceptLookup == null) {
+            conceptLookup = PlatformUtil.getRegisteredComponent(OMRSConceptLookup.class);
+        }
+        return conceptLookup;
+    }
+}
@@ -16,6 +16,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -25,6 +27,7 @@ import static org.openmrs.module.shrclient.advice.ShrEncounterAdvice.ENCOUNTER_R
 @Component
 public class SHREncounterEventService {
     private GlobalPropertyLookUpService globalPropertyLookUpService;
+    private final ThreadLocal<List<String>> deferredEncounterUuids = new ThreadLocal<>();
 
     @Autowired
     public SHREncounterEventService(GlobalPropertyLookUpService globalPropertyLookUpService) {
@@ -32,17 +35,52 @@ public class SHREncounterEventService {
     }
 
     public void raiseShrEncounterDownloadEvent(Encounter newEmrEncounter) {
+        List<String> deferredUuids = deferredEncounterUuids.get();
+        if (deferredUuids != null) {
+            deferredUuids.add(newEmrEncounter.getUuid());
+            return;
+        }
+        raiseShrEncounterDownloadEvents(Collections.singletonList(newEmrEncounter.getUuid()));
+    }
+
+    /**
+     * Holds back the download events raised on the current thread until {@link #raiseDeferredEvents()}.
+     */
+    public void deferEvents() {
+        if (deferredEncounterUuids.get() == null) {
+            deferredEncounterUuids.set(new ArrayList<String>());
+        }
+    }
+
+    public void raiseDeferredEvents() {
+        List<String> deferredUuids = deferredEncounterUuids.get();
+        deferredEncounterUuids.remove();
+        if (deferredUuids != null && !deferredUuids.isEmpty()) {
+            raiseShrEncounterDownloadEvents(deferredUuids);
+        }
+    }
+
+    public void discardDeferredEvents() {
+        deferredEncounterUuids.remove();
+    }
+
+    private void raiseShrEncounterDownloadEvents(List<String> encounterUuids) {
         String shrEncounterEventCategory = globalPropertyLookUpService.getGlobalPropertyValue(GLOBAL_PROPERTY_SHR_CATEGORY_EVENT);
         if (StringUtils.isNotBlank(shrEncounterEventCategory)) {
-            String url = String.format(ENCOUNTER_REST_URL, newEmrEncounter.getUuid());
-            final Event event = new Event(UUID.randomUUID().toString(), shrEncounterEventCategory, DateTime.now(), (URI) null, url, shrEncounterEventCategory);
+            final List<Event> events = new ArrayList<>();
+            for (String encounterUuid : encounterUuids) {
+                String url = String.format(ENCOUNTER_REST_URL, encounterUuid);
+                events.add(new Event(UUID.randomUUID().toString(), shrEncounterEventCategory, DateTime.now(), (URI) null, url, shrEncounterEventCategory));
+            }
             AtomFeedSpringTransactionManager atomFeedSpringTransactionManager = findTransactionManager();
             final EventService eventService = getEventService(atomFeedSpringTransactionManager);
             atomFeedSpringTransactionManager.executeWithTransaction(
                     new AFTransactionWorkWithoutResult() {
                         @Override
                         protected void doInTransaction() {
-                            eventService.notify(event);
+                            for (Event event : events) {
+                                eventService.notify(event);
+                            }
                         }
 
                         @Override
@@ -0,0 +1,235 @@
+package org.openmrs.module.shrclient.dao;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+import org.openmrs.module.addresshierarchy.AddressField;
+import org.openmrs.module.addresshierarchy.AddressHierarchyEntry;
+import org.openmrs.module.addresshierarchy.AddressHierarchyLevel;
+import org.openmrs.module.shrclient.model.AddressHierarchyEntryTranslation;
+import org.openmrs.module.shrclient.util.Database;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The address hierarchy and its local names held in memory, to resolve addresses without querying the address
+ * hierarchy tables. Entries are found by level, parent and name, as the address fields of a person address name
+ * them, or by their user generated id, the LR location code. The index is read in full on first use and entries
+ * synchronized from LR are added to it with {@link #update(AddressHierarchyEntry, String)}.
+ * Entries returned are detached copies, only their id, name, user generated id, level and parent are set.
+ */
+@Component
+public class AddressHierarchyIndex {
+    private static final Logger logger = Logger.getLogger(AddressHierarchyIndex.class);
+
+    private static final String LEVELS_QUERY = "select address_hierarchy_level_id, address_field from address_hierarchy_level";
+    private static final String ENTRIES_QUERY = "select address_hierarchy_entry_id, name, level_id, parent_id, user_generated_id " +
+            "from address_hierarchy_entry order by address_hierarchy_entry_id";
+
+    private Database database;
+    private AddressHierarchyEntryTranslationRepository entryTranslationRepository;
+
+    private final ConcurrentMap<Integer, AddressHierarchyEntry> entriesById = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AddressHierarchyEntry> entriesByName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AddressHierarchyEntry> entriesByUserGeneratedId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, String> localNames = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    @Autowired
+    public AddressHierarchyIndex(Database database, AddressHierarchyEntryTranslationRepository entryTranslationRepository) {
+        this.database = database;
+        this.entryTranslationRepository = entryTranslationRepository;
+    }
+
+    /**
+     * The entry of a level with the given name, case ignored, under the given parent. Entries of a level without
+     * parent are looked up with a null parent.
+     */
+    public AddressHierarchyEntry getEntry(AddressField addressField, String name, AddressHierarchyEntry parent) {
+        if (StringUtils.isBlank(name)) return null;
+        ensureLoaded();
+        return entriesByName.get(nameKey(addressField, parent != null ? parent.getId() : null, name));
+    }
+
+    public AddressHierarchyEntry getEntryByUserGeneratedId(String userGeneratedId) {
+        if (userGeneratedId == null) return null;
+        ensureLoaded();
+        return entriesByUserGeneratedId.get(userGeneratedId);
+    }
+
+    public String getLocalName(Integer entryId) {
+        if (entryId == null) return null;
+        ensureLoaded();
+        return localNames.get(entryId);
+    }
+
+    /**
+     * Adds a saved entry to the index or changes the indexed copy of it, with its local name when one is given.
+     * Nothing is done before the index is loaded, as loading reads the saved entry anyway.
+     */
+    public synchronized void update(AddressHierarchyEntry savedEntry, String localName) {
+        if (!loaded || savedEntry.getId() == null) return;
+        AddressHierarchyEntry entry = entriesById.get(savedEntry.getId());
+        if (entry == null) {
+            entry = new AddressHierarchyEntry();
+            entry.setId(savedEntry.getId());
+            entriesById.put(entry.getId(), entry);
+        } else {
+            removeKeys(entry);
+        }
+        entry.setName(savedEntry.getName());
+        entry.setUserGeneratedId(savedEntry.getUserGeneratedId());
+        entry.setLevel(copyOf(savedEntry.getLevel()));
+        entry.setParent(savedEntry.getParent() != null ? entriesById.get(savedEntry.getParent().getId()) : null);
+        addKeys(entry);
+        if (StringUtils.isNotBlank(localName)) {
+            localNames.put(entry.getId(), localName);
+        }
+    }
+
+    public synchronized void clear() {
+        loaded = false;
+        entriesById.clear();
+        entriesByName.clear();
+        entriesByUserGeneratedId.clear();
+        localNames.clear();
+    }
+
+    /**
+     * Reads the index unless it is loaded already, for callers that must not have it read while they hold a
+     * result set open on the connection.
+     */
+    public void ensureLoaded() {
+        if (loaded) return;
+        synchronized (this) {
+            if (!loaded) {
+                load();
+                loaded = true;
+            }
+        }
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        database.executeInTransaction(new Database.TxWork<Object>() {
+            @Override
+            public Object execute(Connection connection) {
+                try {
+                    loadEntries(connection, loadLevels(connection));
+                } catch (SQLException e) {
+                    throw new RuntimeException("Error occurred while reading the address hierarchy", e);
+                }
+                return null;
+            }
+        });
+        for (AddressHierarchyEntryTranslation translation : entryTranslationRepository.findAll()) {
+            if (StringUtils.isNotBlank(translation.getLocalName())) {
+                localNames.put(translation.getId(), translation.getLocalName());
+            }
+        }
+        logger.info(String.format("Loaded %d address hierarchy entries in %d ms", entriesById.size(), System.currentTimeMillis() - start));
+    }
+
+    private Map<Integer, AddressHierarchyLevel> loadLevels(Connection connection) throws SQLException {
+        Map<Integer, AddressHierarchyLevel> levels = new HashMap<>();
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = connection.prepareStatement(LEVELS_QUERY);
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                AddressHierarchyLevel level = new AddressHierarchyLevel();
+                level.setId(resultSet.getInt("address_hierarchy_level_id"));
+                String addressField = resultSet.getString("address_field");
+                level.setAddressField(addressField != null ? AddressField.valueOf(addressField) : null);
+                levels.put(level.getId(), level);
+            }
+        } finally {
+            close(statement, resultSet);
+        }
+        return levels;
+    }
+
+    private void loadEntries(Connection connection, Map<Integer, AddressHierarchyLevel> levels) throws SQLException {
+        Map<Integer, Integer> parentIds = new HashMap<>();
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = connection.prepareStatement(ENTRIES_QUERY);
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                AddressHierarchyEntry entry = new AddressHierarchyEntry();
+                entry.setId(resultSet.getInt("address_hierarchy_entry_id"));
+                entry.setName(resultSet.getString("name"));
+                entry.setLevel(levels.get(resultSet.getInt("level_id")));
+                entry.setUserGeneratedId(resultSet.getString("user_generated_id"));
+                int parentId = resultSet.getInt("parent_id");
+                if (!resultSet.wasNull()) parentIds.put(entry.getId(), parentId);
+                entriesById.put(entry.getId(), entry);
+            }
+        } finally {
+            close(statement, resultSet);
+        }
+        for (AddressHierarchyEntry entry : entriesById.values()) {
+            Integer parentId = parentIds.get(entry.getId());
+            entry.setParent(parentId != null ? entriesById.get(parentId) : null);
+        }
+        //keys are added in id order, so that the first of entries with the same name under a parent is found
+        for (int entryId : new TreeSet<>(entriesById.keySet())) {
+            addKeys(entriesById.get(entryId));
+        }
+    }
+
+    private void addKeys(AddressHierarchyEntry entry) {
+        if (entry.getName() != null && entry.getLevel() != null) {
+            entriesByName.putIfAbsent(nameKey(entry), entry);
+        }
+        if (entry.getUserGeneratedId() != null) {
+            entriesByUserGeneratedId.put(entry.getUserGeneratedId(), entry);
+        }
+    }
+
+    private void removeKeys(AddressHierarchyEntry entry) {
+        if (entry.getName() != null && entry.getLevel() != null) {
+            entriesByName.remove(nameKey(entry), entry);
+        }
+        if (entry.getUserGeneratedId() != null) {
+            entriesByUserGeneratedId.remove(entry.getUserGeneratedId(), entry);
+        }
+    }
+
+    private String nameKey(AddressHierarchyEntry entry) {
+        Integer parentId = entry.getParent() != null ? entry.getParent().getId() : null;
+        return nameKey(entry.getLevel().getAddressField(), parentId, entry.getName());
+    }
+
+    private String nameKey(AddressField addressField, Integer parentId, String name) {
+        return addressField + ":" + parentId + ":" + name.trim().toLowerCase();
+    }
+
+    private AddressHierarchyLevel copyOf(AddressHierarchyLevel savedLevel) {
+        if (savedLevel == null) return null;
+        AddressHierarchyLevel level = new AddressHierarchyLevel();
+        level.setId(savedLevel.getId());
+        level.setAddressField(savedLevel.getAddressField());
+        return level;
+    }
+
+    private void close(PreparedStatement statement, ResultSet resultSet) {
+        try {
+            if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+        } catch (SQLException e) {
+            logger.warn("Could not close db statement or result set", e);
+        }
+    }
+}
@@ -5,8 +5,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.addresshierarchy.AddressHierarchyEntry;
+import org.openmrs.module.addresshierarchy.service.AddressHierarchyService;
 import org.openmrs.module.fhir.OpenMRSConstants;
-import org.openmrs.module.shrclient.model.AddressHierarchyEntryTranslation;
 import org.openmrs.module.shrclient.model.HealthIdCard;
 import org.openmrs.module.shrclient.util.AddressHelper;
 import org.openmrs.module.shrclient.util.Database;
@@ -23,43 +23,31 @@ import static org.openmrs.module.shrclient.util.AddressLevel.*;
 public class HIDCardDao {
     private static final Logger logger = Logger.getLogger(HIDCardDao.class);
 
-    private static Integer givenNameLocalAttributeId;
-    private static Integer familyNameLocalAttributeId;
-    private static Integer healthIdIssuedAttributeAttributeId;
-    private static Integer BirthRegistrationAttributeId;
-    private static Integer nationalIdAttributeAttributeId;
-    private static Integer healthIdIdentifierTypeId;
+    private static final int FETCH_SIZE = 500;
     private final String PAURASAVA_TO_EXCLUDE_CODE = "99";
 
     private Database database;
     private AddressHelper addressHelper;
-    private AddressHierarchyEntryTranslationRepository entryTranslationRepository;
+    private AddressHierarchyIndex addressHierarchyIndex;
+    private volatile AttributeTypeIds attributeTypeIds;
 
-    public HIDCardDao(Database database, AddressHierarchyEntryTranslationRepository entryTranslationRepository) {
+    public HIDCardDao(Database database, AddressHierarchyIndex addressHierarchyIndex) {
         this.database = database;
-        this.entryTranslationRepository = entryTranslationRepository;
+        this.addressHierarchyIndex = addressHierarchyIndex;
     }
 
     public List<HealthIdCard> getAllCardsByUserWithinDateRange(final int userId, final java.util.Date from, final Date to) {
         return database.executeInTransaction(new Database.TxWork<List<HealthIdCard>>() {
             @Override
             public List<HealthIdCard> execute(Connection connection) {
-                List<HealthIdCard> healthIdCards = new ArrayList<>();
+                final List<HealthIdCard> healthIdCards = new ArrayList<>();
                 try {
-                    PreparedStatement statement = connection.prepareStatement(getQueryStatement());
-                    statement.setInt(1, getGivenNameLocalAttributeId());
-                    statement.setInt(2, getFamilyNameLocalAttributeId());
-                    statement.setInt(3, getNationalIdAttributeId());
-                    statement.setInt(4, getBirthRegistrationAttributeId());
-                    statement.setInt(5, userId);
-                    statement.setInt(6, getHealthIdIdentifierTypeId());
-                    statement.setTimestamp(7, new Timestamp(from.getTime()));
-                    statement.setTimestamp(8, new Timestamp(to.getTime()));
-                    statement.setInt(9, getHealthIdIssuedStatusAttributeId());
-                    ResultSet resultSet = statement.executeQuery();
-                    while (resultSet.next()) {
-                        healthIdCards.add(createHealthIdCard(resultSet));
-                    }
+                    readCardsByUserWithinDateRange(connection, userId, from, to, new HealthIdCardHandler() {
+                        @Override
+                        public void handle(HealthIdCard healthIdCard) {
+                            healthIdCards.add(healthIdCard);
+                        }
+                    });
                 } catch (SQLException e) {
                     logger.error("Error while fetching Health-Id Card details", e);
                 }
@@ -68,6 +56,66 @@ public class HIDCardDao {
         });
     }
 
+    /**
+     * Hands the cards to the handler one at a time as rows are read, without holding all of them in memory.
+     * Failures are thrown, since the handler may already have written out part of the cards.
+     */
+    public void streamCardsByUserWithinDateRange(final int userId, final Date from, final Date to, final HealthIdCardHandler handler) {
+        database.executeInTransaction(new Database.TxWork<Object>() {
+            @Override
+            public Object execute(Connection connection) {
+                try {
+                    readCardsByUserWithinDateRange(connection, userId, from, to, handler);
+                } catch (SQLException e) {
+                    throw new RuntimeException("Error while fetching Health-Id Card details", e);
+                }
+                return null;
+            }
+        });
+    }
+
+    private void readCardsByUserWithinDateRange(Connection connection, int userId, Date from, Date to, HealthIdCardHandler handler) throws SQLException {
+        AttributeTypeIds typeIds = getAttributeTypeIds();
+        //rows are read while addresses are resolved, so the index must not query the connection meanwhile
+        addressHierarchyIndex.ensureLoaded();
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = connection.prepareStatement(getQueryStatement(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(getFetchSize(connection));
+            statement.setInt(1, typeIds.givenNameLocal);
+            statement.setInt(2, typeIds.familyNameLocal);
+            statement.setInt(3, typeIds.nationalId);
+            statement.setInt(4, typeIds.birthRegistration);
+            statement.setInt(5, userId);
+            statement.setInt(6, typeIds.healthIdIdentifier);
+            statement.setTimestamp(7, new Timestamp(from.getTime()));
+            statement.setTimestamp(8, new Timestamp(to.getTime()));
+            statement.setInt(9, typeIds.healthIdIssued);
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                handler.handle(createHealthIdCard(resultSet));
+            }
+        } finally {
+            close(statement, resultSet);
+        }
+    }
+
+    //MySQL Connector/J streams rows only with this fetch size, any other fetch size reads all rows before returning
+    private int getFetchSize(Connection connection) throws SQLException {
+        String databaseProduct = connection.getMetaData().getDatabaseProductName();
+        return StringUtils.containsIgnoreCase(databaseProduct, "mysql") ? Integer.MIN_VALUE : FETCH_SIZE;
+    }
+
+    private void close(PreparedStatement statement, ResultSet resultSet) {
+        try {
+            if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+        } catch (SQLException e) {
+            logger.warn("Could not close db statement or result set", e);
+        }
+    }
+
     private HealthIdCard createHealthIdCard(ResultSet resultSet) throws SQLException {
         HealthIdCard healthIdCard = new HealthIdCard();
         healthIdCard.setGivenName(resultSet.getString("given_name"));
@@ -88,7 +136,7 @@ public class HIDCardDao {
     private void createAddressForHIDCard(ResultSet resultSet, HealthIdCard healthIdCard) throws SQLException {
         HealthIdCard.HIDCardAddress hidCardAddress = healthIdCard.addAddress();
         if (addressHelper == null) {
-            addressHelper = new AddressHelper();
+            addressHelper = new AddressHelper(Context.getService(AddressHierarchyService.class), addressHierarchyIndex);
         }
 
         String division = resultSet.getString("state_province");
@@ -133,12 +181,8 @@ public class HIDCardDao {
 
     private String getLocalOrEnglishName(AddressHierarchyEntry entryForAddress) {
         if (null == entryForAddress) return null;
-        AddressHierarchyEntryTranslation entryTranslation = entryTranslationRepository.get(entryForAddress.getId());
-        if (null != entryTranslation && StringUtils.isNotBlank(entryTranslation.getLocalName())) {
-            return entryTranslation.getLocalName();
-        } else {
-            return entryForAddress.getName();
-        }
+        String localName = addressHierarchyIndex.getLocalName(entryForAddress.getId());
+        return StringUtils.isNotBlank(localName) ? localName : entryForAddress.getName();
     }
 
     private String getQueryStatement() {
@@ -157,47 +201,20 @@ public class HIDCardDao {
                 "(SELECT ptt.person_id FROM person_attribute ptt WHERE ptt.value='true' AND ptt.person_attribute_type_id = ?) ORDER BY pn.given_name, pn.family_name;";
     }
 
-    private static final Integer getGivenNameLocalAttributeId() {
-        if (givenNameLocalAttributeId == null) {
-            givenNameLocalAttributeId = Context.getPersonService().getPersonAttributeTypeByName(OpenMRSConstants.GIVEN_NAME_LOCAL_ATTRIBUTE_TYPE).getPersonAttributeTypeId();
-        }
-        return givenNameLocalAttributeId;
-    }
-
-    private static final int getFamilyNameLocalAttributeId() {
-        if (familyNameLocalAttributeId == null) {
-            familyNameLocalAttributeId = Context.getPersonService().getPersonAttributeTypeByName(OpenMRSConstants.FAMILY_NAME_LOCAL_ATTRIBUTE_TYPE).getPersonAttributeTypeId();
-        }
-        return familyNameLocalAttributeId;
-    }
-
-    private static final int getHealthIdIssuedStatusAttributeId() {
-        if (healthIdIssuedAttributeAttributeId == null) {
-            healthIdIssuedAttributeAttributeId = Context.getPersonService().getPersonAttributeTypeByName(OpenMRSConstants.HID_CARD_ISSUED_ATTRIBUTE_TYPE).getPersonAttributeTypeId();
-        }
-        return healthIdIssuedAttributeAttributeId;
-    }
-
-    private static final int getNationalIdAttributeId() {
-        if (nationalIdAttributeAttributeId == null) {
-            nationalIdAttributeAttributeId = Context.getPersonService().getPersonAttributeTypeByName(OpenMRSConstants.NATIONAL_ID_ATTRIBUTE_TYPE).getPersonAttributeTypeId();
-        }
-        return nationalIdAttributeAttributeId;
-    }
-
-    private static final int getBirthRegistrationAttributeId() {
-        if (BirthRegistrationAttributeId == null) {
-            BirthRegistrationAttributeId = Context.getPersonService().getPersonAttributeTypeByName(OpenMRSConstants.BIRTH_REG_NO_ATTRIBUTE_TYPE).getPersonAttributeTypeId();
-        }
-        return BirthRegistrationAttributeId;
-    }
-
-
-    private static final Integer getHealthIdIdentifierTypeId() {
-        if (healthIdIdentifierTypeId == null) {
-            healthIdIdentifierTypeId = Context.getPatientService().getPatientIdentifierTypeByName(OpenMRSConstants.HEALTH_ID_IDENTIFIER_TYPE).getPatientIdentifierTypeId();
+    /**
+     * The attribute and identifier type ids are read once per dao, and published together once all are read.
+     */
+    private AttributeTypeIds getAttributeTypeIds() {
+        AttributeTypeIds typeIds = attributeTypeIds;
+        if (typeIds == null) {
+            synchronized (this) {
+                if (attributeTypeIds == null) {
+                    attributeTypeIds = new AttributeTypeIds();
+                }
+                typeIds = attributeTypeIds;
+            }
         }
-        return healthIdIdentifierTypeId;
+        return typeIds;
     }
 
     public HealthIdCard getHIDCardForPerson(final String personUUID) {
@@ -209,11 +226,12 @@ public class HIDCardDao {
 
                     String query = getHIDCardForPersonQuery();
                     PreparedStatement statement = connection.prepareStatement(query);
-                    statement.setInt(1, getGivenNameLocalAttributeId());
-                    statement.setInt(2, getFamilyNameLocalAttributeId());
-                    statement.setInt(3, getNationalIdAttributeId());
-                    statement.setInt(4, getBirthRegistrationAttributeId());
-                    statement.setInt(5, getHealthIdIdentifierTypeId());
+                    AttributeTypeIds typeIds = getAttributeTypeIds();
+                    statement.setInt(1, typeIds.givenNameLocal);
+                    statement.setInt(2, typeIds.familyNameLocal);
+                    statement.setInt(3, typeIds.nationalId);
+                    statement.setInt(4, typeIds.birthRegistration);
+                    statement.setInt(5, typeIds.healthIdIdentifier);
                     statement.setString(6, personUUID);
                     ResultSet resultSet = statement.executeQuery();
                     while (resultSet.next()) {
@@ -240,4 +258,30 @@ public class HIDCardDao {
                 "                AND pi.identifier_type = ? " +
                 "                AND p.uuid = ?;";
     }
+
+    public interface HealthIdCardHandler {
+        void handle(HealthIdCard healthIdCard);
+    }
+
+    private static class AttributeTypeIds {
+        private final int givenNameLocal;
+        private final int familyNameLocal;
+        private final int healthIdIssued;
+        private final int nationalId;
+        private final int birthRegistration;
+        private final int healthIdIdentifier;
+
+        private AttributeTypeIds() {
+            givenNameLocal = getPersonAttributeTypeId(OpenMRSConstants.GIVEN_NAME_LOCAL_ATTRIBUTE_TYPE);
+            familyNameLocal = getPersonAttributeTypeId(OpenMRSConstants.FAMILY_NAME_LOCAL_ATTRIBUTE_TYPE);
+            healthIdIssued = getPersonAttributeTypeId(OpenMRSConstants.HID_CARD_ISSUED_ATTRIBUTE_TYPE);
+            nationalId = getPersonAttributeTypeId(OpenMRSConstants.NATIONAL_ID_ATTRIBUTE_TYPE);
+            birthRegistration = getPersonAttributeTypeId(OpenMRSConstants.BIRTH_REG_NO_ATTRIBUTE_TYPE);
+            healthIdIdentifier = Context.getPatientService().getPatientIdentifierTypeByName(OpenMRSConstants.HEALTH_ID_IDENTIFIER_TYPE).getPatientIdentifierTypeId();
+        }
+
+        private static int getPersonAttributeTypeId(String attributeTypeName) {
+            return Context.getPersonService().getPersonAttributeTypeByName(attributeTypeName).getPersonAttributeTypeId();
+        }
+    }
 }
@@ -0,0 +1,114 @@
+package org.openmrs.module.shrclient.feeds;
+
+import org.apache.log4j.Logger;
+import org.openmrs.module.shrclient.util.PlatformUtil;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the download of each catchment feed on a bounded pool of threads. Every catchment keeps its own marker
+ * and failed events, and a failure in one catchment does not stop the others. The download returns once every
+ * catchment is done and the threads have stopped.
+ */
+public class CatchmentFeedExecutor {
+    private static final Logger log = Logger.getLogger(CatchmentFeedExecutor.class);
+    private static final long TERMINATION_TIMEOUT_SECONDS = 60;
+
+    public interface CatchmentWork {
+        void process(String catchmentFeedUrl) throws Exception;
+    }
+
+    private final int maxConcurrentCatchments;
+
+    public CatchmentFeedExecutor(int maxConcurrentCatchments) {
+        this.maxConcurrentCatchments = Math.max(maxConcurrentCatchments, 1);
+    }
+
+    public void execute(List<String> catchmentFeedUrls, final CatchmentWork work) {
+        int threads = Math.min(maxConcurrentCatchments, catchmentFeedUrls.size());
+        if (threads <= 1) {
+            for (String catchmentFeedUrl : catchmentFeedUrls) {
+                processCatchment(catchmentFeedUrl, work);
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, threadFactory());
+        Map<String, Future<?>> catchmentDownloads = new LinkedHashMap<>();
+        try {
+            for (final String catchmentFeedUrl : catchmentFeedUrls) {
+                catchmentDownloads.put(catchmentFeedUrl, executor.submit(inWorkerContext(new Runnable() {
+                    @Override
+                    public void run() {
+                        processCatchment(catchmentFeedUrl, work);
+                    }
+                })));
+            }
+            awaitCatchmentDownloads(catchmentDownloads);
+        } finally {
+            shutdown(executor);
+        }
+    }
+
+    protected Runnable inWorkerContext(Runnable work) {
+        return PlatformUtil.inCurrentUserContext(work);
+    }
+
+    /**
+     * Waits for every catchment, a failed catchment is logged and the next one is waited for.
+     */
+    private void awaitCatchmentDownloads(Map<String, Future<?>> catchmentDownloads) {
+        for (Map.Entry<String, Future<?>> catchmentDownload : catchmentDownloads.entrySet()) {
+            try {
+                catchmentDownload.getValue().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.error("Catchment download failed for " + catchmentDownload.getKey(), e.getCause());
+            }
+        }
+    }
+
+    private void shutdown(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn(String.format("Catchment downloads did not finish within %d seconds, interrupting them.", TERMINATION_TIMEOUT_SECONDS));
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void processCatchment(String catchmentFeedUrl, CatchmentWork work) {
+        try {
+            work.process(catchmentFeedUrl);
+        } catch (Exception e) {
+            log.error("Couldn't process catchment feed " + catchmentFeedUrl + ". Error: ", e);
+        }
+    }
+
+    private ThreadFactory threadFactory() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "bdshr-catchment-download-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
@@ -25,24 +25,44 @@ import java.util.Map;
 public class CatchmentFeedProcessor {
 
     private String feedUrl;
+    private String pipeline;
     private Map<String, String> requestHeaders;
     private ClientRegistry clientRegistry;
 
     public CatchmentFeedProcessor(String feedUrl,
+                                  String pipeline,
                                   Map<String, String> requestHeaders,
                                   ClientRegistry clientRegistry) {
         this.feedUrl = feedUrl;
+        this.pipeline = pipeline;
         this.requestHeaders = requestHeaders;
         this.clientRegistry = clientRegistry;
     }
 
     public void process(EventWorker feedEventWorker, int maxFailedEvent) throws URISyntaxException {
-        atomFeedClient(new URI(this.feedUrl), feedEventWorker,
+        atomFeedClient(new URI(this.feedUrl), new MeteredEventWorker(pipeline, feedEventWorker),
                 maxFailedEvent).processEvents();
     }
 
+    public <T> void processPipelined(PipelinedEventWorker<T> feedEventWorker, int maxFailedEvent, int parserThreads,
+                                     int maxInFlight, int batchSize) throws URISyntaxException {
+        URI feedUri = new URI(this.feedUrl);
+        JdbcConnectionProvider connectionProvider = getConnectionProvider(getAtomFeedTransactionManager());
+        new PipelinedEventProcessor<>(
+                getAllFeeds(clientRegistry),
+                getAllMarkers(connectionProvider),
+                getAllFailedEvent(connectionProvider),
+                feedUri,
+                pipeline,
+                feedEventWorker,
+                maxFailedEvent,
+                parserThreads,
+                maxInFlight,
+                batchSize).processEvents();
+    }
+
     public void processFailedEvents(EventWorker feedEventWorker, int maxFailedEvent) throws URISyntaxException {
-        atomFeedClient(new URI(this.feedUrl), feedEventWorker,
+        atomFeedClient(new URI(this.feedUrl), new MeteredEventWorker(pipeline, feedEventWorker),
                 maxFailedEvent).processFailedEvents();
     }
 
@@ -76,7 +96,7 @@ public class CatchmentFeedProcessor {
     }
 
     private AllFeeds getAllFeeds(ClientRegistry clientRegistry) {
-        return new CatchmentFeeds(requestHeaders, clientRegistry);
+        return new CatchmentFeeds(pipeline, requestHeaders, clientRegistry);
     }
 
     private JdbcConnectionProvider getConnectionProvider(AFTransactionManager txMgr) {
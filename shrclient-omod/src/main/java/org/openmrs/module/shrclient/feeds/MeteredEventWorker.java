@@ -0,0 +1,34 @@
+package org.openmrs.module.shrclient.feeds;
+
+import org.ict4h.atomfeed.client.domain.Event;
+import org.ict4h.atomfeed.client.service.EventWorker;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
+
+/**
+ * Counts the events handled by a worker run from the atom feed client, which records failed events on its own.
+ */
+public class MeteredEventWorker implements EventWorker {
+    private final String pipeline;
+    private final EventWorker eventWorker;
+
+    public MeteredEventWorker(String pipeline, EventWorker eventWorker) {
+        this.pipeline = pipeline;
+        this.eventWorker = eventWorker;
+    }
+
+    @Override
+    public void process(Event event) {
+        try {
+            eventWorker.process(event);
+        } catch (RuntimeException e) {
+            SyncMetrics.getInstance().recordEvent(pipeline, SyncMetrics.FAILED);
+            throw e;
+        }
+        SyncMetrics.getInstance().recordEvent(pipeline, SyncMetrics.PROCESSED);
+    }
+
+    @Override
+    public void cleanUp(Event event) {
+        eventWorker.cleanUp(event);
+    }
+}
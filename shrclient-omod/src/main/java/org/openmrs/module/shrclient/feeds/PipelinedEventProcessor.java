@@ -0,0 +1,377 @@
+package org.openmrs.module.shrclient.feeds;
+
+import com.sun.syndication.feed.atom.Entry;
+import com.sun.syndication.feed.atom.Feed;
+import com.sun.syndication.feed.atom.Link;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.log4j.Logger;
+import org.ict4h.atomfeed.client.domain.Event;
+import org.ict4h.atomfeed.client.domain.FailedEvent;
+import org.ict4h.atomfeed.client.domain.Marker;
+import org.ict4h.atomfeed.client.repository.AllFailedEvents;
+import org.ict4h.atomfeed.client.repository.AllFeeds;
+import org.ict4h.atomfeed.client.repository.AllMarkers;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
+import org.openmrs.module.shrclient.util.TransactionHelper;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads a feed like {@link org.ict4h.atomfeed.client.service.AtomFeedClient}, in three overlapping stages: the next
+ * feed page is fetched while the current one is worked on, event contents are parsed on a pool of parser threads, and
+ * the parsed events are processed one at a time in feed order on the calling thread. At most maxInFlight events are
+ * fetched and parsed ahead of the one being processed. The marker moves with the processed events, as with the atom feed client.
+ * The parse and persist times, the outcome of each event and the lag of the marker are recorded in {@link SyncMetrics}
+ * under the given pipeline.
+ * With a batchSize above one, the initial load of a feed, before it has a marker, processes parsed events batchSize at
+ * a time in one transaction. When a batch fails, its events are processed again one at a time. Once the feed has a
+ * marker, events are always processed one at a time.
+ */
+public class PipelinedEventProcessor<T> {
+    private static final Logger log = Logger.getLogger(PipelinedEventProcessor.class);
+
+    private static final String PREV_ARCHIVE = "prev-archive";
+    private static final String NEXT_ARCHIVE = "next-archive";
+    private static final String VIA = "via";
+    private static final String SELF = "self";
+
+    private final AllFeeds allFeeds;
+    private final AllMarkers allMarkers;
+    private final AllFailedEvents allFailedEvents;
+    private final URI feedUri;
+    private final String pipeline;
+    private final PipelinedEventWorker<T> eventWorker;
+    private final int maxFailedEvents;
+    private final int parserThreads;
+    private final int maxInFlight;
+    private final int batchSize;
+    private final List<ParsedEvent<T>> batch = new ArrayList<>();
+    private int runBatchSize = 1;
+    private final SyncMetrics metrics = SyncMetrics.getInstance();
+    private Date newestEntryUpdated;
+
+    public PipelinedEventProcessor(AllFeeds allFeeds, AllMarkers allMarkers, AllFailedEvents allFailedEvents, URI feedUri,
+                                   String pipeline, PipelinedEventWorker<T> eventWorker, int maxFailedEvents,
+                                   int parserThreads, int maxInFlight, int batchSize) {
+        this.allFeeds = allFeeds;
+        this.allMarkers = allMarkers;
+        this.allFailedEvents = allFailedEvents;
+        this.feedUri = feedUri;
+        this.pipeline = pipeline;
+        this.eventWorker = eventWorker;
+        this.maxFailedEvents = maxFailedEvents;
+        this.parserThreads = Math.max(parserThreads, 1);
+        this.maxInFlight = Math.max(maxInFlight, this.parserThreads);
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    public void processEvents() {
+        if (hasReachedMaxFailedEvents()) {
+            log.warn(String.format("Not processing events of feed %s. Number of failed events has reached the limit of %d.",
+                    feedUri, maxFailedEvents));
+            return;
+        }
+
+        Marker marker = allMarkers.get(feedUri);
+        String lastReadEntryId = null;
+        Feed feed;
+        if (marker == null || marker.getFeedURIForLastReadEntry() == null) {
+            runBatchSize = batchSize;
+            feed = getFirstFeed();
+        } else {
+            runBatchSize = 1;
+            feed = allFeeds.getFor(marker.getFeedURIForLastReadEntry());
+            lastReadEntryId = marker.getLastReadEntryId();
+        }
+
+        ExecutorService fetcher = Executors.newSingleThreadExecutor(threadFactory("bdshr-feed-fetcher-"));
+        ExecutorService parsers = Executors.newFixedThreadPool(parserThreads, threadFactory("bdshr-event-parser-"));
+        Deque<PendingEvent<T>> inFlight = new ArrayDeque<>();
+        boolean accepting = true;
+        try {
+            Future<Feed> nextFeed = fetchNextFeed(fetcher, feed);
+            while (feed != null && accepting) {
+                URI entryFeedUri = getEntryFeedUri(feed);
+                for (Entry entry : getEntriesAfter(feed, lastReadEntryId)) {
+                    trackNewestEntry(entry);
+                    inFlight.add(submit(parsers, entry, entryFeedUri));
+                    while (accepting && inFlight.size() >= maxInFlight) {
+                        accepting = complete(inFlight.poll());
+                    }
+                    if (!accepting) break;
+                }
+                lastReadEntryId = null;
+                feed = accepting ? getFeed(nextFeed) : null;
+                nextFeed = fetchNextFeed(fetcher, feed);
+            }
+            while (accepting && !inFlight.isEmpty()) {
+                accepting = complete(inFlight.poll());
+            }
+            if (accepting) {
+                completeBatch();
+            }
+        } finally {
+            batch.clear();
+            for (PendingEvent<T> pendingEvent : inFlight) {
+                pendingEvent.parsedContent.cancel(true);
+            }
+            fetcher.shutdownNow();
+            parsers.shutdownNow();
+        }
+    }
+
+    protected <R> R inTransaction(TransactionHelper.TxWork<R> work) {
+        return TransactionHelper.executeInTransaction(work);
+    }
+
+    private PendingEvent<T> submit(ExecutorService parsers, Entry entry, URI entryFeedUri) {
+        final Event event = new Event(entry, entryFeedUri.toString());
+        Future<T> parsedContent = parsers.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                long start = System.nanoTime();
+                T parsed = eventWorker.parse(event);
+                metrics.recordStage(pipeline, SyncMetrics.PARSE, start);
+                return parsed;
+            }
+        });
+        return new PendingEvent<>(event, entry.getUpdated(), entryFeedUri, parsedContent);
+    }
+
+    private boolean complete(PendingEvent<T> pendingEvent) {
+        T parsedContent;
+        try {
+            parsedContent = pendingEvent.parsedContent.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return completeBatch() && failed(pendingEvent, e.getCause());
+        }
+        if (runBatchSize == 1) {
+            return process(new ParsedEvent<>(pendingEvent, parsedContent));
+        }
+        batch.add(new ParsedEvent<>(pendingEvent, parsedContent));
+        return batch.size() < runBatchSize || completeBatch();
+    }
+
+    private boolean process(final ParsedEvent<T> parsedEvent) {
+        final PendingEvent<T> pendingEvent = parsedEvent.pendingEvent;
+        try {
+            long start = System.nanoTime();
+            inTransaction(new TransactionHelper.TxWork<Object>() {
+                @Override
+                public Object execute() {
+                    eventWorker.process(pendingEvent.event, parsedEvent.parsedContent);
+                    eventWorker.cleanUp(pendingEvent.event);
+                    allMarkers.put(feedUri, pendingEvent.event.getId(), pendingEvent.entryFeedUri);
+                    return null;
+                }
+            });
+            metrics.recordStage(pipeline, SyncMetrics.PERSIST, start);
+            metrics.recordEvent(pipeline, SyncMetrics.PROCESSED);
+            recordFeedLag(pendingEvent);
+            return true;
+        } catch (Exception e) {
+            return failed(pendingEvent, e);
+        }
+    }
+
+    private boolean completeBatch() {
+        if (batch.isEmpty()) return true;
+        final List<ParsedEvent<T>> events = new ArrayList<>(batch);
+        batch.clear();
+        final PendingEvent<T> lastEvent = events.get(events.size() - 1).pendingEvent;
+        try {
+            long start = System.nanoTime();
+            inTransaction(new TransactionHelper.TxWork<Object>() {
+                @Override
+                public Object execute() {
+                    eventWorker.beginBatch();
+                    for (ParsedEvent<T> parsedEvent : events) {
+                        eventWorker.process(parsedEvent.pendingEvent.event, parsedEvent.parsedContent);
+                        eventWorker.cleanUp(parsedEvent.pendingEvent.event);
+                    }
+                    eventWorker.completeBatch();
+                    allMarkers.put(feedUri, lastEvent.event.getId(), lastEvent.entryFeedUri);
+                    return null;
+                }
+            });
+            metrics.recordStage(pipeline, SyncMetrics.PERSIST, start);
+            for (int i = 0; i < events.size(); i++) {
+                metrics.recordEvent(pipeline, SyncMetrics.PROCESSED);
+            }
+            recordFeedLag(lastEvent);
+            return true;
+        } catch (Exception e) {
+            eventWorker.abandonBatch();
+            log.warn(String.format("Failed to process a batch of %d events of feed %s. Processing them one at a time.",
+                    events.size(), feedUri), e);
+        }
+        for (ParsedEvent<T> parsedEvent : events) {
+            if (!process(parsedEvent)) return false;
+        }
+        return true;
+    }
+
+    private boolean failed(final PendingEvent<T> pendingEvent, final Throwable cause) {
+        metrics.recordEvent(pipeline, SyncMetrics.FAILED);
+        if (hasReachedMaxFailedEvents()) {
+            log.error(String.format("Failed to process event %s and the failed events limit of %d has been reached. Stopping.",
+                    pendingEvent.event.getId(), maxFailedEvents), cause);
+            return false;
+        }
+        log.error(String.format("Failed to process event %s", pendingEvent.event.getId()), cause);
+        inTransaction(new TransactionHelper.TxWork<Object>() {
+            @Override
+            public Object execute() {
+                allFailedEvents.addOrUpdate(new FailedEvent(feedUri.toString(), pendingEvent.event, ExceptionUtils.getStackTrace(cause), 0));
+                allMarkers.put(feedUri, pendingEvent.event.getId(), pendingEvent.entryFeedUri);
+                return null;
+            }
+        });
+        recordFeedLag(pendingEvent);
+        return true;
+    }
+
+    private void trackNewestEntry(Entry entry) {
+        Date updated = entry.getUpdated();
+        if (updated != null && (newestEntryUpdated == null || updated.after(newestEntryUpdated))) {
+            newestEntryUpdated = updated;
+        }
+    }
+
+    private void recordFeedLag(PendingEvent<T> markedEvent) {
+        if (newestEntryUpdated == null || markedEvent.updated == null) return;
+        metrics.recordFeedLag(pipeline, feedUri.toString(), newestEntryUpdated.getTime() - markedEvent.updated.getTime());
+    }
+
+    private boolean hasReachedMaxFailedEvents() {
+        return inTransaction(new TransactionHelper.TxWork<Boolean>() {
+            @Override
+            public Boolean execute() {
+                return allFailedEvents.getNumberOfFailedEvents(feedUri.toString()) >= maxFailedEvents;
+            }
+        });
+    }
+
+    private Future<Feed> fetchNextFeed(ExecutorService fetcher, Feed feed) {
+        final URI next = feed != null ? getLink(feed, NEXT_ARCHIVE) : null;
+        if (next == null) {
+            FutureTask<Feed> noFeed = new FutureTask<>(new Callable<Feed>() {
+                @Override
+                public Feed call() throws Exception {
+                    return null;
+                }
+            });
+            noFeed.run();
+            return noFeed;
+        }
+        return fetcher.submit(new Callable<Feed>() {
+            @Override
+            public Feed call() throws Exception {
+                return allFeeds.getFor(next);
+            }
+        });
+    }
+
+    private Feed getFeed(Future<Feed> feed) {
+        try {
+            return feed.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(String.format("Unable to fetch feed page of %s", feedUri), e.getCause());
+        }
+    }
+
+    private Feed getFirstFeed() {
+        Feed feed = allFeeds.getFor(feedUri);
+        while (feed != null) {
+            URI previous = getLink(feed, PREV_ARCHIVE);
+            Feed previousFeed = previous != null ? allFeeds.getFor(previous) : null;
+            if (previousFeed == null) break;
+            feed = previousFeed;
+        }
+        return feed;
+    }
+
+    private URI getEntryFeedUri(Feed feed) {
+        URI uri = getLink(feed, VIA);
+        if (uri == null) uri = getLink(feed, SELF);
+        return uri != null ? uri : feedUri;
+    }
+
+    private URI getLink(Feed feed, String rel) {
+        for (Object object : feed.getOtherLinks()) {
+            Link link = (Link) object;
+            if (rel.equals(link.getRel())) {
+                return URI.create(link.getHref());
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Entry> getEntriesAfter(Feed feed, String lastReadEntryId) {
+        List<Entry> entries = feed.getEntries();
+        if (lastReadEntryId == null) return entries;
+        for (int i = 0; i < entries.size(); i++) {
+            if (lastReadEntryId.equals(entries.get(i).getId())) {
+                return entries.subList(i + 1, entries.size());
+            }
+        }
+        return entries;
+    }
+
+    private ThreadFactory threadFactory(String prefix) {
+        final String threadPrefix = prefix + feedUri.getPath().replaceAll("/", "") + "-";
+        final AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, threadPrefix + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private static class ParsedEvent<T> {
+        private final PendingEvent<T> pendingEvent;
+        private final T parsedContent;
+
+        private ParsedEvent(PendingEvent<T> pendingEvent, T parsedContent) {
+            this.pendingEvent = pendingEvent;
+            this.parsedContent = parsedContent;
+        }
+    }
+
+    private static class PendingEvent<T> {
+        private final Event event;
+        private final Date updated;
+        private final URI entryFeedUri;
+        private final Future<T> parsedContent;
+
+        private PendingEvent(Event event, Date updated, URI entryFeedUri, Future<T> parsedContent) {
+            this.event = event;
+            this.updated = updated;
+            this.entryFeedUri = entryFeedUri;
+            this.parsedContent = parsedContent;
+        }
+    }
+}
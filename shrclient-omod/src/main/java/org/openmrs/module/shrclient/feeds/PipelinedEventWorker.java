@@ -0,0 +1,29 @@
+package org.openmrs.module.shrclient.feeds;
+
+import org.ict4h.atomfeed.client.domain.Event;
+import org.ict4h.atomfeed.client.service.EventWorker;
+
+/**
+ * An event worker whose event content can be parsed ahead of, and concurrently with, the processing of earlier events.
+ * {@link #parse(Event)} must not depend on the OpenMRS context or on the outcome of processing other events.
+ */
+public interface PipelinedEventWorker<T> extends EventWorker {
+    T parse(Event event);
+
+    void process(Event event, T parsedContent);
+
+    /**
+     * Called in the transaction of a batch of events, before the first of them is processed.
+     */
+    void beginBatch();
+
+    /**
+     * Called in the transaction of a batch of events, after the last of them is processed.
+     */
+    void completeBatch();
+
+    /**
+     * Called after the transaction of a batch of events is rolled back.
+     */
+    void abandonBatch();
+}
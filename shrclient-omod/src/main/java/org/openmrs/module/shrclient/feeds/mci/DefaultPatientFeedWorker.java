@@ -7,28 +7,38 @@ import org.ict4h.atomfeed.client.exceptions.AtomFeedClientException;
 import org.ict4h.atomfeed.client.service.EventWorker;
 import org.openmrs.module.shrclient.feeds.shr.DefaultEncounterFeedWorker;
 import org.openmrs.module.shrclient.handlers.ClientRegistry;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
 import org.openmrs.module.shrclient.model.Patient;
 import org.openmrs.module.shrclient.service.EMRPatientService;
+import org.openmrs.module.shrclient.util.MciPatientCache;
 import org.openmrs.module.shrclient.util.PropertiesReader;
 
 import java.io.IOException;
 
 
 public class DefaultPatientFeedWorker implements EventWorker {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
     private final EMRPatientService emrPatientService;
+    private final MciPatientCache mciPatientCache;
 
     private final Logger logger = Logger.getLogger(DefaultEncounterFeedWorker.class);
 
-    public DefaultPatientFeedWorker(EMRPatientService emrPatientService) {
+    public DefaultPatientFeedWorker(EMRPatientService emrPatientService, MciPatientCache mciPatientCache) {
         this.emrPatientService = emrPatientService;
+        this.mciPatientCache = mciPatientCache;
     }
 
     @Override
     public void process(Event event) {
         try {
             String content = event.getContent();
-            Patient patient = new ObjectMapper().readValue(content, Patient.class);
+            long start = System.nanoTime();
+            Patient patient = objectMapper.readValue(content, Patient.class);
+            SyncMetrics.getInstance().recordStage(SyncMetrics.PATIENT_PULL, SyncMetrics.PARSE, start);
+            start = System.nanoTime();
             emrPatientService.createOrUpdateEmrPatient(patient);
+            mciPatientCache.invalidate(patient.getHealthId());
+            SyncMetrics.getInstance().recordStage(SyncMetrics.PATIENT_PULL, SyncMetrics.PERSIST, start);
 
         } catch (IOException e) {
             String message = String.format("Error occurred while trying to process  patient feed");
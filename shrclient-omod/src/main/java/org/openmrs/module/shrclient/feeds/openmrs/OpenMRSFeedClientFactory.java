@@ -47,6 +47,22 @@ public class OpenMRSFeedClientFactory {
         return this.getFeedClient(uri,eventWorker, maxFailedEvents);
     }
 
+    public ParallelEventProcessor getParallelEventProcessor(String feedURI, String pipeline, PartitionedEventWorker eventWorker,
+                                                            int maxFailedEvents, int workers, int maxInFlight) throws URISyntaxException {
+        URI uri = new URI(feedURI);
+        JdbcConnectionProvider connectionProvider = getConnectionProvider(getAtomFeedTransactionManager());
+        return new ParallelEventProcessor(
+                getAllFeeds(uri, connectionProvider),
+                getAllMarkers(connectionProvider),
+                getAllFailedEvent(connectionProvider),
+                uri,
+                pipeline,
+                eventWorker,
+                maxFailedEvents,
+                workers,
+                maxInFlight);
+    }
+
     private AllFailedEvents getAllFailedEvent(JdbcConnectionProvider connectionProvider) {
         return new AllFailedEventsJdbcImpl(connectionProvider);
     }
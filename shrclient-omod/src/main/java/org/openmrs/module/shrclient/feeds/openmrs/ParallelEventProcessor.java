@@ -0,0 +1,305 @@
+package org.openmrs.module.shrclient.feeds.openmrs;
+
+import com.sun.syndication.feed.atom.Entry;
+import com.sun.syndication.feed.atom.Feed;
+import com.sun.syndication.feed.atom.Link;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.log4j.Logger;
+import org.ict4h.atomfeed.client.domain.Event;
+import org.ict4h.atomfeed.client.domain.FailedEvent;
+import org.ict4h.atomfeed.client.domain.Marker;
+import org.ict4h.atomfeed.client.repository.AllFailedEvents;
+import org.ict4h.atomfeed.client.repository.AllFeeds;
+import org.ict4h.atomfeed.client.repository.AllMarkers;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
+import org.openmrs.module.shrclient.util.PlatformUtil;
+import org.openmrs.module.shrclient.util.TransactionHelper;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads an OpenMRS event feed like {@link org.ict4h.atomfeed.client.service.AtomFeedClient}, but hands the events
+ * to a fixed number of worker lanes. Events with the same partition key always go to the same lane, so they are
+ * processed in feed order. The marker is only moved past events that have completed (or have been recorded as
+ * failed events), and never past an event that is still in flight. The outcome of each event and the lag of the marker
+ * are recorded in {@link SyncMetrics} under the given pipeline.
+ */
+public class ParallelEventProcessor {
+    private static final Logger log = Logger.getLogger(ParallelEventProcessor.class);
+
+    private static final String PREV_ARCHIVE = "prev-archive";
+    private static final String NEXT_ARCHIVE = "next-archive";
+    private static final String VIA = "via";
+    private static final String SELF = "self";
+
+    private final AllFeeds allFeeds;
+    private final AllMarkers allMarkers;
+    private final AllFailedEvents allFailedEvents;
+    private final URI feedUri;
+    private final String pipeline;
+    private final PartitionedEventWorker eventWorker;
+    private final int maxFailedEvents;
+    private final int workers;
+    private final int maxInFlight;
+    private final SyncMetrics metrics = SyncMetrics.getInstance();
+    private Date newestEntryUpdated;
+
+    public ParallelEventProcessor(AllFeeds allFeeds, AllMarkers allMarkers, AllFailedEvents allFailedEvents, URI feedUri,
+                                  String pipeline, PartitionedEventWorker eventWorker, int maxFailedEvents, int workers,
+                                  int maxInFlight) {
+        this.allFeeds = allFeeds;
+        this.allMarkers = allMarkers;
+        this.allFailedEvents = allFailedEvents;
+        this.feedUri = feedUri;
+        this.pipeline = pipeline;
+        this.eventWorker = eventWorker;
+        this.maxFailedEvents = maxFailedEvents;
+        this.workers = Math.max(workers, 1);
+        this.maxInFlight = Math.max(maxInFlight, this.workers);
+    }
+
+    public void processEvents() {
+        if (hasReachedMaxFailedEvents()) {
+            log.warn(String.format("Not processing events of feed %s. Number of failed events has reached the limit of %d.",
+                    feedUri, maxFailedEvents));
+            return;
+        }
+
+        Marker marker = allMarkers.get(feedUri);
+        String lastReadEntryId = null;
+        Feed feed;
+        if (marker == null || marker.getFeedURIForLastReadEntry() == null) {
+            feed = getFirstFeed();
+        } else {
+            feed = allFeeds.getFor(marker.getFeedURIForLastReadEntry());
+            lastReadEntryId = marker.getLastReadEntryId();
+        }
+
+        ExecutorService[] lanes = createLanes();
+        Deque<PendingEvent> inFlight = new ArrayDeque<>();
+        boolean accepting = true;
+        try {
+            while (feed != null && accepting) {
+                URI entryFeedUri = getEntryFeedUri(feed);
+                for (Entry entry : getEntriesAfter(feed, lastReadEntryId)) {
+                    trackNewestEntry(entry);
+                    inFlight.add(submit(lanes, entry, entryFeedUri));
+                    while (accepting && inFlight.size() >= maxInFlight) {
+                        accepting = complete(inFlight.poll());
+                    }
+                    if (!accepting) break;
+                }
+                lastReadEntryId = null;
+                feed = accepting ? getNextFeed(feed) : null;
+            }
+            while (accepting && !inFlight.isEmpty()) {
+                accepting = complete(inFlight.poll());
+            }
+        } finally {
+            for (PendingEvent pendingEvent : inFlight) {
+                pendingEvent.future.cancel(false);
+            }
+            shutdown(lanes);
+        }
+    }
+
+    protected Runnable inWorkerContext(Runnable work) {
+        return PlatformUtil.inCurrentUserContext(work);
+    }
+
+    protected <T> T inTransaction(TransactionHelper.TxWork<T> work) {
+        return TransactionHelper.executeInTransaction(work);
+    }
+
+    private PendingEvent submit(ExecutorService[] lanes, Entry entry, URI entryFeedUri) {
+        final Event event = new Event(entry, entryFeedUri.toString());
+        String partitionKey = getPartitionKey(event);
+        ExecutorService lane = lanes[(partitionKey.hashCode() & Integer.MAX_VALUE) % lanes.length];
+        Future<?> future = lane.submit(inWorkerContext(new Runnable() {
+            @Override
+            public void run() {
+                inTransaction(new TransactionHelper.TxWork<Object>() {
+                    @Override
+                    public Object execute() {
+                        eventWorker.process(event);
+                        eventWorker.cleanUp(event);
+                        return null;
+                    }
+                });
+            }
+        }));
+        return new PendingEvent(event, entry.getUpdated(), entryFeedUri, future);
+    }
+
+    private String getPartitionKey(Event event) {
+        try {
+            String partitionKey = eventWorker.getPartitionKey(event);
+            if (partitionKey != null) return partitionKey;
+        } catch (Exception e) {
+            log.warn(String.format("Could not identify partition for event %s. Processing it on its own.", event.getId()), e);
+        }
+        return event.getId();
+    }
+
+    private boolean complete(PendingEvent pendingEvent) {
+        try {
+            pendingEvent.future.get();
+            metrics.recordEvent(pipeline, SyncMetrics.PROCESSED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            metrics.recordEvent(pipeline, SyncMetrics.FAILED);
+            if (hasReachedMaxFailedEvents()) {
+                log.error(String.format("Failed to process event %s and the failed events limit of %d has been reached. Stopping.",
+                        pendingEvent.event.getId(), maxFailedEvents), e.getCause());
+                return false;
+            }
+            log.error(String.format("Failed to process event %s", pendingEvent.event.getId()), e.getCause());
+            recordFailedEvent(pendingEvent.event, e.getCause());
+        }
+        updateMarker(pendingEvent);
+        return true;
+    }
+
+    private boolean hasReachedMaxFailedEvents() {
+        return inTransaction(new TransactionHelper.TxWork<Boolean>() {
+            @Override
+            public Boolean execute() {
+                return allFailedEvents.getNumberOfFailedEvents(feedUri.toString()) >= maxFailedEvents;
+            }
+        });
+    }
+
+    private void recordFailedEvent(final Event event, final Throwable cause) {
+        inTransaction(new TransactionHelper.TxWork<Object>() {
+            @Override
+            public Object execute() {
+                allFailedEvents.addOrUpdate(new FailedEvent(feedUri.toString(), event, ExceptionUtils.getStackTrace(cause), 0));
+                return null;
+            }
+        });
+    }
+
+    private void updateMarker(final PendingEvent pendingEvent) {
+        inTransaction(new TransactionHelper.TxWork<Object>() {
+            @Override
+            public Object execute() {
+                allMarkers.put(feedUri, pendingEvent.event.getId(), pendingEvent.entryFeedUri);
+                return null;
+            }
+        });
+        if (newestEntryUpdated != null && pendingEvent.updated != null) {
+            metrics.recordFeedLag(pipeline, feedUri.toString(), newestEntryUpdated.getTime() - pendingEvent.updated.getTime());
+        }
+    }
+
+    private void trackNewestEntry(Entry entry) {
+        Date updated = entry.getUpdated();
+        if (updated != null && (newestEntryUpdated == null || updated.after(newestEntryUpdated))) {
+            newestEntryUpdated = updated;
+        }
+    }
+
+    private Feed getFirstFeed() {
+        Feed feed = allFeeds.getFor(feedUri);
+        while (feed != null) {
+            URI previous = getLink(feed, PREV_ARCHIVE);
+            Feed previousFeed = previous != null ? allFeeds.getFor(previous) : null;
+            if (previousFeed == null) break;
+            feed = previousFeed;
+        }
+        return feed;
+    }
+
+    private Feed getNextFeed(Feed feed) {
+        URI next = getLink(feed, NEXT_ARCHIVE);
+        return next != null ? allFeeds.getFor(next) : null;
+    }
+
+    private URI getEntryFeedUri(Feed feed) {
+        URI uri = getLink(feed, VIA);
+        if (uri == null) uri = getLink(feed, SELF);
+        return uri != null ? uri : feedUri;
+    }
+
+    private URI getLink(Feed feed, String rel) {
+        for (Object object : feed.getOtherLinks()) {
+            Link link = (Link) object;
+            if (rel.equals(link.getRel())) {
+                return URI.create(link.getHref());
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Entry> getEntriesAfter(Feed feed, String lastReadEntryId) {
+        List<Entry> entries = feed.getEntries();
+        if (lastReadEntryId == null) return entries;
+        for (int i = 0; i < entries.size(); i++) {
+            if (lastReadEntryId.equals(entries.get(i).getId())) {
+                return entries.subList(i + 1, entries.size());
+            }
+        }
+        return entries;
+    }
+
+    private ExecutorService[] createLanes() {
+        final String threadPrefix = "bdshr-event-worker-" + feedUri.getPath().replaceAll("/", "") + "-";
+        final AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, threadPrefix + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        ExecutorService[] lanes = new ExecutorService[workers];
+        for (int i = 0; i < workers; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(threadFactory);
+        }
+        return lanes;
+    }
+
+    private void shutdown(ExecutorService[] lanes) {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            for (ExecutorService lane : lanes) {
+                while (!lane.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.info("Waiting for in flight events of feed " + feedUri + " to complete.");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class PendingEvent {
+        private final Event event;
+        private final Date updated;
+        private final URI entryFeedUri;
+        private final Future<?> future;
+
+        private PendingEvent(Event event, Date updated, URI entryFeedUri, Future<?> future) {
+            this.event = event;
+            this.updated = updated;
+            this.entryFeedUri = entryFeedUri;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.openmrs.module.shrclient.feeds.openmrs;
+
+import org.ict4h.atomfeed.client.domain.Event;
+import org.ict4h.atomfeed.client.service.EventWorker;
+
+/**
+ * An event worker whose events can be processed concurrently, as long as events sharing a partition key
+ * are processed one after another in feed order.
+ */
+public interface PartitionedEventWorker extends EventWorker {
+    String getPartitionKey(Event event);
+}
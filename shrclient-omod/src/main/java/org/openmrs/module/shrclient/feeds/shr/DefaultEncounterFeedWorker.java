@@ -7,25 +7,30 @@ import org.openmrs.module.shrclient.identity.IdentityUnauthorizedException;
 import org.openmrs.module.shrclient.model.Patient;
 import org.openmrs.module.shrclient.service.EMREncounterService;
 import org.openmrs.module.shrclient.service.EMRPatientService;
+import org.openmrs.module.shrclient.util.MciPatientCache;
 import org.openmrs.module.shrclient.util.PropertiesReader;
 import org.openmrs.module.shrclient.util.RestClient;
 import org.openmrs.module.shrclient.util.StringUtil;
 import org.openmrs.module.shrclient.web.controller.dto.EncounterEvent;
 
+import java.util.List;
+
 public class DefaultEncounterFeedWorker implements EncounterEventWorker {
     private EMRPatientService emrPatientService;
     private PropertiesReader propertiesReader;
     private ClientRegistry clientRegistry;
     private EMREncounterService emrEncounterService;
+    private MciPatientCache mciPatientCache;
 
     private final Logger logger = Logger.getLogger(DefaultEncounterFeedWorker.class);
 
     public DefaultEncounterFeedWorker(EMRPatientService emrPatientService, EMREncounterService emrEncounterService, PropertiesReader propertiesReader,
-                                      ClientRegistry clientRegistry) {
+                                      ClientRegistry clientRegistry, MciPatientCache mciPatientCache) {
         this.emrPatientService = emrPatientService;
         this.propertiesReader = propertiesReader;
         this.clientRegistry = clientRegistry;
         this.emrEncounterService = emrEncounterService;
+        this.mciPatientCache = mciPatientCache;
     }
 
     @Override
@@ -50,12 +55,29 @@ public class DefaultEncounterFeedWorker implements EncounterEventWorker {
         }
     }
 
+    @Override
+    public void beginBatch() {
+        emrEncounterService.beginBatch();
+    }
+
+    @Override
+    public void completeBatch() {
+        emrEncounterService.completeBatch();
+    }
+
+    @Override
+    public void abandonBatch() {
+        emrEncounterService.abandonBatch();
+    }
+
     private Patient downloadActivePatient(String healthId) throws IdentityUnauthorizedException {
-        RestClient mciClient = clientRegistry.getMCIClient();
-        Patient patient = mciClient.get(StringUtil.ensureSuffix(propertiesReader.getMciPatientContext(), "/") + healthId, Patient.class);
-        if (!patient.isActive() && patient.getMergedWith() != null) {
-            patient = downloadActivePatient(patient.getMergedWith());
-        }
-        return patient;
+        List<Patient> mergeChain = mciPatientCache.getMergeChain(healthId, new MciPatientCache.PatientLoader() {
+            @Override
+            public Patient load(String healthId) throws IdentityUnauthorizedException {
+                RestClient mciClient = clientRegistry.getMCIClient();
+                return mciClient.get(StringUtil.ensureSuffix(propertiesReader.getMciPatientContext(), "/") + healthId, Patient.class);
+            }
+        });
+        return mergeChain.isEmpty() ? null : mergeChain.get(mergeChain.size() - 1);
     }
 }
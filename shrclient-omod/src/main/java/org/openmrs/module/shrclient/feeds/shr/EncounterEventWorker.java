@@ -4,4 +4,10 @@ import org.openmrs.module.shrclient.web.controller.dto.EncounterEvent;
 
 public interface EncounterEventWorker {
     void process(EncounterEvent encounterEvent);
+
+    void beginBatch();
+
+    void completeBatch();
+
+    void abandonBatch();
 }
@@ -1,13 +1,13 @@
 package org.openmrs.module.shrclient.feeds.shr;
 
-import ca.uhn.fhir.context.FhirContext;
 import org.hl7.fhir.dstu3.model.Bundle;
 import org.ict4h.atomfeed.client.domain.Event;
-import org.ict4h.atomfeed.client.service.EventWorker;
+import org.openmrs.module.shrclient.feeds.PipelinedEventWorker;
 import org.openmrs.module.shrclient.util.FhirBundleContextHolder;
+import org.openmrs.module.shrclient.util.FhirWireFormat;
 import org.openmrs.module.shrclient.web.controller.dto.EncounterEvent;
 
-public class ShrFeedEventWorker implements EventWorker {
+public class ShrFeedEventWorker implements PipelinedEventWorker<Bundle> {
     private EncounterEventWorker shrEventWorker;
 
     public ShrFeedEventWorker(EncounterEventWorker shrEventWorker) {
@@ -16,14 +16,22 @@ public class ShrFeedEventWorker implements EventWorker {
 
     @Override
     public void process(Event event) {
+        process(event, parse(event));
+    }
+
+    @Override
+    public Bundle parse(Event event) {
         String content = event.getContent();
-        FhirContext fhirContext = FhirBundleContextHolder.getFhirContext();
-        Bundle bundle;
+        FhirWireFormat format = FhirWireFormat.of(content);
         try {
-            bundle = fhirContext.newXmlParser().parseResource(Bundle.class, content);
+            return FhirBundleContextHolder.parseBundle(format, content);
         } catch (Exception e) {
-            throw new RuntimeException("Unable to parse XML", e);
+            throw new RuntimeException("Unable to parse " + format, e);
         }
+    }
+
+    @Override
+    public void process(Event event, Bundle bundle) {
         EncounterEvent encounterEvent = new EncounterEvent();
         encounterEvent.setTitle(event.getTitle());
         encounterEvent.addContent(bundle);
@@ -31,6 +39,21 @@ public class ShrFeedEventWorker implements EventWorker {
         shrEventWorker.process(encounterEvent);
     }
 
+    @Override
+    public void beginBatch() {
+        shrEventWorker.beginBatch();
+    }
+
+    @Override
+    public void completeBatch() {
+        shrEventWorker.completeBatch();
+    }
+
+    @Override
+    public void abandonBatch() {
+        shrEventWorker.abandonBatch();
+    }
+
     @Override
     public void cleanUp(Event event) {
     }
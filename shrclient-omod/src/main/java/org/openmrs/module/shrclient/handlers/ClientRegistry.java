@@ -5,55 +5,105 @@ import org.openmrs.module.shrclient.identity.IdentityStore;
 import org.openmrs.module.shrclient.identity.IdentityToken;
 import org.openmrs.module.shrclient.identity.IdentityUnauthorizedException;
 import org.openmrs.module.shrclient.util.Headers;
+import org.openmrs.module.shrclient.util.HttpClientPool;
 import org.openmrs.module.shrclient.util.PropertiesReader;
 import org.openmrs.module.shrclient.util.RestClient;
 import org.openmrs.module.shrclient.util.SHRClient;
+import org.openmrs.module.shrclient.util.WebClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.Properties;
-
+import java.util.Map;
 
+/**
+ * Creates each registry client once and hands out the same instance afterwards. There is one registry for the module,
+ * shared by the scheduled tasks, handlers and services.
+ * Identity headers are resolved on every request, so a cleared or renewed token is picked up by existing clients.
+ */
+@Component("bdshrClientRegistry")
 public class ClientRegistry {
     private PropertiesReader propertiesReader;
     private IdentityStore identityStore;
+    private IdentityProviderService identityProviderService;
+    private HttpClientPool httpClientPool;
+
+    private RestClient mciClient;
+    private SHRClient shrClient;
+    private RestClient lrClient;
+    private RestClient frClient;
+    private RestClient prClient;
 
-    public ClientRegistry(PropertiesReader propertiesReader, IdentityStore identityStore) {
+    @Autowired
+    public ClientRegistry(PropertiesReader propertiesReader, IdentityStore identityStore,
+                          IdentityProviderService identityProviderService, HttpClientPool httpClientPool) {
         this.propertiesReader = propertiesReader;
         this.identityStore = identityStore;
+        this.identityProviderService = identityProviderService;
+        this.httpClientPool = httpClientPool;
     }
 
-    public RestClient getMCIClient() throws IdentityUnauthorizedException {
-        return new RestClient(propertiesReader.getMciBaseUrl(),
-                Headers.getHrmAccessTokenHeaders(getOrCreateIdentityToken(), propertiesReader.getFacilityInstanceProperties()));
+    public synchronized RestClient getMCIClient() throws IdentityUnauthorizedException {
+        if (mciClient == null) {
+            mciClient = new RestClient(propertiesReader.getMciBaseUrl(), accessTokenHeaders(), httpClientPool);
+        }
+        return mciClient;
     }
 
-    public SHRClient getSHRClient() throws IdentityUnauthorizedException {
-        HashMap<String, String> headers = Headers.getHrmAccessTokenHeaders(getOrCreateIdentityToken(), propertiesReader.getFacilityInstanceProperties());
-        return new SHRClient(propertiesReader.getShrBaseUrl(), headers);
+    public synchronized SHRClient getSHRClient() throws IdentityUnauthorizedException {
+        if (shrClient == null) {
+            shrClient = new SHRClient(propertiesReader.getShrBaseUrl(), accessTokenHeaders(), propertiesReader.getShrWireFormat(), httpClientPool);
+        }
+        return shrClient;
     }
 
     public IdentityToken getOrCreateIdentityToken() throws IdentityUnauthorizedException {
-        return new IdentityProviderService(propertiesReader, identityStore).getOrCreateToken();
+        return identityProviderService.getOrCreateToken();
     }
 
     public void clearIdentityToken() {
         identityStore.clearToken();
     }
 
-    public RestClient getLRClient() throws IdentityUnauthorizedException {
-        return getRestClient(propertiesReader.getLrBaseUrl());
+    public HttpClientPool getHttpClientPool() {
+        return httpClientPool;
+    }
+
+    public synchronized RestClient getLRClient() throws IdentityUnauthorizedException {
+        if (lrClient == null) {
+            lrClient = getRestClient(propertiesReader.getLrBaseUrl());
+        }
+        return lrClient;
+    }
+
+    public synchronized RestClient getFRClient() throws IdentityUnauthorizedException {
+        if (frClient == null) {
+            frClient = getRestClient(propertiesReader.getFrBaseUrl());
+        }
+        return frClient;
     }
 
-    public RestClient getFRClient() throws IdentityUnauthorizedException {
-        return getRestClient(propertiesReader.getFrBaseUrl());
+    public synchronized RestClient getPRClient() throws IdentityUnauthorizedException {
+        if (prClient == null) {
+            prClient = getRestClient(propertiesReader.getPrBaseUrl());
+        }
+        return prClient;
     }
 
-    public RestClient getPRClient() throws IdentityUnauthorizedException {
-        return getRestClient(propertiesReader.getPrBaseUrl());
+    private WebClient.HeaderProvider accessTokenHeaders() {
+        return new WebClient.HeaderProvider() {
+            @Override
+            public Map<String, String> getHeaders() throws IdentityUnauthorizedException {
+                return Headers.getHrmAccessTokenHeaders(getOrCreateIdentityToken(), propertiesReader.getFacilityInstanceProperties());
+            }
+        };
     }
 
-    private RestClient getRestClient(String baseUrl) throws IdentityUnauthorizedException {
-        HashMap<String, String> headers = Headers.getHrmIdentityHeaders(propertiesReader.getFacilityInstanceProperties());
-        return new RestClient(baseUrl, headers);
+    private RestClient getRestClient(String baseUrl) {
+        return new RestClient(baseUrl, new WebClient.HeaderProvider() {
+            @Override
+            public Map<String, String> getHeaders() {
+                return Headers.getHrmIdentityHeaders(propertiesReader.getFacilityInstanceProperties());
+            }
+        }, httpClientPool);
     }
 }
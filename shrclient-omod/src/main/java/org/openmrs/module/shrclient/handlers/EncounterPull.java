@@ -3,17 +3,19 @@ package org.openmrs.module.shrclient.handlers;
 
 import org.apache.log4j.Logger;
 import org.openmrs.module.shrclient.feeds.shr.DefaultEncounterFeedWorker;
+import org.openmrs.module.shrclient.feeds.CatchmentFeedExecutor;
 import org.openmrs.module.shrclient.feeds.CatchmentFeedProcessor;
 import org.openmrs.module.shrclient.feeds.shr.ShrFeedEventWorker;
 import org.openmrs.module.shrclient.identity.IdentityStore;
 import org.openmrs.module.shrclient.identity.IdentityUnauthorizedException;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
 import org.openmrs.module.shrclient.service.EMREncounterService;
 import org.openmrs.module.shrclient.service.EMRPatientService;
+import org.openmrs.module.shrclient.util.MciPatientCache;
 import org.openmrs.module.shrclient.util.PlatformUtil;
 import org.openmrs.module.shrclient.util.PropertiesReader;
 import org.openmrs.module.shrclient.util.StringUtil;
 
-import java.net.URISyntaxException;
 import java.util.*;
 
 import static org.openmrs.module.shrclient.util.Headers.ACCEPT_HEADER_KEY;
@@ -27,60 +29,58 @@ public class EncounterPull {
     private IdentityStore identityStore;
     private ClientRegistry clientRegistry;
 
-    public EncounterPull(PropertiesReader propertiesReader, IdentityStore identityStore) {
+    public EncounterPull(PropertiesReader propertiesReader, IdentityStore identityStore, ClientRegistry clientRegistry) {
         this.propertiesReader = propertiesReader;
         this.identityStore = identityStore;
-        clientRegistry = new ClientRegistry(propertiesReader, identityStore);
+        this.clientRegistry = clientRegistry;
     }
 
     public void download() {
-        ArrayList<String> encounterFeedUrls = getEncounterFeedUrls(propertiesReader);
-        try {
-            Map<String, String> requestHeaders = getRequestHeaders(propertiesReader);
-            DefaultEncounterFeedWorker defaultEncounterFeedWorker = getEncounterFeedWorker();
-            for (String encounterFeedUrl : encounterFeedUrls) {
-                CatchmentFeedProcessor feedProcessor =
-                        new CatchmentFeedProcessor(encounterFeedUrl, requestHeaders,
-                                clientRegistry);
+        final DefaultEncounterFeedWorker defaultEncounterFeedWorker = getEncounterFeedWorker();
+        getCatchmentFeedExecutor().execute(getEncounterFeedUrls(propertiesReader), new CatchmentFeedExecutor.CatchmentWork() {
+            @Override
+            public void process(String encounterFeedUrl) throws Exception {
                 try {
-                    feedProcessor.process(new ShrFeedEventWorker(defaultEncounterFeedWorker), propertiesReader.getShrMaxFailedEvent());
-                } catch (URISyntaxException e) {
-                    logger.error("Couldn't download catchment encounters. Error: ", e);
+                    getFeedProcessor(encounterFeedUrl).processPipelined(new ShrFeedEventWorker(defaultEncounterFeedWorker),
+                            propertiesReader.getShrMaxFailedEvent(), propertiesReader.getShrEncounterPullParserThreads(),
+                            propertiesReader.getShrEncounterPullMaxInFlight(), propertiesReader.getShrEncounterPullBootstrapBatchSize());
+                } catch (IdentityUnauthorizedException e) {
+                    logger.info("Clearing unauthorized identity token.");
+                    identityStore.clearToken();
                 }
             }
-        } catch (IdentityUnauthorizedException e) {
-            logger.info("Clearing unauthorized identity token.");
-            identityStore.clearToken();
-        }
+        });
     }
 
     public void retry() {
-        PropertiesReader propertiesReader = PlatformUtil.getPropertiesReader();
-        ArrayList<String> encounterFeedUrls = getEncounterFeedUrls(propertiesReader);
-        try {
-            Map<String, String> requestProperties = getRequestHeaders(propertiesReader);
-            DefaultEncounterFeedWorker defaultEncounterFeedWorker = getEncounterFeedWorker();
-            for (String encounterFeedUrl : encounterFeedUrls) {
-                CatchmentFeedProcessor feedProcessor =
-                        new CatchmentFeedProcessor(encounterFeedUrl, requestProperties,
-                                clientRegistry);
+        final DefaultEncounterFeedWorker defaultEncounterFeedWorker = getEncounterFeedWorker();
+        getCatchmentFeedExecutor().execute(getEncounterFeedUrls(propertiesReader), new CatchmentFeedExecutor.CatchmentWork() {
+            @Override
+            public void process(String encounterFeedUrl) throws Exception {
                 try {
-                    feedProcessor.processFailedEvents(new ShrFeedEventWorker(defaultEncounterFeedWorker), propertiesReader.getShrMaxFailedEvent());
-                } catch (URISyntaxException e) {
-                    logger.error("Couldn't download catchment encounters. Error: ", e);
+                    getFeedProcessor(encounterFeedUrl).processFailedEvents(new ShrFeedEventWorker(defaultEncounterFeedWorker), propertiesReader.getShrMaxFailedEvent());
+                } catch (IdentityUnauthorizedException e) {
+                    logger.info("Clearing unauthorized identity token.");
+                    identityStore.clearToken();
                 }
             }
-        } catch (IdentityUnauthorizedException e) {
-            logger.info("Clearing unauthorized identity token.");
-            identityStore.clearToken();
-        }
+        });
+    }
+
+    private CatchmentFeedProcessor getFeedProcessor(String encounterFeedUrl) throws IdentityUnauthorizedException {
+        return new CatchmentFeedProcessor(encounterFeedUrl, SyncMetrics.ENCOUNTER_PULL, getRequestHeaders(propertiesReader), clientRegistry);
+    }
+
+    private CatchmentFeedExecutor getCatchmentFeedExecutor() {
+        return new CatchmentFeedExecutor(propertiesReader.getFacilityCatchmentDownloadThreads());
     }
 
     private DefaultEncounterFeedWorker getEncounterFeedWorker() {
         EMRPatientService emrPatientService = PlatformUtil.getRegisteredComponent("hieEmrPatientService", EMRPatientService.class);
         EMREncounterService emrEncounterService = PlatformUtil.getRegisteredComponent("hieEmrEncounterService", EMREncounterService.class);
         PropertiesReader propertiesReader = PlatformUtil.getPropertiesReader();
-        return new DefaultEncounterFeedWorker(emrPatientService, emrEncounterService, propertiesReader, clientRegistry);
+        MciPatientCache mciPatientCache = PlatformUtil.getRegisteredComponent(MciPatientCache.class);
+        return new DefaultEncounterFeedWorker(emrPatientService, emrEncounterService, propertiesReader, clientRegistry, mciPatientCache);
     }
 
     private HashMap<String, String> getRequestHeaders(PropertiesReader propertiesReader) throws IdentityUnauthorizedException {
@@ -4,12 +4,12 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.log4j.Logger;
 import org.hl7.fhir.dstu3.model.BaseResource;
+import org.hl7.fhir.dstu3.model.Bundle;
 import org.hl7.fhir.dstu3.model.Condition;
 import org.hl7.fhir.dstu3.model.MedicationRequest;
 import org.hl7.fhir.dstu3.model.ProcedureRequest;
 import org.ict4h.atomfeed.client.domain.Event;
 import org.ict4h.atomfeed.client.exceptions.AtomFeedClientException;
-import org.ict4h.atomfeed.client.service.EventWorker;
 import org.openmrs.Encounter;
 import org.openmrs.*;
 import org.openmrs.Order;
@@ -21,25 +21,30 @@ import org.openmrs.module.fhir.mapper.model.CompoundObservation;
 import org.openmrs.module.fhir.mapper.model.EntityReference;
 import org.openmrs.module.fhir.mapper.model.ObservationType;
 import org.openmrs.module.shrclient.dao.IdMappingRepository;
+import org.openmrs.module.shrclient.feeds.openmrs.PartitionedEventWorker;
 import org.openmrs.module.shrclient.identity.IdentityUnauthorizedException;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
 import org.openmrs.module.shrclient.model.*;
 import org.openmrs.module.shrclient.util.*;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class EncounterPush implements EventWorker {
+public class EncounterPush implements PartitionedEventWorker {
 
     private static final Logger log = Logger.getLogger(EncounterPush.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     private IdMappingRepository idMappingsRepository;
     private CompositionBundleCreator compositionBundleCreator;
     private EncounterService encounterService;
     private PropertiesReader propertiesReader;
     private ClientRegistry clientRegistry;
     private SHRClient shrClient;
-    private List<String> encounterUuidsProcessed;
+    private Set<String> encounterUuidsProcessed;
     private SystemUserService systemUserService;
 
     public EncounterPush(EncounterService encounterService, PropertiesReader propertiesReader,
@@ -53,7 +58,7 @@ public class EncounterPush implements EventWorker {
         this.shrClient = clientRegistry.getSHRClient();
         this.compositionBundleCreator = compositionBundleCreator;
         this.idMappingsRepository = idMappingsRepository;
-        this.encounterUuidsProcessed = new ArrayList<>();
+        this.encounterUuidsProcessed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     }
 
     @Override
@@ -74,58 +79,64 @@ public class EncounterPush implements EventWorker {
             String healthId = getPatientHealthId(openMrsEncounter.getPatient());
             log.debug("Uploading patient encounter to SHR : [ " + openMrsEncounter.getUuid() + "]");
             String shrEncounterId = mapping != null ? mapping.getExternalId() : null;
-            SystemProperties systemProperties = new SystemProperties(
-                    propertiesReader.getFrProperties(),
-                    propertiesReader.getTrProperties(),
-                    propertiesReader.getPrProperties(),
-                    propertiesReader.getFacilityInstanceProperties(),
-                    propertiesReader.getMciProperties(),
-                    propertiesReader.getShrProperties(),
-                    propertiesReader.getFhirMappingProperties());
+            SystemProperties systemProperties = propertiesReader.getSystemProperties();
             if (shrEncounterId != null) {
                 pushEncounterUpdate(openMrsEncounter, shrEncounterId, healthId, systemProperties);
             } else {
                 shrEncounterId = pushEncounterCreate(openMrsEncounter, healthId, systemProperties);
             }
             encounterUuidsProcessed.add(openMrsEncounter.getUuid());
-            saveEncounterIdMapping(openMrsEncounter.getUuid(), healthId, shrEncounterId, systemProperties);
-            saveIdMappingForDiagnosis(openMrsEncounter, healthId, shrEncounterId, systemProperties);
-            saveIdMappingsForOrders(openMrsEncounter.getOrders(), healthId, shrEncounterId, systemProperties);
+            List<IdMapping> idMappings = new ArrayList<>();
+            idMappings.add(getEncounterIdMapping(openMrsEncounter.getUuid(), healthId, shrEncounterId, systemProperties));
+            addIdMappingsForDiagnosis(idMappings, openMrsEncounter, healthId, shrEncounterId, systemProperties);
+            addIdMappingsForOrders(idMappings, openMrsEncounter.getOrders(), healthId, shrEncounterId, systemProperties);
+            long start = System.nanoTime();
+            idMappingsRepository.saveOrUpdateAll(idMappings);
+            SyncMetrics.getInstance().recordStage(SyncMetrics.ENCOUNTER_PUSH, SyncMetrics.PERSIST, start);
         } catch (Exception e) {
             log.error("Error while processing encounter sync event.", e);
             throw new RuntimeException(e);
         }
     }
 
-    private void saveIdMappingsForOrders(Set<Order> orders, String healthId, String shrEncounterId, SystemProperties systemProperties) {
+    /**
+     * Events of the same encounter are pushed in feed order. The partition is read from the event content, which only
+     * carries the encounter uuid, so that the feed is not held up loading encounters.
+     */
+    @Override
+    public String getPartitionKey(Event event) {
+        return getUuid(event.getContent());
+    }
+
+    private void addIdMappingsForOrders(List<IdMapping> idMappings, Set<Order> orders, String healthId, String shrEncounterId, SystemProperties systemProperties) {
         HashMap<String, String> orderUrlReferenceIds = new HashMap<>();
         orderUrlReferenceIds.put(EntityReference.HEALTH_ID_REFERENCE, healthId);
         orderUrlReferenceIds.put(EntityReference.ENCOUNTER_ID_REFERENCE, shrEncounterId);
         for (Order order : orders) {
             if (order.getOrderType().getUuid().equals(OrderType.DRUG_ORDER_TYPE_UUID)) {
                 orderUrlReferenceIds.put(EntityReference.REFERENCE_RESOURCE_NAME, new MedicationRequest().getResourceType().name());
-                saveOrderIdMapping(shrEncounterId, order.getUuid(), IdMappingType.MEDICATION_ORDER, orderUrlReferenceIds, systemProperties);
+                idMappings.add(getOrderIdMapping(shrEncounterId, order.getUuid(), IdMappingType.MEDICATION_ORDER, orderUrlReferenceIds, systemProperties));
             } else if (order.getOrderType().getName().equals(MRSProperties.MRS_PROCEDURE_ORDER_TYPE)) {
                 orderUrlReferenceIds.put(EntityReference.REFERENCE_RESOURCE_NAME, new ProcedureRequest().getResourceType().name());
-                saveOrderIdMapping(shrEncounterId, order.getUuid(), IdMappingType.PROCEDURE_REQUEST, orderUrlReferenceIds, systemProperties);
+                idMappings.add(getOrderIdMapping(shrEncounterId, order.getUuid(), IdMappingType.PROCEDURE_REQUEST, orderUrlReferenceIds, systemProperties));
             } else if (order.getOrderType().getName().equals(MRSProperties.MRS_LAB_ORDER_TYPE)) {
                 orderUrlReferenceIds.put(EntityReference.REFERENCE_RESOURCE_NAME, new ProcedureRequest().getResourceType().name());
-                saveOrderIdMapping(shrEncounterId, order.getUuid(), IdMappingType.PROCEDURE_REQUEST, orderUrlReferenceIds, systemProperties);
+                idMappings.add(getOrderIdMapping(shrEncounterId, order.getUuid(), IdMappingType.PROCEDURE_REQUEST, orderUrlReferenceIds, systemProperties));
             } else if (order.getOrderType().getName().equals(MRSProperties.MRS_RADIOLOGY_ORDER_TYPE)) {
                 orderUrlReferenceIds.put(EntityReference.REFERENCE_RESOURCE_NAME, new ProcedureRequest().getResourceType().name());
-                saveOrderIdMapping(shrEncounterId, order.getUuid(), IdMappingType.PROCEDURE_REQUEST, orderUrlReferenceIds, systemProperties);
+                idMappings.add(getOrderIdMapping(shrEncounterId, order.getUuid(), IdMappingType.PROCEDURE_REQUEST, orderUrlReferenceIds, systemProperties));
             }
         }
     }
 
-    private void saveOrderIdMapping(String shrEncounterId, String orderUuid, String idMappingType, HashMap<String, String> orderUrlReferenceIds, SystemProperties systemProperties) {
+    private OrderIdMapping getOrderIdMapping(String shrEncounterId, String orderUuid, String idMappingType, HashMap<String, String> orderUrlReferenceIds, SystemProperties systemProperties) {
         orderUrlReferenceIds.put(EntityReference.REFERENCE_ID, orderUuid);
         String orderUrl = new EntityReference().build(BaseResource.class, systemProperties, orderUrlReferenceIds);
         String externalId = String.format(MRSProperties.RESOURCE_MAPPING_EXTERNAL_ID_FORMAT, shrEncounterId, orderUuid);
-        idMappingsRepository.saveOrUpdateIdMapping(new OrderIdMapping(orderUuid, externalId, idMappingType, orderUrl, new Date()));
+        return new OrderIdMapping(orderUuid, externalId, idMappingType, orderUrl, new Date());
     }
 
-    private void saveIdMappingForDiagnosis(Encounter openMrsEncounter, String healthId, String shrEncounterId, SystemProperties systemProperties) {
+    private void addIdMappingsForDiagnosis(List<IdMapping> idMappings, Encounter openMrsEncounter, String healthId, String shrEncounterId, SystemProperties systemProperties) {
         HashMap<String, String> conditionUrlReferenceIds = new HashMap<>();
         conditionUrlReferenceIds.put(EntityReference.HEALTH_ID_REFERENCE, healthId);
         conditionUrlReferenceIds.put(EntityReference.ENCOUNTER_ID_REFERENCE, shrEncounterId);
@@ -138,13 +149,13 @@ public class EncounterPush implements EventWorker {
             conditionUrlReferenceIds.put(EntityReference.REFERENCE_ID, obs.getUuid());
             String diagnosisUrl = entityReference.build(BaseResource.class, systemProperties, conditionUrlReferenceIds);
             String externalId = String.format(MRSProperties.RESOURCE_MAPPING_EXTERNAL_ID_FORMAT, shrEncounterId, obs.getUuid());
-            idMappingsRepository.saveOrUpdateIdMapping(new DiagnosisIdMapping(obs.getUuid(), externalId, diagnosisUrl));
+            idMappings.add(new DiagnosisIdMapping(obs.getUuid(), externalId, diagnosisUrl));
         }
     }
 
-    private void saveEncounterIdMapping(String openMrsEncounterUuid, String healthId, String shrEncounterId, SystemProperties systemProperties) {
+    private EncounterIdMapping getEncounterIdMapping(String openMrsEncounterUuid, String healthId, String shrEncounterId, SystemProperties systemProperties) {
         String shrEncounterUrl = getShrEncounterUrl(healthId, shrEncounterId, systemProperties);
-        idMappingsRepository.saveOrUpdateIdMapping(new EncounterIdMapping(openMrsEncounterUuid, shrEncounterId, shrEncounterUrl, new Date()));
+        return new EncounterIdMapping(openMrsEncounterUuid, shrEncounterId, shrEncounterUrl, new Date());
     }
 
     private String getShrEncounterUrl(String healthId, String shrEncounterId, SystemProperties systemProperties) {
@@ -173,8 +184,10 @@ public class EncounterPush implements EventWorker {
     private String pushEncounterCreate(Encounter openMrsEncounter, String healthId, SystemProperties systemProperties) throws IOException {
         try {
             String encPathPattern = StringUtil.removePrefix(propertiesReader.getShrPatientEncPathPattern(), "/");
-            String shrEncounterCreateResponse = shrClient.post(String.format(encPathPattern, healthId),
-                    compositionBundleCreator.create(openMrsEncounter, healthId, systemProperties));
+            Bundle bundle = createBundle(openMrsEncounter, healthId, systemProperties);
+            long start = System.nanoTime();
+            String shrEncounterCreateResponse = shrClient.post(String.format(encPathPattern, healthId), bundle);
+            SyncMetrics.getInstance().recordStage(SyncMetrics.ENCOUNTER_PUSH, SyncMetrics.UPLOAD, start);
             return getEncounterIdFromResponse(shrEncounterCreateResponse);
         } catch (IdentityUnauthorizedException e) {
             log.error("Clearing unauthorized identity token.");
@@ -188,8 +201,10 @@ public class EncounterPush implements EventWorker {
             String encPathPattern = StringUtil.removePrefix(propertiesReader.getShrPatientEncPathPattern(), "/");
             String encPath = String.format(encPathPattern, healthId);
             String encUpdateUrl = String.format("%s/%s", encPath, shrEncounterId);
-            shrClient.put(encUpdateUrl,
-                    compositionBundleCreator.create(openMrsEncounter, healthId, systemProperties));
+            Bundle bundle = createBundle(openMrsEncounter, healthId, systemProperties);
+            long start = System.nanoTime();
+            shrClient.put(encUpdateUrl, bundle);
+            SyncMetrics.getInstance().recordStage(SyncMetrics.ENCOUNTER_PUSH, SyncMetrics.UPLOAD, start);
         } catch (IdentityUnauthorizedException e) {
             log.error("Clearing unauthorized identity token.");
             clientRegistry.clearIdentityToken();
@@ -197,19 +212,20 @@ public class EncounterPush implements EventWorker {
         }
     }
 
+    private Bundle createBundle(Encounter openMrsEncounter, String healthId, SystemProperties systemProperties) {
+        long start = System.nanoTime();
+        Bundle bundle = compositionBundleCreator.create(openMrsEncounter, healthId, systemProperties);
+        SyncMetrics.getInstance().recordStage(SyncMetrics.ENCOUNTER_PUSH, SyncMetrics.MAP, start);
+        return bundle;
+    }
+
     private String getEncounterIdFromResponse(String shrEncounterResponse) throws java.io.IOException {
-        EncounterResponse encounterResponse = configureObjectMapper().readValue(shrEncounterResponse,
+        EncounterResponse encounterResponse = objectMapper.readValue(shrEncounterResponse,
                 EncounterResponse.class);
         //TODO : set the right url
         return encounterResponse.getEncounterId();
     }
 
-    private ObjectMapper configureObjectMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        return objectMapper;
-    }
-
     private String getPatientHealthId(Patient emrPatient) {
         PatientIdMapping patientIdMapping = (PatientIdMapping) idMappingsRepository.findByInternalId(emrPatient.getUuid(), IdMappingType.PATIENT);
         if (patientIdMapping == null) {
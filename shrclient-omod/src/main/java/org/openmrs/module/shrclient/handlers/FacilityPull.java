@@ -10,6 +10,7 @@ import org.openmrs.module.fhir.utils.OMRSLocationService;
 import org.openmrs.module.shrclient.dao.IdMappingRepository;
 import org.openmrs.module.shrclient.dao.FacilityCatchmentRepository;
 import org.openmrs.module.shrclient.mapper.LocationMapper;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
 import org.openmrs.module.shrclient.model.FRLocationEntry;
 import org.openmrs.module.shrclient.model.IdMapping;
 import org.openmrs.module.shrclient.model.IdMappingType;
@@ -142,11 +143,13 @@ public class FacilityPull {
 
     private List<FRLocationEntry> getNextChunkOfUpdatesFromFR(String completeContextPath) {
         List<FRLocationEntry> downloadedData = null;
+        long start = System.nanoTime();
         try {
             downloadedData = Arrays.asList(frWebClient.get(completeContextPath, FRLocationEntry[].class));
         } catch (Exception e) {
             logger.error("Error while downloading chunk of Updates from FR : " + e);
         }
+        SyncMetrics.getInstance().recordStage(SyncMetrics.FACILITY_PULL, SyncMetrics.FETCH, start);
         return downloadedData;
     }
 
@@ -190,12 +193,17 @@ public class FacilityPull {
 
     private void saveOrUpdateFacilityEntries(List<FRLocationEntry> frLocationEntries) {
         for (FRLocationEntry frLocationEntry : frLocationEntries) {
+            int failedSoFar = failedDuringSaveOrUpdateOperation.size();
+            long start = System.nanoTime();
             IdMapping facilityIdMapping = idMappingsRepository.findByExternalId(frLocationEntry.getId(), IdMappingType.FACILITY);
             if (facilityIdMapping != null)
                 updateExistingLocation(frLocationEntry, facilityIdMapping);
             else {
                 createNewLocation(frLocationEntry);
             }
+            SyncMetrics.getInstance().recordStage(SyncMetrics.FACILITY_PULL, SyncMetrics.PERSIST, start);
+            SyncMetrics.getInstance().recordEvent(SyncMetrics.FACILITY_PULL,
+                    failedDuringSaveOrUpdateOperation.size() > failedSoFar ? SyncMetrics.FAILED : SyncMetrics.PROCESSED);
         }
     }
 
@@ -6,7 +6,9 @@ import org.openmrs.module.addresshierarchy.AddressHierarchyEntry;
 import org.openmrs.module.addresshierarchy.service.AddressHierarchyService;
 import org.openmrs.module.fhir.utils.DateUtil;
 import org.openmrs.module.shrclient.dao.AddressHierarchyEntryTranslationRepository;
+import org.openmrs.module.shrclient.dao.AddressHierarchyIndex;
 import org.openmrs.module.shrclient.mapper.AddressHierarchyEntryMapper;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
 import org.openmrs.module.shrclient.model.AddressHierarchyEntryTranslation;
 import org.openmrs.module.shrclient.model.LRAddressHierarchyEntry;
 import org.openmrs.module.shrclient.util.PropertiesReader;
@@ -53,17 +55,20 @@ public class LocationPull {
     private RestClient lrWebClient;
     private PropertiesReader propertiesReader;
     private AddressHierarchyEntryTranslationRepository entryTranslationRepository;
+    private AddressHierarchyIndex addressHierarchyIndex;
     private List<String> failedDuringSaveOrUpdateOperation;
     private int noOfEntriesSynchronizedSoFar;
 
     public LocationPull(PropertiesReader propertiesReader, RestClient lrWebClient, AddressHierarchyService addressHierarchyService,
-                        ScheduledTaskHistory scheduledTaskHistory, AddressHierarchyEntryMapper addressHierarchyEntryMapper, AddressHierarchyEntryTranslationRepository entryTranslationRepository) {
+                        ScheduledTaskHistory scheduledTaskHistory, AddressHierarchyEntryMapper addressHierarchyEntryMapper, AddressHierarchyEntryTranslationRepository entryTranslationRepository,
+                        AddressHierarchyIndex addressHierarchyIndex) {
         this.lrWebClient = lrWebClient;
         this.propertiesReader = propertiesReader;
         this.scheduledTaskHistory = scheduledTaskHistory;
         this.addressHierarchyEntryMapper = addressHierarchyEntryMapper;
         this.addressHierarchyService = addressHierarchyService;
         this.entryTranslationRepository = entryTranslationRepository;
+        this.addressHierarchyIndex = addressHierarchyIndex;
         this.failedDuringSaveOrUpdateOperation = new ArrayList<>();
     }
 
@@ -161,11 +166,13 @@ public class LocationPull {
 
     private List<LRAddressHierarchyEntry> getNextChunkOfUpdatesFromLR(String completeContextPath) {
         List<LRAddressHierarchyEntry> downloadedData = null;
+        long start = System.nanoTime();
         try {
             downloadedData = Arrays.asList(lrWebClient.get(completeContextPath, LRAddressHierarchyEntry[].class));
         } catch (Exception e) {
             logger.error("Error while downloading chunk of Updates from LR : " + e);
         }
+        SyncMetrics.getInstance().recordStage(SyncMetrics.LOCATION_PULL, SyncMetrics.FETCH, start);
         return downloadedData;
     }
 
@@ -181,6 +188,7 @@ public class LocationPull {
         for (LRAddressHierarchyEntry lrAddressHierarchyEntry : lrAddressHierarchyEntries) {
             AddressHierarchyEntry addressHierarchyEntry = addressHierarchyService.getAddressHierarchyEntryByUserGenId(lrAddressHierarchyEntry.getFullLocationCode());
             addressHierarchyEntry = addressHierarchyEntryMapper.map(addressHierarchyEntry, lrAddressHierarchyEntry, addressHierarchyService);
+            long start = System.nanoTime();
             try {
                 if (addressHierarchyEntry.getId() == null) {
                     logger.info("Saving Address Hierarchy Entry to Local DB : \n" + addressHierarchyEntry.toString());
@@ -189,17 +197,21 @@ public class LocationPull {
                     if (StringUtils.isNotBlank(lrAddressHierarchyEntry.getLocalName())) {
                         entryTranslationRepository.save(new AddressHierarchyEntryTranslation(addressHierarchyEntrySaved.getId(), lrAddressHierarchyEntry.getLocalName()));
                     }
+                    addressHierarchyIndex.update(addressHierarchyEntrySaved, lrAddressHierarchyEntry.getLocalName());
                 } else {
                     logger.info("Updating Address Hierarchy Entry to Local Db : " + addressHierarchyEntry.toString());
                     addressHierarchyService.saveAddressHierarchyEntry(addressHierarchyEntry);
                     if (StringUtils.isNotBlank(lrAddressHierarchyEntry.getLocalName())) {
                         entryTranslationRepository.save(new AddressHierarchyEntryTranslation(addressHierarchyEntry.getId(), lrAddressHierarchyEntry.getLocalName()));
                     }
+                    addressHierarchyIndex.update(addressHierarchyEntry, lrAddressHierarchyEntry.getLocalName());
                 }
-
+                SyncMetrics.getInstance().recordStage(SyncMetrics.LOCATION_PULL, SyncMetrics.PERSIST, start);
+                SyncMetrics.getInstance().recordEvent(SyncMetrics.LOCATION_PULL, SyncMetrics.PROCESSED);
             } catch (Exception e) {
                 logger.error("Error during Save Or Update to Local Db : " + e.toString());
                 failedDuringSaveOrUpdateOperation.add(lrAddressHierarchyEntry.toString());
+                SyncMetrics.getInstance().recordEvent(SyncMetrics.LOCATION_PULL, SyncMetrics.FAILED);
             }
         }
     }
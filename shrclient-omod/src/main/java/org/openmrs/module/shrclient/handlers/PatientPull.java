@@ -1,16 +1,18 @@
 package org.openmrs.module.shrclient.handlers;
 
 import org.apache.log4j.Logger;
+import org.openmrs.module.shrclient.feeds.CatchmentFeedExecutor;
 import org.openmrs.module.shrclient.feeds.CatchmentFeedProcessor;
 import org.openmrs.module.shrclient.feeds.mci.DefaultPatientFeedWorker;
 import org.openmrs.module.shrclient.identity.IdentityStore;
 import org.openmrs.module.shrclient.identity.IdentityUnauthorizedException;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
 import org.openmrs.module.shrclient.service.EMRPatientService;
+import org.openmrs.module.shrclient.util.MciPatientCache;
 import org.openmrs.module.shrclient.util.PlatformUtil;
 import org.openmrs.module.shrclient.util.PropertiesReader;
 import org.openmrs.module.shrclient.util.StringUtil;
 
-import java.net.URISyntaxException;
 import java.util.*;
 
 import static org.openmrs.module.shrclient.util.Headers.ACCEPT_HEADER_KEY;
@@ -25,56 +27,56 @@ public class PatientPull {
     private final ClientRegistry clientRegistry;
 
 
-    public PatientPull(PropertiesReader propertiesReader, IdentityStore identityStore) {
+    public PatientPull(PropertiesReader propertiesReader, IdentityStore identityStore, ClientRegistry clientRegistry) {
         this.propertiesReader = propertiesReader;
         this.identityStore = identityStore;
-        this.clientRegistry = new ClientRegistry(propertiesReader, identityStore);
+        this.clientRegistry = clientRegistry;
 
     }
 
     public void download() {
-        ArrayList<String> patientFeedUrls = getMCIFeedUrls(propertiesReader);
-        try {
-            Map<String, String> requestHeaders = getRequestHeaders(propertiesReader);
-            DefaultPatientFeedWorker defaultPatientFeedWorker = getPatientFeedWorker();
-            for (String patientFeedUrl : patientFeedUrls) {
-                CatchmentFeedProcessor catchmentFeedProcessor = new CatchmentFeedProcessor(patientFeedUrl, requestHeaders, clientRegistry);
+        final DefaultPatientFeedWorker defaultPatientFeedWorker = getPatientFeedWorker();
+        getCatchmentFeedExecutor().execute(getMCIFeedUrls(propertiesReader), new CatchmentFeedExecutor.CatchmentWork() {
+            @Override
+            public void process(String patientFeedUrl) throws Exception {
                 try {
-                    catchmentFeedProcessor.process(defaultPatientFeedWorker, propertiesReader.getMciMaxFailedEvent());
-                } catch (URISyntaxException e) {
-                    logger.error("Couldn't download catchment patient. Error: ", e);
+                    getFeedProcessor(patientFeedUrl).process(defaultPatientFeedWorker, propertiesReader.getMciMaxFailedEvent());
+                } catch (IdentityUnauthorizedException e) {
+                    logger.info("Clearing unauthorized identity token.");
+                    identityStore.clearToken();
                 }
             }
-        } catch (IdentityUnauthorizedException e) {
-            logger.info("Clearing unauthorized identity token.");
-            identityStore.clearToken();
-        }
+        });
     }
 
     public void retry() {
-        ArrayList<String> patientFeedUrls = getMCIFeedUrls(propertiesReader);
-        try {
-            Map<String, String> requestHeaders = getRequestHeaders(propertiesReader);
-            DefaultPatientFeedWorker defaultPatientFeedWorker = getPatientFeedWorker();
-            for (String patientFeedUrl : patientFeedUrls) {
-                CatchmentFeedProcessor catchmentFeedProcessor = new CatchmentFeedProcessor(patientFeedUrl, requestHeaders, clientRegistry);
+        final DefaultPatientFeedWorker defaultPatientFeedWorker = getPatientFeedWorker();
+        getCatchmentFeedExecutor().execute(getMCIFeedUrls(propertiesReader), new CatchmentFeedExecutor.CatchmentWork() {
+            @Override
+            public void process(String patientFeedUrl) throws Exception {
                 try {
-                    catchmentFeedProcessor.processFailedEvents(defaultPatientFeedWorker, propertiesReader.getMciMaxFailedEvent());
-                } catch (URISyntaxException e) {
-                    logger.error("Couldn't download catchment patient. Error: ", e);
+                    getFeedProcessor(patientFeedUrl).processFailedEvents(defaultPatientFeedWorker, propertiesReader.getMciMaxFailedEvent());
+                } catch (IdentityUnauthorizedException e) {
+                    logger.info("Clearing unauthorized identity token.");
+                    identityStore.clearToken();
                 }
             }
-        } catch (IdentityUnauthorizedException e) {
-            logger.info("Clearing unauthorized identity token.");
-            identityStore.clearToken();
-        }
+        });
+    }
+
+    private CatchmentFeedProcessor getFeedProcessor(String patientFeedUrl) throws IdentityUnauthorizedException {
+        return new CatchmentFeedProcessor(patientFeedUrl, SyncMetrics.PATIENT_PULL, getRequestHeaders(propertiesReader), clientRegistry);
+    }
 
+    private CatchmentFeedExecutor getCatchmentFeedExecutor() {
+        return new CatchmentFeedExecutor(propertiesReader.getFacilityCatchmentDownloadThreads());
     }
 
     private DefaultPatientFeedWorker getPatientFeedWorker() {
         EMRPatientService emrPatientService = PlatformUtil.getRegisteredComponent("hieEmrPatientService", EMRPatientService.class);
         PropertiesReader propertiesReader = PlatformUtil.getPropertiesReader();
-        return new DefaultPatientFeedWorker(emrPatientService);
+        MciPatientCache mciPatientCache = PlatformUtil.getRegisteredComponent(MciPatientCache.class);
+        return new DefaultPatientFeedWorker(emrPatientService, mciPatientCache);
     }
 
     private Map<String, String> getRequestHeaders(PropertiesReader propertiesReader) throws IdentityUnauthorizedException {
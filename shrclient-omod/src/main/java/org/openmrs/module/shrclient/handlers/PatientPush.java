@@ -14,6 +14,7 @@ import org.openmrs.module.fhir.utils.DateUtil;
 import org.openmrs.module.shrclient.dao.IdMappingRepository;
 import org.openmrs.module.shrclient.identity.IdentityUnauthorizedException;
 import org.openmrs.module.shrclient.mapper.PatientMapper;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
 import org.openmrs.module.shrclient.model.IdMapping;
 import org.openmrs.module.shrclient.model.IdMappingType;
 import org.openmrs.module.shrclient.model.Patient;
@@ -75,20 +76,30 @@ public class PatientPush implements EventWorker {
                 return;
             }
 
+            SyncMetrics metrics = SyncMetrics.getInstance();
+            long start = System.nanoTime();
             Patient patient = patientMapper.map(openMrsPatient);
+            metrics.recordStage(SyncMetrics.PATIENT_PUSH, SyncMetrics.MAP, start);
             log.debug("Patient: [ " + patient + "]");
 
+            String healthId;
             if (patientIdMapping == null) {
                 setProvider(patient, openMrsPatient);
+                start = System.nanoTime();
                 MciPatientUpdateResponse response = newPatient(patient);
-                updateOpenMrsPatientHealthId(openMrsPatient, response.getHealthId());
+                metrics.recordStage(SyncMetrics.PATIENT_PUSH, SyncMetrics.UPLOAD, start);
+                healthId = response.getHealthId();
             } else {
-                String healthId = patientIdMapping.getExternalId();
+                healthId = patientIdMapping.getExternalId();
                 patient.setHealthId(healthId);
                 String url = StringUtil.ensureSuffix(propertiesReader.getMciPatientContext(), "/") + healthId;
-                MciPatientUpdateResponse response = updatePatient(patient, url);
-                updateOpenMrsPatientHealthId(openMrsPatient, healthId);
+                start = System.nanoTime();
+                updatePatient(patient, url);
+                metrics.recordStage(SyncMetrics.PATIENT_PUSH, SyncMetrics.UPLOAD, start);
             }
+            start = System.nanoTime();
+            updateOpenMrsPatientHealthId(openMrsPatient, healthId);
+            metrics.recordStage(SyncMetrics.PATIENT_PUSH, SyncMetrics.PERSIST, start);
             patientUuidsProcessed.add(openMrsPatient.getUuid());
         } catch (Exception e) {
             log.error("Error while processing patient sync event.", e);
@@ -226,14 +237,7 @@ public class PatientPush implements EventWorker {
     }
 
     private SystemProperties getSystemProperties() {
-        return new SystemProperties(
-                propertiesReader.getFrProperties(),
-                propertiesReader.getTrProperties(),
-                propertiesReader.getPrProperties(),
-                propertiesReader.getFacilityInstanceProperties(),
-                propertiesReader.getMciProperties(),
-                propertiesReader.getShrProperties(),
-                propertiesReader.getFhirMappingProperties());
+        return propertiesReader.getSystemProperties();
     }
 
     String getPatientUuid(Event event) {
@@ -3,6 +3,7 @@ package org.openmrs.module.shrclient.handlers;
 import org.apache.commons.lang3.StringUtils;
 import org.openmrs.module.fhir.utils.DateUtil;
 import org.openmrs.module.shrclient.mapper.ProviderMapper;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
 import org.openmrs.module.shrclient.model.ProviderEntry;
 import org.openmrs.module.shrclient.util.*;
 
@@ -46,14 +47,7 @@ public class ProviderPull {
     }
 
     public void synchronize() throws IOException {
-        SystemProperties systemProperties = new SystemProperties(
-                propertiesReader.getFrProperties(),
-                propertiesReader.getTrProperties(),
-                propertiesReader.getPrProperties(),
-                propertiesReader.getFacilityInstanceProperties(),
-                propertiesReader.getMciProperties(),
-                propertiesReader.getShrProperties(),
-                propertiesReader.getFhirMappingProperties());
+        SystemProperties systemProperties = propertiesReader.getSystemProperties();
 
         synchronizeUpdates(systemProperties);
     }
@@ -116,16 +110,21 @@ public class ProviderPull {
 
     private void saveOrUpdateProviderEntries(List<ProviderEntry> providerEntries, SystemProperties systemProperties) {
         for (ProviderEntry providerEntry : providerEntries) {
+            long start = System.nanoTime();
             try {
                 providerMapper.createOrUpdate(providerEntry, systemProperties);
+                SyncMetrics.getInstance().recordStage(SyncMetrics.PROVIDER_PULL, SyncMetrics.PERSIST, start);
+                SyncMetrics.getInstance().recordEvent(SyncMetrics.PROVIDER_PULL, SyncMetrics.PROCESSED);
             } catch (Exception e) {
                 logger.error(String.format("Unable to save or update provider with id[%s]",providerEntry.getId()), e);
+                SyncMetrics.getInstance().recordEvent(SyncMetrics.PROVIDER_PULL, SyncMetrics.FAILED);
             }
         }
     }
 
     private List<ProviderEntry> getNextChunkOfUpdatesFromPr(String completeContextPath) {
         List<ProviderEntry> downloadedData = null;
+        long start = System.nanoTime();
         try {
             ProviderEntry[] providerEntries = prClient.get(completeContextPath, ProviderEntry[].class);
             if (providerEntries == null) {
@@ -136,6 +135,7 @@ public class ProviderPull {
         } catch (Exception e) {
             logger.error("Error while downloading updates from PR : " + e);
         }
+        SyncMetrics.getInstance().recordStage(SyncMetrics.PROVIDER_PULL, SyncMetrics.FETCH, start);
         return downloadedData;
     }
 
@@ -1,44 +1,165 @@
 package org.openmrs.module.shrclient.identity;
 
+import org.apache.log4j.Logger;
 import org.openmrs.module.fhir.utils.PropertyKeyConstants;
 import org.openmrs.module.shrclient.util.Headers;
+import org.openmrs.module.shrclient.util.HttpClientPool;
 import org.openmrs.module.shrclient.util.IdentityProviderClient;
 import org.openmrs.module.shrclient.util.PropertiesReader;
+import org.openmrs.module.shrclient.util.WebClient;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Signs in to the identity provider for the whole module. There is one instance, so that concurrent callers share a
+ * single sign-in and one thread renews the token.
+ */
+@Component("bdshrIdentityProviderService")
+public class IdentityProviderService implements DisposableBean {
+    private static final Logger log = Logger.getLogger(IdentityProviderService.class);
+    private static final long EXPIRY_MARGIN = TimeUnit.SECONDS.toMillis(30);
+    private static final int EXPIRY_MARGIN_LIFETIME_FRACTION = 4;
 
-public class IdentityProviderService {
     private static final String EMAIL_KEY = "email";
     private static final String PASSWORD_KEY = "password";
     PropertiesReader propertiesReader;
     private IdentityStore identityStore;
+    private IdentityProviderClient identityProviderClient;
+    private HttpClientPool httpClientPool;
+    private final Object signInLock = new Object();
+    private final ScheduledExecutorService tokenRefresher;
 
-    public IdentityProviderService(PropertiesReader propertiesReader, IdentityStore identityStore) {
+    @Autowired
+    public IdentityProviderService(PropertiesReader propertiesReader, IdentityStore identityStore, HttpClientPool httpClientPool) {
         this.propertiesReader = propertiesReader;
         this.identityStore = identityStore;
+        this.httpClientPool = httpClientPool;
+        this.tokenRefresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "bdshr-identity-token-refresher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
     }
 
-    private IdentityProviderClient getIdentityServiceClient(Properties facilityInstanceProperties) {
-        HashMap<String, String> headers = Headers.getHrmIdentityHeaders(facilityInstanceProperties);
-        return new IdentityProviderClient(propertiesReader.getIdPBaseUrl(), headers);
+    private synchronized IdentityProviderClient getIdentityServiceClient() {
+        if (identityProviderClient == null) {
+            identityProviderClient = new IdentityProviderClient(propertiesReader.getIdPBaseUrl(), new WebClient.HeaderProvider() {
+                @Override
+                public Map<String, String> getHeaders() {
+                    return Headers.getHrmIdentityHeaders(propertiesReader.getFacilityInstanceProperties());
+                }
+            }, httpClientPool);
+        }
+        return identityProviderClient;
     }
 
+    /**
+     * Returns the stored token, signing in when there is none or it is about to expire. Concurrent callers share a
+     * single sign-in. Tokens that carry an expiry are renewed in the background ahead of time.
+     */
     public IdentityToken getOrCreateToken() throws IdentityUnauthorizedException {
         IdentityToken identityToken = identityStore.getToken();
-        if (identityToken == null) {
-            Properties facilityInstanceProperties = propertiesReader.getFacilityInstanceProperties();
-            Map<String, String> clientCredentials = getClientCredentials(facilityInstanceProperties);
-            String url = propertiesReader.getIdPSignInPath();
-            identityToken = getIdentityServiceClient(facilityInstanceProperties)
-                    .post(url, clientCredentials, IdentityToken.class);
-            identityStore.setToken(identityToken);
+        if (isUsable(identityToken)) {
+            return identityToken;
+        }
+        synchronized (signInLock) {
+            identityToken = identityStore.getToken();
+            if (isUsable(identityToken)) {
+                return identityToken;
+            }
+            return signIn();
         }
+    }
+
+    private boolean isUsable(IdentityToken identityToken) {
+        return identityToken != null && !identityToken.isExpiringWithin(getExpiryMargin(identityToken));
+    }
+
+    /**
+     * A token is renewed once it expires within 30 seconds, or within a quarter of its lifetime when that is shorter.
+     */
+    private long getExpiryMargin(IdentityToken identityToken) {
+        Long expiresAt = identityToken.getExpiresAt();
+        if (expiresAt == null) return EXPIRY_MARGIN;
+        return Math.min(EXPIRY_MARGIN, (expiresAt - identityToken.getIssuedAt()) / EXPIRY_MARGIN_LIFETIME_FRACTION);
+    }
+
+    private IdentityToken signIn() throws IdentityUnauthorizedException {
+        Properties facilityInstanceProperties = propertiesReader.getFacilityInstanceProperties();
+        Map<String, String> clientCredentials = getClientCredentials(facilityInstanceProperties);
+        String url = propertiesReader.getIdPSignInPath();
+        IdentityToken identityToken = getIdentityServiceClient()
+                .post(url, clientCredentials, IdentityToken.class);
+        identityStore.setToken(identityToken);
+        scheduleRefresh(identityToken);
         return identityToken;
     }
 
+    private void scheduleRefresh(final IdentityToken identityToken) {
+        if (identityToken == null || identityToken.getExpiresAt() == null) return;
+        long timeToExpiry = identityToken.getExpiresAt() - System.currentTimeMillis();
+        long refreshLead = TimeUnit.SECONDS.toMillis(propertiesReader.getIdPTokenRefreshLeadSeconds());
+        long delay = Math.max(timeToExpiry - refreshLead, timeToExpiry / 2);
+        schedule(new Runnable() {
+            @Override
+            public void run() {
+                refresh(identityToken);
+            }
+        }, Math.max(delay, 0));
+    }
+
+    private void refresh(final IdentityToken expiringToken) {
+        synchronized (signInLock) {
+            if (identityStore.getToken() != expiringToken) {
+                // already renewed, or cleared and will be renewed on next use
+                return;
+            }
+            try {
+                log.debug("Refreshing identity token before it expires.");
+                signIn();
+            } catch (Exception e) {
+                log.warn("Could not refresh identity token ahead of expiry.", e);
+                if (isUsable(expiringToken)) {
+                    schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            refresh(expiringToken);
+                        }
+                    }, getExpiryMargin(expiringToken));
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops renewing tokens in the background. Tokens are still fetched when a caller asks for one.
+     */
+    @Override
+    public void destroy() {
+        tokenRefresher.shutdownNow();
+    }
+
+    private void schedule(Runnable refresh, long delayMillis) {
+        try {
+            tokenRefresher.schedule(refresh, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Not renewing the identity token ahead of expiry, the token refresher is stopped.");
+        }
+    }
+
     private Map<String, String> getClientCredentials(Properties facilityInstanceProperties) {
         Map<String, String> clientCredentials = new HashMap<>();
         clientCredentials.put(EMAIL_KEY, facilityInstanceProperties.getProperty(PropertyKeyConstants.FACILITY_EMAIL_KEY));
@@ -4,7 +4,7 @@ import org.springframework.stereotype.Component;
 
 @Component("bdshrIdentityStore")
 public class IdentityStore {
-    private IdentityToken token;
+    private volatile IdentityToken token;
 
     public IdentityToken getToken() {
         return token;
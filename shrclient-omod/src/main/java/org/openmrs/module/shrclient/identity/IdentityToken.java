@@ -1,7 +1,10 @@
 package org.openmrs.module.shrclient.identity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class IdentityToken {
     public IdentityToken() {
     }
@@ -10,9 +13,36 @@ public class IdentityToken {
         this.token = token;
     }
 
+    public IdentityToken(String token, Long expiresIn) {
+        this.token = token;
+        this.expiresIn = expiresIn;
+    }
+
     @JsonProperty("access_token")
     private String token;
 
+    @JsonProperty("expires_in")
+    private Long expiresIn;
+
+    @JsonIgnore
+    private final long issuedAt = System.currentTimeMillis();
+
+    public long getIssuedAt() {
+        return issuedAt;
+    }
+
+    /**
+     * @return expiry time in millis, or null if the identity provider did not tell us when the token expires.
+     */
+    public Long getExpiresAt() {
+        return expiresIn != null ? issuedAt + expiresIn * 1000 : null;
+    }
+
+    public boolean isExpiringWithin(long millis) {
+        Long expiresAt = getExpiresAt();
+        return expiresAt != null && System.currentTimeMillis() + millis >= expiresAt;
+    }
+
     @Override
     public String toString() {
         return token;
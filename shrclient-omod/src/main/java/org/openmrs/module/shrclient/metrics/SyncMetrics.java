@@ -0,0 +1,210 @@
+package org.openmrs.module.shrclient.metrics;
+
+import org.openmrs.module.shrclient.dao.IdMappingCache;
+import org.openmrs.module.shrclient.dao.IdMappingRepository;
+import org.openmrs.module.shrclient.util.PlatformUtil;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Module wide metrics of the sync pipelines: events handled per pipeline, latency of each pipeline stage,
+ * response statuses per registry, how far the marker of each feed is behind the feed head and the hits and misses
+ * of the id mapping cache.
+ * Values live in memory from module start and are exposed in the Prometheus text format.
+ */
+public class SyncMetrics {
+    public static final String ENCOUNTER_PUSH = "encounter_push";
+    public static final String PATIENT_PUSH = "patient_push";
+    public static final String ENCOUNTER_PULL = "encounter_pull";
+    public static final String PATIENT_PULL = "patient_pull";
+    public static final String FACILITY_PULL = "facility_pull";
+    public static final String LOCATION_PULL = "location_pull";
+    public static final String PROVIDER_PULL = "provider_pull";
+
+    public static final String FETCH = "fetch";
+    public static final String PARSE = "parse";
+    public static final String MAP = "map";
+    public static final String PERSIST = "persist";
+    public static final String UPLOAD = "upload";
+
+    public static final String PROCESSED = "processed";
+    public static final String FAILED = "failed";
+
+    private static final String EVENTS = "bdshr_sync_events_total";
+    private static final String STAGE_DURATION = "bdshr_sync_stage_duration_seconds";
+    private static final String HTTP_RESPONSES = "bdshr_http_responses_total";
+    private static final String FEED_LAG = "bdshr_feed_lag_seconds";
+    private static final String CACHE_REQUESTS = "bdshr_cache_requests_total";
+    private static final String ID_MAPPING_CACHE = "id_mapping";
+
+    private static final double[] LATENCY_BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+
+    private static final SyncMetrics instance = new SyncMetrics();
+
+    private final ConcurrentMap<List<String>, LongAdder> events = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<String>, Histogram> stageDurations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<String>, LongAdder> httpResponses = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<String>, AtomicLong> feedLags = new ConcurrentHashMap<>();
+
+    SyncMetrics() {
+    }
+
+    public static SyncMetrics getInstance() {
+        return instance;
+    }
+
+    public void recordEvent(String pipeline, String outcome) {
+        counter(events, pipeline, outcome).increment();
+    }
+
+    /**
+     * Records the time taken by a stage that started at startNanos, as given by {@link System#nanoTime()}.
+     */
+    public void recordStage(String pipeline, String stage, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        List<String> labels = Arrays.asList(pipeline, stage);
+        Histogram histogram = stageDurations.get(labels);
+        if (histogram == null) {
+            Histogram newHistogram = new Histogram(LATENCY_BUCKETS);
+            histogram = stageDurations.putIfAbsent(labels, newHistogram);
+            if (histogram == null) histogram = newHistogram;
+        }
+        histogram.observe(elapsed / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public void recordHttpResponse(String registry, String status) {
+        counter(httpResponses, registry, status).increment();
+    }
+
+    /**
+     * Sets the time between the newest entry read from the feed and the entry the marker points to.
+     */
+    public void recordFeedLag(String pipeline, String feed, long lagMillis) {
+        List<String> labels = Arrays.asList(pipeline, feed);
+        AtomicLong lag = feedLags.get(labels);
+        if (lag == null) {
+            AtomicLong newLag = new AtomicLong();
+            lag = feedLags.putIfAbsent(labels, newLag);
+            if (lag == null) lag = newLag;
+        }
+        lag.set(Math.max(lagMillis, 0));
+    }
+
+    public void writeTo(Writer writer) throws IOException {
+        writeHeader(writer, EVENTS, "Events handled by a sync pipeline, by outcome.", "counter");
+        for (Map.Entry<List<String>, LongAdder> entry : sorted(events).entrySet()) {
+            writeSample(writer, EVENTS, labels("pipeline", "outcome"), entry.getKey(), String.valueOf(entry.getValue().sum()));
+        }
+
+        writeHeader(writer, STAGE_DURATION, "Time taken by a stage of a sync pipeline.", "histogram");
+        for (Map.Entry<List<String>, Histogram> entry : sorted(stageDurations).entrySet()) {
+            writeHistogram(writer, entry.getKey(), entry.getValue());
+        }
+
+        writeHeader(writer, HTTP_RESPONSES, "Responses received from a registry, by status.", "counter");
+        for (Map.Entry<List<String>, LongAdder> entry : sorted(httpResponses).entrySet()) {
+            writeSample(writer, HTTP_RESPONSES, labels("registry", "status"), entry.getKey(), String.valueOf(entry.getValue().sum()));
+        }
+
+        writeHeader(writer, FEED_LAG, "Time between the newest entry read from a feed and the entry its marker points to.", "gauge");
+        for (Map.Entry<List<String>, AtomicLong> entry : sorted(feedLags).entrySet()) {
+            writeSample(writer, FEED_LAG, labels("pipeline", "feed"), entry.getKey(), formatSeconds(entry.getValue().get()));
+        }
+
+        writeHeader(writer, CACHE_REQUESTS, "Lookups made through a cache, by whether the cache held the value.", "counter");
+        IdMappingCache idMappingCache = getIdMappingCache();
+        if (idMappingCache != null) {
+            writeSample(writer, CACHE_REQUESTS, labels("cache", "result"), Arrays.asList(ID_MAPPING_CACHE, "hit"), String.valueOf(idMappingCache.getHits()));
+            writeSample(writer, CACHE_REQUESTS, labels("cache", "result"), Arrays.asList(ID_MAPPING_CACHE, "miss"), String.valueOf(idMappingCache.getMisses()));
+        }
+        writer.flush();
+    }
+
+    /**
+     * The id mapping cache is owned by the id mapping repository bean, its counters are read when metrics are written.
+     */
+    protected IdMappingCache getIdMappingCache() {
+        IdMappingRepository idMappingRepository = PlatformUtil.getIdMappingsRepository();
+        return idMappingRepository != null ? idMappingRepository.getIdMappingCache() : null;
+    }
+
+    private void writeHistogram(Writer writer, List<String> labelValues, Histogram histogram) throws IOException {
+        double[] upperBounds = histogram.getUpperBounds();
+        long[] counts = histogram.getCumulativeCounts();
+        List<String> bucketLabels = labels("pipeline", "stage", "le");
+        for (int i = 0; i < counts.length; i++) {
+            String upperBound = i < upperBounds.length ? String.valueOf(upperBounds[i]) : "+Inf";
+            writeSample(writer, STAGE_DURATION + "_bucket", bucketLabels,
+                    Arrays.asList(labelValues.get(0), labelValues.get(1), upperBound), String.valueOf(counts[i]));
+        }
+        writeSample(writer, STAGE_DURATION + "_sum", labels("pipeline", "stage"), labelValues, String.valueOf(histogram.getSum()));
+        writeSample(writer, STAGE_DURATION + "_count", labels("pipeline", "stage"), labelValues, String.valueOf(counts[counts.length - 1]));
+    }
+
+    private static void writeHeader(Writer writer, String name, String help, String type) throws IOException {
+        writer.write("# HELP " + name + " " + help + "\n");
+        writer.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    private static void writeSample(Writer writer, String name, List<String> labelNames, List<String> labelValues,
+                                    String value) throws IOException {
+        writer.write(name);
+        writer.write('{');
+        for (int i = 0; i < labelNames.size(); i++) {
+            if (i > 0) writer.write(',');
+            writer.write(labelNames.get(i));
+            writer.write("=\"");
+            writer.write(escape(labelValues.get(i)));
+            writer.write('"');
+        }
+        writer.write("} ");
+        writer.write(value);
+        writer.write('\n');
+    }
+
+    private static String escape(String labelValue) {
+        if (labelValue == null) return "";
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String formatSeconds(long millis) {
+        return String.valueOf(millis / 1000.0);
+    }
+
+    private static List<String> labels(String... names) {
+        return Arrays.asList(names);
+    }
+
+    private static LongAdder counter(ConcurrentMap<List<String>, LongAdder> counters, String... labelValues) {
+        List<String> labels = Arrays.asList(labelValues);
+        LongAdder counter = counters.get(labels);
+        if (counter == null) {
+            LongAdder newCounter = new LongAdder();
+            counter = counters.putIfAbsent(labels, newCounter);
+            if (counter == null) counter = newCounter;
+        }
+        return counter;
+    }
+
+    private static <T> Map<List<String>, T> sorted(Map<List<String>, T> samples) {
+        Map<List<String>, T> sorted = new TreeMap<>(new Comparator<List<String>>() {
+            @Override
+            public int compare(List<String> first, List<String> second) {
+                return first.toString().compareTo(second.toString());
+            }
+        });
+        sorted.putAll(samples);
+        return sorted;
+    }
+}
@@ -6,11 +6,13 @@ import org.ict4h.atomfeed.client.service.FeedClient;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.mapper.bundler.CompositionBundleCreator;
 import org.openmrs.module.shrclient.dao.IdMappingRepository;
+import org.openmrs.module.shrclient.feeds.MeteredEventWorker;
 import org.openmrs.module.shrclient.feeds.openmrs.OpenMRSFeedClientFactory;
+import org.openmrs.module.shrclient.feeds.openmrs.ParallelEventProcessor;
+import org.openmrs.module.shrclient.feeds.openmrs.PartitionedEventWorker;
 import org.openmrs.module.shrclient.handlers.ClientRegistry;
 import org.openmrs.module.shrclient.handlers.EncounterPush;
 import org.openmrs.module.shrclient.handlers.PatientPush;
-import org.openmrs.module.shrclient.identity.IdentityStore;
 import org.openmrs.module.shrclient.identity.IdentityUnauthorizedException;
 import org.openmrs.module.shrclient.mapper.PatientMapper;
 import org.openmrs.module.shrclient.service.BbsCodeService;
@@ -29,9 +31,8 @@ public abstract class AbstractBahmniSyncTask extends AbstractTask {
     @Override
     public void execute() {
         PropertiesReader propertiesReader = PlatformUtil.getPropertiesReader();
-        IdentityStore identityStore = PlatformUtil.getIdentityStore();
         SystemUserService systemUserService = PlatformUtil.getRegisteredComponent(SystemUserService.class);
-        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, identityStore);
+        ClientRegistry clientRegistry = PlatformUtil.getClientRegistry();
         PatientPush patientPush = getPatientRegistry(propertiesReader, systemUserService, clientRegistry);
         EncounterPush encounterPush = getEncounterRegistry(propertiesReader, systemUserService, clientRegistry);
         executeBahmniTask(patientPush, encounterPush, propertiesReader);
@@ -79,7 +80,12 @@ public abstract class AbstractBahmniSyncTask extends AbstractTask {
         return new RuntimeException(e);
     }
 
-    protected FeedClient getFeedClient(String uri, EventWorker worker, int maxFailedEvents) throws URISyntaxException {
-        return new OpenMRSFeedClientFactory().getFeedClient(uri, worker, maxFailedEvents);
+    protected FeedClient getFeedClient(String uri, String pipeline, EventWorker worker, int maxFailedEvents) throws URISyntaxException {
+        return new OpenMRSFeedClientFactory().getFeedClient(uri, new MeteredEventWorker(pipeline, worker), maxFailedEvents);
+    }
+
+    protected ParallelEventProcessor getParallelEventProcessor(String uri, String pipeline, PartitionedEventWorker worker,
+                                                               int maxFailedEvents, int workers, int maxInFlight) throws URISyntaxException {
+        return new OpenMRSFeedClientFactory().getParallelEventProcessor(uri, pipeline, worker, maxFailedEvents, workers, maxInFlight);
     }
 }
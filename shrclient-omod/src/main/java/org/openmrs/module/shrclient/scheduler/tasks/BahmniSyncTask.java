@@ -9,6 +9,9 @@ import org.openmrs.module.shrclient.util.PropertiesReader;
 
 import java.net.URISyntaxException;
 
+import static org.openmrs.module.shrclient.metrics.SyncMetrics.ENCOUNTER_PUSH;
+import static org.openmrs.module.shrclient.metrics.SyncMetrics.PATIENT_PUSH;
+
 public class BahmniSyncTask extends AbstractBahmniSyncTask {
     private static final Logger log = Logger.getLogger(BahmniSyncTask.class);
 
@@ -19,12 +22,22 @@ public class BahmniSyncTask extends AbstractBahmniSyncTask {
         * */
         log.debug("SCHEDULED JOB : SHR Patient Sync Task");
         try {
-            getFeedClient(OPENMRS_PATIENT_FEED_URI, patientPush, propertiesReader.getMciMaxFailedEvent()).processEvents();
-            getFeedClient(OPENMRS_PATIENT_FEED_URI, patientPush, propertiesReader.getMciMaxFailedEvent()).processFailedEvents();
-            getFeedClient(OPENMRS_ENCOUNTER_FEED_URI, encounterPush, propertiesReader.getShrMaxFailedEvent()).processEvents();
-            getFeedClient(OPENMRS_ENCOUNTER_FEED_URI, encounterPush, propertiesReader.getShrMaxFailedEvent()).processFailedEvents();
+            getFeedClient(OPENMRS_PATIENT_FEED_URI, PATIENT_PUSH, patientPush, propertiesReader.getMciMaxFailedEvent()).processEvents();
+            getFeedClient(OPENMRS_PATIENT_FEED_URI, PATIENT_PUSH, patientPush, propertiesReader.getMciMaxFailedEvent()).processFailedEvents();
+            pushEncounters(encounterPush, propertiesReader);
+            getFeedClient(OPENMRS_ENCOUNTER_FEED_URI, ENCOUNTER_PUSH, encounterPush, propertiesReader.getShrMaxFailedEvent()).processFailedEvents();
         } catch (URISyntaxException e) {
             log.error(e.getMessage());
         }
     }
+
+    private void pushEncounters(EncounterPush encounterPush, PropertiesReader propertiesReader) throws URISyntaxException {
+        int workers = propertiesReader.getShrEncounterPushWorkers();
+        if (workers > 1) {
+            getParallelEventProcessor(OPENMRS_ENCOUNTER_FEED_URI, ENCOUNTER_PUSH, encounterPush, propertiesReader.getShrMaxFailedEvent(),
+                    workers, propertiesReader.getShrEncounterPushMaxInFlight()).processEvents();
+        } else {
+            getFeedClient(OPENMRS_ENCOUNTER_FEED_URI, ENCOUNTER_PUSH, encounterPush, propertiesReader.getShrMaxFailedEvent()).processEvents();
+        }
+    }
 }
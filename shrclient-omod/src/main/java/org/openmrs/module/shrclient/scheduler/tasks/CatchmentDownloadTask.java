@@ -1,6 +1,8 @@
 package org.openmrs.module.shrclient.scheduler.tasks;
 
 import org.apache.log4j.Logger;
+import org.openmrs.module.fhir.utils.OMRSConceptLookup;
+import org.openmrs.module.shrclient.handlers.ClientRegistry;
 import org.openmrs.module.shrclient.handlers.EncounterPull;
 import org.openmrs.module.shrclient.handlers.PatientPull;
 import org.openmrs.module.shrclient.identity.IdentityStore;
@@ -15,9 +17,19 @@ public class CatchmentDownloadTask extends AbstractTask {
     public void execute() {
         PropertiesReader propertiesReader = PlatformUtil.getPropertiesReader();
         IdentityStore identityStore = PlatformUtil.getIdentityStore();
-        new PatientPull(propertiesReader, identityStore).download();
-        new PatientPull(propertiesReader, identityStore).retry();
-        new EncounterPull(propertiesReader, identityStore).download();
-        new EncounterPull(propertiesReader, identityStore).retry();
+        ClientRegistry clientRegistry = PlatformUtil.getClientRegistry();
+        warmUpConceptLookup();
+        new PatientPull(propertiesReader, identityStore, clientRegistry).download();
+        new PatientPull(propertiesReader, identityStore, clientRegistry).retry();
+        new EncounterPull(propertiesReader, identityStore, clientRegistry).download();
+        new EncounterPull(propertiesReader, identityStore, clientRegistry).retry();
+    }
+
+    private void warmUpConceptLookup() {
+        try {
+            PlatformUtil.getRegisteredComponent(OMRSConceptLookup.class).warmUpValueSets();
+        } catch (Exception e) {
+            log.warn("Could not warm up concept lookup cache", e);
+        }
     }
 }
@@ -3,9 +3,7 @@ package org.openmrs.module.shrclient.scheduler.tasks;
 import org.openmrs.api.LocationService;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.utils.OMRSLocationService;
-import org.openmrs.module.shrclient.handlers.ClientRegistry;
 import org.openmrs.module.shrclient.handlers.FacilityPull;
-import org.openmrs.module.shrclient.identity.IdentityStore;
 import org.openmrs.module.shrclient.mapper.LocationMapper;
 import org.openmrs.module.shrclient.util.PlatformUtil;
 import org.openmrs.module.shrclient.util.PropertiesReader;
@@ -20,8 +18,7 @@ public class FRSyncTask extends AbstractTask {
         RestClient frClient;
         try {
             propertiesReader = PlatformUtil.getPropertiesReader();
-            IdentityStore identityStore = PlatformUtil.getIdentityStore();
-            frClient = new ClientRegistry(propertiesReader, identityStore).getFRClient();
+            frClient = PlatformUtil.getClientRegistry().getFRClient();
 
             new FacilityPull(propertiesReader, frClient,
                     Context.getService(LocationService.class),
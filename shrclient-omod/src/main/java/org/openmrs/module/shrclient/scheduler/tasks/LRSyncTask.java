@@ -3,9 +3,8 @@ package org.openmrs.module.shrclient.scheduler.tasks;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.addresshierarchy.service.AddressHierarchyService;
 import org.openmrs.module.shrclient.dao.AddressHierarchyEntryTranslationRepository;
-import org.openmrs.module.shrclient.handlers.ClientRegistry;
+import org.openmrs.module.shrclient.dao.AddressHierarchyIndex;
 import org.openmrs.module.shrclient.handlers.LocationPull;
-import org.openmrs.module.shrclient.identity.IdentityStore;
 import org.openmrs.module.shrclient.mapper.AddressHierarchyEntryMapper;
 import org.openmrs.module.shrclient.util.PlatformUtil;
 import org.openmrs.module.shrclient.util.PropertiesReader;
@@ -22,12 +21,12 @@ public class LRSyncTask extends AbstractTask {
         AddressHierarchyEntryTranslationRepository entryTranslationRepository;
         try {
             propertiesReader = PlatformUtil.getPropertiesReader();
-            IdentityStore identityStore = PlatformUtil.getIdentityStore();
-            lrClient = new ClientRegistry(propertiesReader, identityStore).getLRClient();
+            lrClient = PlatformUtil.getClientRegistry().getLRClient();
             entryTranslationRepository = PlatformUtil.getAddressHierarchyEntryTranslationRepository();
 
             new LocationPull(propertiesReader, lrClient, Context.getService(AddressHierarchyService.class),
-                    PlatformUtil.getRegisteredComponent(ScheduledTaskHistory.class), new AddressHierarchyEntryMapper(), entryTranslationRepository).synchronize();
+                    PlatformUtil.getRegisteredComponent(ScheduledTaskHistory.class), new AddressHierarchyEntryMapper(), entryTranslationRepository,
+                    PlatformUtil.getRegisteredComponent(AddressHierarchyIndex.class)).synchronize();
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -1,8 +1,6 @@
 package org.openmrs.module.shrclient.scheduler.tasks;
 
-import org.openmrs.module.shrclient.handlers.ClientRegistry;
 import org.openmrs.module.shrclient.handlers.ProviderPull;
-import org.openmrs.module.shrclient.identity.IdentityStore;
 import org.openmrs.module.shrclient.mapper.ProviderMapper;
 import org.openmrs.module.shrclient.util.PlatformUtil;
 import org.openmrs.module.shrclient.util.PropertiesReader;
@@ -19,8 +17,7 @@ public class PRSyncTask extends AbstractTask {
         RestClient prClient;
         try {
             propertiesReader = PlatformUtil.getPropertiesReader();
-            IdentityStore identityStore = PlatformUtil.getIdentityStore();
-            prClient = new ClientRegistry(propertiesReader, identityStore).getPRClient();
+            prClient = PlatformUtil.getClientRegistry().getPRClient();
             new ProviderPull(propertiesReader,
                     prClient,
                     PlatformUtil.getRegisteredComponent(ScheduledTaskHistory.class),
@@ -12,4 +12,15 @@ public interface EMREncounterService {
     public void createOrUpdateEncounters(Patient emrPatient, List<EncounterEvent> encounterEvents) throws SQLException, Exception;
 
     public void createOrUpdateEncounter(Patient emrPatient, EncounterEvent encounterEvent) throws Exception;
+
+    /**
+     * Starts a batch of encounters saved in one transaction. Id mappings, download events and creator updates of the
+     * batch are held back until {@link #completeBatch()}, which has to be called in the same transaction. Batches are
+     * only used for the initial download of a catchment feed, later encounters are saved one at a time.
+     */
+    public void beginBatch();
+
+    public void completeBatch();
+
+    public void abandonBatch();
 }
@@ -2,6 +2,7 @@ package org.openmrs.module.shrclient.service;
 
 import org.openmrs.annotation.Authorized;
 import org.openmrs.api.OpenmrsService;
+import org.openmrs.module.shrclient.dao.HIDCardDao;
 import org.openmrs.module.shrclient.model.HealthIdCard;
 import org.openmrs.module.shrclient.model.User;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,4 +17,7 @@ public interface HIDCardUserService extends OpenmrsService {
 
     @Authorized(value = {"Print HID Card"}, requireAll = true)
     public List<HealthIdCard> getAllCardsByUserWithinDateRange(int userId, String from, String to) throws IOException;
+
+    @Authorized(value = {"Print HID Card"}, requireAll = true)
+    public void streamAllCardsByUserWithinDateRange(int userId, String from, String to, HIDCardDao.HealthIdCardHandler handler) throws IOException;
 }
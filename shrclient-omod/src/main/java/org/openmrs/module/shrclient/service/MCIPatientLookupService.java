@@ -13,4 +13,7 @@ public interface MCIPatientLookupService extends OpenmrsService {
 
     @Authorized(value = {"National Registry"}, requireAll = true)
     public Object downloadPatient(MciPatientSearchRequest request);
+
+    @Authorized(value = {"National Registry"}, requireAll = true)
+    public Object getEncounterDownloadStatus(String healthId);
 }
@@ -22,6 +22,7 @@ import org.openmrs.module.fhir.utils.DateUtil;
 import org.openmrs.module.fhir.utils.FHIRBundleHelper;
 import org.openmrs.module.shrclient.advice.SHREncounterEventService;
 import org.openmrs.module.shrclient.dao.IdMappingRepository;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
 import org.openmrs.module.shrclient.model.EncounterIdMapping;
 import org.openmrs.module.shrclient.model.IdMappingType;
 import org.openmrs.module.shrclient.service.*;
@@ -115,17 +116,12 @@ public class EMREncounterServiceImpl implements EMREncounterService {
         EncounterIdMapping encounterIdMapping = (EncounterIdMapping) idMappingRepository.findByExternalId(encounterEvent.getEncounterId(), IdMappingType.ENCOUNTER);
         mergeIfHealthIdsDonotMatch(encounterIdMapping, encounterEvent);
         if (!shouldProcessEvent(encounterEvent, encounterIdMapping)) return;
-        SystemProperties systemProperties = new SystemProperties(
-                propertiesReader.getFrProperties(),
-                propertiesReader.getTrProperties(),
-                propertiesReader.getPrProperties(),
-                propertiesReader.getFacilityInstanceProperties(),
-                propertiesReader.getMciProperties(),
-                propertiesReader.getShrProperties(),
-                propertiesReader.getFhirMappingProperties());
+        SystemProperties systemProperties = propertiesReader.getSystemProperties();
 
+        long start = System.nanoTime();
         ShrEncounterBundle shrEncounterBundle = new ShrEncounterBundle(bundle, healthId, shrEncounterId);
         org.openmrs.Encounter newEmrEncounter = fhirMapper.map(emrPatient, shrEncounterBundle, systemProperties);
+        SyncMetrics.getInstance().recordStage(SyncMetrics.ENCOUNTER_PULL, SyncMetrics.MAP, start);
 
         VisitType visitType = fhirMapper.getVisitType(shrEncounterBundle,systemProperties);
         Period visitPeriod = fhirMapper.getVisitPeriod(shrEncounterBundle);
@@ -151,6 +147,31 @@ public class EMREncounterServiceImpl implements EMREncounterService {
         savePatientDeathInfo(emrPatient);
     }
 
+    @Override
+    public void beginBatch() {
+        idMappingRepository.deferWrites();
+        shrEncounterEventService.deferEvents();
+        systemUserService.deferCreatorUpdates();
+    }
+
+    @Override
+    public void completeBatch() {
+        idMappingRepository.flushDeferredWrites();
+        shrEncounterEventService.raiseDeferredEvents();
+        Context.flushSession();
+        systemUserService.applyDeferredCreatorUpdates();
+        //the encounters of a batch are not looked at again, no need to keep them in the session
+        Context.clearSession();
+    }
+
+    @Override
+    public void abandonBatch() {
+        idMappingRepository.discardDeferredWrites();
+        shrEncounterEventService.discardDeferredEvents();
+        systemUserService.discardDeferredCreatorUpdates();
+        Context.clearSession();
+    }
+
     private void addEncounterToIdMapping(Encounter newEmrEncounter, String shrEncounterId, String healthId, SystemProperties systemProperties, Date encounterUpdatedDate) {
         String internalUuid = newEmrEncounter.getUuid();
         HashMap<String, String> encounterUrlReferenceIds = new HashMap<>();
@@ -188,7 +209,8 @@ public class EMREncounterServiceImpl implements EMREncounterService {
     }
 
     private void mergeIfHealthIdsDonotMatch(EncounterIdMapping encounterIdMapping, EncounterEvent encounterEvent) {
-        if (encounterIdMapping != null && !encounterIdMapping.getHealthId().equals(encounterEvent.getHealthId())) {
+        if (encounterIdMapping != null && encounterIdMapping.getHealthId() != null
+                && !encounterIdMapping.getHealthId().equals(encounterEvent.getHealthId())) {
             try {
                 emrPatientMergeService.mergePatients(encounterEvent.getHealthId(), encounterIdMapping.getHealthId());
             } catch (SerializationException e) {
@@ -322,14 +322,7 @@ public class EMRPatientServiceImpl implements EMRPatientService {
 
     private void addPatientToIdMapping(org.openmrs.Patient emrPatient, String healthId, Date serverModifiedTime) {
         String patientUuid = emrPatient.getUuid();
-        SystemProperties systemProperties = new SystemProperties(
-                propertiesReader.getFrProperties(),
-                propertiesReader.getTrProperties(),
-                propertiesReader.getPrProperties(),
-                propertiesReader.getFacilityInstanceProperties(),
-                propertiesReader.getMciProperties(),
-                propertiesReader.getShrProperties(),
-                propertiesReader.getFhirMappingProperties());
+        SystemProperties systemProperties = propertiesReader.getSystemProperties();
         String url = new EntityReference().build(org.openmrs.Patient.class, systemProperties, healthId);
         idMappingsRepository.saveOrUpdateIdMapping(new PatientIdMapping(patientUuid, healthId, url, new Date(), new Date(), serverModifiedTime));
     }
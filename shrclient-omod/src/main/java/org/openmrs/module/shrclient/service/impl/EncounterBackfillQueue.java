@@ -0,0 +1,223 @@
+package org.openmrs.module.shrclient.service.impl;
+
+import org.apache.log4j.Logger;
+import org.openmrs.module.shrclient.util.PlatformUtil;
+import org.openmrs.module.shrclient.util.PropertiesReader;
+import org.openmrs.module.shrclient.util.TransactionHelper;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads the SHR encounter history of patients in the background, on a fixed number of worker threads.
+ * There is one job per health id at a time, a download requested while a job for the patient is queued or running
+ * gets that job. Jobs submitted within a transaction start once it has committed, so that they find the patient.
+ * Finished jobs are kept for an hour, for their status to be polled.
+ * The workers are stopped with the Spring context, interrupting the running downloads. Queued jobs are not started.
+ */
+@Component("bdshrEncounterBackfillQueue")
+public class EncounterBackfillQueue implements DisposableBean {
+    private static final Logger log = Logger.getLogger(EncounterBackfillQueue.class);
+    private static final long FINISHED_JOB_RETENTION_MILLIS = 60 * 60 * 1000;
+
+    private final ExecutorService workers;
+    private final Map<String, BackfillJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EncounterBackfillQueue(PropertiesReader propertiesReader) {
+        this(propertiesReader.getShrPatientEncounterBackfillWorkers());
+    }
+
+    public EncounterBackfillQueue(int workers) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(workers, 1), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "bdshr-encounter-backfill-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public BackfillJob submit(String healthId, final BackfillWork work) {
+        final BackfillJob job;
+        synchronized (this) {
+            BackfillJob existingJob = jobs.get(healthId);
+            if (existingJob != null && !existingJob.isFinished()) {
+                return existingJob;
+            }
+            removeExpiredJobs();
+            job = new BackfillJob(healthId);
+            jobs.put(healthId, job);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        start(job, work);
+                    } else {
+                        job.failed("The patient download was rolled back");
+                    }
+                }
+            });
+        } else {
+            start(job, work);
+        }
+        return job;
+    }
+
+    public BackfillJob getJob(String healthId) {
+        return jobs.get(healthId);
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdownNow();
+    }
+
+    protected void execute(Runnable task) {
+        workers.execute(task);
+    }
+
+    protected Runnable inWorkerContext(Runnable work) {
+        return PlatformUtil.inCurrentUserContext(work);
+    }
+
+    protected <T> T inTransaction(TransactionHelper.TxWork<T> work) {
+        return TransactionHelper.executeInTransaction(work);
+    }
+
+    /**
+     * Hands the job to the workers. A job the workers do not take, once they are stopped, fails at once and so does
+     * not hold back the next download of the patient.
+     */
+    private void start(final BackfillJob job, final BackfillWork work) {
+        try {
+            execute(backfillTask(job, work));
+        } catch (RejectedExecutionException e) {
+            log.warn(String.format("Not downloading encounters for patient %s, the backfill workers are stopped.", job.getHealthId()));
+            job.failed("The encounter download was not started, the backfill workers are stopped");
+        }
+    }
+
+    private Runnable backfillTask(final BackfillJob job, final BackfillWork work) {
+        return inWorkerContext(new Runnable() {
+            @Override
+            public void run() {
+                job.running();
+                try {
+                    int encounterEvents = inTransaction(new TransactionHelper.TxWork<Integer>() {
+                        @Override
+                        public Integer execute() {
+                            try {
+                                return work.backfill(job.getHealthId());
+                            } catch (RuntimeException e) {
+                                throw e;
+                            } catch (Exception e) {
+                                throw new RuntimeException(e);
+                            }
+                        }
+                    });
+                    job.completed(encounterEvents);
+                } catch (Exception e) {
+                    log.error(String.format("Error while downloading encounters for patient %s", job.getHealthId()), e);
+                    job.failed(e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void removeExpiredJobs() {
+        long expiry = System.currentTimeMillis() - FINISHED_JOB_RETENTION_MILLIS;
+        for (Iterator<BackfillJob> iterator = jobs.values().iterator(); iterator.hasNext(); ) {
+            BackfillJob job = iterator.next();
+            if (job.isFinished() && job.getFinishedAt().getTime() < expiry) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public interface BackfillWork {
+        /**
+         * Downloads the encounters of the patient, returning the number of encounter events fetched from SHR.
+         * Events of encounters that are already up to date are counted too, they are not saved again.
+         */
+        int backfill(String healthId) throws Exception;
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    public static class BackfillJob {
+        private final String healthId;
+        private final Date submittedAt;
+        private volatile Status status = Status.QUEUED;
+        private volatile Date finishedAt;
+        private volatile Integer encounterEvents;
+        private volatile String error;
+
+        private BackfillJob(String healthId) {
+            this.healthId = healthId;
+            this.submittedAt = new Date();
+        }
+
+        public String getHealthId() {
+            return healthId;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public Date getSubmittedAt() {
+            return submittedAt;
+        }
+
+        public Date getFinishedAt() {
+            return finishedAt;
+        }
+
+        public Integer getEncounterEvents() {
+            return encounterEvents;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public boolean isFinished() {
+            return status == Status.COMPLETED || status == Status.FAILED;
+        }
+
+        private void running() {
+            status = Status.RUNNING;
+        }
+
+        private void completed(int encounterEvents) {
+            this.encounterEvents = encounterEvents;
+            this.finishedAt = new Date();
+            this.status = Status.COMPLETED;
+        }
+
+        private void failed(String error) {
+            this.error = error;
+            this.finishedAt = new Date();
+            this.status = Status.FAILED;
+        }
+    }
+}
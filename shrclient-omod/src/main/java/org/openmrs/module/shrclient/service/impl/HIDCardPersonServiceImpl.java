@@ -2,7 +2,7 @@ package org.openmrs.module.shrclient.service.impl;
 
 
 import org.openmrs.api.impl.BaseOpenmrsService;
-import org.openmrs.module.shrclient.dao.AddressHierarchyEntryTranslationRepository;
+import org.openmrs.module.shrclient.dao.AddressHierarchyIndex;
 import org.openmrs.module.shrclient.dao.HIDCardDao;
 import org.openmrs.module.shrclient.model.HealthIdCard;
 import org.openmrs.module.shrclient.service.HIDCardPersonService;
@@ -17,8 +17,8 @@ public class HIDCardPersonServiceImpl extends BaseOpenmrsService implements HIDC
 
 
     @Autowired
-    public HIDCardPersonServiceImpl(Database database, AddressHierarchyEntryTranslationRepository entryTranslationRepository) {
-        this.hidCardDao = new HIDCardDao(database, entryTranslationRepository);
+    public HIDCardPersonServiceImpl(Database database, AddressHierarchyIndex addressHierarchyIndex) {
+        this.hidCardDao = new HIDCardDao(database, addressHierarchyIndex);
     }
 
 
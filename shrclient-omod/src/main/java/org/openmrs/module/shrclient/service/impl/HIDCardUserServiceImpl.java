@@ -7,7 +7,7 @@ import org.openmrs.api.UserService;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.fhir.utils.GlobalPropertyLookUpService;
-import org.openmrs.module.shrclient.dao.AddressHierarchyEntryTranslationRepository;
+import org.openmrs.module.shrclient.dao.AddressHierarchyIndex;
 import org.openmrs.module.shrclient.dao.HIDCardDao;
 import org.openmrs.module.shrclient.model.HealthIdCard;
 import org.openmrs.module.shrclient.model.User;
@@ -36,9 +36,9 @@ public class HIDCardUserServiceImpl extends BaseOpenmrsService implements HIDCar
 
     @Autowired
     public HIDCardUserServiceImpl(Database database, GlobalPropertyLookUpService globalPropertyLookUpService,
-                                  AddressHierarchyEntryTranslationRepository entryTranslationRepository) {
+                                  AddressHierarchyIndex addressHierarchyIndex) {
         this.globalPropertyLookUpService = globalPropertyLookUpService;
-        this.hidCardDao = new HIDCardDao(database, entryTranslationRepository);
+        this.hidCardDao = new HIDCardDao(database, addressHierarchyIndex);
     }
 
     public List<User> getAllUsersWithFieldRole() {
@@ -66,6 +66,16 @@ public class HIDCardUserServiceImpl extends BaseOpenmrsService implements HIDCar
         }
     }
 
+    @Override
+    public void streamAllCardsByUserWithinDateRange(int userId, String from, String to, HIDCardDao.HealthIdCardHandler handler) throws IOException {
+        try {
+            hidCardDao.streamCardsByUserWithinDateRange(userId, parseDate(from, SIMPLE_DATE_WITH_SECS_FORMAT), parseDate(to, SIMPLE_DATE_WITH_SECS_FORMAT), handler);
+        } catch (ParseException e) {
+            logger.error("Invalid Date Format", e);
+            throw new IOException("Invalid Date Format");
+        }
+    }
+
     private UserService getUserService() {
         if (userService == null) {
             userService = Context.getUserService();
@@ -10,7 +10,6 @@ import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.addresshierarchy.AddressHierarchyEntry;
 import org.openmrs.module.addresshierarchy.service.AddressHierarchyService;
 import org.openmrs.module.shrclient.handlers.ClientRegistry;
-import org.openmrs.module.shrclient.identity.IdentityStore;
 import org.openmrs.module.shrclient.identity.IdentityUnauthorizedException;
 import org.openmrs.module.shrclient.model.Address;
 import org.openmrs.module.shrclient.model.Patient;
@@ -19,20 +18,32 @@ import org.openmrs.module.shrclient.service.EMREncounterService;
 import org.openmrs.module.shrclient.service.EMRPatientMergeService;
 import org.openmrs.module.shrclient.service.EMRPatientService;
 import org.openmrs.module.shrclient.service.MCIPatientLookupService;
+import org.openmrs.module.shrclient.util.MciPatientCache;
 import org.openmrs.module.shrclient.util.PropertiesReader;
 import org.openmrs.module.shrclient.util.RestClient;
 import org.openmrs.module.shrclient.web.controller.MciPatientSearchRequest;
 import org.openmrs.module.shrclient.web.controller.dto.EncounterEvent;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.Arrays.asList;
 
-@Component
-public class MCIPatientLookupServiceImpl extends BaseOpenmrsService implements MCIPatientLookupService {
+/**
+ * The target of the transactional mciPatientLookupService bean of moduleApplicationContext.xml, the only instance.
+ */
+public class MCIPatientLookupServiceImpl extends BaseOpenmrsService implements MCIPatientLookupService, DisposableBean {
     private static final Logger log = Logger.getLogger(MCIPatientLookupServiceImpl.class);
 
     private static final String NID_PARAM_KEY = "nid";
@@ -40,24 +51,44 @@ public class MCIPatientLookupServiceImpl extends BaseOpenmrsService implements M
     private static final String BRN_PARAM_KEY = "bin_brn";
     private static final String HOUSE_HOLD_CODE_PARAM_KEY = "household_code";
     private static final String PHONE_NO_PARAM_KEY = "phone_no";
+    private static final int SEARCH_THREADS = 10;
     private final String patientContext;
 
     private EMRPatientService emrPatientService;
     private PropertiesReader propertiesReader;
-    private IdentityStore identityStore;
     private EMREncounterService emrEncounterService;
     private EMRPatientMergeService emrPatientMergeService;
+    private ClientRegistry clientRegistry;
+    private EncounterBackfillQueue encounterBackfillQueue;
+    private ExecutorService searchExecutor;
+    private MciPatientCache mciPatientCache;
 
     @Autowired
     public MCIPatientLookupServiceImpl(@Qualifier("hieEmrPatientService") EMRPatientService emrPatientService, PropertiesReader propertiesReader,
-                                       IdentityStore identityStore, @Qualifier("hieEmrEncounterService") EMREncounterService emrEncounterService,
-                                       @Qualifier("hieEmrPatientMergeService") EMRPatientMergeService emrPatientMergeService) {
+                                       ClientRegistry clientRegistry, @Qualifier("hieEmrEncounterService") EMREncounterService emrEncounterService,
+                                       @Qualifier("hieEmrPatientMergeService") EMRPatientMergeService emrPatientMergeService,
+                                       MciPatientCache mciPatientCache, EncounterBackfillQueue encounterBackfillQueue) {
         this.emrPatientService = emrPatientService;
         this.propertiesReader = propertiesReader;
-        this.identityStore = identityStore;
         this.emrEncounterService = emrEncounterService;
         this.emrPatientMergeService = emrPatientMergeService;
         this.patientContext = propertiesReader.getMciPatientContext();
+        this.clientRegistry = clientRegistry;
+        this.encounterBackfillQueue = encounterBackfillQueue;
+        this.mciPatientCache = mciPatientCache;
+        this.searchExecutor = createSearchExecutor();
+    }
+
+    private ExecutorService createSearchExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(SEARCH_THREADS, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "bdshr-mci-search-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
     }
 
     @Override
@@ -65,36 +96,13 @@ public class MCIPatientLookupServiceImpl extends BaseOpenmrsService implements M
         Patient mciPatient = null;
         List<Patient> patientList = new ArrayList<>();
         if (StringUtils.isNotBlank(request.getHid())) {
-            mciPatient = searchPatientByHealthId(request.getHid());
+            mciPatient = searchPatientByHealthId(request.getHid(), request.isRefresh());
             if (mciPatient != null) {
                 patientList.add(mciPatient);
             }
 
         } else {
-            String searchParamKey = null;
-            String searchParamValue = null;
-            if (StringUtils.isNotBlank(request.getNid())) {
-                searchParamKey = NID_PARAM_KEY;
-                searchParamValue = request.getNid();
-            } else if (StringUtils.isNotBlank(request.getUid())) {
-                searchParamKey = UID_PARAM_KEY;
-                searchParamValue = request.getUid();
-            } else if (StringUtils.isNotBlank(request.getBrn())) {
-                searchParamKey = BRN_PARAM_KEY;
-                searchParamValue = request.getBrn();
-            } else if (StringUtils.isNotBlank(request.getHouseHoldCode())) {
-                searchParamKey = HOUSE_HOLD_CODE_PARAM_KEY;
-                searchParamValue = request.getHouseHoldCode();
-            } else if (StringUtils.isNotBlank(request.getPhoneNo())) {
-                searchParamKey = PHONE_NO_PARAM_KEY;
-                searchParamValue = request.getPhoneNo();
-            }
-            if (StringUtils.isNotBlank(searchParamKey) && StringUtils.isNotBlank(searchParamValue)) {
-                Patient[] patients = searchPatients(searchParamKey, searchParamValue);
-                if ((patients != null) && (patients.length > 0)) {
-                    patientList.addAll(asList(patients));
-                }
-            }
+            patientList.addAll(searchPatients(getSearchParams(request)));
         }
         if (!patientList.isEmpty()) {
             sortPatientList(patientList);
@@ -106,7 +114,7 @@ public class MCIPatientLookupServiceImpl extends BaseOpenmrsService implements M
     @Override
     public Object downloadPatient(MciPatientSearchRequest request) {
         final String healthId = request.getHid();
-        Patient mciPatient = searchPatientByHealthId(healthId);
+        Patient mciPatient = searchPatientByHealthId(healthId, request.isRefresh());
         if (mciPatient != null) {
             org.openmrs.Patient emrPatient = emrPatientService.createOrUpdateEmrPatient(mciPatient);
             if (emrPatient != null) {
@@ -115,7 +123,7 @@ public class MCIPatientLookupServiceImpl extends BaseOpenmrsService implements M
                 if (CollectionUtils.isNotEmpty(request.getInactiveHids())) {
                     mergedHealthIds = emrPatientMergeService.mergePatients(mciPatient.getHealthId(), request.getInactiveHids());
                 }
-                createOrUpdateEncounters(healthId, emrPatient);
+                downloadResponse.put("encounterDownload", backfillEncounters(healthId));
                 downloadResponse.put("uuid", emrPatient.getUuid());
                 downloadResponse.put("hid", healthId);
                 List<String> localIds = convertPatientIdentifiersToList(emrPatient.getIdentifiers());
@@ -130,6 +138,20 @@ public class MCIPatientLookupServiceImpl extends BaseOpenmrsService implements M
         return null;
     }
 
+    @Override
+    public Object getEncounterDownloadStatus(String healthId) {
+        return encounterBackfillQueue.getJob(healthId);
+    }
+
+    /**
+     * Stops the search threads with the application context. The service is not registered with the ServiceContext,
+     * {@link #onShutdown()} is never called for it.
+     */
+    @Override
+    public void destroy() {
+        searchExecutor.shutdownNow();
+    }
+
     private void sortPatientList(List<Patient> patientList) {
         Collections.sort(patientList, new Comparator<Patient>() {
             @Override
@@ -179,12 +201,22 @@ public class MCIPatientLookupServiceImpl extends BaseOpenmrsService implements M
     }
 
     private Patient searchActivePatient(String hid, List<String> inactiveHids) {
-        Patient mergedWithPatient = searchPatientByHealthId(hid);
-        if (mergedWithPatient != null && !mergedWithPatient.isActive()) {
-            inactiveHids.add(mergedWithPatient.getHealthId());
-            return searchActivePatient(mergedWithPatient.getMergedWith(), inactiveHids);
+        if (StringUtils.isBlank(hid)) {
+            return null;
+        }
+        try {
+            for (Patient mergedWithPatient : mciPatientCache.getMergeChain(hid, mciPatientLoader())) {
+                if (mergedWithPatient.isActive()) {
+                    return mergedWithPatient;
+                }
+                inactiveHids.add(mergedWithPatient.getHealthId());
+            }
+            return null;
+        } catch (IdentityUnauthorizedException e) {
+            log.info("Clearing unauthorized identity token.");
+            clientRegistry.clearIdentityToken();
+            throw new RuntimeException(e);
         }
-        return mergedWithPatient;
     }
 
     private Object mapToPatientMergeUIModel(Patient inactivePatient, Patient activePatient, ArrayList<String> inactiveHids) {
@@ -232,15 +264,30 @@ public class MCIPatientLookupServiceImpl extends BaseOpenmrsService implements M
         return entry.getName();
     }
 
-    private void createOrUpdateEncounters(String healthId, org.openmrs.Patient emrPatient) {
+    /**
+     * The encounter history of a patient can be long, it is downloaded in the background and the download is
+     * followed with {@link #getEncounterDownloadStatus(String)}.
+     */
+    private EncounterBackfillQueue.BackfillJob backfillEncounters(String healthId) {
+        return encounterBackfillQueue.submit(healthId, new EncounterBackfillQueue.BackfillWork() {
+            @Override
+            public int backfill(String healthId) {
+                return createOrUpdateEncounters(healthId, emrPatientService.getEMRPatientByHealthId(healthId));
+            }
+        });
+    }
+
+    private int createOrUpdateEncounters(String healthId, org.openmrs.Patient emrPatient) {
         final String url = String.format(propertiesReader.getShrPatientEncPathPattern(), healthId);
         List<EncounterEvent> encounterEvents = null;
         try {
-            encounterEvents = new ClientRegistry(propertiesReader, identityStore).getSHRClient().getEncounters(url);
+            encounterEvents = clientRegistry.getSHRClient().getEncounters(url);
             emrEncounterService.createOrUpdateEncounters(emrPatient, encounterEvents);
+            return encounterEvents.size();
         } catch (IdentityUnauthorizedException e) {
             log.info("Clearing unauthorized identity token.");
-            identityStore.clearToken();
+            clientRegistry.clearIdentityToken();
+            throw new RuntimeException(e);
         } catch (Exception e) {
             String message = String.format("Error while downloading encounters for patient %s ", healthId);
             log.error(message, e);
@@ -248,33 +295,116 @@ public class MCIPatientLookupServiceImpl extends BaseOpenmrsService implements M
         }
     }
 
-    private Patient[] searchPatients(String searchParamKey, String searchParamValue) {
+    private Map<String, String> getSearchParams(MciPatientSearchRequest request) {
+        Map<String, String> searchParams = new LinkedHashMap<>();
+        addSearchParam(searchParams, NID_PARAM_KEY, request.getNid());
+        addSearchParam(searchParams, UID_PARAM_KEY, request.getUid());
+        addSearchParam(searchParams, BRN_PARAM_KEY, request.getBrn());
+        addSearchParam(searchParams, HOUSE_HOLD_CODE_PARAM_KEY, request.getHouseHoldCode());
+        addSearchParam(searchParams, PHONE_NO_PARAM_KEY, request.getPhoneNo());
+        return searchParams;
+    }
+
+    private void addSearchParam(Map<String, String> searchParams, String searchParamKey, String searchParamValue) {
+        if (StringUtils.isNotBlank(searchParamValue)) {
+            searchParams.put(searchParamKey, searchParamValue);
+        }
+    }
+
+    /**
+     * Searches MCI by each of the identifiers at the same time. Patients found by several identifiers are listed
+     * once, in the order of the identifiers. Searches not answered within the search timeout are left out, a failed
+     * search only fails the whole search when no other search has answered. A search's request to MCI times out at the
+     * search deadline, cancelling the search does not stop a socket read and would leave the search thread busy.
+     */
+    private List<Patient> searchPatients(Map<String, String> searchParams) {
+        if (searchParams.size() == 1) {
+            Map.Entry<String, String> searchParam = searchParams.entrySet().iterator().next();
+            return toList(searchPatients(searchParam.getKey(), searchParam.getValue(), 0));
+        }
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(propertiesReader.getMciSearchTimeoutMillis());
+        Map<String, Future<Patient[]>> searches = new LinkedHashMap<>();
+        for (final Map.Entry<String, String> searchParam : searchParams.entrySet()) {
+            searches.put(searchParam.getKey(), searchExecutor.submit(new Callable<Patient[]>() {
+                @Override
+                public Patient[] call() throws Exception {
+                    long timeoutMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    return searchPatients(searchParam.getKey(), searchParam.getValue(), (int) Math.max(timeoutMillis, 1));
+                }
+            }));
+        }
+
+        Map<String, Patient> patientsByHealthId = new LinkedHashMap<>();
+        RuntimeException failure = null;
+        boolean answered = false;
+        for (Map.Entry<String, Future<Patient[]>> search : searches.entrySet()) {
+            try {
+                long timeout = Math.max(deadline - System.nanoTime(), 0);
+                for (Patient patient : toList(search.getValue().get(timeout, TimeUnit.NANOSECONDS))) {
+                    if (!patientsByHealthId.containsKey(patient.getHealthId())) {
+                        patientsByHealthId.put(patient.getHealthId(), patient);
+                    }
+                }
+                answered = true;
+            } catch (TimeoutException e) {
+                search.getValue().cancel(true);
+                log.warn(String.format("Search of patients by %s timed out, leaving it out of the results.", search.getKey()));
+            } catch (InterruptedException e) {
+                search.getValue().cancel(true);
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                log.error(String.format("Error while searching patients by %s", search.getKey()), e.getCause());
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+                }
+            }
+        }
+        if (!answered && failure != null) {
+            throw failure;
+        }
+        return new ArrayList<>(patientsByHealthId.values());
+    }
+
+    private List<Patient> toList(Patient[] patients) {
+        return patients != null ? asList(patients) : Collections.<Patient>emptyList();
+    }
+
+    private Patient[] searchPatients(String searchParamKey, String searchParamValue, int timeoutMillis) {
         String url = String.format("%s?%s=%s", this.patientContext, searchParamKey, searchParamValue);
         MciPatientSearchResponse mciPatientSearchResponse = null;
         try {
-            mciPatientSearchResponse = getMciRestClient().get(url, MciPatientSearchResponse.class);
+            mciPatientSearchResponse = getMciRestClient().get(url, MciPatientSearchResponse.class, timeoutMillis);
         } catch (IdentityUnauthorizedException e) {
             log.info("Clearing unauthorized identity token.");
-            identityStore.clearToken();
+            clientRegistry.clearIdentityToken();
             throw new RuntimeException(e);
         }
         return mciPatientSearchResponse.getResults();
     }
 
-    private Patient searchPatientByHealthId(String hid) {
+    private Patient searchPatientByHealthId(String hid, boolean refresh) {
         if (StringUtils.isBlank(hid)) {
             return null;
         }
         try {
-            return getMciRestClient().get(this.patientContext + "/" + hid, Patient.class);
+            return refresh ? mciPatientCache.refreshPatient(hid, mciPatientLoader()) : mciPatientCache.getPatient(hid, mciPatientLoader());
         } catch (IdentityUnauthorizedException e) {
             log.info("Clearing unauthorized identity token.");
-            identityStore.clearToken();
+            clientRegistry.clearIdentityToken();
             throw new RuntimeException(e);
         }
     }
 
+    private MciPatientCache.PatientLoader mciPatientLoader() {
+        return new MciPatientCache.PatientLoader() {
+            @Override
+            public Patient load(String healthId) throws IdentityUnauthorizedException {
+                return getMciRestClient().get(patientContext + "/" + healthId, Patient.class);
+            }
+        };
+    }
+
     private RestClient getMciRestClient() throws IdentityUnauthorizedException {
-        return new ClientRegistry(propertiesReader, identityStore).getMCIClient();
+        return clientRegistry.getMCIClient();
     }
 }
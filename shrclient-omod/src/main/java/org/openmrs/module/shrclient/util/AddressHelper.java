@@ -7,6 +7,7 @@ import org.openmrs.module.addresshierarchy.AddressField;
 import org.openmrs.module.addresshierarchy.AddressHierarchyEntry;
 import org.openmrs.module.addresshierarchy.AddressHierarchyLevel;
 import org.openmrs.module.addresshierarchy.service.AddressHierarchyService;
+import org.openmrs.module.shrclient.dao.AddressHierarchyIndex;
 import org.openmrs.module.shrclient.model.Address;
 
 import java.util.List;
@@ -17,16 +18,25 @@ import static org.openmrs.module.shrclient.util.AddressLevel.*;
 public class AddressHelper {
 
     private AddressHierarchyService addressHierarchyService;
+    private AddressHierarchyIndex addressHierarchyIndex;
 
 
     public AddressHelper() {
-        this.addressHierarchyService = Context.getService(AddressHierarchyService.class);
+        this(Context.getService(AddressHierarchyService.class), PlatformUtil.getRegisteredComponent(AddressHierarchyIndex.class));
     }
 
     public AddressHelper(AddressHierarchyService addressHierarchyService) {
         this.addressHierarchyService = addressHierarchyService;
     }
 
+    /**
+     * Entries are looked up in the index when one is given, and with the address hierarchy service otherwise.
+     */
+    public AddressHelper(AddressHierarchyService addressHierarchyService, AddressHierarchyIndex addressHierarchyIndex) {
+        this.addressHierarchyService = addressHierarchyService;
+        this.addressHierarchyIndex = addressHierarchyIndex;
+    }
+
     public AddressHierarchyLevel getAddressHierarchyLevelFromLrLevel(String lrLevel) {
         AddressLevel addressLevel = LOCATION_LEVELS.get(lrLevel);
         return getAddressHierarchyLevel(addressLevel);
@@ -69,6 +79,9 @@ public class AddressHelper {
     }
 
     public AddressHierarchyEntry getAddressEntry(AddressLevel addressLevel, String name, AddressHierarchyEntry parent) {
+        if (addressHierarchyIndex != null) {
+            return addressHierarchyIndex.getEntry(addressLevel.getAddressField(), name, parent);
+        }
         if (StringUtils.isNotBlank(name)) {
             AddressHierarchyLevel hierarchyLevel = getAddressHierarchyLevel(addressLevel);
             List<AddressHierarchyEntry> entries;
@@ -85,28 +98,28 @@ public class AddressHelper {
     public PersonAddress setPersonAddress(Address address) {
         PersonAddress emrPatientAddress = new PersonAddress();
 
-        AddressHierarchyEntry division = addressHierarchyService.getAddressHierarchyEntryByUserGenId(address.getDivisionId());
+        AddressHierarchyEntry division = getEntryByUserGeneratedId(address.getDivisionId());
         if (division != null) {
             emrPatientAddress.setStateProvince(division.getName());
         }
-        AddressHierarchyEntry district = addressHierarchyService.getAddressHierarchyEntryByUserGenId(address.createUserGeneratedDistrictId());
+        AddressHierarchyEntry district = getEntryByUserGeneratedId(address.createUserGeneratedDistrictId());
         if (district != null) {
             emrPatientAddress.setCountyDistrict(district.getName());
         }
-        AddressHierarchyEntry upazilla = addressHierarchyService.getAddressHierarchyEntryByUserGenId(address.createUserGeneratedUpazillaId());
+        AddressHierarchyEntry upazilla = getEntryByUserGeneratedId(address.createUserGeneratedUpazillaId());
         if (upazilla != null) {
             emrPatientAddress.setAddress5(upazilla.getName());
         }
-        AddressHierarchyEntry cityCorporation = addressHierarchyService.getAddressHierarchyEntryByUserGenId(address.createUserGeneratedCityCorporationId());
+        AddressHierarchyEntry cityCorporation = getEntryByUserGeneratedId(address.createUserGeneratedCityCorporationId());
         if (cityCorporation != null) {
             emrPatientAddress.setAddress4(cityCorporation.getName());
         }
-        AddressHierarchyEntry urbanWardOrUnion = addressHierarchyService.getAddressHierarchyEntryByUserGenId(address.createUserGeneratedUnionOrUrbanWardId());
+        AddressHierarchyEntry urbanWardOrUnion = getEntryByUserGeneratedId(address.createUserGeneratedUnionOrUrbanWardId());
         if (urbanWardOrUnion != null) {
             emrPatientAddress.setAddress3(urbanWardOrUnion.getName());
         }
         if (address.getRuralWardId() != null) {
-            AddressHierarchyEntry ruralWard = addressHierarchyService.getAddressHierarchyEntryByUserGenId(address.createUserGeneratedRuralWardId());
+            AddressHierarchyEntry ruralWard = getEntryByUserGeneratedId(address.createUserGeneratedRuralWardId());
             if (ruralWard != null) {
                 emrPatientAddress.setAddress2(ruralWard.getName());
             }
@@ -118,4 +131,11 @@ public class AddressHelper {
         emrPatientAddress.setPreferred(true);
         return emrPatientAddress;
     }
+
+    private AddressHierarchyEntry getEntryByUserGeneratedId(String userGeneratedId) {
+        if (addressHierarchyIndex != null) {
+            return addressHierarchyIndex.getEntryByUserGeneratedId(userGeneratedId);
+        }
+        return addressHierarchyService.getAddressHierarchyEntryByUserGenId(userGeneratedId);
+    }
 }
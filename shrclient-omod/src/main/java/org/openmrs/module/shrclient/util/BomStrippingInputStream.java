@@ -0,0 +1,61 @@
+package org.openmrs.module.shrclient.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+
+/**
+ * Skips a leading UTF-8 byte order mark (ZERO WIDTH NO-BREAK SPACE) so the content can be handed
+ * straight to Jackson or the FHIR/atom parsers.
+ */
+public class BomStrippingInputStream extends PushbackInputStream {
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private boolean bomChecked = false;
+
+    public BomStrippingInputStream(InputStream in) {
+        super(in, UTF8_BOM.length);
+    }
+
+    @Override
+    public int read() throws IOException {
+        skipBom();
+        return super.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        skipBom();
+        return super.read(b, off, len);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        skipBom();
+        return super.skip(n);
+    }
+
+    @Override
+    public int available() throws IOException {
+        skipBom();
+        return super.available();
+    }
+
+    private void skipBom() throws IOException {
+        if (bomChecked) return;
+        bomChecked = true;
+        byte[] head = new byte[UTF8_BOM.length];
+        int read = 0;
+        while (read < head.length) {
+            int count = in.read(head, read, head.length - read);
+            if (count < 0) break;
+            read += count;
+        }
+        if (read == UTF8_BOM.length && head[0] == UTF8_BOM[0] && head[1] == UTF8_BOM[1] && head[2] == UTF8_BOM[2]) {
+            return;
+        }
+        if (read > 0) {
+            unread(head, 0, read);
+        }
+    }
+}
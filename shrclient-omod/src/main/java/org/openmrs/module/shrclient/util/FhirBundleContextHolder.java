@@ -1,17 +1,117 @@
 package org.openmrs.module.shrclient.util;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import org.apache.log4j.Logger;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Composition;
+import org.hl7.fhir.dstu3.model.Condition;
+import org.hl7.fhir.dstu3.model.DiagnosticReport;
+import org.hl7.fhir.dstu3.model.Encounter;
+import org.hl7.fhir.dstu3.model.FamilyMemberHistory;
+import org.hl7.fhir.dstu3.model.Immunization;
+import org.hl7.fhir.dstu3.model.MedicationRequest;
+import org.hl7.fhir.dstu3.model.Observation;
+import org.hl7.fhir.dstu3.model.Procedure;
+import org.hl7.fhir.dstu3.model.ProcedureRequest;
+import org.hl7.fhir.dstu3.model.Provenance;
+import org.hl7.fhir.dstu3.model.Specimen;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Holds the FHIR context, and a pool of parsers of each format. Parsers are not thread safe but can be reused,
+ * a parser is taken from the pool for one parse or encode and put back after it. The pools are emptied with the
+ * Spring context.
+ */
 @Component
-public class FhirBundleContextHolder {
-    private static FhirContext fhirContext;
+public class FhirBundleContextHolder implements DisposableBean {
+    private static final Logger log = Logger.getLogger(FhirBundleContextHolder.class);
+
+    private static final int MAX_IDLE_PARSERS = 16;
+    private static final List<Class<? extends IBaseResource>> EXCHANGED_RESOURCES = asList(Bundle.class, Composition.class,
+            Encounter.class, Condition.class, Observation.class, DiagnosticReport.class, Specimen.class, Procedure.class,
+            ProcedureRequest.class, MedicationRequest.class, Immunization.class, FamilyMemberHistory.class, Provenance.class);
 
+    private static volatile FhirContext fhirContext;
+
+    private static final BlockingQueue<IParser> xmlParsers = new LinkedBlockingQueue<>(MAX_IDLE_PARSERS);
+    private static final BlockingQueue<IParser> jsonParsers = new LinkedBlockingQueue<>(MAX_IDLE_PARSERS);
 
     public static FhirContext getFhirContext() {
-        if(fhirContext == null) {
-            fhirContext = FhirContext.forDstu3();
+        if (fhirContext == null) {
+            synchronized (FhirBundleContextHolder.class) {
+                if (fhirContext == null) {
+                    fhirContext = FhirContext.forDstu3();
+                }
+            }
         }
         return fhirContext;
     }
+
+    public static Bundle parseBundle(FhirWireFormat format, String content) {
+        IParser parser = takeParser(format);
+        try {
+            return parser.parseResource(Bundle.class, content);
+        } finally {
+            returnParser(format, parser);
+        }
+    }
+
+    public static String encode(FhirWireFormat format, IBaseResource resource) {
+        IParser parser = takeParser(format);
+        try {
+            return parser.encodeResourceToString(resource);
+        } finally {
+            returnParser(format, parser);
+        }
+    }
+
+    /**
+     * Scans the definitions of the resources exchanged with SHR while the module starts,
+     * instead of while the first bundle is parsed.
+     */
+    @PostConstruct
+    public void warmUp() {
+        try {
+            FhirContext context = getFhirContext();
+            for (Class<? extends IBaseResource> resource : EXCHANGED_RESOURCES) {
+                context.getResourceDefinition(resource);
+            }
+            log.info(String.format("Loaded definitions of %d FHIR resources", EXCHANGED_RESOURCES.size()));
+        } catch (Exception e) {
+            log.warn("Could not load FHIR resource definitions", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        xmlParsers.clear();
+        jsonParsers.clear();
+    }
+
+    static IParser takeParser(FhirWireFormat format) {
+        IParser parser = getParsers(format).poll();
+        if (parser != null) return parser;
+        return format == FhirWireFormat.JSON ? getFhirContext().newJsonParser() : getFhirContext().newXmlParser();
+    }
+
+    /**
+     * Keeps the parser for the next caller, unless the pool already holds {@link #MAX_IDLE_PARSERS} idle parsers.
+     */
+    static void returnParser(FhirWireFormat format, IParser parser) {
+        getParsers(format).offer(parser);
+    }
+
+    private static BlockingQueue<IParser> getParsers(FhirWireFormat format) {
+        return format == FhirWireFormat.JSON ? jsonParsers : xmlParsers;
+    }
 }
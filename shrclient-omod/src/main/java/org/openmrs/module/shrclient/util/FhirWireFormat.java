@@ -0,0 +1,38 @@
+package org.openmrs.module.shrclient.util;
+
+/**
+ * Encoding of FHIR bundles exchanged with SHR.
+ */
+public enum FhirWireFormat {
+    XML("application/xml;charset=UTF-8"),
+    JSON("application/json;charset=UTF-8");
+
+    private final String contentType;
+
+    FhirWireFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static FhirWireFormat fromProperty(String value) {
+        return value != null && JSON.name().equalsIgnoreCase(value.trim()) ? JSON : XML;
+    }
+
+    /**
+     * Identifies the format of received content, so that content is parsed correctly whatever format SHR served it in.
+     */
+    public static FhirWireFormat of(String content) {
+        if (content != null) {
+            for (int i = 0; i < content.length(); i++) {
+                char character = content.charAt(i);
+                if (!Character.isWhitespace(character) && character != '\uFEFF') {
+                    return character == '{' ? JSON : XML;
+                }
+            }
+        }
+        return XML;
+    }
+}
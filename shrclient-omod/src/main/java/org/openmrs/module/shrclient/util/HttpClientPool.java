@@ -0,0 +1,212 @@
+package org.openmrs.module.shrclient.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.log4j.Logger;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.openmrs.module.fhir.utils.PropertyKeyConstants.*;
+
+/**
+ * Module wide pooled http client. Connections to MCI, SHR, LR, FR, PR and the IdP are kept alive and reused
+ * across requests, instead of paying for a new TCP connection and TLS handshake on every call.
+ * Pool limits and timeouts are read from facility_instance.properties.
+ * The status of every response is counted in {@link SyncMetrics}, against the registry the request was sent to.
+ * Requests to any other host are counted under one "other" registry, so that the number of series stays bounded.
+ */
+@Component("bdshrHttpClientPool")
+public class HttpClientPool implements DisposableBean {
+    private static final Logger log = Logger.getLogger(HttpClientPool.class);
+
+    private static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 50;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    private static final int DEFAULT_CONNECT_TIMEOUT = 30000;
+    private static final int DEFAULT_SOCKET_TIMEOUT = 60000;
+    private static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 30000;
+    private static final int DEFAULT_KEEP_ALIVE = 30000;
+    private static final int DEFAULT_IDLE_CONNECTION_TIMEOUT = 60000;
+
+    private static final String NO_RESPONSE = "no_response";
+    private static final String OTHER_REGISTRY = "other";
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final RequestConfig defaultRequestConfig;
+    private final ScheduledExecutorService idleConnectionEvictor;
+    private PropertiesReader propertiesReader;
+    private volatile boolean shutDown;
+
+    @Autowired
+    public HttpClientPool(PropertiesReader propertiesReader) {
+        this(propertiesReader.getFacilityInstanceProperties());
+        this.propertiesReader = propertiesReader;
+    }
+
+    /**
+     * A pool configured from the given properties. Whoever creates it has to {@link #destroy()} it.
+     */
+    public HttpClientPool(Properties properties) {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(getInt(properties, HTTP_MAX_TOTAL_CONNECTIONS, DEFAULT_MAX_TOTAL_CONNECTIONS));
+        connectionManager.setDefaultMaxPerRoute(getInt(properties, HTTP_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_MAX_CONNECTIONS_PER_ROUTE));
+
+        defaultRequestConfig = RequestConfig.custom()
+                .setConnectTimeout(getInt(properties, HTTP_CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT))
+                .setSocketTimeout(getInt(properties, HTTP_SOCKET_TIMEOUT, DEFAULT_SOCKET_TIMEOUT))
+                .setConnectionRequestTimeout(getInt(properties, HTTP_CONNECTION_REQUEST_TIMEOUT, DEFAULT_CONNECTION_REQUEST_TIMEOUT))
+                .setStaleConnectionCheckEnabled(true)
+                .build();
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(defaultRequestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy(getInt(properties, HTTP_KEEP_ALIVE, DEFAULT_KEEP_ALIVE)))
+                .build();
+
+        final long idleConnectionTimeout = getInt(properties, HTTP_IDLE_CONNECTION_TIMEOUT, DEFAULT_IDLE_CONNECTION_TIMEOUT);
+        idleConnectionEvictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "bdshr-http-idle-connection-evictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long evictionInterval = Math.max(idleConnectionTimeout / 2, 1000);
+        idleConnectionEvictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                connectionManager.closeExpiredConnections();
+                connectionManager.closeIdleConnections(idleConnectionTimeout, TimeUnit.MILLISECONDS);
+            }
+        }, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public <T> T execute(HttpRequestBase request, boolean allowRedirection, ResponseHandler<? extends T> responseHandler) throws IOException {
+        return execute(request, allowRedirection, 0, responseHandler);
+    }
+
+    /**
+     * A positive timeout caps the connect, connection request and socket timeouts of the request, for callers that
+     * give up on a response sooner than the configured timeouts. Interrupting a thread does not stop a socket read.
+     */
+    public <T> T execute(HttpRequestBase request, boolean allowRedirection, int timeoutMillis, ResponseHandler<? extends T> responseHandler) throws IOException {
+        if (shutDown) {
+            throw new IllegalStateException("The shrclient http connection pool has been shut down");
+        }
+        request.setConfig(getRequestConfig(allowRedirection, timeoutMillis));
+        StatusRecordingHandler<T> statusRecordingHandler = new StatusRecordingHandler<>(getRegistry(request.getURI()), responseHandler);
+        try {
+            return httpClient.execute(request, statusRecordingHandler);
+        } catch (IOException e) {
+            if (!statusRecordingHandler.responded) {
+                SyncMetrics.getInstance().recordHttpResponse(statusRecordingHandler.registry, NO_RESPONSE);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        log.info("Shutting down shrclient http connection pool");
+        shutDown = true;
+        idleConnectionEvictor.shutdownNow();
+        try {
+            httpClient.close();
+        } finally {
+            connectionManager.shutdown();
+        }
+    }
+
+    private RequestConfig getRequestConfig(boolean allowRedirection, int timeoutMillis) {
+        RequestConfig.Builder requestConfig = RequestConfig.copy(defaultRequestConfig).setRedirectsEnabled(allowRedirection);
+        if (timeoutMillis > 0) {
+            requestConfig.setConnectTimeout(Math.min(defaultRequestConfig.getConnectTimeout(), timeoutMillis))
+                    .setConnectionRequestTimeout(Math.min(defaultRequestConfig.getConnectionRequestTimeout(), timeoutMillis))
+                    .setSocketTimeout(Math.min(defaultRequestConfig.getSocketTimeout(), timeoutMillis));
+        }
+        return requestConfig.build();
+    }
+
+    private String getRegistry(URI uri) {
+        if (propertiesReader != null) {
+            String url = uri.toString();
+            try {
+                if (isUnder(url, propertiesReader.getShrBaseUrl())) return "shr";
+                if (isUnder(url, propertiesReader.getMciBaseUrl())) return "mci";
+                if (isUnder(url, propertiesReader.getLrBaseUrl())) return "lr";
+                if (isUnder(url, propertiesReader.getFrBaseUrl())) return "fr";
+                if (isUnder(url, propertiesReader.getPrBaseUrl())) return "pr";
+                if (isUnder(url, propertiesReader.getIdPBaseUrl())) return "idp";
+            } catch (RuntimeException e) {
+                log.debug("Could not identify the registry of " + url, e);
+            }
+        }
+        return OTHER_REGISTRY;
+    }
+
+    private static boolean isUnder(String url, String baseUrl) {
+        return StringUtils.isNotBlank(baseUrl) && url.startsWith(StringUtils.removeEnd(baseUrl.trim(), "/"));
+    }
+
+    private ConnectionKeepAliveStrategy keepAliveStrategy(final long maxKeepAlive) {
+        final DefaultConnectionKeepAliveStrategy serverKeepAliveStrategy = new DefaultConnectionKeepAliveStrategy();
+        return new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                long serverKeepAlive = serverKeepAliveStrategy.getKeepAliveDuration(response, context);
+                return serverKeepAlive > 0 ? Math.min(serverKeepAlive, maxKeepAlive) : maxKeepAlive;
+            }
+        };
+    }
+
+    private static class StatusRecordingHandler<T> implements ResponseHandler<T> {
+        private final String registry;
+        private final ResponseHandler<? extends T> responseHandler;
+        private boolean responded;
+
+        private StatusRecordingHandler(String registry, ResponseHandler<? extends T> responseHandler) {
+            this.registry = registry;
+            this.responseHandler = responseHandler;
+        }
+
+        @Override
+        public T handleResponse(HttpResponse response) throws IOException {
+            responded = true;
+            SyncMetrics.getInstance().recordHttpResponse(registry, String.valueOf(response.getStatusLine().getStatusCode()));
+            return responseHandler.handleResponse(response);
+        }
+    }
+
+    private static int getInt(Properties properties, String key, int defaultValue) {
+        String value = properties != null ? properties.getProperty(key) : null;
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn(String.format("Invalid value [%s] for property %s. Using default %d", value, key, defaultValue));
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -13,10 +13,15 @@ import java.util.Map;
 
 public class IdentityProviderClient {
     private static final Logger log = Logger.getLogger(IdentityProviderClient.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
     private final WebClient webClient;
 
-    public IdentityProviderClient(String baseUrl, Map<String, String> headers) {
-        webClient = new WebClient(baseUrl, headers);
+    public IdentityProviderClient(String baseUrl, Map<String, String> headers, HttpClientPool httpClientPool) {
+        webClient = new WebClient(baseUrl, headers, httpClientPool);
+    }
+
+    public IdentityProviderClient(String baseUrl, WebClient.HeaderProvider headerProvider, HttpClientPool httpClientPool) {
+        webClient = new WebClient(baseUrl, headerProvider, httpClientPool);
     }
 
     public <T> T post(String url, Map<String, String> data, Class<T> returnType) throws IdentityUnauthorizedException {
@@ -24,7 +29,7 @@ public class IdentityProviderClient {
             UrlEncodedFormEntity entity = new UrlEncodedFormEntity(getNameValuePairs(data));
             String response = webClient.post(url, entity);
             if (StringUtils.isNotBlank(response)) {
-                return new ObjectMapper().readValue(response, returnType);
+                return mapper.readValue(response, returnType);
             }
             return null;
         } catch (IdentityUnauthorizedException e) {
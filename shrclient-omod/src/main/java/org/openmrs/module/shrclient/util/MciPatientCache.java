@@ -0,0 +1,119 @@
+package org.openmrs.module.shrclient.util;
+
+import org.openmrs.module.shrclient.identity.IdentityUnauthorizedException;
+import org.openmrs.module.shrclient.model.Patient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the patients read from MCI for a short time, so that a search followed by a download, or the encounters of
+ * a patient pulled one after another, read the patient once. Patients are kept for mci.patientCacheTtlSeconds and at
+ * most mci.patientCacheSize of them, least recently used first out. A ttl of 0 turns the cache off.
+ * The chains of patients merged into one another are kept the same way, and both are dropped for a health id when
+ * the MCI patient feed updates it.
+ */
+@Component
+public class MciPatientCache {
+    private final PropertiesReader propertiesReader;
+    private final Map<String, CachedValue<Patient>> patients = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CachedValue<List<String>>> mergeChains = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Autowired
+    public MciPatientCache(PropertiesReader propertiesReader) {
+        this.propertiesReader = propertiesReader;
+    }
+
+    public Patient getPatient(String healthId, PatientLoader loader) throws IdentityUnauthorizedException {
+        Patient patient = get(patients, healthId);
+        return patient != null ? patient : refreshPatient(healthId, loader);
+    }
+
+    /**
+     * Reads the patient from MCI even when it is kept, and keeps the patient read.
+     */
+    public Patient refreshPatient(String healthId, PatientLoader loader) throws IdentityUnauthorizedException {
+        Patient patient = loader.load(healthId);
+        if (patient != null) {
+            put(patients, healthId, patient);
+        }
+        return patient;
+    }
+
+    /**
+     * The patient of the health id followed by the patients it was merged with, up to the first active patient or
+     * the first inactive patient not merged with another. Patients not found in MCI end the chain.
+     */
+    public List<Patient> getMergeChain(String healthId, PatientLoader loader) throws IdentityUnauthorizedException {
+        List<String> chainHealthIds = get(mergeChains, healthId);
+        if (chainHealthIds != null) {
+            List<Patient> chain = new ArrayList<>();
+            for (String chainHealthId : chainHealthIds) {
+                Patient patient = getPatient(chainHealthId, loader);
+                if (patient == null) break;
+                chain.add(patient);
+            }
+            return chain;
+        }
+        List<Patient> chain = new ArrayList<>();
+        List<String> visitedHealthIds = new ArrayList<>();
+        String nextHealthId = healthId;
+        while (nextHealthId != null && !visitedHealthIds.contains(nextHealthId)) {
+            Patient patient = getPatient(nextHealthId, loader);
+            if (patient == null) break;
+            chain.add(patient);
+            visitedHealthIds.add(nextHealthId);
+            nextHealthId = patient.isActive() ? null : patient.getMergedWith();
+        }
+        put(mergeChains, healthId, visitedHealthIds);
+        return chain;
+    }
+
+    public synchronized void invalidate(String healthId) {
+        patients.remove(healthId);
+        for (Iterator<CachedValue<List<String>>> iterator = mergeChains.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().value.contains(healthId)) iterator.remove();
+        }
+    }
+
+    private synchronized <T> T get(Map<String, CachedValue<T>> values, String healthId) {
+        CachedValue<T> cachedValue = values.get(healthId);
+        if (cachedValue == null) return null;
+        if (System.nanoTime() - cachedValue.expiresAt > 0) {
+            values.remove(healthId);
+            return null;
+        }
+        return cachedValue.value;
+    }
+
+    private synchronized <T> void put(Map<String, CachedValue<T>> values, String healthId, T value) {
+        int ttlSeconds = propertiesReader.getMciPatientCacheTtlSeconds();
+        if (ttlSeconds <= 0) return;
+        values.put(healthId, new CachedValue<>(value, System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        int maxSize = Math.max(propertiesReader.getMciPatientCacheSize(), 1);
+        for (Iterator<String> iterator = values.keySet().iterator(); values.size() > maxSize; ) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    public interface PatientLoader {
+        Patient load(String healthId) throws IdentityUnauthorizedException;
+    }
+
+    private static class CachedValue<T> {
+        private final T value;
+        private final long expiresAt;
+
+        private CachedValue(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
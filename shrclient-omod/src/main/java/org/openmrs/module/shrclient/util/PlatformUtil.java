@@ -2,9 +2,11 @@ package org.openmrs.module.shrclient.util;
 
 
 import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
 import org.openmrs.module.shrclient.dao.AddressHierarchyEntryTranslationRepository;
 import org.openmrs.module.shrclient.dao.IdMappingRepository;
 import org.openmrs.module.shrclient.dao.FacilityCatchmentRepository;
+import org.openmrs.module.shrclient.handlers.ClientRegistry;
 import org.openmrs.module.shrclient.identity.IdentityStore;
 
 import java.util.List;
@@ -41,4 +43,28 @@ public class PlatformUtil {
     public static IdentityStore getIdentityStore() {
         return getRegisteredComponent(IdentityStore.class);
     }
+
+    public static ClientRegistry getClientRegistry() {
+        return getRegisteredComponent(ClientRegistry.class);
+    }
+
+    /**
+     * Wraps the work so that it runs in its own OpenMRS session, as the user of the calling thread.
+     * Used for work handed over to worker threads.
+     */
+    public static Runnable inCurrentUserContext(final Runnable work) {
+        final UserContext userContext = Context.getUserContext();
+        return new Runnable() {
+            @Override
+            public void run() {
+                Context.openSession();
+                try {
+                    Context.setUserContext(userContext);
+                    work.run();
+                } finally {
+                    Context.closeSession();
+                }
+            }
+        };
+    }
 }
@@ -1,6 +1,7 @@
 package org.openmrs.module.shrclient.util;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
 import org.openmrs.module.fhir.utils.PropertyKeyConstants;
 import org.openmrs.util.OpenmrsUtil;
 import org.springframework.stereotype.Component;
@@ -10,6 +11,9 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.openmrs.module.fhir.utils.PropertyKeyConstants.*;
 
@@ -56,7 +60,48 @@ public class PropertiesReader {
         return getProperties("fhir_mapping.properties");
     }
 
-    private Map<String, Properties> allProperties = new HashMap<String, Properties>();
+    private static final Logger log = Logger.getLogger(PropertiesReader.class);
+    private static final long RELOAD_CHECK_INTERVAL = 5000;
+
+    private final ConcurrentMap<String, LoadedProperties> allProperties = new ConcurrentHashMap<>();
+    private final AtomicLong configurationVersion = new AtomicLong();
+    private volatile SystemPropertiesSnapshot systemPropertiesSnapshot;
+    private final File applicationDataDirectory;
+    private final long reloadCheckInterval;
+
+    public PropertiesReader() {
+        this(null, RELOAD_CHECK_INTERVAL);
+    }
+
+    /**
+     * @param applicationDataDirectory where to look for the properties files, the OpenMRS application data directory when null
+     */
+    PropertiesReader(File applicationDataDirectory, long reloadCheckInterval) {
+        this.applicationDataDirectory = applicationDataDirectory;
+        this.reloadCheckInterval = reloadCheckInterval;
+    }
+
+    /**
+     * One snapshot of all configuration used by the mappers. It is rebuilt only after a properties file changes.
+     */
+    public SystemProperties getSystemProperties() {
+        long version = configurationVersion.get();
+        SystemPropertiesSnapshot snapshot = systemPropertiesSnapshot;
+        Properties frProperties = getFrProperties();
+        Properties trProperties = getTrProperties();
+        Properties prProperties = getPrProperties();
+        Properties facilityInstanceProperties = getFacilityInstanceProperties();
+        Properties mciProperties = getMciProperties();
+        Properties shrProperties = getShrProperties();
+        Properties fhirMappingProperties = getFhirMappingProperties();
+        if (snapshot != null && snapshot.version == version && configurationVersion.get() == version) {
+            return snapshot.systemProperties;
+        }
+        SystemProperties systemProperties = new SystemProperties(frProperties, trProperties, prProperties,
+                facilityInstanceProperties, mciProperties, shrProperties, fhirMappingProperties);
+        systemPropertiesSnapshot = new SystemPropertiesSnapshot(version, systemProperties);
+        return systemProperties;
+    }
 
     private String getTrBaseUrl() {
         Properties properties = getTrProperties();
@@ -110,25 +155,82 @@ public class PropertiesReader {
         }
     }
 
+    /**
+     * Properties are cached per file. A file under the application data directory is checked for changes at most
+     * once every few seconds, and a changed file is loaded into a new Properties object that replaces the old one.
+     */
     private Properties getProperties(String resourceName) {
-        Properties resourceProperties = allProperties.get(resourceName);
-        if (resourceProperties != null) return resourceProperties;
-        try {
-            Properties properties = new Properties();
-            final File file = new File(OpenmrsUtil.getApplicationDataDirectory(), resourceName);
-            final InputStream inputStream;
-            if (file.exists()) {
-                inputStream = new FileInputStream(file);
-            } else {
-                inputStream = getClass().getClassLoader().getResourceAsStream(resourceName);
+        LoadedProperties loadedProperties = allProperties.get(resourceName);
+        if (loadedProperties != null && !loadedProperties.isDueForCheck(reloadCheckInterval)) {
+            return loadedProperties.properties;
+        }
+        synchronized (allProperties) {
+            loadedProperties = allProperties.get(resourceName);
+            if (loadedProperties != null) {
+                if (!loadedProperties.isDueForCheck(reloadCheckInterval)) {
+                    return loadedProperties.properties;
+                }
+                if (!loadedProperties.isModified()) {
+                    loadedProperties.checked();
+                    return loadedProperties.properties;
+                }
+                log.info(String.format("%s has changed. Reloading.", resourceName));
             }
-            properties.load(inputStream);
-            allProperties.put(resourceName, properties);
-            return properties;
+            LoadedProperties reloadedProperties = load(resourceName);
+            allProperties.put(resourceName, reloadedProperties);
+            configurationVersion.incrementAndGet();
+            return reloadedProperties.properties;
+        }
+    }
 
+    private LoadedProperties load(String resourceName) {
+        File directory = applicationDataDirectory != null ? applicationDataDirectory : new File(OpenmrsUtil.getApplicationDataDirectory());
+        final File file = new File(directory, resourceName);
+        long lastModified = file.lastModified();
+        Properties properties = new Properties();
+        try (InputStream inputStream = file.exists() ?
+                new FileInputStream(file) : getClass().getClassLoader().getResourceAsStream(resourceName)) {
+            properties.load(inputStream);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        return new LoadedProperties(properties, file, lastModified);
+    }
+
+    private static class LoadedProperties {
+        private final Properties properties;
+        private final File file;
+        private final long lastModified;
+        private volatile long lastChecked;
+
+        private LoadedProperties(Properties properties, File file, long lastModified) {
+            this.properties = properties;
+            this.file = file;
+            this.lastModified = lastModified;
+            this.lastChecked = System.currentTimeMillis();
+        }
+
+        private boolean isDueForCheck(long reloadCheckInterval) {
+            return System.currentTimeMillis() - lastChecked > reloadCheckInterval;
+        }
+
+        private boolean isModified() {
+            return file.lastModified() != lastModified;
+        }
+
+        private void checked() {
+            lastChecked = System.currentTimeMillis();
+        }
+    }
+
+    private static class SystemPropertiesSnapshot {
+        private final long version;
+        private final SystemProperties systemProperties;
+
+        private SystemPropertiesSnapshot(long version, SystemProperties systemProperties) {
+            this.version = version;
+            this.systemProperties = systemProperties;
+        }
     }
 
     private String getPropertiesLocation() {
@@ -148,6 +250,22 @@ public class PropertiesReader {
         return getMaxFailedEventCount(mciMaxFailedEventCount);
     }
 
+    /**
+     * Time allowed for the searches of a patient search by several identifiers, searches not answered by then are
+     * left out of the results.
+     */
+    public int getMciSearchTimeoutMillis() {
+        return getIntProperty(getMciProperties(), PropertyKeyConstants.MCI_SEARCH_TIMEOUT, 10000);
+    }
+
+    public int getMciPatientCacheTtlSeconds() {
+        return getIntProperty(getMciProperties(), PropertyKeyConstants.MCI_PATIENT_CACHE_TTL, 60);
+    }
+
+    public int getMciPatientCacheSize() {
+        return getIntProperty(getMciProperties(), PropertyKeyConstants.MCI_PATIENT_CACHE_SIZE, 1000);
+    }
+
     public String getMCICatchmentPathPattern() {
         return getMciProperties().getProperty(PropertyKeyConstants.MCI_PATIENT_CATCHMENT_PATH_PATTERN).trim();
     }
@@ -158,11 +276,51 @@ public class PropertiesReader {
         return Arrays.asList(facilityCatchmentString.split(","));
     }
 
+    public int getFacilityCatchmentDownloadThreads() {
+        return getIntProperty(getFacilityInstanceProperties(), FACILITY_CATCHMENT_DOWNLOAD_THREADS, 1);
+    }
+
     public int getShrMaxFailedEvent() {
         String shrMaxFailedEventCount = getShrProperties().getProperty(PropertyKeyConstants.SHR_MAX_FAILED_EVENT);
         return getMaxFailedEventCount(shrMaxFailedEventCount);
     }
 
+    public int getShrEncounterPushWorkers() {
+        return getIntProperty(getShrProperties(), PropertyKeyConstants.SHR_ENCOUNTER_PUSH_WORKERS, 1);
+    }
+
+    public int getShrEncounterPushMaxInFlight() {
+        return getIntProperty(getShrProperties(), PropertyKeyConstants.SHR_ENCOUNTER_PUSH_MAX_IN_FLIGHT, 100);
+    }
+
+    public int getShrEncounterPullParserThreads() {
+        return getIntProperty(getShrProperties(), PropertyKeyConstants.SHR_ENCOUNTER_PULL_PARSER_THREADS, 2);
+    }
+
+    public int getShrEncounterPullMaxInFlight() {
+        return getIntProperty(getShrProperties(), PropertyKeyConstants.SHR_ENCOUNTER_PULL_MAX_IN_FLIGHT, 20);
+    }
+
+    /**
+     * Number of downloaded encounters saved per transaction, for the initial download of a catchment. 0 or 1 saves
+     * each encounter in its own transaction.
+     */
+    public int getShrEncounterPullBootstrapBatchSize() {
+        return getIntProperty(getShrProperties(), PropertyKeyConstants.SHR_ENCOUNTER_PULL_BOOTSTRAP_BATCH_SIZE, 0);
+    }
+
+    /**
+     * Number of patients whose encounter history is downloaded at the same time, after the patients are downloaded
+     * from MCI.
+     */
+    public int getShrPatientEncounterBackfillWorkers() {
+        return getIntProperty(getShrProperties(), PropertyKeyConstants.SHR_PATIENT_ENCOUNTER_BACKFILL_WORKERS, 2);
+    }
+
+    public FhirWireFormat getShrWireFormat() {
+        return FhirWireFormat.fromProperty(getShrProperties().getProperty(PropertyKeyConstants.SHR_WIRE_FORMAT));
+    }
+
     public String getShrCatchmentPathPattern() {
         return getShrProperties().getProperty(PropertyKeyConstants.SHR_CATCHMENT_PATH_PATTERN).trim();
     }
@@ -175,6 +333,22 @@ public class PropertiesReader {
         return getIdentityProperties().getProperty(PropertyKeyConstants.IDP_SIGNIN_PATH).trim();
     }
 
+    public int getIdPTokenRefreshLeadSeconds() {
+        return getIntProperty(getIdentityProperties(), PropertyKeyConstants.IDP_TOKEN_REFRESH_LEAD, 300);
+    }
+
+    private int getIntProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                // do nothing
+            }
+        }
+        return defaultValue;
+    }
+
     private int getMaxFailedEventCount(String failedEventCount) {
         if (StringUtils.isNotBlank(failedEventCount)) {
             try {
@@ -1,6 +1,7 @@
 package org.openmrs.module.shrclient.util;
 
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang3.StringUtils;
@@ -11,35 +12,46 @@ import org.openmrs.module.shrclient.identity.IdentityUnauthorizedException;
 import org.openmrs.module.shrclient.model.Patient;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 
 public class RestClient {
 
     private static final Logger log = Logger.getLogger(RestClient.class);
-    private final ObjectMapper mapper;
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     private final WebClient webClient;
 
-    public RestClient(String baseUrl, Map<String, String> headers) {
-        webClient = new WebClient(baseUrl, headers);
-        this.mapper = new ObjectMapper();
-        this.mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    public RestClient(String baseUrl, Map<String, String> headers, HttpClientPool httpClientPool) {
+        webClient = new WebClient(baseUrl, headers, httpClientPool);
     }
 
-    public <T> T get(String url, Class<T> returnType) throws IdentityUnauthorizedException {
-        try {
-            String response = webClient.get(url);
+    public RestClient(String baseUrl, WebClient.HeaderProvider headerProvider, HttpClientPool httpClientPool) {
+        webClient = new WebClient(baseUrl, headerProvider, httpClientPool);
+    }
 
-            if (StringUtils.isNotBlank(response)) {
-                return mapper.readValue(response, returnType);
-            } else {
-                return null;
-            }
+    public <T> T get(String url, final Class<T> returnType) throws IdentityUnauthorizedException {
+        return get(url, returnType, 0);
+    }
+
+    /**
+     * Like {@link #get(String, Class)}, giving up on the server after the timeout when it is positive.
+     */
+    public <T> T get(String url, final Class<T> returnType, int timeoutMillis) throws IdentityUnauthorizedException {
+        try {
+            return webClient.getStream(url, new WebClient.StreamHandler<T>() {
+                @Override
+                public T handle(InputStream content) throws IOException {
+                    JsonParser parser = mapper.getFactory().createParser(content);
+                    if (parser.nextToken() == null) {
+                        return null;
+                    }
+                    return mapper.readValue(parser, returnType);
+                }
+            }, timeoutMillis);
         } catch (IdentityUnauthorizedException e) {
             log.error("Unauthorized identity. URL: " + url, e);
             throw e;
-        } catch (IOException e) {
-            log.error("Error Mapping response to : " + url, e);
-            throw new RuntimeException(e);
         } catch (RuntimeException e) {
             log.error("Error while connecting the Server : " + url, e);
             throw e;
@@ -1,6 +1,5 @@
 package org.openmrs.module.shrclient.util;
 
-import ca.uhn.fhir.parser.IParser;
 import com.sun.syndication.feed.atom.Content;
 import com.sun.syndication.feed.atom.Entry;
 import com.sun.syndication.feed.atom.Feed;
@@ -12,7 +11,10 @@ import org.hl7.fhir.dstu3.model.Bundle;
 import org.openmrs.module.shrclient.identity.IdentityUnauthorizedException;
 import org.openmrs.module.shrclient.web.controller.dto.EncounterEvent;
 
-import java.io.StringReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -22,44 +24,65 @@ public class SHRClient {
 
     private static final Logger log = Logger.getLogger(RestClient.class);
 
-    private String baseUrl;
-    private Map<String, String> headers;
+    private final WebClient webClient;
+    private final WebClient feedWebClient;
+    private final FhirWireFormat wireFormat;
+    private volatile boolean jsonNotAccepted;
 
-    public SHRClient(String baseUrl, Map<String, String> headers) {
-        this.baseUrl = baseUrl;
-        this.headers = headers;
+    public SHRClient(String baseUrl, final Map<String, String> headers, HttpClientPool httpClientPool) {
+        this(baseUrl, new WebClient.HeaderProvider() {
+            @Override
+            public Map<String, String> getHeaders() {
+                return headers;
+            }
+        }, FhirWireFormat.XML, httpClientPool);
+    }
+
+    public SHRClient(String baseUrl, final WebClient.HeaderProvider headerProvider, FhirWireFormat wireFormat,
+                     HttpClientPool httpClientPool) {
+        this.wireFormat = wireFormat != null ? wireFormat : FhirWireFormat.XML;
+        this.webClient = new WebClient(baseUrl, headerProvider, httpClientPool);
+        this.feedWebClient = new WebClient(baseUrl, new WebClient.HeaderProvider() {
+            @Override
+            public Map<String, String> getHeaders() throws IdentityUnauthorizedException {
+                Map<String, String> requestHeaders = new HashMap<>(headerProvider.getHeaders());
+                requestHeaders.put("accept", "application/atom+xml");
+                return requestHeaders;
+            }
+        }, httpClientPool);
     }
 
     @SuppressWarnings("unchecked")
     public List<EncounterEvent> getEncounters(final String url) throws IdentityUnauthorizedException {
-        try {
-            Map<String, String> requestHeaders = new HashMap<>(headers);
-            requestHeaders.put("accept", "application/atom+xml");
-            WebClient webClient = new WebClient(baseUrl, requestHeaders);
-            String response = webClient.get(url);
-            WireFeedInput input = new WireFeedInput();
-            Feed feed = (Feed) input.build(new StringReader(response));
-            List<Entry> entries = feed.getEntries();
-            List<EncounterEvent> encounterEvents = new ArrayList<>();
-            for (Entry entry : entries) {
-                String entryContent = getEntryContent(entry);
-                EncounterEvent event = new EncounterEvent();
-                event.setTitle(entry.getTitle());
-                event.setCategories(entry.getCategories());
-                event.addContent(getBundle(entryContent));
-                encounterEvents.add(event);
+        Feed feed = feedWebClient.getStream(url, new WebClient.StreamHandler<Feed>() {
+            @Override
+            public Feed handle(InputStream content) throws IOException {
+                try {
+                    return (Feed) new WireFeedInput().build(new InputStreamReader(content, StandardCharsets.UTF_8));
+                } catch (FeedException e) {
+                    log.error("Error fetching encounters for : " + url, e);
+                    throw new IOException(e);
+                }
             }
+        });
+        List<EncounterEvent> encounterEvents = new ArrayList<>();
+        if (feed == null) {
             return encounterEvents;
-
-        } catch (FeedException e) {
-            log.error("Error fetching encounters for : " + url, e);
-            throw new RuntimeException(e);
         }
+        List<Entry> entries = feed.getEntries();
+        for (Entry entry : entries) {
+            String entryContent = getEntryContent(entry);
+            EncounterEvent event = new EncounterEvent();
+            event.setTitle(entry.getTitle());
+            event.setCategories(entry.getCategories());
+            event.addContent(getBundle(entryContent));
+            encounterEvents.add(event);
+        }
+        return encounterEvents;
     }
 
     private Bundle getBundle(String entryContent) {
-        IParser xmlParser = FhirBundleContextHolder.getFhirContext().newXmlParser();
-        return xmlParser.parseResource(Bundle.class, entryContent);
+        return FhirBundleContextHolder.parseBundle(FhirWireFormat.of(entryContent), entryContent);
     }
 
     private String getEntryContent(Entry entry) {
@@ -72,10 +95,8 @@ public class SHRClient {
 
     public String post(final String url, Bundle bundle) throws IdentityUnauthorizedException {
         try {
-            StringEntity entity = getPayload(bundle);
-            WebClient webClient = new WebClient(baseUrl, headers);
             log.debug(String.format("Posting data %s to url %s", bundle, url));
-            return webClient.post(url, entity);
+            return upload(url, bundle, false);
         } catch (IdentityUnauthorizedException e) {
             log.error("Unauthorized identity. URL: " + url, e);
             throw e;
@@ -87,10 +108,8 @@ public class SHRClient {
 
     public String put(final String url, Bundle bundle) throws IdentityUnauthorizedException {
         try {
-            StringEntity entity = getPayload(bundle);
-            WebClient webClient = new WebClient(baseUrl, headers);
             log.debug(String.format("Put request %s to url %s", bundle, url));
-            return webClient.put(url, entity);
+            return upload(url, bundle, true);
         } catch (IdentityUnauthorizedException e) {
             log.error("Unauthorized identity. URL: " + url, e);
             throw e;
@@ -100,11 +119,25 @@ public class SHRClient {
         }
     }
 
-    private StringEntity getPayload(Bundle bundle) throws Exception {
-        IParser xmlParser = FhirBundleContextHolder.getFhirContext().newXmlParser();
-        String bundleXML = xmlParser.encodeResourceToString(bundle);
-        StringEntity entity = new StringEntity(bundleXML);
-        entity.setContentType("application/xml;charset=UTF-8");
+    private String upload(String url, Bundle bundle, boolean update) throws Exception {
+        FhirWireFormat uploadFormat = jsonNotAccepted ? FhirWireFormat.XML : wireFormat;
+        StringEntity entity = getPayload(bundle, uploadFormat);
+        try {
+            return update ? webClient.put(url, entity) : webClient.post(url, entity);
+        } catch (RuntimeException e) {
+            if (uploadFormat != FhirWireFormat.JSON || !(e.getCause() instanceof UnsupportedMediaTypeException)) {
+                throw e;
+            }
+            log.warn("SHR does not accept json bundles, sending xml instead. URL: " + url);
+            jsonNotAccepted = true;
+            return upload(url, bundle, update);
+        }
+    }
+
+    private StringEntity getPayload(Bundle bundle, FhirWireFormat format) throws Exception {
+        String encodedBundle = FhirBundleContextHolder.encode(format, bundle);
+        StringEntity entity = new StringEntity(encodedBundle, StandardCharsets.UTF_8);
+        entity.setContentType(format.getContentType());
         return entity;
     }
 }
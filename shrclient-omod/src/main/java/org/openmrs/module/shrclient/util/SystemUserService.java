@@ -1,5 +1,6 @@
 package org.openmrs.module.shrclient.util;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.openmrs.BaseOpenmrsData;
 import org.openmrs.Encounter;
@@ -11,10 +12,19 @@ import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.utils.GlobalPropertyLookUpService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.openmrs.module.fhir.MRSProperties.GLOBAL_PROPERTY_SHR_SYSTEM_USER_TAG;
 
@@ -23,6 +33,7 @@ public class SystemUserService {
     private UserService userService;
     private Database database;
     private GlobalPropertyLookUpService globalPropertyLookUpService;
+    private final ThreadLocal<Map<List<String>, Set<Integer>>> deferredCreatorUpdates = new ThreadLocal<>();
 
     private Logger logger = Logger.getLogger(SystemUserService.class);
 
@@ -39,8 +50,11 @@ public class SystemUserService {
     }
 
     public User getOpenMRSShrSystemUser() {
-        Integer shrSystemUserId = Integer.parseInt(globalPropertyLookUpService.getGlobalPropertyValue(GLOBAL_PROPERTY_SHR_SYSTEM_USER_TAG));
-        return getUserService().getUser(shrSystemUserId);
+        return getUserService().getUser(getOpenMRSShrSystemUserId());
+    }
+
+    public Integer getOpenMRSShrSystemUserId() {
+        return globalPropertyLookUpService.getGlobalPropertyIntegerValue(GLOBAL_PROPERTY_SHR_SYSTEM_USER_TAG);
     }
 
     public UserService getUserService() {
@@ -59,8 +73,7 @@ public class SystemUserService {
     }
 
     public boolean isOpenMRSSystemUser(User changedByUser) {
-        User openMrsShrSystemUser = getOpenMRSShrSystemUser();
-        return openMrsShrSystemUser.getId().equals(changedByUser.getId());
+        return getOpenMRSShrSystemUserId().equals(changedByUser.getId());
     }
 
     public void setOpenmrsShrSystemUserAsCreator(Encounter encounter) {
@@ -75,25 +88,97 @@ public class SystemUserService {
         updateUser("patient", "patient_id", patient);
     }
 
-    private void updateUser(final String tableName, final String idColumnName, final BaseOpenmrsData openMrsEntity) {
+    /**
+     * Holds back the creator updates made on the current thread until {@link #applyDeferredCreatorUpdates()}, which
+     * updates all held back rows of a table with one statement. It has to be called after the entities are flushed,
+     * so that hibernate does not write the old creator back.
+     */
+    public void deferCreatorUpdates() {
+        if (deferredCreatorUpdates.get() == null) {
+            deferredCreatorUpdates.set(new LinkedHashMap<List<String>, Set<Integer>>());
+        }
+    }
+
+    public void applyDeferredCreatorUpdates() {
+        Map<List<String>, Set<Integer>> updates = deferredCreatorUpdates.get();
+        deferredCreatorUpdates.remove();
+        if (updates != null && !updates.isEmpty()) {
+            updateUsers(updates);
+        }
+    }
+
+    public void discardDeferredCreatorUpdates() {
+        deferredCreatorUpdates.remove();
+    }
+
+    private void updateUser(String tableName, String idColumnName, BaseOpenmrsData openMrsEntity) {
+        String userColumnName = openMrsEntity.getChangedBy() != null ? "changed_by" : "creator";
+        List<String> update = Arrays.asList(tableName, idColumnName, userColumnName);
+        Map<List<String>, Set<Integer>> updates = deferredCreatorUpdates.get();
+        if (updates == null) {
+            updates = getTransactionCreatorUpdates();
+        }
+        if (updates == null) {
+            updateUsers(Collections.singletonMap(update, Collections.singleton(openMrsEntity.getId())));
+            return;
+        }
+        if (!updates.containsKey(update)) {
+            updates.put(update, new LinkedHashSet<Integer>());
+        }
+        updates.get(update).add(openMrsEntity.getId());
+    }
+
+    /**
+     * Outside of a batch, the creator updates of a transaction are held back until it is about to commit, and applied
+     * then after the session is flushed. Without a transaction there is nothing to wait for, null is returned.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<List<String>, Set<Integer>> getTransactionCreatorUpdates() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Map<List<String>, Set<Integer>> updates = (Map<List<String>, Set<Integer>>) TransactionSynchronizationManager.getResource(this);
+        if (updates == null) {
+            final Map<List<String>, Set<Integer>> transactionUpdates = new LinkedHashMap<>();
+            TransactionSynchronizationManager.bindResource(this, transactionUpdates);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    if (!transactionUpdates.isEmpty()) {
+                        Context.flushSession();
+                        updateUsers(transactionUpdates);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SystemUserService.this);
+                }
+            });
+            updates = transactionUpdates;
+        }
+        return updates;
+    }
+
+    /**
+     * Sends one update per table and user column, keyed by table name, id column and user column, to the database
+     * as a single batch. The ids and the system user id are integers, they are written into the statements.
+     */
+    private void updateUsers(final Map<List<String>, Set<Integer>> updates) {
+        final Integer systemUserId = getOpenMRSShrSystemUserId();
         database.executeInTransaction(new Database.TxWork<Object>() {
             @Override
             public Object execute(Connection connection) {
-                PreparedStatement statement = null;
-                String userColumnName = null;
-                if (openMrsEntity.getChangedBy() != null) {
-                    userColumnName = "changed_by";
-                } else {
-                    userColumnName = "creator";
-                }
-                String query = "update " + tableName + " set " + userColumnName + " = ? where " + idColumnName + " = ?;";
+                Statement statement = null;
                 try {
-                    statement = connection.prepareStatement(query);
-                    statement.setInt(1, getOpenMRSShrSystemUser().getUserId());
-                    statement.setInt(2, openMrsEntity.getId());
-                    statement.executeUpdate();
+                    statement = connection.createStatement();
+                    for (Map.Entry<List<String>, Set<Integer>> update : updates.entrySet()) {
+                        statement.addBatch("update " + update.getKey().get(0) + " set " + update.getKey().get(2) + " = " +
+                                systemUserId + " where " + update.getKey().get(1) + " in (" + StringUtils.join(update.getValue(), ",") + ");");
+                    }
+                    statement.executeBatch();
                 } catch (Exception e) {
-                    throw new RuntimeException("Error occurred while updating " + tableName, e);
+                    throw new RuntimeException("Error occurred while updating " + updates.keySet(), e);
                 } finally {
                     try {
                         if (statement != null) statement.close();
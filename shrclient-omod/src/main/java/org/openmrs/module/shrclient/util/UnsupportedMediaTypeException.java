@@ -0,0 +1,9 @@
+package org.openmrs.module.shrclient.util;
+
+import org.apache.http.client.ClientProtocolException;
+
+public class UnsupportedMediaTypeException extends ClientProtocolException {
+    public UnsupportedMediaTypeException(String message) {
+        super(message);
+    }
+}
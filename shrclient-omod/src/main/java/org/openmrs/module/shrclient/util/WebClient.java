@@ -9,16 +9,15 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.DefaultRedirectStrategy;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 import org.openmrs.module.shrclient.identity.IdentityUnauthorizedException;
 import org.springframework.http.HttpStatus;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
@@ -27,25 +26,71 @@ import java.util.Map;
 public class WebClient {
 
     private static final Logger log = Logger.getLogger(WebClient.class);
-    public static final String ZERO_WIDTH_NO_BREAK_SPACE = "\uFEFF";
-    public static final String BLANK_CHARACTER = "";
+    private static final int READ_BUFFER_SIZE = 8192;
     private String baseUrl;
-    private Map<String, String> headers;
+    private HeaderProvider headerProvider;
+    private HttpClientPool httpClientPool;
 
 
-    public WebClient(String baseUrl, Map<String, String> headers) {
+    /**
+     * Consumes a successful response body. The stream is only valid for the duration of the call.
+     */
+    public interface StreamHandler<T> {
+        T handle(InputStream content) throws IOException;
+    }
+
+    /**
+     * Supplies the headers for each request, so that a long lived client always sends the current identity token.
+     */
+    public interface HeaderProvider {
+        Map<String, String> getHeaders() throws IdentityUnauthorizedException;
+    }
+
+    private static final StreamHandler<String> STRING_HANDLER = new StreamHandler<String>() {
+        @Override
+        public String handle(InputStream content) throws IOException {
+            return readAsString(content);
+        }
+    };
+
+    public WebClient(String baseUrl, final Map<String, String> headers, HttpClientPool httpClientPool) {
+        this(baseUrl, new HeaderProvider() {
+            @Override
+            public Map<String, String> getHeaders() {
+                return headers;
+            }
+        }, httpClientPool);
+    }
+
+    public WebClient(String baseUrl, HeaderProvider headerProvider, HttpClientPool httpClientPool) {
         this.baseUrl = baseUrl;
-        this.headers = headers;
+        this.headerProvider = headerProvider;
+        this.httpClientPool = httpClientPool;
     }
 
 
     public String get(String path) throws IdentityUnauthorizedException {
+        return getStream(path, STRING_HANDLER);
+    }
+
+    /**
+     * Streams the response body to the handler, without a leading byte order mark.
+     * Returns null if the resource is not found.
+     */
+    public <T> T getStream(String path, StreamHandler<T> streamHandler) throws IdentityUnauthorizedException {
+        return getStream(path, streamHandler, 0);
+    }
+
+    /**
+     * Like {@link #getStream(String, StreamHandler)}, giving up on the server after the timeout when it is positive.
+     */
+    public <T> T getStream(String path, StreamHandler<T> streamHandler, int timeoutMillis) throws IdentityUnauthorizedException {
         String url = getUrl(path);
         log.debug("HTTP getEncounters url: " + url);
         try {
             HttpGet request = new HttpGet(URI.create(url));
 
-            return execute(request, true);
+            return execute(request, true, timeoutMillis, streamHandler);
         } catch (IdentityUnauthorizedException e) {
             log.error("Unauthorized identity. URL: " + url, e);
             throw e;
@@ -61,7 +106,7 @@ public class WebClient {
         try {
             HttpPost request = new HttpPost(URI.create(url));
             request.setEntity(entity);
-            return execute(request, false);
+            return execute(request, false, 0, STRING_HANDLER);
         } catch (IdentityUnauthorizedException e) {
             log.error("Unauthorized identity. URL: " + url, e);
             throw e;
@@ -77,7 +122,7 @@ public class WebClient {
         try {
             HttpPut request = new HttpPut(URI.create(url));
             request.setEntity(entity);
-            return execute(request, false);
+            return execute(request, false, 0, STRING_HANDLER);
         } catch (IdentityUnauthorizedException e) {
             log.error("Unauthorized identity. URL: " + url, e);
             throw e;
@@ -87,53 +132,52 @@ public class WebClient {
         }
     }
 
-    private String execute(final HttpRequestBase request, boolean allowRedirection) throws IOException {
-        HttpClientBuilder httpClientBuilder = HttpClientBuilder.create();
-        if (allowRedirection)
-            httpClientBuilder.setRedirectStrategy(new DefaultRedirectStrategy());
-        else
-            httpClientBuilder.disableRedirectHandling();
-        try (CloseableHttpClient httpClient = httpClientBuilder.build()) {
-            addHeaders(request);
-
-            ResponseHandler<String> responseHandler = new ResponseHandler<String>() {
-                public String handleResponse(final HttpResponse response) throws IOException {
-                    int status = response.getStatusLine().getStatusCode();
-                    HttpEntity entity = response.getEntity();
-                    String content = parseContentInputAsString(entity);
-                    if (status >= 200 && status < 300) {
-                        return entity != null ? content : null;
-                    } else if (status == HttpStatus.NOT_FOUND.value()) {
-                        return null;
-                    } else if (status == HttpStatus.UNAUTHORIZED.value()) {
-                        throw new IdentityUnauthorizedException("Identity not authorized");
-                    } else if (status == HttpStatus.FORBIDDEN.value()) {
-                        throw new ClientProtocolException("Access is denied: " + status);
-                    } else if (status >= 400 && status < 500) {
-                        String errorMessage = String.format("Unexpected response status: %s. \nResponse returned is %s.\n", status, content);
-                        throw new ClientProtocolException(errorMessage);
-                    } else {
-                        throw new ClientProtocolException("Unexpected response status: " + status);
+    private <T> T execute(final HttpRequestBase request, boolean allowRedirection, int timeoutMillis, final StreamHandler<T> streamHandler) throws IOException {
+        addHeaders(request);
+
+        ResponseHandler<T> responseHandler = new ResponseHandler<T>() {
+            public T handleResponse(final HttpResponse response) throws IOException {
+                int status = response.getStatusLine().getStatusCode();
+                HttpEntity entity = response.getEntity();
+                if (status >= 200 && status < 300) {
+                    if (entity == null) return null;
+                    try (InputStream content = new BomStrippingInputStream(entity.getContent())) {
+                        return streamHandler.handle(content);
                     }
+                } else if (status == HttpStatus.NOT_FOUND.value()) {
+                    return null;
+                } else if (status == HttpStatus.UNAUTHORIZED.value()) {
+                    throw new IdentityUnauthorizedException("Identity not authorized");
+                } else if (status == HttpStatus.FORBIDDEN.value()) {
+                    throw new ClientProtocolException("Access is denied: " + status);
+                } else if (status == HttpStatus.UNSUPPORTED_MEDIA_TYPE.value()) {
+                    throw new UnsupportedMediaTypeException("Unsupported media type: " + status);
+                } else if (status >= 400 && status < 500) {
+                    String content = entity != null ? EntityUtils.toString(entity, StandardCharsets.UTF_8) : null;
+                    String errorMessage = String.format("Unexpected response status: %s. \nResponse returned is %s.\n", status, content);
+                    throw new ClientProtocolException(errorMessage);
+                } else {
+                    throw new ClientProtocolException("Unexpected response status: " + status);
                 }
-            };
-            return httpClient.execute(request, responseHandler);
-        }
+            }
+        };
+        return httpClientPool.execute(request, allowRedirection, timeoutMillis, responseHandler);
     }
 
-    private String parseContentInputAsString(HttpEntity entity) throws IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8));
-        String inputLine;
+    private static String readAsString(InputStream content) throws IOException {
+        Reader reader = new InputStreamReader(content, StandardCharsets.UTF_8);
         StringBuilder responseString = new StringBuilder();
-        while ((inputLine = reader.readLine()) != null) {
-            responseString.append(inputLine);
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            responseString.append(buffer, 0, read);
         }
-        reader.close();
-        return responseString.toString().replace(ZERO_WIDTH_NO_BREAK_SPACE, BLANK_CHARACTER);
+        return responseString.toString();
     }
 
-    private void addHeaders(HttpRequestBase request) {
+    private void addHeaders(HttpRequestBase request) throws IdentityUnauthorizedException {
         Map<String, String> requestHeaders = getCommonHeaders();
+        Map<String, String> headers = headerProvider.getHeaders();
         if (headers != null) {
             requestHeaders.putAll(headers);
         }
@@ -1,7 +1,11 @@
 package org.openmrs.module.shrclient.web.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.apache.log4j.Logger;
 import org.openmrs.api.APIAuthenticationException;
+import org.openmrs.module.shrclient.dao.HIDCardDao;
 import org.openmrs.module.shrclient.model.HealthIdCard;
 import org.openmrs.module.shrclient.model.User;
 import org.openmrs.module.shrclient.service.HIDCardUserService;
@@ -20,11 +24,14 @@ import java.util.List;
 @RequestMapping(value = "/users")
 public class HIDCardUserController {
     private static final Logger logger = Logger.getLogger(HIDCardUserServiceImpl.class);
+    private static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
     private HIDCardUserService hidCardUserService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
     public HIDCardUserController(HIDCardUserService hidCardUserService) {
         this.hidCardUserService = hidCardUserService;
+        this.objectMapper = new ObjectMapper().disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @RequestMapping(value = "/getAll", method = RequestMethod.GET)
@@ -39,19 +46,58 @@ public class HIDCardUserController {
         }
     }
 
+    /**
+     * Writes the cards out as a JSON array while they are read, month end batches run into thousands of cards.
+     */
     @RequestMapping(value = "/{userId}/findAllPatients", method = RequestMethod.GET)
-    @ResponseBody
-    public List<HealthIdCard> findAllPatientsByUserBetweenDates(MciPatientSearchRequest request, HttpServletResponse response,
-                                                                @PathVariable int userId
-            , @RequestParam(value = "from") String from, @RequestParam(value = "to") String to) throws IOException {
+    public void findAllPatientsByUserBetweenDates(HttpServletResponse response, @PathVariable int userId,
+                                                  @RequestParam(value = "from") String from, @RequestParam(value = "to") String to) throws IOException {
         from = from + " 00:00:00";
         to = to + " 23:59:59";
+        HealthIdCardWriter cardWriter = new HealthIdCardWriter(response);
         try {
-            return hidCardUserService.getAllCardsByUserWithinDateRange(userId, from, to);
+            hidCardUserService.streamAllCardsByUserWithinDateRange(userId, from, to, cardWriter);
         } catch (APIAuthenticationException e) {
             logger.info("Not Authorized to access Print Health Id Module");
             response.sendError(HttpStatus.UNAUTHORIZED.value(), e.getMessage());
-            return Collections.emptyList();
+            return;
+        }
+        cardWriter.finish();
+    }
+
+    /**
+     * Starts the JSON array with the first card, so that the response is not committed before the service
+     * has checked the privileges of the user.
+     */
+    private class HealthIdCardWriter implements HIDCardDao.HealthIdCardHandler {
+        private final HttpServletResponse response;
+        private JsonGenerator generator;
+
+        private HealthIdCardWriter(HttpServletResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public void handle(HealthIdCard healthIdCard) {
+            try {
+                start();
+                objectMapper.writeValue(generator, healthIdCard);
+            } catch (IOException e) {
+                throw new RuntimeException("Error while writing Health-Id Card details", e);
+            }
+        }
+
+        private void finish() throws IOException {
+            start();
+            generator.writeEndArray();
+            generator.flush();
+        }
+
+        private void start() throws IOException {
+            if (generator != null) return;
+            response.setContentType(JSON_CONTENT_TYPE);
+            generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+            generator.writeStartArray();
         }
     }
 }
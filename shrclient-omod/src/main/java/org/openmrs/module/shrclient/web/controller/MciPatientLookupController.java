@@ -9,6 +9,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 import javax.servlet.http.HttpServletResponse;
@@ -45,4 +46,20 @@ public class MciPatientLookupController {
             return null;
         }
     }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/download/status")
+    @ResponseBody
+    public Object downloadStatus(@RequestParam(value = "hid") String healthId, HttpServletResponse response) throws IOException {
+        try {
+            Object status = mciPatientLookupService.getEncounterDownloadStatus(healthId);
+            if (status == null) {
+                response.sendError(HttpStatus.NOT_FOUND.value(), String.format("No encounter download for patient %s", healthId));
+            }
+            return status;
+        } catch (APIAuthenticationException e) {
+            log.info("Not authorized to access national registry");
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), e.getMessage());
+            return null;
+        }
+    }
 }
@@ -17,6 +17,8 @@ public class MciPatientSearchRequest {
 
     private String inactiveHids;
 
+    private boolean refresh;
+
     public String getNid() {
         return nid;
     }
@@ -73,6 +75,14 @@ public class MciPatientSearchRequest {
         this.inactiveHids = inactiveHids;
     }
 
+    public boolean isRefresh() {
+        return refresh;
+    }
+
+    public void setRefresh(boolean refresh) {
+        this.refresh = refresh;
+    }
+
     @Override
     public String toString() {
         return "MciPatientSearchRequest{" +
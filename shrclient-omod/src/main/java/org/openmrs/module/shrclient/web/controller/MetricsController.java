@@ -0,0 +1,35 @@
+package org.openmrs.module.shrclient.web.controller;
+
+import org.apache.log4j.Logger;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
+import org.openmrs.util.PrivilegeConstants;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Exposes the sync pipeline metrics in the Prometheus text format, to be scraped by a user who can view the
+ * administration functions.
+ */
+@Controller
+@RequestMapping(value = "/metrics")
+public class MetricsController {
+    private static final Logger log = Logger.getLogger(MetricsController.class);
+    private static final String PROMETHEUS_TEXT_FORMAT = "text/plain; version=0.0.4; charset=utf-8";
+
+    @RequestMapping(method = RequestMethod.GET)
+    public void scrape(HttpServletResponse response) throws IOException {
+        if (!Context.hasPrivilege(PrivilegeConstants.VIEW_ADMIN_FUNCTIONS)) {
+            log.info("Not authorized to read the sync metrics");
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), "Privilege required: " + PrivilegeConstants.VIEW_ADMIN_FUNCTIONS);
+            return;
+        }
+        response.setContentType(PROMETHEUS_TEXT_FORMAT);
+        SyncMetrics.getInstance().writeTo(response.getWriter());
+    }
+}
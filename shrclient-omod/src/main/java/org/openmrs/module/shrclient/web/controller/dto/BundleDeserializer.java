@@ -1,12 +1,12 @@
 package org.openmrs.module.shrclient.web.controller.dto;
 
-import ca.uhn.fhir.context.FhirContext;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.node.TextNode;
 import org.hl7.fhir.dstu3.model.Bundle;
 import org.openmrs.module.shrclient.util.FhirBundleContextHolder;
+import org.openmrs.module.shrclient.util.FhirWireFormat;
 
 public class BundleDeserializer extends JsonDeserializer<Bundle> {
 
@@ -14,8 +14,7 @@ public class BundleDeserializer extends JsonDeserializer<Bundle> {
     public Bundle deserialize(JsonParser jp, DeserializationContext ctx) {
         try {
             final String xml = ((TextNode) jp.readValueAsTree()).textValue();
-            FhirContext fhirContext = FhirBundleContextHolder.getFhirContext();
-            return fhirContext.newXmlParser().parseResource(Bundle.class, xml);
+            return FhirBundleContextHolder.parseBundle(FhirWireFormat.XML, xml);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
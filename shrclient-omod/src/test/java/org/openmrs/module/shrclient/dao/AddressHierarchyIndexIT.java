@@ -0,0 +1,66 @@
+package org.openmrs.module.shrclient.dao;
+
+import org.junit.Test;
+import org.openmrs.module.addresshierarchy.AddressField;
+import org.openmrs.module.addresshierarchy.AddressHierarchyEntry;
+import org.openmrs.module.addresshierarchy.AddressHierarchyLevel;
+import org.openmrs.web.test.BaseModuleWebContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class AddressHierarchyIndexIT extends BaseModuleWebContextSensitiveTest {
+
+    @Autowired
+    private AddressHierarchyIndex addressHierarchyIndex;
+
+    @Test
+    public void shouldFindEntriesByNameUnderTheirParent() throws Exception {
+        executeDataSet("testDataSets/address_hierarchy_levels.xml");
+        executeDataSet("testDataSets/address_hierarchy_entries.xml");
+
+        AddressHierarchyEntry division = addressHierarchyIndex.getEntry(AddressField.STATE_PROVINCE, " dhaka ", null);
+        AddressHierarchyEntry district = addressHierarchyIndex.getEntry(AddressField.COUNTY_DISTRICT, "Gazipur", division);
+
+        assertEquals(1, division.getId().intValue());
+        assertEquals(2, district.getId().intValue());
+        assertEquals("3033", district.getUserGeneratedId());
+        assertEquals(division, district.getParent());
+        assertNull(addressHierarchyIndex.getEntry(AddressField.COUNTY_DISTRICT, "Gazipur", district));
+    }
+
+    @Test
+    public void shouldFindEntriesByUserGeneratedIdAndTheirLocalNames() throws Exception {
+        executeDataSet("testDataSets/address_hierarchy_levels.xml");
+        executeDataSet("testDataSets/address_hierarchy_entries.xml");
+
+        assertEquals("Ward No-01", addressHierarchyIndex.getEntryByUserGeneratedId("303334991501").getName());
+        assertEquals("পুরান ঢাকার", addressHierarchyIndex.getLocalName(1));
+        assertNull(addressHierarchyIndex.getLocalName(2));
+    }
+
+    @Test
+    public void shouldIndexUpdatedEntries() throws Exception {
+        executeDataSet("testDataSets/address_hierarchy_levels.xml");
+        executeDataSet("testDataSets/address_hierarchy_entries.xml");
+        AddressHierarchyEntry division = addressHierarchyIndex.getEntryByUserGeneratedId("30");
+
+        AddressHierarchyLevel level = new AddressHierarchyLevel();
+        level.setId(2);
+        level.setAddressField(AddressField.COUNTY_DISTRICT);
+        AddressHierarchyEntry savedEntry = new AddressHierarchyEntry();
+        savedEntry.setId(2);
+        savedEntry.setName("Gazipur Sadar");
+        savedEntry.setUserGeneratedId("3033");
+        savedEntry.setLevel(level);
+        savedEntry.setParent(division);
+        addressHierarchyIndex.update(savedEntry, "গাজীপুর");
+
+        assertNull(addressHierarchyIndex.getEntry(AddressField.COUNTY_DISTRICT, "Gazipur", division));
+        assertEquals(2, addressHierarchyIndex.getEntry(AddressField.COUNTY_DISTRICT, "Gazipur Sadar", division).getId().intValue());
+        assertEquals("গাজীপুর", addressHierarchyIndex.getLocalName(2));
+    }
+}
@@ -0,0 +1,87 @@
+package org.openmrs.module.shrclient.dao;
+
+import org.junit.Test;
+import org.openmrs.module.shrclient.model.IdMapping;
+import org.openmrs.module.shrclient.model.IdMappingType;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class IdMappingCacheTest {
+
+    @Test
+    public void shouldLoadOnlyOnceWithinTimeToLive() throws Exception {
+        IdMappingCache cache = new IdMappingCache(10, 60000, 60000);
+        CountingLoader loader = new CountingLoader(conceptMapping("c1"));
+
+        assertEquals("c1", cache.get("concept:internal:c1", loader).getInternalId());
+        assertEquals("c1", cache.get("concept:internal:c1", loader).getInternalId());
+
+        assertEquals(1, loader.loads);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void shouldCacheMappingsThatAreNotFound() throws Exception {
+        IdMappingCache cache = new IdMappingCache(10, 60000, 60000);
+        CountingLoader loader = new CountingLoader(null);
+
+        assertNull(cache.get("concept:internal:c1", loader));
+        assertNull(cache.get("concept:internal:c1", loader));
+
+        assertEquals(1, loader.loads);
+    }
+
+    @Test
+    public void shouldLoadAgainAfterEvictionOrExpiry() throws Exception {
+        IdMappingCache cache = new IdMappingCache(10, 60000, 0);
+        CountingLoader loader = new CountingLoader(conceptMapping("c1"));
+        CountingLoader notFoundLoader = new CountingLoader(null);
+
+        cache.get("concept:internal:c1", loader);
+        cache.evict("concept:internal:c1");
+        cache.get("concept:internal:c1", loader);
+        cache.get("concept:internal:c2", notFoundLoader);
+        cache.get("concept:internal:c2", notFoundLoader);
+
+        assertEquals(2, loader.loads);
+        assertEquals(2, notFoundLoader.loads);
+    }
+
+    @Test
+    public void shouldRemoveLeastRecentlyUsedMappingWhenFull() throws Exception {
+        IdMappingCache cache = new IdMappingCache(2, 60000, 60000);
+        CountingLoader loader = new CountingLoader(conceptMapping("c1"));
+
+        cache.get("concept:internal:c1", loader);
+        cache.get("concept:internal:c2", new CountingLoader(conceptMapping("c2")));
+        cache.get("concept:internal:c1", loader);
+        cache.get("concept:internal:c3", new CountingLoader(conceptMapping("c3")));
+        cache.get("concept:internal:c1", loader);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, loader.loads);
+    }
+
+    private IdMapping conceptMapping(String internalId) {
+        return new IdMapping(internalId, "tr-" + internalId, IdMappingType.CONCEPT, "/concepts/tr-" + internalId, new Date());
+    }
+
+    private static class CountingLoader implements IdMappingCache.Loader {
+        private final IdMapping idMapping;
+        private int loads;
+
+        private CountingLoader(IdMapping idMapping) {
+            this.idMapping = idMapping;
+        }
+
+        @Override
+        public IdMapping load() {
+            loads++;
+            return idMapping;
+        }
+    }
+}
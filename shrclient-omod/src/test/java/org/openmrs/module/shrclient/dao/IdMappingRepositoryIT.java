@@ -1,14 +1,20 @@
 package org.openmrs.module.shrclient.dao;
 
+import org.joda.time.DateTime;
 import org.junit.After;
 import org.junit.Test;
+import org.openmrs.module.shrclient.model.DiagnosisIdMapping;
+import org.openmrs.module.shrclient.model.EncounterIdMapping;
 import org.openmrs.module.shrclient.model.IdMapping;
 import org.openmrs.module.shrclient.model.IdMappingType;
+import org.openmrs.module.shrclient.model.OrderIdMapping;
 import org.openmrs.web.test.BaseModuleWebContextSensitiveTest;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Date;
+import java.util.List;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 
 
@@ -54,6 +60,26 @@ public class IdMappingRepositoryIT extends BaseModuleWebContextSensitiveTest {
 
     }
 
+    @Test
+    public void shouldSaveNewAndUpdateExistingIdMappingsTogether() throws Exception {
+        executeDataSet("testDataSets/idMappingDS.xml");
+        Date lastSyncDateTime = new DateTime(2017, 6, 1, 10, 0).toDate();
+        EncounterIdMapping existingEncounterMapping = new EncounterIdMapping("75e04d42-3ca8-11e3-bf2b-0800271c1b75",
+                "75e04d42-3ca8-11e3-bf2b-0800271c1b76", "/patients/Health_id/encounters", lastSyncDateTime);
+        DiagnosisIdMapping newDiagnosisMapping = new DiagnosisIdMapping("a4e04d42-123s-11e3-bf2b-0800271c1b75",
+                "enc_id:a4e04d42-123s-11e3-bf2b-0800271c1b75", "/patients/Health_id/encounters/enc_id#Condition/a4e04d42-123s-11e3-bf2b-0800271c1b75");
+        OrderIdMapping newOrderMapping = new OrderIdMapping("b5e04d42-3ca8-11e3-bf2b-0800271c1b75", "enc_id:b5e04d42-3ca8-11e3-bf2b-0800271c1b75",
+                IdMappingType.MEDICATION_ORDER, "/patients/Health_id/encounters/enc_id#MedicationRequest/b5e04d42-3ca8-11e3-bf2b-0800271c1b75");
+
+        idMappingRepository.saveOrUpdateAll(asList(existingEncounterMapping, newDiagnosisMapping, newOrderMapping));
+
+        List<IdMapping> encounterMappings = idMappingRepository.findMappingsByExternalId("75e04d42-3ca8-11e3-bf2b-0800271c1b76", IdMappingType.ENCOUNTER);
+        assertEquals(1, encounterMappings.size());
+        assertEquals(lastSyncDateTime, encounterMappings.get(0).getLastSyncDateTime());
+        assertIdMapping(idMappingRepository.findByExternalId("enc_id:a4e04d42-123s-11e3-bf2b-0800271c1b75", IdMappingType.DIAGNOSIS), newDiagnosisMapping);
+        assertIdMapping(idMappingRepository.findByExternalId("enc_id:b5e04d42-3ca8-11e3-bf2b-0800271c1b75", IdMappingType.MEDICATION_ORDER), newOrderMapping);
+    }
+
     private void assertIdMapping(IdMapping idMapping, IdMapping expectedIdMapping) {
         assertEquals(expectedIdMapping.getInternalId(), idMapping.getInternalId());
         assertEquals(expectedIdMapping.getExternalId(), idMapping.getExternalId());
@@ -0,0 +1,78 @@
+package org.openmrs.module.shrclient.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.openmrs.module.shrclient.model.EncounterIdMapping;
+import org.openmrs.module.shrclient.model.IdMapping;
+import org.openmrs.module.shrclient.model.IdMappingType;
+import org.openmrs.module.shrclient.util.Database;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class IdMappingRepositoryTest {
+    @Mock
+    private Database database;
+
+    private IdMappingRepository idMappingRepository;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        when(database.executeInTransaction(any(Database.TxWork.class))).thenReturn(new ArrayList<IdMapping>());
+        idMappingRepository = spy(new IdMappingRepository(database));
+    }
+
+    @Test
+    public void shouldHoldBackDeferredMappingsUntilFlushAndSaveThemTogether() throws Exception {
+        IdMapping conceptMapping = new IdMapping("c1", "ext-c1", IdMappingType.CONCEPT, "/concepts/ext-c1", new Date());
+        EncounterIdMapping encounterMapping = new EncounterIdMapping("e1", "ext-e1", "/patients/HID1/encounters/ext-e1", new Date());
+
+        idMappingRepository.deferWrites();
+        idMappingRepository.saveOrUpdateIdMapping(conceptMapping);
+        idMappingRepository.saveOrUpdateIdMapping(encounterMapping);
+
+        assertSame(conceptMapping, idMappingRepository.findByExternalId("ext-c1", IdMappingType.CONCEPT));
+        assertSame(encounterMapping, idMappingRepository.findByInternalId("e1", IdMappingType.ENCOUNTER));
+        verify(database, never()).executeInTransaction(any(Database.TxWork.class));
+
+        idMappingRepository.flushDeferredWrites();
+
+        verify(idMappingRepository).saveOrUpdateAll(asList(conceptMapping, encounterMapping));
+        verify(database, times(1)).executeInTransaction(any(Database.TxWork.class));
+    }
+
+    @Test
+    public void shouldDropDeferredMappingsAndEvictTheMappingsSavedMidBatchOnDiscard() throws Exception {
+        IdMapping savedMidBatch = new IdMapping("c1", "ext-c1", IdMappingType.CONCEPT, "/concepts/ext-c1", new Date());
+        IdMapping heldBack = new IdMapping("c2", "ext-c2", IdMappingType.CONCEPT, "/concepts/ext-c2", new Date());
+
+        idMappingRepository.deferWrites();
+        idMappingRepository.saveOrUpdateIdMapping(savedMidBatch);
+        idMappingRepository.findByHealthId("HID1", IdMappingType.ENCOUNTER);
+        idMappingRepository.findByExternalId("ext-c1", IdMappingType.CONCEPT);
+        idMappingRepository.saveOrUpdateIdMapping(heldBack);
+        assertEquals(1, idMappingRepository.getIdMappingCache().size());
+
+        idMappingRepository.discardDeferredWrites();
+
+        assertEquals(0, idMappingRepository.getIdMappingCache().size());
+        verify(idMappingRepository).saveOrUpdateAll(asList(savedMidBatch));
+        verify(idMappingRepository, times(1)).saveOrUpdateAll(anyCollectionOf(IdMapping.class));
+        assertNull(idMappingRepository.findByExternalId("ext-c2", IdMappingType.CONCEPT));
+    }
+}
@@ -0,0 +1,112 @@
+package org.openmrs.module.shrclient.feeds;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CatchmentFeedExecutorTest {
+
+    private static final List<String> CATCHMENT_FEED_URLS = Arrays.asList(
+            "http://shr/catchments/3026/encounters",
+            "http://shr/catchments/3027/encounters",
+            "http://shr/catchments/3028/encounters");
+
+    @Test
+    public void shouldProcessCatchmentsConcurrently() throws Exception {
+        final CountDownLatch allStarted = new CountDownLatch(CATCHMENT_FEED_URLS.size());
+        final ConcurrentHashMap<String, Boolean> processed = new ConcurrentHashMap<>();
+
+        getExecutor(3).execute(CATCHMENT_FEED_URLS, new CatchmentFeedExecutor.CatchmentWork() {
+            @Override
+            public void process(String catchmentFeedUrl) throws Exception {
+                allStarted.countDown();
+                assertTrue("catchments should be processed together", allStarted.await(5, TimeUnit.SECONDS));
+                processed.put(catchmentFeedUrl, true);
+            }
+        });
+
+        assertEquals(CATCHMENT_FEED_URLS.size(), processed.size());
+    }
+
+    @Test
+    public void shouldLimitConcurrentCatchments() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        getExecutor(2).execute(CATCHMENT_FEED_URLS, new CatchmentFeedExecutor.CatchmentWork() {
+            @Override
+            public void process(String catchmentFeedUrl) throws Exception {
+                int current = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), current));
+                }
+                Thread.sleep(50);
+                running.decrementAndGet();
+            }
+        });
+
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void shouldContinueWithOtherCatchmentsWhenOneFails() throws Exception {
+        final ConcurrentHashMap<String, Boolean> processed = new ConcurrentHashMap<>();
+
+        getExecutor(2).execute(CATCHMENT_FEED_URLS, new CatchmentFeedExecutor.CatchmentWork() {
+            @Override
+            public void process(String catchmentFeedUrl) throws Exception {
+                if (catchmentFeedUrl.contains("3026")) {
+                    throw new RuntimeException("SHR unavailable");
+                }
+                processed.put(catchmentFeedUrl, true);
+            }
+        });
+
+        assertEquals(2, processed.size());
+    }
+
+    @Test
+    public void shouldWaitForAllCatchmentsWhenOneCannotBeStarted() throws Exception {
+        final ConcurrentHashMap<String, Boolean> processed = new ConcurrentHashMap<>();
+        final AtomicInteger startedCatchments = new AtomicInteger();
+
+        new CatchmentFeedExecutor(3) {
+            @Override
+            protected Runnable inWorkerContext(final Runnable work) {
+                final boolean first = startedCatchments.getAndIncrement() == 0;
+                return new Runnable() {
+                    @Override
+                    public void run() {
+                        if (first) throw new IllegalStateException("No user context");
+                        work.run();
+                    }
+                };
+            }
+        }.execute(CATCHMENT_FEED_URLS, new CatchmentFeedExecutor.CatchmentWork() {
+            @Override
+            public void process(String catchmentFeedUrl) throws Exception {
+                Thread.sleep(100);
+                processed.put(catchmentFeedUrl, true);
+            }
+        });
+
+        assertEquals(2, processed.size());
+    }
+
+    private CatchmentFeedExecutor getExecutor(int maxConcurrentCatchments) {
+        return new CatchmentFeedExecutor(maxConcurrentCatchments) {
+            @Override
+            protected Runnable inWorkerContext(Runnable work) {
+                return work;
+            }
+        };
+    }
+}
@@ -0,0 +1,260 @@
+package org.openmrs.module.shrclient.feeds;
+
+import com.sun.syndication.feed.atom.Content;
+import com.sun.syndication.feed.atom.Entry;
+import com.sun.syndication.feed.atom.Feed;
+import com.sun.syndication.feed.atom.Link;
+import org.ict4h.atomfeed.client.domain.Event;
+import org.ict4h.atomfeed.client.domain.FailedEvent;
+import org.ict4h.atomfeed.client.repository.AllFailedEvents;
+import org.ict4h.atomfeed.client.repository.AllFeeds;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.openmrs.module.shrclient.feeds.openmrs.AllMarkersInMemoryImpl;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
+import org.openmrs.module.shrclient.util.TransactionHelper;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class PipelinedEventProcessorTest {
+    private static final String CATCHMENT_FEED_URL = "http://shr/catchments/3026/encounters";
+    private static final String FIRST_PAGE_URL = "http://shr/catchments/3026/encounters?updatedSince=2017-01-01";
+    private static final String SECOND_PAGE_URL = "http://shr/catchments/3026/encounters?updatedSince=2017-02-01";
+
+    @Mock
+    private AllFailedEvents allFailedEvents;
+
+    private AllMarkersInMemoryImpl allMarkers;
+    private URI feedUri;
+    private Map<URI, Feed> feeds;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        allMarkers = new AllMarkersInMemoryImpl();
+        feedUri = new URI(CATCHMENT_FEED_URL);
+        feeds = new HashMap<>();
+        feeds.put(feedUri, getFeed(FIRST_PAGE_URL, SECOND_PAGE_URL, 1, 2, 3, 4, 5));
+        feeds.put(new URI(SECOND_PAGE_URL), getFeed(SECOND_PAGE_URL, null, 6, 7));
+    }
+
+    @Test
+    public void shouldProcessAllEventsInFeedOrderAndMoveMarkerToTheLastEvent() throws Exception {
+        TestEventWorker worker = new TestEventWorker(null);
+
+        getProcessor(worker, 3, 2).processEvents();
+
+        assertEquals(asList("content1", "content2", "content3", "content4", "content5", "content6", "content7"), worker.processed);
+        assertEquals("tag:shr:7", allMarkers.get(feedUri).getLastReadEntryId());
+        assertEquals(SECOND_PAGE_URL, allMarkers.get(feedUri).getFeedURIForLastReadEntry().toString());
+        verify(allFailedEvents, never()).addOrUpdate(any(FailedEvent.class));
+    }
+
+    @Test
+    public void shouldContinueFromMarker() throws Exception {
+        allMarkers.put(feedUri, "tag:shr:4", feedUri);
+        TestEventWorker worker = new TestEventWorker(null);
+
+        getProcessor(worker, 2, 4).processEvents();
+
+        assertEquals(asList("content5", "content6", "content7"), worker.processed);
+    }
+
+    @Test
+    public void shouldRecordEventsThatCouldNotBeParsedAsFailedAndContinue() throws Exception {
+        TestEventWorker worker = new TestEventWorker("tag:shr:3");
+
+        getProcessor(worker, 3, 2).processEvents();
+
+        ArgumentCaptor<FailedEvent> failedEvent = ArgumentCaptor.forClass(FailedEvent.class);
+        verify(allFailedEvents).addOrUpdate(failedEvent.capture());
+        assertEquals("tag:shr:3", failedEvent.getValue().getEventId());
+        assertEquals(6, worker.processed.size());
+        assertEquals("tag:shr:7", allMarkers.get(feedUri).getLastReadEntryId());
+    }
+
+    @Test
+    public void shouldStopWithoutMovingMarkerPastAFailedEventOnceFailedEventsLimitIsReached() throws Exception {
+        when(allFailedEvents.getNumberOfFailedEvents(anyString())).thenReturn(0, 10);
+        TestEventWorker worker = new TestEventWorker("tag:shr:3");
+
+        getProcessor(worker, 3, 2).processEvents();
+
+        verify(allFailedEvents, never()).addOrUpdate(any(FailedEvent.class));
+        assertEquals(asList("content1", "content2"), worker.processed);
+        assertEquals("tag:shr:2", allMarkers.get(feedUri).getLastReadEntryId());
+    }
+
+    @Test
+    public void shouldNotProcessEventsWhenFailedEventsLimitIsReached() throws Exception {
+        when(allFailedEvents.getNumberOfFailedEvents(anyString())).thenReturn(10);
+        TestEventWorker worker = new TestEventWorker(null);
+
+        getProcessor(worker, 3, 2).processEvents();
+
+        assertEquals(0, worker.processed.size());
+        assertNull(allMarkers.get(feedUri));
+    }
+
+    @Test
+    public void shouldProcessEventsInBatchesAndMoveMarkerAfterEachBatch() throws Exception {
+        TestEventWorker worker = new TestEventWorker(null);
+
+        getProcessor(worker, 3, 2, 3).processEvents();
+
+        assertEquals(asList("content1", "content2", "content3", "content4", "content5", "content6", "content7"), worker.processed);
+        assertEquals(3, worker.completedBatches);
+        assertEquals(0, worker.abandonedBatches);
+        assertEquals("tag:shr:7", allMarkers.get(feedUri).getLastReadEntryId());
+        verify(allFailedEvents, never()).addOrUpdate(any(FailedEvent.class));
+    }
+
+    @Test
+    public void shouldProcessEventsOfAFailedBatchOneAtATime() throws Exception {
+        TestEventWorker worker = new TestEventWorker(null);
+        worker.failProcessingFor = "tag:shr:5";
+
+        getProcessor(worker, 3, 2, 3).processEvents();
+
+        ArgumentCaptor<FailedEvent> failedEvent = ArgumentCaptor.forClass(FailedEvent.class);
+        verify(allFailedEvents).addOrUpdate(failedEvent.capture());
+        assertEquals("tag:shr:5", failedEvent.getValue().getEventId());
+        assertEquals(1, worker.abandonedBatches);
+        assertEquals(asList("content1", "content2", "content3", "content4", "content6", "content7"), worker.processed);
+        assertEquals("tag:shr:7", allMarkers.get(feedUri).getLastReadEntryId());
+    }
+
+    @Test
+    public void shouldProcessEventsOneAtATimeOnceTheFeedHasAMarker() throws Exception {
+        allMarkers.put(feedUri, "tag:shr:2", feedUri);
+        TestEventWorker worker = new TestEventWorker(null);
+
+        getProcessor(worker, 3, 2, 3).processEvents();
+
+        assertEquals(asList("content3", "content4", "content5", "content6", "content7"), worker.processed);
+        assertEquals(0, worker.completedBatches);
+        assertEquals("tag:shr:7", allMarkers.get(feedUri).getLastReadEntryId());
+    }
+
+    private PipelinedEventProcessor<String> getProcessor(PipelinedEventWorker<String> worker, int parserThreads, int maxInFlight) {
+        return getProcessor(worker, parserThreads, maxInFlight, 1);
+    }
+
+    private PipelinedEventProcessor<String> getProcessor(PipelinedEventWorker<String> worker, int parserThreads, int maxInFlight,
+                                                         int batchSize) {
+        AllFeeds allFeeds = new AllFeeds() {
+            @Override
+            public Feed getFor(URI uri) {
+                return feeds.get(uri);
+            }
+        };
+        return new PipelinedEventProcessor<String>(allFeeds, allMarkers, allFailedEvents, feedUri, SyncMetrics.ENCOUNTER_PULL, worker, 10,
+                parserThreads, maxInFlight, batchSize) {
+            @Override
+            protected <R> R inTransaction(TransactionHelper.TxWork<R> work) {
+                return work.execute();
+            }
+        };
+    }
+
+    private Feed getFeed(String selfUrl, String nextUrl, int... eventNumbers) {
+        Feed feed = new Feed();
+        List<Link> links = new ArrayList<>();
+        links.add(getLink("self", selfUrl));
+        if (nextUrl != null) {
+            links.add(getLink("next-archive", nextUrl));
+        }
+        feed.setOtherLinks(links);
+        List<Entry> entries = new ArrayList<>();
+        for (int eventNumber : eventNumbers) {
+            Entry entry = new Entry();
+            entry.setId("tag:shr:" + eventNumber);
+            entry.setTitle("Encounter:shr-enc-" + eventNumber);
+            Content content = new Content();
+            content.setValue("content" + eventNumber);
+            entry.setContents(asList(content));
+            entries.add(entry);
+        }
+        feed.setEntries(entries);
+        return feed;
+    }
+
+    private Link getLink(String rel, String href) {
+        Link link = new Link();
+        link.setRel(rel);
+        link.setHref(href);
+        return link;
+    }
+
+    private static class TestEventWorker implements PipelinedEventWorker<String> {
+        private final String failParsingFor;
+        private final List<String> processed = new ArrayList<>();
+        private String failProcessingFor;
+        private List<String> batchProcessed;
+        private int completedBatches;
+        private int abandonedBatches;
+
+        private TestEventWorker(String failParsingFor) {
+            this.failParsingFor = failParsingFor;
+        }
+
+        @Override
+        public String parse(Event event) {
+            if (event.getId().equals(failParsingFor)) {
+                throw new RuntimeException("Unable to parse XML");
+            }
+            return event.getContent();
+        }
+
+        @Override
+        public void process(Event event, String parsedContent) {
+            if (event.getId().equals(failProcessingFor)) {
+                throw new RuntimeException("Unable to save encounter");
+            }
+            (batchProcessed != null ? batchProcessed : processed).add(parsedContent);
+        }
+
+        @Override
+        public void beginBatch() {
+            batchProcessed = new ArrayList<>();
+        }
+
+        @Override
+        public void completeBatch() {
+            processed.addAll(batchProcessed);
+            batchProcessed = null;
+            completedBatches++;
+        }
+
+        @Override
+        public void abandonBatch() {
+            batchProcessed = null;
+            abandonedBatches++;
+        }
+
+        @Override
+        public void process(Event event) {
+            process(event, parse(event));
+        }
+
+        @Override
+        public void cleanUp(Event event) {
+        }
+    }
+}
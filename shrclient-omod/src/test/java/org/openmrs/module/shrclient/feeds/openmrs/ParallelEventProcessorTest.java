@@ -0,0 +1,190 @@
+package org.openmrs.module.shrclient.feeds.openmrs;
+
+import org.ict4h.atomfeed.client.domain.Event;
+import org.ict4h.atomfeed.client.domain.FailedEvent;
+import org.ict4h.atomfeed.client.domain.Marker;
+import org.ict4h.atomfeed.client.exceptions.AtomFeedClientException;
+import org.ict4h.atomfeed.client.repository.AllFailedEvents;
+import org.ict4h.atomfeed.server.domain.EventFeed;
+import org.ict4h.atomfeed.server.domain.EventRecord;
+import org.ict4h.atomfeed.server.service.EventFeedServiceImpl;
+import org.ict4h.atomfeed.server.service.feedgenerator.FeedGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.openmrs.module.shrclient.metrics.SyncMetrics;
+import org.openmrs.module.shrclient.util.TransactionHelper;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class ParallelEventProcessorTest {
+    private static final String RECENT_ENCOUNTER_URL = "openmrs://feed/encounter/recent";
+
+    @Mock
+    private FeedGenerator feedGenerator;
+    @Mock
+    private AllFailedEvents allFailedEvents;
+
+    private AllMarkersInMemoryImpl allMarkers;
+    private URI recentEncounterURI;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        allMarkers = new AllMarkersInMemoryImpl();
+        recentEncounterURI = new URI(RECENT_ENCOUNTER_URL);
+        EventFeed eventFeed1 = getEventFeed(1, 5, 0);
+        EventFeed eventFeed2 = getEventFeed(2, 2, 5);
+        when(feedGenerator.getRecentFeed("encounter")).thenReturn(eventFeed2);
+        when(feedGenerator.getFeedForId(1, "encounter")).thenReturn(eventFeed1);
+        when(feedGenerator.getFeedForId(2, "encounter")).thenReturn(eventFeed2);
+    }
+
+    @Test
+    public void shouldProcessAllEventsAndMoveMarkerToTheLastEvent() throws Exception {
+        TestEventWorker worker = new TestEventWorker(null);
+
+        getProcessor(worker, 3).processEvents();
+
+        assertEquals(7, worker.processedCount());
+        Marker marker = allMarkers.get(recentEncounterURI);
+        assertEquals("tag:atomfeed.ict4h.org:uuid7", marker.getLastReadEntryId());
+        assertEquals("openmrs://feed/encounter/2", marker.getFeedURIForLastReadEntry().toString());
+        verify(allFailedEvents, never()).addOrUpdate(any(FailedEvent.class));
+    }
+
+    @Test
+    public void shouldProcessEventsOfAPartitionInFeedOrder() throws Exception {
+        TestEventWorker worker = new TestEventWorker(null);
+
+        getProcessor(worker, 4).processEvents();
+
+        for (List<Integer> partitionEvents : worker.processed.values()) {
+            List<Integer> sorted = new ArrayList<>(partitionEvents);
+            Collections.sort(sorted);
+            assertEquals(sorted, partitionEvents);
+        }
+    }
+
+    @Test
+    public void shouldRecordFailedEventAndContinue() throws Exception {
+        TestEventWorker worker = new TestEventWorker("tag:atomfeed.ict4h.org:uuid3");
+
+        getProcessor(worker, 3).processEvents();
+
+        ArgumentCaptor<FailedEvent> failedEvent = ArgumentCaptor.forClass(FailedEvent.class);
+        verify(allFailedEvents).addOrUpdate(failedEvent.capture());
+        assertEquals("tag:atomfeed.ict4h.org:uuid3", failedEvent.getValue().getEventId());
+        assertEquals("tag:atomfeed.ict4h.org:uuid7", allMarkers.get(recentEncounterURI).getLastReadEntryId());
+    }
+
+    @Test
+    public void shouldNotMoveMarkerPastAFailedEventOnceFailedEventsLimitIsReached() throws Exception {
+        when(allFailedEvents.getNumberOfFailedEvents(anyString())).thenReturn(0, 10);
+        TestEventWorker worker = new TestEventWorker("tag:atomfeed.ict4h.org:uuid3");
+
+        getProcessor(worker, 3).processEvents();
+
+        verify(allFailedEvents, never()).addOrUpdate(any(FailedEvent.class));
+        assertEquals("tag:atomfeed.ict4h.org:uuid2", allMarkers.get(recentEncounterURI).getLastReadEntryId());
+    }
+
+    @Test
+    public void shouldNotProcessEventsWhenFailedEventsLimitIsReached() throws Exception {
+        when(allFailedEvents.getNumberOfFailedEvents(anyString())).thenReturn(10);
+        TestEventWorker worker = new TestEventWorker(null);
+
+        getProcessor(worker, 3).processEvents();
+
+        assertEquals(0, worker.processedCount());
+        assertEquals(null, allMarkers.get(recentEncounterURI));
+    }
+
+    private ParallelEventProcessor getProcessor(PartitionedEventWorker worker, int workers) {
+        OpenMRSFeeds allFeeds = new OpenMRSFeeds(new EventFeedServiceImpl(feedGenerator), recentEncounterURI);
+        return new ParallelEventProcessor(allFeeds, allMarkers, allFailedEvents, recentEncounterURI, SyncMetrics.ENCOUNTER_PUSH, worker, 10, workers, 4) {
+            @Override
+            protected Runnable inWorkerContext(Runnable work) {
+                return work;
+            }
+
+            @Override
+            protected <T> T inTransaction(TransactionHelper.TxWork<T> work) {
+                return work.execute();
+            }
+        };
+    }
+
+    private EventFeed getEventFeed(int feedId, int eventCount, int startFrom) {
+        ArrayList<EventRecord> events = new ArrayList<>();
+        for (int idx = 1; idx <= eventCount; idx++) {
+            events.add(new EventRecord("uuid" + (startFrom + idx), "event" + (startFrom + idx), null,
+                    "content" + (startFrom + idx), new Date(), "encounter"));
+        }
+        return new EventFeed(feedId, events);
+    }
+
+    private static int eventNumber(Event event) {
+        return Integer.parseInt(event.getId().substring(event.getId().lastIndexOf("uuid") + 4));
+    }
+
+    private static class TestEventWorker implements PartitionedEventWorker {
+        private final String failFor;
+        private final Map<String, List<Integer>> processed = new HashMap<>();
+
+        private TestEventWorker(String failFor) {
+            this.failFor = failFor;
+        }
+
+        @Override
+        public String getPartitionKey(Event event) {
+            return "patient" + (eventNumber(event) % 2);
+        }
+
+        @Override
+        public void process(Event event) {
+            if (event.getId().equals(failFor)) {
+                throw new AtomFeedClientException("Intentional Fail");
+            }
+            try {
+                Thread.sleep((7 - eventNumber(event)) * 5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (processed) {
+                String partition = getPartitionKey(event);
+                if (!processed.containsKey(partition)) {
+                    processed.put(partition, new ArrayList<Integer>());
+                }
+                processed.get(partition).add(eventNumber(event));
+            }
+        }
+
+        @Override
+        public void cleanUp(Event event) {
+        }
+
+        private int processedCount() {
+            synchronized (processed) {
+                int count = 0;
+                for (List<Integer> events : processed.values()) {
+                    count += events.size();
+                }
+                return count;
+            }
+        }
+    }
+}
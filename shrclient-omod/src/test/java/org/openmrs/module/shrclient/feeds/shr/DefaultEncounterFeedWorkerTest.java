@@ -14,6 +14,7 @@ import org.openmrs.module.shrclient.handlers.ClientRegistry;
 import org.openmrs.module.shrclient.model.Patient;
 import org.openmrs.module.shrclient.service.EMREncounterService;
 import org.openmrs.module.shrclient.service.EMRPatientService;
+import org.openmrs.module.shrclient.util.MciPatientCache;
 import org.openmrs.module.shrclient.util.PropertiesReader;
 import org.openmrs.module.shrclient.util.RestClient;
 import org.openmrs.module.shrclient.web.controller.dto.EncounterEvent;
@@ -40,7 +41,8 @@ public class DefaultEncounterFeedWorkerTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        encounterFeedWorker = new DefaultEncounterFeedWorker(emrPatientService, emrEncounterService, propertiesReader, clientRegistry);
+        encounterFeedWorker = new DefaultEncounterFeedWorker(emrPatientService, emrEncounterService, propertiesReader, clientRegistry,
+                new MciPatientCache(propertiesReader));
     }
 
     @Test
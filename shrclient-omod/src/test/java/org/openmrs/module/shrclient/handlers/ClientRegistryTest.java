@@ -1,13 +1,16 @@
 package org.openmrs.module.shrclient.handlers;
 
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.openmrs.module.fhir.utils.PropertyKeyConstants;
+import org.openmrs.module.shrclient.identity.IdentityProviderService;
 import org.openmrs.module.shrclient.identity.IdentityStore;
 import org.openmrs.module.shrclient.identity.IdentityToken;
+import org.openmrs.module.shrclient.util.HttpClientPool;
 import org.openmrs.module.shrclient.util.PropertiesReader;
 import org.openmrs.module.shrclient.util.RestClient;
 import org.openmrs.module.shrclient.util.SHRClient;
@@ -18,6 +21,7 @@ import java.util.UUID;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.openmrs.module.shrclient.util.Headers.*;
@@ -33,13 +37,24 @@ public class ClientRegistryTest {
     @Mock
     private IdentityStore identityStore;
 
+    private HttpClientPool httpClientPool;
+    private IdentityProviderService identityProviderService;
+
     @Before
     public void setUp() throws Exception {
         initMocks(this);
+        httpClientPool = new HttpClientPool(new Properties());
+        identityProviderService = new IdentityProviderService(propertiesReader, identityStore, httpClientPool);
         when(propertiesReader.getIdentityProperties()).thenReturn(getIdpProperties(AUTH_TOKEN_KEY, CLIENT_ID_KEY));
         when(propertiesReader.getIdPSignInPath()).thenReturn("signin");
     }
 
+    @After
+    public void tearDown() throws Exception {
+        identityProviderService.destroy();
+        httpClientPool.destroy();
+    }
+
     @Test
     public void testCreateMCIClient() throws Exception {
         String xAuthToken = "foobarbazboom";
@@ -60,7 +75,7 @@ public class ClientRegistryTest {
                         .withStatus(200)
                         .withBody("")));
 
-        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, identityStore);
+        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, identityStore, identityProviderService, httpClientPool);
 
         RestClient mciClient = clientRegistry.getMCIClient();
         assertNotNull(mciClient);
@@ -102,7 +117,7 @@ public class ClientRegistryTest {
                         .withStatus(200)
                         .withBody("")));
 
-        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, identityStore);
+        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, identityStore, identityProviderService, httpClientPool);
 
         RestClient mciClient = clientRegistry.getMCIClient();
         assertNotNull(mciClient);
@@ -113,6 +128,33 @@ public class ClientRegistryTest {
                 .withHeader(FROM_KEY, matching(email)));
     }
 
+    @Test
+    public void shouldReuseMCIClientAndSendCurrentIdentityTokenOnEachRequest() throws Exception {
+        String clientIdValue = "18549";
+        String email = "email@gmail.com";
+
+        when(propertiesReader.getMciBaseUrl()).thenReturn("http://localhost:8089");
+        when(propertiesReader.getFacilityInstanceProperties()).thenReturn(getFacilityInstanceProperties("foobarbazboom", clientIdValue, email, "password"));
+
+        String firstToken = UUID.randomUUID().toString();
+        String renewedToken = UUID.randomUUID().toString();
+        when(identityStore.getToken()).thenReturn(new IdentityToken(firstToken), new IdentityToken(renewedToken));
+
+        stubFor(get(urlEqualTo("/mci"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("")));
+
+        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, identityStore, identityProviderService, httpClientPool);
+
+        RestClient mciClient = clientRegistry.getMCIClient();
+        assertSame(mciClient, clientRegistry.getMCIClient());
+        mciClient.get("/mci", String.class);
+        clientRegistry.getMCIClient().get("/mci", String.class);
+        verify(1, getRequestedFor(urlEqualTo("/mci")).withHeader(AUTH_TOKEN_KEY, matching(firstToken)));
+        verify(1, getRequestedFor(urlEqualTo("/mci")).withHeader(AUTH_TOKEN_KEY, matching(renewedToken)));
+    }
+
     @Test
     public void testCreateSHRClient() throws Exception {
         String xAuthToken = "foobarbazboom";
@@ -146,7 +188,7 @@ public class ClientRegistryTest {
                                 "    <updated>2014-10-27T12:08:57Z</updated>\n" +
                                 "</feed>")));
 
-        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, identityStore);
+        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, identityStore, identityProviderService, httpClientPool);
 
         SHRClient shrClient = clientRegistry.getSHRClient();
         assertNotNull(shrClient);
@@ -201,7 +243,7 @@ public class ClientRegistryTest {
                                 "    <updated>2014-10-27T12:08:57Z</updated>\n" +
                                 "</feed>")));
 
-        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, identityStore);
+        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, identityStore, identityProviderService, httpClientPool);
 
         SHRClient shrClient = clientRegistry.getSHRClient();
         assertNotNull(shrClient);
@@ -228,7 +270,7 @@ public class ClientRegistryTest {
                         .withStatus(200)
                         .withBody("")));
 
-        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, null);
+        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, null, identityProviderService, httpClientPool);
 
         RestClient frWebClient = clientRegistry.getFRClient();
         assertNotNull(frWebClient);
@@ -256,7 +298,7 @@ public class ClientRegistryTest {
                         .withStatus(200)
                         .withBody("")));
 
-        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, null);
+        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, null, identityProviderService, httpClientPool);
 
         RestClient lrWebClient = clientRegistry.getLRClient();
         assertNotNull(lrWebClient);
@@ -287,7 +329,7 @@ public class ClientRegistryTest {
                         .withStatus(200)
                         .withBody("")));
 
-        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, null);
+        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, null, identityProviderService, httpClientPool);
 
         RestClient prWebClient = clientRegistry.getPRClient();
         assertNotNull(prWebClient);
@@ -14,10 +14,12 @@ import org.openmrs.api.EncounterService;
 import org.openmrs.module.fhir.mapper.bundler.CompositionBundleCreator;
 import org.openmrs.module.fhir.utils.FHIRBundleHelper;
 import org.openmrs.module.shrclient.dao.IdMappingRepository;
+import org.openmrs.module.shrclient.identity.IdentityProviderService;
 import org.openmrs.module.shrclient.identity.IdentityStore;
 import org.openmrs.module.shrclient.model.IdMapping;
 import org.openmrs.module.shrclient.model.IdMappingType;
 import org.openmrs.module.shrclient.util.FhirBundleContextHolder;
+import org.openmrs.module.shrclient.util.HttpClientPool;
 import org.openmrs.module.shrclient.util.PropertiesReader;
 import org.openmrs.module.shrclient.util.SystemUserService;
 import org.openmrs.web.test.BaseModuleWebContextSensitiveTest;
@@ -54,6 +56,12 @@ public class EncounterPushIT extends BaseModuleWebContextSensitiveTest {
     @Autowired
     private IdentityStore identityStore;
 
+    @Autowired
+    private HttpClientPool httpClientPool;
+
+    @Autowired
+    private IdentityProviderService identityProviderService;
+
     @Autowired
     private PropertiesReader propertiesReader;
 
@@ -77,7 +85,7 @@ public class EncounterPushIT extends BaseModuleWebContextSensitiveTest {
                         .withStatus(HttpStatus.OK.value())
                         .withBody(response)));
 
-        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, identityStore);
+        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, identityStore, identityProviderService, httpClientPool);
         encounterPush = new EncounterPush(encounterService, propertiesReader,
                 compositionBundleCreator, idMappingRepository,
                 clientRegistry, systemUserService);
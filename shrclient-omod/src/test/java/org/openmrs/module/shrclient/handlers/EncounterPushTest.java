@@ -23,6 +23,8 @@ import org.openmrs.module.shrclient.util.SystemProperties;
 import org.openmrs.module.shrclient.util.SystemUserService;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
@@ -30,6 +32,7 @@ import java.util.Properties;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
@@ -86,6 +89,7 @@ public class EncounterPushTest {
         final Bundle bundle = new Bundle();
 
         when(propertiesReader.getShrProperties()).thenReturn(getShrProperties());
+        when(propertiesReader.getSystemProperties()).thenReturn(getSystemProperties());
         when(propertiesReader.getShrPatientEncPathPattern()).thenReturn("/patients/%s/encounters");
         when(encounterService.getEncounterByUuid(uuid)).thenReturn(openMrsEncounter);
         when(shrClient.post(anyString(), eq(bundle))).thenReturn("{\"encounterId\":\"shr-uuid\"}");
@@ -98,10 +102,10 @@ public class EncounterPushTest {
 
         verify(encounterService).getEncounterByUuid(uuid);
         verify(shrClient).post(encountersUrl, bundle);
-        ArgumentCaptor<EncounterIdMapping> encounterDdMappingArgumentCaptor = ArgumentCaptor.forClass(EncounterIdMapping.class);
-        verify(idMappingRepository).saveOrUpdateIdMapping(encounterDdMappingArgumentCaptor.capture());
+        List<IdMapping> idMappings = getSavedIdMappings();
+        assertEquals(1, idMappings.size());
 
-        EncounterIdMapping encounterIdMapping = encounterDdMappingArgumentCaptor.getValue();
+        EncounterIdMapping encounterIdMapping = (EncounterIdMapping) idMappings.get(0);
         assertEquals("shr-uuid", encounterIdMapping.getExternalId());
         assertEquals("shr-uuid", encounterIdMapping.getExternalId());
         assertEquals("encounter", encounterIdMapping.getType());
@@ -125,6 +129,7 @@ public class EncounterPushTest {
         final Bundle bundle = new Bundle();
 
         when(propertiesReader.getShrProperties()).thenReturn(getShrProperties());
+        when(propertiesReader.getSystemProperties()).thenReturn(getSystemProperties());
         when(propertiesReader.getShrPatientEncPathPattern()).thenReturn("/patients/%s/encounters");
         when(encounterService.getEncounterByUuid(uuid)).thenReturn(openMrsEncounter);
         when(shrClient.post(anyString(), eq(bundle))).thenReturn("{\"encounterId\":\"shr-uuid\"}");
@@ -137,10 +142,8 @@ public class EncounterPushTest {
 
         verify(encounterService).getEncounterByUuid(uuid);
         verify(shrClient).post(encountersUrl, bundle);
-        ArgumentCaptor<IdMapping> idMappingArgumentCaptor = ArgumentCaptor.forClass(IdMapping.class);
-        verify(idMappingRepository, times(2)).saveOrUpdateIdMapping(idMappingArgumentCaptor.capture());
-
-        List<IdMapping> idMappings = idMappingArgumentCaptor.getAllValues();
+        List<IdMapping> idMappings = getSavedIdMappings();
+        assertEquals(2, idMappings.size());
         String orderUrl = "http://localhost:9997/patients/" + HEALTH_ID + "/encounters/shr-uuid" + "#MedicationRequest/" + drugOrder.getUuid();
         String externalId = String.format(MRSProperties.RESOURCE_MAPPING_EXTERNAL_ID_FORMAT, "shr-uuid", drugOrder.getUuid());
         assertTrue(containsIdMapping(idMappings, drugOrder.getUuid(), externalId, IdMappingType.MEDICATION_ORDER, orderUrl));
@@ -163,6 +166,7 @@ public class EncounterPushTest {
         PatientIdMapping patientIdMapping = new PatientIdMapping(openMrsEncounter.getPatient().getUuid(), HEALTH_ID, encountersUrl);
 
         when(propertiesReader.getShrProperties()).thenReturn(getShrProperties());
+        when(propertiesReader.getSystemProperties()).thenReturn(getSystemProperties());
         when(propertiesReader.getShrPatientEncPathPattern()).thenReturn("/patients/%s/encounters");
         when(encounterService.getEncounterByUuid(uuid)).thenReturn(openMrsEncounter);
         when(shrClient.post(anyString(), eq(bundle))).thenReturn("{\"encounterId\":\"shr-uuid\"}");
@@ -172,10 +176,8 @@ public class EncounterPushTest {
         encounterPush.process(event);
         
         verify(shrClient).post(encountersUrl, bundle);
-        ArgumentCaptor<IdMapping> idMappingArgumentCaptor = ArgumentCaptor.forClass(IdMapping.class);
-        verify(idMappingRepository, times(2)).saveOrUpdateIdMapping(idMappingArgumentCaptor.capture());
-
-        List<IdMapping> idMappings = idMappingArgumentCaptor.getAllValues();
+        List<IdMapping> idMappings = getSavedIdMappings();
+        assertEquals(2, idMappings.size());
         String orderUrl = "http://localhost:9997/patients/" + HEALTH_ID + "/encounters/shr-uuid" + "#ProcedureRequest/" + procedureOrder.getUuid();
         String externalId = String.format(MRSProperties.RESOURCE_MAPPING_EXTERNAL_ID_FORMAT, "shr-uuid", procedureOrder.getUuid());
         assertTrue(containsIdMapping(idMappings, procedureOrder.getUuid(), externalId, IdMappingType.PROCEDURE_REQUEST, orderUrl));
@@ -194,6 +196,7 @@ public class EncounterPushTest {
         final Bundle bundle = new Bundle();
 
         when(propertiesReader.getShrProperties()).thenReturn(getShrProperties());
+        when(propertiesReader.getSystemProperties()).thenReturn(getSystemProperties());
         when(propertiesReader.getShrPatientEncPathPattern()).thenReturn("/patients/%s/encounters");
         when(encounterService.getEncounterByUuid(uuid)).thenReturn(openMrsEncounter);
         when(idMappingRepository.findByInternalId(uuid, IdMappingType.ENCOUNTER)).thenReturn(new EncounterIdMapping(uuid, "shr-uuid", "encounter", new Date(), null, openMrsEncounter.getDateCreated()));
@@ -204,7 +207,7 @@ public class EncounterPushTest {
         encounterPush.process(event);
 
         verify(shrClient).put("patients/" + HEALTH_ID + "/encounters/shr-uuid", bundle);
-        verify(idMappingRepository, times(1)).saveOrUpdateIdMapping(any(EncounterIdMapping.class));
+        assertEquals(1, getSavedIdMappings().size());
     }
 
     @Test
@@ -217,6 +220,7 @@ public class EncounterPushTest {
         final Bundle bundle = new Bundle();
 
         when(propertiesReader.getShrProperties()).thenReturn(getShrProperties());
+        when(propertiesReader.getSystemProperties()).thenReturn(getSystemProperties());
         when(encounterService.getEncounterByUuid(uuid)).thenReturn(openMrsEncounter);
         when(idMappingRepository.findByInternalId(uuid, IdMappingType.ENCOUNTER)).thenReturn(new EncounterIdMapping(uuid, "shr-uuid", "encounter", null));
         when(compositionBundleCreator.create(any(Encounter.class), eq(HEALTH_ID), any(SystemProperties.class))).thenReturn(bundle);
@@ -229,6 +233,7 @@ public class EncounterPushTest {
         verify(shrClient, never()).put("patients/" + HEALTH_ID + "/encounters/shr-uuid", bundle);
         verify(shrClient, never()).post("patients/" + HEALTH_ID + "/encounters/shr-uuid", bundle);
         verify(idMappingRepository, never()).saveOrUpdateIdMapping(any(IdMapping.class));
+        verify(idMappingRepository, never()).saveOrUpdateAll(anyCollectionOf(IdMapping.class));
     }
 
     @Test
@@ -239,6 +244,16 @@ public class EncounterPushTest {
         assertEquals(uuid, encounterPush.getUuid(content));
     }
 
+    @Test
+    public void shouldPartitionEventsByEncounterUuidWithoutLoadingTheEncounter() throws Exception {
+        final String uuid = "123abc456";
+        final Event event = new Event("id100", "/openmrs/ws/rest/v1/encounter/" + uuid
+                + "?v=custom:(uuid,encounterType,patient,visit,orders:(uuid,orderType,concept,voided))");
+
+        assertEquals(uuid, encounterPush.getPartitionKey(event));
+        verify(encounterService, never()).getEncounterByUuid(anyString());
+    }
+
     @Test(expected = RuntimeException.class)
     public void shouldNotProcessEncounterIfPatientIsNotSynced() throws Exception{
         final String uuid = "123abc456";
@@ -253,6 +268,12 @@ public class EncounterPushTest {
         encounterPush.process(event);
     }
 
+    private List<IdMapping> getSavedIdMappings() {
+        ArgumentCaptor<Collection> idMappingsArgumentCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(idMappingRepository).saveOrUpdateAll(idMappingsArgumentCaptor.capture());
+        return new ArrayList<IdMapping>(idMappingsArgumentCaptor.getValue());
+    }
+
     private boolean containsIdMapping(List<IdMapping> idMappings, String internalId, String externalId, String type, String url) {
         for (IdMapping idMapping : idMappings) {
             if(idMapping.getInternalId().equals(internalId)
@@ -274,6 +295,10 @@ public class EncounterPushTest {
         return openMrsEncounter;
     }
 
+    private SystemProperties getSystemProperties() {
+        return new SystemProperties(null, null, null, null, null, getShrProperties(), null);
+    }
+
     private Properties getShrProperties() {
         Properties shrProperties = new Properties();
         shrProperties.setProperty(SHR_REFERENCE_PATH, "http://localhost:9997");
@@ -13,9 +13,12 @@ import org.openmrs.module.addresshierarchy.AddressHierarchyEntry;
 import org.openmrs.module.addresshierarchy.AddressHierarchyLevel;
 import org.openmrs.module.addresshierarchy.service.AddressHierarchyService;
 import org.openmrs.module.shrclient.dao.AddressHierarchyEntryTranslationRepository;
+import org.openmrs.module.shrclient.dao.AddressHierarchyIndex;
+import org.openmrs.module.shrclient.identity.IdentityProviderService;
 import org.openmrs.module.shrclient.identity.IdentityStore;
 import org.openmrs.module.shrclient.mapper.AddressHierarchyEntryMapper;
 import org.openmrs.module.shrclient.model.AddressHierarchyEntryTranslation;
+import org.openmrs.module.shrclient.util.HttpClientPool;
 import org.openmrs.module.shrclient.util.PropertiesReader;
 import org.openmrs.module.shrclient.util.RestClient;
 import org.openmrs.module.shrclient.util.ScheduledTaskHistory;
@@ -46,7 +49,15 @@ public class LocationPullIT extends BaseModuleWebContextSensitiveTest {
     @Autowired
     private PropertiesReader propertiesReader;
     @Autowired
+    private HttpClientPool httpClientPool;
+    @Autowired
+    private IdentityStore identityStore;
+    @Autowired
+    private IdentityProviderService identityProviderService;
+    @Autowired
     private AddressHierarchyEntryTranslationRepository entryTranslationRepository;
+    @Autowired
+    private AddressHierarchyIndex addressHierarchyIndex;
 
     private RestClient restClient;
     private AddressHierarchyService addressHierarchyService;
@@ -63,10 +74,10 @@ public class LocationPullIT extends BaseModuleWebContextSensitiveTest {
     public void setUp() throws Exception {
         executeDataSet("testDataSets/address_hierarchy_levels.xml");
         MockitoAnnotations.initMocks(this);
-        restClient = new ClientRegistry(propertiesReader, new IdentityStore()).getLRClient();
+        restClient = new ClientRegistry(propertiesReader, identityStore, identityProviderService, httpClientPool).getLRClient();
         addressHierarchyService = Context.getService(AddressHierarchyService.class);
         locationPull = new LocationPull(propertiesReader, restClient, addressHierarchyService,
-                scheduledTaskHistory, new AddressHierarchyEntryMapper(), entryTranslationRepository);
+                scheduledTaskHistory, new AddressHierarchyEntryMapper(), entryTranslationRepository, addressHierarchyIndex);
 
         stubFor(get(urlPathMatching("/api/1.0/locations/list/district")).willReturn(aResponse().withBody("[]")));
         stubFor(get(urlPathMatching("/api/1.0/locations/list/upazila")).willReturn(aResponse().withBody("[]")));
@@ -8,6 +8,7 @@ import org.mockito.Mock;
 import org.openmrs.module.addresshierarchy.service.AddressHierarchyService;
 import org.openmrs.module.fhir.utils.PropertyKeyConstants;
 import org.openmrs.module.shrclient.dao.AddressHierarchyEntryTranslationRepository;
+import org.openmrs.module.shrclient.dao.AddressHierarchyIndex;
 import org.openmrs.module.shrclient.mapper.AddressHierarchyEntryMapper;
 import org.openmrs.module.shrclient.model.AddressHierarchyEntryTranslation;
 import org.openmrs.module.shrclient.model.LRAddressHierarchyEntry;
@@ -52,6 +53,9 @@ public class LocationPullTest {
     @Mock
     AddressHierarchyEntryTranslationRepository addressHierarchyEntryTranslationRepository;
 
+    @Mock
+    AddressHierarchyIndex addressHierarchyIndex;
+
     LRAddressHierarchyEntry[] lrAddressHierarchyEntriesForDivisions;
     LRAddressHierarchyEntry[] lrAddressHierarchyEntriesForDistricts;
     LRAddressHierarchyEntry[] lrAddressHierarchyEntriesForUpazilas;
@@ -120,7 +124,7 @@ public class LocationPullTest {
         String lastReadEntryIdForUnion = "1004099913";
         String lastReadEntryIdForWard = "100409991501";
 
-        LocationPull locationPull = new LocationPull(propertiesReader, lrWebClient, addressHierarchyService, scheduledTaskHistory, addressHierarchyEntryMapper, addressHierarchyEntryTranslationRepository);
+        LocationPull locationPull = new LocationPull(propertiesReader, lrWebClient, addressHierarchyService, scheduledTaskHistory, addressHierarchyEntryMapper, addressHierarchyEntryTranslationRepository, addressHierarchyIndex);
         locationPull.synchronize();
 
         verify(scheduledTaskHistory, times(1)).getFeedUriForLastReadEntryByFeedUri(LR_DIVISIONS_LEVEL_FEED_URI);
@@ -179,7 +183,7 @@ public class LocationPullTest {
         when(lrWebClient.get(unionContextPath.replace(SINGLE_SPACE, ENCODED_SINGLE_SPACE), LRAddressHierarchyEntry[].class)).thenReturn(new LRAddressHierarchyEntry[]{});
         when(lrWebClient.get(wardContextPath.replace(SINGLE_SPACE, ENCODED_SINGLE_SPACE), LRAddressHierarchyEntry[].class)).thenReturn(new LRAddressHierarchyEntry[]{});
 
-        LocationPull locationPull = new LocationPull(propertiesReader, lrWebClient, addressHierarchyService, scheduledTaskHistory, addressHierarchyEntryMapper, addressHierarchyEntryTranslationRepository);
+        LocationPull locationPull = new LocationPull(propertiesReader, lrWebClient, addressHierarchyService, scheduledTaskHistory, addressHierarchyEntryMapper, addressHierarchyEntryTranslationRepository, addressHierarchyIndex);
         locationPull.synchronize();
 
         verify(scheduledTaskHistory, times(1)).getFeedUriForLastReadEntryByFeedUri(LR_DIVISIONS_LEVEL_FEED_URI);
@@ -15,12 +15,14 @@ import org.openmrs.api.ProviderService;
 import org.openmrs.module.fhir.OpenMRSConstants;
 import org.openmrs.module.fhir.utils.DateUtil;
 import org.openmrs.module.shrclient.dao.IdMappingRepository;
+import org.openmrs.module.shrclient.identity.IdentityProviderService;
 import org.openmrs.module.shrclient.identity.IdentityStore;
 import org.openmrs.module.shrclient.mapper.PatientMapper;
 import org.openmrs.module.shrclient.model.Patient;
 import org.openmrs.module.shrclient.model.PhoneNumber;
 import org.openmrs.module.shrclient.model.Relation;
 import org.openmrs.module.shrclient.service.BbsCodeService;
+import org.openmrs.module.shrclient.util.HttpClientPool;
 import org.openmrs.module.shrclient.util.PropertiesReader;
 import org.openmrs.module.shrclient.util.SystemUserService;
 import org.openmrs.web.test.BaseModuleWebContextSensitiveTest;
@@ -54,6 +56,10 @@ public class PatientPushIT extends BaseModuleWebContextSensitiveTest {
     @Autowired
     private IdentityStore identityStore;
     @Autowired
+    private HttpClientPool httpClientPool;
+    @Autowired
+    private IdentityProviderService identityProviderService;
+    @Autowired
     private LocationService locationService;
 
     private PatientPush patientPush;
@@ -77,7 +83,7 @@ public class PatientPushIT extends BaseModuleWebContextSensitiveTest {
                         .withBody(response)));
 
 
-        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, identityStore);
+        ClientRegistry clientRegistry = new ClientRegistry(propertiesReader, identityStore, identityProviderService, httpClientPool);
         PatientMapper patientMapper = new PatientMapper(new BbsCodeService(), idMappingsRepository);
         patientPush = new PatientPush(patientService, systemUserService, personService,
                 patientMapper, propertiesReader, clientRegistry,
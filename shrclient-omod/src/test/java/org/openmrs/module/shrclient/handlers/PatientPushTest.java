@@ -20,6 +20,7 @@ import org.openmrs.module.shrclient.mapper.PatientMapper;
 import org.openmrs.module.shrclient.model.*;
 import org.openmrs.module.shrclient.model.mci.api.MciPatientUpdateResponse;
 import org.openmrs.module.shrclient.util.PropertiesReader;
+import org.openmrs.module.shrclient.util.SystemProperties;
 import org.openmrs.module.shrclient.util.RestClient;
 import org.openmrs.module.shrclient.util.SystemUserService;
 
@@ -73,10 +74,12 @@ public class PatientPushTest {
                 propertiesReader, clientRegistry, idMappingsRepository, providerService);
         String mciPatientContext = "/api/default/patients";
         when(propertiesReader.getMciPatientContext()).thenReturn(mciPatientContext);
-        when(propertiesReader.getMciProperties()).thenReturn(new Properties() {{
+        Properties mciProperties = new Properties() {{
             put(PropertyKeyConstants.MCI_REFERENCE_PATH, "http://public.com/");
             put(PropertyKeyConstants.MCI_PATIENT_CONTEXT, "/api/default/patients");
-        }});
+        }};
+        when(propertiesReader.getMciProperties()).thenReturn(mciProperties);
+        when(propertiesReader.getSystemProperties()).thenReturn(new SystemProperties(null, null, null, null, mciProperties, null, null));
     }
 
     @Test
@@ -16,6 +16,7 @@ import org.openmrs.module.shrclient.mapper.ProviderMapper;
 import org.openmrs.module.shrclient.model.IdMappingType;
 import org.openmrs.module.shrclient.model.ProviderEntry;
 import org.openmrs.module.shrclient.util.PropertiesReader;
+import org.openmrs.module.shrclient.util.SystemProperties;
 import org.openmrs.module.shrclient.util.RestClient;
 import org.openmrs.module.shrclient.util.ScheduledTaskHistory;
 
@@ -67,6 +68,7 @@ public class ProviderPullTest {
         properties.put("pr.referenceUrl", "http://hrmtest.dghs.gov.bd/api/1.0/providers");
 
         when(propertiesReader.getPrProperties()).thenReturn(properties);
+        when(propertiesReader.getSystemProperties()).thenReturn(new SystemProperties(null, null, properties, null, null, null, null));
         when(propertiesReader.getPrBaseUrl()).thenReturn("http://hrmtest.dghs.gov.bd/api/1.0/providers");
         ProviderAttributeType organizationAttributeType = new ProviderAttributeType();
         organizationAttributeType.setName("Organization");
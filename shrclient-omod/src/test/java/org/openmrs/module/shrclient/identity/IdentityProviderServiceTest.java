@@ -1,19 +1,29 @@
 package org.openmrs.module.shrclient.identity;
 
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.openmrs.module.fhir.utils.PropertyKeyConstants;
+import org.openmrs.module.shrclient.util.HttpClientPool;
 import org.openmrs.module.shrclient.util.PropertiesReader;
 import org.springframework.http.HttpStatus;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -32,10 +42,12 @@ public class IdentityProviderServiceTest {
     private String clientIdValue;
     private String email;
     private String password;
+    private HttpClientPool httpClientPool;
 
     @Before
     public void setUp() throws Exception {
         initMocks(this);
+        httpClientPool = new HttpClientPool(new Properties());
         xAuthToken = "foobarbazboom";
         clientId = "client_id";
         clientIdValue = "18549";
@@ -44,6 +56,11 @@ public class IdentityProviderServiceTest {
         xAuthTokenKey = "X-Auth-Token";
     }
 
+    @After
+    public void tearDown() throws Exception {
+        httpClientPool.destroy();
+    }
+
     @Test
     public void shouldFetchToken() throws Exception {
         UUID token = UUID.randomUUID();
@@ -59,8 +76,83 @@ public class IdentityProviderServiceTest {
                                 .withBody(response)
                 ));
 
-        IdentityToken identityToken = new IdentityProviderService(propertiesReader, identityStore).getOrCreateToken();
+        IdentityProviderService identityProviderService = new IdentityProviderService(propertiesReader, identityStore, httpClientPool);
+        IdentityToken identityToken = identityProviderService.getOrCreateToken();
         assertEquals(token.toString(), identityToken.toString());
+        identityProviderService.destroy();
+    }
+
+    @Test
+    public void shouldSignInOnceForConcurrentCallers() throws Exception {
+        setUpIdentityProperties();
+        when(propertiesReader.getIdPBaseUrl()).thenReturn("http://localhost:8089");
+        when(propertiesReader.getIdPSignInPath()).thenReturn("signin");
+        stubFor(post(urlMatching("/signin"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withFixedDelay(200)
+                        .withBody("{\"access_token\" : \"" + UUID.randomUUID() + "\"}")));
+
+        IdentityStore store = new IdentityStore();
+        final IdentityProviderService identityProviderService = new IdentityProviderService(propertiesReader, store, httpClientPool);
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        List<Future<IdentityToken>> tokens = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tokens.add(executor.submit(new Callable<IdentityToken>() {
+                @Override
+                public IdentityToken call() throws Exception {
+                    return identityProviderService.getOrCreateToken();
+                }
+            }));
+        }
+        for (Future<IdentityToken> token : tokens) {
+            assertSame(store.getToken(), token.get());
+        }
+        executor.shutdown();
+        verify(1, postRequestedFor(urlMatching("/signin")));
+        identityProviderService.destroy();
+    }
+
+    @Test
+    public void shouldRefreshTokenBeforeItExpires() throws Exception {
+        setUpIdentityProperties();
+        when(propertiesReader.getIdPBaseUrl()).thenReturn("http://localhost:8089");
+        when(propertiesReader.getIdPSignInPath()).thenReturn("signin");
+        when(propertiesReader.getIdPTokenRefreshLeadSeconds()).thenReturn(1);
+        stubFor(post(urlMatching("/signin"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withBody("{\"access_token\" : \"" + UUID.randomUUID() + "\", \"expires_in\" : 2}")));
+
+        IdentityStore store = new IdentityStore();
+        IdentityProviderService identityProviderService = new IdentityProviderService(propertiesReader, store, httpClientPool);
+        IdentityToken token = identityProviderService.getOrCreateToken();
+        assertEquals(token, store.getToken());
+
+        Thread.sleep(1500);
+
+        verify(2, postRequestedFor(urlMatching("/signin")));
+        assertNotSame(token, store.getToken());
+        identityProviderService.destroy();
+    }
+
+    @Test
+    public void shouldReuseTokensThatLiveShorterThanTheExpiryMargin() throws Exception {
+        setUpIdentityProperties();
+        when(propertiesReader.getIdPBaseUrl()).thenReturn("http://localhost:8089");
+        when(propertiesReader.getIdPSignInPath()).thenReturn("signin");
+        stubFor(post(urlMatching("/signin"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withBody("{\"access_token\" : \"" + UUID.randomUUID() + "\", \"expires_in\" : 20}")));
+
+        IdentityStore store = new IdentityStore();
+        IdentityProviderService identityProviderService = new IdentityProviderService(propertiesReader, store, httpClientPool);
+        IdentityToken token = identityProviderService.getOrCreateToken();
+
+        assertSame(token, identityProviderService.getOrCreateToken());
+        verify(1, postRequestedFor(urlMatching("/signin")));
+        identityProviderService.destroy();
     }
 
     private void setUpIdentityProperties() {
@@ -0,0 +1,106 @@
+package org.openmrs.module.shrclient.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.shrclient.dao.IdMappingCache;
+import org.openmrs.module.shrclient.model.IdMapping;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+public class SyncMetricsTest {
+
+    private SyncMetrics metrics;
+    private IdMappingCache idMappingCache;
+
+    @Before
+    public void setUp() throws Exception {
+        idMappingCache = new IdMappingCache(10, 60000, 60000);
+        metrics = new SyncMetrics() {
+            @Override
+            protected IdMappingCache getIdMappingCache() {
+                return idMappingCache;
+            }
+        };
+    }
+
+    @Test
+    public void shouldCountEventsByPipelineAndOutcome() throws Exception {
+        metrics.recordEvent(SyncMetrics.ENCOUNTER_PULL, SyncMetrics.PROCESSED);
+        metrics.recordEvent(SyncMetrics.ENCOUNTER_PULL, SyncMetrics.PROCESSED);
+        metrics.recordEvent(SyncMetrics.ENCOUNTER_PULL, SyncMetrics.FAILED);
+
+        String output = scrape();
+
+        assertTrue(output.contains("# TYPE bdshr_sync_events_total counter\n"));
+        assertTrue(output.contains("bdshr_sync_events_total{pipeline=\"encounter_pull\",outcome=\"processed\"} 2\n"));
+        assertTrue(output.contains("bdshr_sync_events_total{pipeline=\"encounter_pull\",outcome=\"failed\"} 1\n"));
+    }
+
+    @Test
+    public void shouldRecordStageDurationsInCumulativeBuckets() throws Exception {
+        metrics.recordStage(SyncMetrics.ENCOUNTER_PUSH, SyncMetrics.UPLOAD, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(200));
+        metrics.recordStage(SyncMetrics.ENCOUNTER_PUSH, SyncMetrics.UPLOAD, System.nanoTime() - TimeUnit.SECONDS.toNanos(3));
+
+        String output = scrape();
+
+        assertTrue(output.contains("# TYPE bdshr_sync_stage_duration_seconds histogram\n"));
+        assertTrue(output.contains("bdshr_sync_stage_duration_seconds_bucket{pipeline=\"encounter_push\",stage=\"upload\",le=\"0.1\"} 0\n"));
+        assertTrue(output.contains("bdshr_sync_stage_duration_seconds_bucket{pipeline=\"encounter_push\",stage=\"upload\",le=\"0.25\"} 1\n"));
+        assertTrue(output.contains("bdshr_sync_stage_duration_seconds_bucket{pipeline=\"encounter_push\",stage=\"upload\",le=\"5.0\"} 2\n"));
+        assertTrue(output.contains("bdshr_sync_stage_duration_seconds_bucket{pipeline=\"encounter_push\",stage=\"upload\",le=\"+Inf\"} 2\n"));
+        assertTrue(output.contains("bdshr_sync_stage_duration_seconds_count{pipeline=\"encounter_push\",stage=\"upload\"} 2\n"));
+    }
+
+    @Test
+    public void shouldCountHttpResponsesByRegistryAndStatus() throws Exception {
+        metrics.recordHttpResponse("mci", "200");
+        metrics.recordHttpResponse("mci", "401");
+        metrics.recordHttpResponse("mci", "200");
+
+        String output = scrape();
+
+        assertTrue(output.contains("bdshr_http_responses_total{registry=\"mci\",status=\"200\"} 2\n"));
+        assertTrue(output.contains("bdshr_http_responses_total{registry=\"mci\",status=\"401\"} 1\n"));
+    }
+
+    @Test
+    public void shouldKeepLatestFeedLagAndEscapeLabels() throws Exception {
+        String feed = "http://shr/catchments/\"30\"/encounters";
+        metrics.recordFeedLag(SyncMetrics.ENCOUNTER_PULL, feed, 90000);
+        metrics.recordFeedLag(SyncMetrics.ENCOUNTER_PULL, feed, 1500);
+
+        String output = scrape();
+
+        assertTrue(output.contains("# TYPE bdshr_feed_lag_seconds gauge\n"));
+        assertTrue(output.contains("bdshr_feed_lag_seconds{pipeline=\"encounter_pull\",feed=\"http://shr/catchments/\\\"30\\\"/encounters\"} 1.5\n"));
+    }
+
+    @Test
+    public void shouldPublishIdMappingCacheHitsAndMisses() throws Exception {
+        IdMappingCache.Loader loader = new IdMappingCache.Loader() {
+            @Override
+            public IdMapping load() {
+                return new IdMapping();
+            }
+        };
+        idMappingCache.get("concept:1", loader);
+        idMappingCache.get("concept:1", loader);
+        idMappingCache.get("concept:1", loader);
+        idMappingCache.get("concept:2", loader);
+
+        String output = scrape();
+
+        assertTrue(output.contains("# TYPE bdshr_cache_requests_total counter\n"));
+        assertTrue(output.contains("bdshr_cache_requests_total{cache=\"id_mapping\",result=\"hit\"} 2\n"));
+        assertTrue(output.contains("bdshr_cache_requests_total{cache=\"id_mapping\",result=\"miss\"} 2\n"));
+    }
+
+    private String scrape() throws Exception {
+        StringWriter writer = new StringWriter();
+        metrics.writeTo(writer);
+        return writer.toString();
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.Test;
 import java.util.Date;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 public class EncounterIdMappingTest {
 
@@ -14,4 +15,10 @@ public class EncounterIdMappingTest {
         assertEquals("123456789", encounterIdMapping.getHealthId());
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldNotHaveHealthIdWhenUriIsNotUnderAPatient() {
+        EncounterIdMapping encounterIdMapping = new EncounterIdMapping("internalId", "externalId", "http://shr.com/encounters/encounter-id", new Date(), null, null);
+        assertNull(encounterIdMapping.getHealthId());
+    }
+}
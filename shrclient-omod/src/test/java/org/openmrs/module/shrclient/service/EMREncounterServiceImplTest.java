@@ -133,6 +133,7 @@ public class EMREncounterServiceImplTest {
         shrProperties.put(SHR_REFERENCE_PATH, "http://shr.com/");
         shrProperties.put(SHR_PATIENT_ENC_PATH_PATTERN, "/patients/%s/encounters");
         when(mockPropertiesReader.getShrProperties()).thenReturn(shrProperties);
+        when(mockPropertiesReader.getSystemProperties()).thenReturn(new SystemProperties(null, null, null, null, null, shrProperties, null));
         when(mockFhirmapper.getVisitPeriod(any(ShrEncounterBundle.class))).thenReturn(new Period());
         when(mockVisitLookupService.findOrInitializeVisit(eq(emrPatient), any(Date.class), any(VisitType.class), any(Location.class), any(Date.class), any(Date.class))).thenReturn(new Visit());
         emrEncounterService.createOrUpdateEncounter(emrPatient, encounterEvent);
@@ -192,6 +193,7 @@ public class EMREncounterServiceImplTest {
         shrProperties.put(SHR_REFERENCE_PATH, "http://shr.com/");
         shrProperties.put(SHR_PATIENT_ENC_PATH_PATTERN, "/patients/%s/encounters");
         when(mockPropertiesReader.getShrProperties()).thenReturn(shrProperties);
+        when(mockPropertiesReader.getSystemProperties()).thenReturn(new SystemProperties(null, null, null, null, null, shrProperties, null));
 
         emrEncounterService.createOrUpdateEncounter(emrPatient, encounterEvent);
         verify(mockFhirmapper, times(0)).map(eq(emrPatient), any(ShrEncounterBundle.class), any(SystemProperties.class));
@@ -228,6 +230,7 @@ public class EMREncounterServiceImplTest {
         shrProperties.put(SHR_REFERENCE_PATH, "http://shr.com/");
         shrProperties.put(SHR_PATIENT_ENC_PATH_PATTERN, "/patients/%s/encounters");
         when(mockPropertiesReader.getShrProperties()).thenReturn(shrProperties);
+        when(mockPropertiesReader.getSystemProperties()).thenReturn(new SystemProperties(null, null, null, null, null, shrProperties, null));
         when(mockFhirmapper.getVisitPeriod(any(ShrEncounterBundle.class))).thenReturn(new Period());
         when(mockVisitLookupService.findOrInitializeVisit(eq(emrPatient), any(Date.class), any(VisitType.class), any(Location.class), any(Date.class), any(Date.class))).thenReturn(new Visit());
 
@@ -268,6 +271,7 @@ public class EMREncounterServiceImplTest {
         shrProperties.put(SHR_REFERENCE_PATH, "http://shr.com/");
         shrProperties.put(SHR_PATIENT_ENC_PATH_PATTERN, "/patients/%s/encounters");
         when(mockPropertiesReader.getShrProperties()).thenReturn(shrProperties);
+        when(mockPropertiesReader.getSystemProperties()).thenReturn(new SystemProperties(null, null, null, null, null, shrProperties, null));
         when(mockFhirmapper.getVisitPeriod(any(ShrEncounterBundle.class))).thenReturn(new Period());
         when(mockVisitLookupService.findOrInitializeVisit(eq(emrPatient), any(Date.class), any(VisitType.class), any(Location.class), any(Date.class), any(Date.class))).thenReturn(new Visit());
 
@@ -2,6 +2,7 @@ package org.openmrs.module.shrclient.service;
 
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import org.apache.commons.io.FileUtils;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -12,14 +13,21 @@ import org.openmrs.api.context.ServiceContext;
 import org.openmrs.module.addresshierarchy.AddressHierarchyEntry;
 import org.openmrs.module.addresshierarchy.service.AddressHierarchyService;
 import org.openmrs.module.fhir.utils.GlobalPropertyLookUpService;
+import org.openmrs.module.shrclient.handlers.ClientRegistry;
+import org.openmrs.module.shrclient.identity.IdentityProviderService;
 import org.openmrs.module.shrclient.identity.IdentityStore;
 import org.openmrs.module.shrclient.identity.IdentityToken;
 import org.openmrs.module.shrclient.model.Patient;
 import org.openmrs.module.shrclient.service.impl.EMREncounterServiceImpl;
+import org.openmrs.module.shrclient.service.impl.EncounterBackfillQueue;
 import org.openmrs.module.shrclient.service.impl.MCIPatientLookupServiceImpl;
+import org.openmrs.module.shrclient.util.HttpClientPool;
+import org.openmrs.module.shrclient.util.MciPatientCache;
 import org.openmrs.module.shrclient.util.PropertiesReader;
 import org.openmrs.module.shrclient.util.StringUtil;
+import org.openmrs.module.shrclient.util.TransactionHelper;
 import org.openmrs.module.shrclient.web.controller.MciPatientSearchRequest;
+import org.openmrs.module.shrclient.web.controller.dto.EncounterEvent;
 
 import java.io.File;
 import java.io.IOException;
@@ -33,7 +41,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.openmrs.module.shrclient.util.Headers.*;
@@ -56,6 +67,8 @@ public class MCIPatientLookupServiceTest {
     @Rule
     public WireMockRule wireMockRule = new WireMockRule(9997);
     private MCIPatientLookupService lookupService;
+    private HttpClientPool httpClientPool;
+    private IdentityProviderService identityProviderService;
 
     @Before
     public void setUp() throws Exception {
@@ -63,15 +76,40 @@ public class MCIPatientLookupServiceTest {
         when(mockPropertiesReader.getMciBaseUrl()).thenReturn("http://localhost:9997");
         when(mockPropertiesReader.getShrBaseUrl()).thenReturn("http://localhost:9997");
         when(mockPropertiesReader.getMciPatientContext()).thenReturn("/api/default/patients");
-
-        lookupService = new MCIPatientLookupServiceImpl(mockEmrPatientService, mockPropertiesReader, mockIdentityStore,
-                mockEmrEncounterServiceImpl, mockEmrPatientMergeService);
+        when(mockPropertiesReader.getMciSearchTimeoutMillis()).thenReturn(2000);
+        httpClientPool = new HttpClientPool(new Properties());
+        identityProviderService = new IdentityProviderService(mockPropertiesReader, mockIdentityStore, httpClientPool);
+
+        EncounterBackfillQueue encounterBackfillQueue = new EncounterBackfillQueue(1) {
+            @Override
+            protected void execute(Runnable task) {
+                task.run();
+            }
+
+            @Override
+            protected Runnable inWorkerContext(Runnable work) {
+                return work;
+            }
+
+            @Override
+            protected <T> T inTransaction(TransactionHelper.TxWork<T> work) {
+                return work.execute();
+            }
+        };
+        lookupService = new MCIPatientLookupServiceImpl(mockEmrPatientService, mockPropertiesReader, new ClientRegistry(mockPropertiesReader, mockIdentityStore, identityProviderService, httpClientPool),
+                mockEmrEncounterServiceImpl, mockEmrPatientMergeService, new MciPatientCache(mockPropertiesReader), encounterBackfillQueue);
         Context context = new Context();
         ServiceContext serviceContext = ServiceContext.getInstance();
         serviceContext.setService(AddressHierarchyService.class, addressHierarchyService);
         context.setServiceContext(serviceContext);
     }
 
+    @After
+    public void tearDown() throws Exception {
+        identityProviderService.destroy();
+        httpClientPool.destroy();
+    }
+
     @Test
     public void shouldSearchPatientByHealthId() throws Exception {
         String xAuthToken = "xyz";
@@ -200,6 +238,58 @@ public class MCIPatientLookupServiceTest {
 
     }
 
+    @Test
+    public void shouldSearchPatientsByAllGivenIdentifiersOnce() throws Exception {
+        String token = UUID.randomUUID().toString();
+        MciPatientSearchRequest request = new MciPatientSearchRequest();
+        request.setNid("9000001191832");
+        request.setHouseHoldCode("12");
+        AddressHierarchyEntry entry = new AddressHierarchyEntry();
+        entry.setName("testEntry");
+
+        when(mockIdentityStore.getToken()).thenReturn(new IdentityToken(token));
+        when(addressHierarchyService.getAddressHierarchyEntryByUserGenId(anyString())).thenReturn(entry);
+        when(mockPropertiesReader.getFacilityInstanceProperties()).thenReturn(getFacilityInstanceProperties("xyz", "12345", "email@gmail.com", "password"));
+        String patientContext = StringUtil.removeSuffix(mockPropertiesReader.getMciPatientContext(), "/");
+
+        givenThat(get(urlEqualTo(patientContext + "?nid=9000001191832"))
+                .willReturn(aResponse().withBody(asString("patients_response/by_nid.json"))));
+        givenThat(get(urlEqualTo(patientContext + "?household_code=12"))
+                .willReturn(aResponse().withBody(asString("patients_response/by_house_hold_code.json"))));
+
+        Object[] patients = (Object[]) lookupService.searchPatientInRegistry(request);
+        assertEquals(4, patients.length);
+        assertPatient((Map<String, Object>) patients[0], "11408769630", "brn", "F");
+        assertPatient((Map<String, Object>) patients[1], "11408953847", "brn1", "T");
+        assertPatient((Map<String, Object>) patients[2], "11420126616", "New", "M");
+        assertPatient((Map<String, Object>) patients[3], "11408923337", "house 2", "F");
+    }
+
+    @Test
+    public void shouldReturnPatientsOfSearchesAnsweredInTime() throws Exception {
+        String token = UUID.randomUUID().toString();
+        MciPatientSearchRequest request = new MciPatientSearchRequest();
+        request.setNid("9000001191832");
+        request.setPhoneNo("12345");
+        AddressHierarchyEntry entry = new AddressHierarchyEntry();
+        entry.setName("testEntry");
+
+        when(mockPropertiesReader.getMciSearchTimeoutMillis()).thenReturn(500);
+        when(mockIdentityStore.getToken()).thenReturn(new IdentityToken(token));
+        when(addressHierarchyService.getAddressHierarchyEntryByUserGenId(anyString())).thenReturn(entry);
+        when(mockPropertiesReader.getFacilityInstanceProperties()).thenReturn(getFacilityInstanceProperties("xyz", "12345", "email@gmail.com", "password"));
+        String patientContext = StringUtil.removeSuffix(mockPropertiesReader.getMciPatientContext(), "/");
+
+        givenThat(get(urlEqualTo(patientContext + "?nid=9000001191832"))
+                .willReturn(aResponse().withBody(asString("patients_response/by_nid.json")).withFixedDelay(3000)));
+        givenThat(get(urlEqualTo(patientContext + "?phone_no=12345"))
+                .willReturn(aResponse().withBody(asString("patients_response/by_phone_number.json"))));
+
+        Object[] patients = (Object[]) lookupService.searchPatientInRegistry(request);
+        assertEquals(3, patients.length);
+        assertPatient((Map<String, Object>) patients[0], "98001000317", "A89 805045", "M");
+    }
+
     @Test
     public void shouldReplaceInactivePatientWithActivePatient() throws Exception {
         String xAuthToken = "xyz";
@@ -257,6 +347,7 @@ public class MCIPatientLookupServiceTest {
         when(mockPropertiesReader.getShrPatientEncPathPattern()).thenReturn("/v2/patients/%s/encounters");
         org.openmrs.Patient emrPatient = new org.openmrs.Patient();
         when(mockEmrPatientService.createOrUpdateEmrPatient(any(Patient.class))).thenReturn(emrPatient);
+        when(mockEmrPatientService.getEMRPatientByHealthId(hid)).thenReturn(emrPatient);
         String patientContext = StringUtil.removeSuffix(mockPropertiesReader.getMciPatientContext(), "/");
 
         givenThat(get(urlEqualTo(patientContext + "/" + hid))
@@ -273,6 +364,11 @@ public class MCIPatientLookupServiceTest {
 
         Map downloadResponse = (Map) lookupService.downloadPatient(request);
         assertTrue(downloadResponse.containsKey("uuid"));
+
+        EncounterBackfillQueue.BackfillJob encounterDownload = (EncounterBackfillQueue.BackfillJob) downloadResponse.get("encounterDownload");
+        assertEquals(EncounterBackfillQueue.Status.COMPLETED, encounterDownload.getStatus());
+        assertEquals(encounterDownload, lookupService.getEncounterDownloadStatus(hid));
+        verify(mockEmrEncounterServiceImpl).createOrUpdateEncounters(eq(emrPatient), anyListOf(EncounterEvent.class));
     }
 
 
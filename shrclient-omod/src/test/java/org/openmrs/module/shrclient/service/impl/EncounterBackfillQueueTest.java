@@ -0,0 +1,114 @@
+package org.openmrs.module.shrclient.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.shrclient.util.TransactionHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class EncounterBackfillQueueTest {
+
+    private List<Runnable> queuedTasks;
+    private EncounterBackfillQueue queue;
+
+    @Before
+    public void setUp() throws Exception {
+        queuedTasks = new ArrayList<>();
+        queue = new EncounterBackfillQueue(1) {
+            @Override
+            protected void execute(Runnable task) {
+                queuedTasks.add(task);
+            }
+
+            @Override
+            protected Runnable inWorkerContext(Runnable work) {
+                return work;
+            }
+
+            @Override
+            protected <T> T inTransaction(TransactionHelper.TxWork<T> work) {
+                return work.execute();
+            }
+        };
+    }
+
+    @Test
+    public void shouldRunOneJobForConcurrentDownloadsOfAPatient() throws Exception {
+        EncounterBackfillQueue.BackfillJob job = queue.submit("HID1", backfill(3));
+        EncounterBackfillQueue.BackfillJob sameJob = queue.submit("HID1", backfill(3));
+        EncounterBackfillQueue.BackfillJob otherPatientJob = queue.submit("HID2", backfill(1));
+
+        assertSame(job, sameJob);
+        assertNotSame(job, otherPatientJob);
+        assertEquals(2, queuedTasks.size());
+        assertEquals(EncounterBackfillQueue.Status.QUEUED, job.getStatus());
+
+        queuedTasks.get(0).run();
+
+        assertEquals(EncounterBackfillQueue.Status.COMPLETED, job.getStatus());
+        assertEquals(3, job.getEncounterEvents().intValue());
+        assertSame(job, queue.getJob("HID1"));
+    }
+
+    @Test
+    public void shouldStartANewJobOnceThePreviousJobHasFinished() throws Exception {
+        EncounterBackfillQueue.BackfillJob job = queue.submit("HID1", backfill(3));
+        queuedTasks.get(0).run();
+
+        EncounterBackfillQueue.BackfillJob nextJob = queue.submit("HID1", backfill(4));
+
+        assertNotSame(job, nextJob);
+        assertEquals(2, queuedTasks.size());
+        assertSame(nextJob, queue.getJob("HID1"));
+    }
+
+    @Test
+    public void shouldReportFailedJobs() throws Exception {
+        EncounterBackfillQueue.BackfillJob job = queue.submit("HID1", new EncounterBackfillQueue.BackfillWork() {
+            @Override
+            public int backfill(String healthId) throws Exception {
+                throw new RuntimeException("SHR is down");
+            }
+        });
+        queuedTasks.get(0).run();
+
+        assertEquals(EncounterBackfillQueue.Status.FAILED, job.getStatus());
+        assertEquals("SHR is down", job.getError());
+    }
+
+    @Test
+    public void shouldFailJobsTheWorkersRejectAndAcceptTheNextDownload() throws Exception {
+        EncounterBackfillQueue stoppedQueue = new EncounterBackfillQueue(1) {
+            @Override
+            protected void execute(Runnable task) {
+                throw new RejectedExecutionException();
+            }
+
+            @Override
+            protected Runnable inWorkerContext(Runnable work) {
+                return work;
+            }
+        };
+
+        EncounterBackfillQueue.BackfillJob job = stoppedQueue.submit("HID1", backfill(3));
+
+        assertEquals(EncounterBackfillQueue.Status.FAILED, job.getStatus());
+        assertNotSame(job, stoppedQueue.submit("HID1", backfill(3)));
+        stoppedQueue.destroy();
+    }
+
+    private EncounterBackfillQueue.BackfillWork backfill(final int encounters) {
+        return new EncounterBackfillQueue.BackfillWork() {
+            @Override
+            public int backfill(String healthId) throws Exception {
+                return encounters;
+            }
+        };
+    }
+}
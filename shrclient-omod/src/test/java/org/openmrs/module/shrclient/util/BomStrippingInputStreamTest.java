@@ -0,0 +1,31 @@
+package org.openmrs.module.shrclient.util;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class BomStrippingInputStreamTest {
+
+    @Test
+    public void shouldSkipLeadingByteOrderMark() throws Exception {
+        String content = read("\uFEFF{\"id\":\"hid\"}\n");
+
+        assertEquals("{\"id\":\"hid\"}\n", content);
+    }
+
+    @Test
+    public void shouldLeaveContentWithoutByteOrderMarkUntouched() throws Exception {
+        assertEquals("<feed>\n</feed>", read("<feed>\n</feed>"));
+        assertEquals("ab", read("ab"));
+        assertEquals("", read(""));
+    }
+
+    private String read(String content) throws Exception {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return IOUtils.toString(new BomStrippingInputStream(new ByteArrayInputStream(bytes)), "UTF-8");
+    }
+}
@@ -0,0 +1,56 @@
+package org.openmrs.module.shrclient.util;
+
+import ca.uhn.fhir.parser.IParser;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class FhirBundleContextHolderTest {
+
+    @After
+    public void tearDown() throws Exception {
+        new FhirBundleContextHolder().destroy();
+    }
+
+    @Test
+    public void shouldReuseReturnedParsers() throws Exception {
+        IParser xmlParser = FhirBundleContextHolder.takeParser(FhirWireFormat.XML);
+        FhirBundleContextHolder.returnParser(FhirWireFormat.XML, xmlParser);
+
+        assertSame(xmlParser, FhirBundleContextHolder.takeParser(FhirWireFormat.XML));
+    }
+
+    @Test
+    public void shouldNotHandOutAParserTakenByAnotherCaller() throws Exception {
+        IParser xmlParser = FhirBundleContextHolder.takeParser(FhirWireFormat.XML);
+
+        assertNotSame(xmlParser, FhirBundleContextHolder.takeParser(FhirWireFormat.XML));
+        assertNotSame(xmlParser, FhirBundleContextHolder.takeParser(FhirWireFormat.JSON));
+    }
+
+    @Test
+    public void shouldDropPooledParsersOnDestroy() throws Exception {
+        IParser jsonParser = FhirBundleContextHolder.takeParser(FhirWireFormat.JSON);
+        FhirBundleContextHolder.returnParser(FhirWireFormat.JSON, jsonParser);
+
+        new FhirBundleContextHolder().destroy();
+
+        assertNotSame(jsonParser, FhirBundleContextHolder.takeParser(FhirWireFormat.JSON));
+    }
+
+    @Test
+    public void shouldParseWhatItEncodes() throws Exception {
+        Bundle bundle = new Bundle();
+        bundle.setType(Bundle.BundleType.COLLECTION);
+
+        String json = FhirBundleContextHolder.encode(FhirWireFormat.JSON, bundle);
+        String xml = FhirBundleContextHolder.encode(FhirWireFormat.XML, bundle);
+
+        assertEquals(Bundle.BundleType.COLLECTION, FhirBundleContextHolder.parseBundle(FhirWireFormat.JSON, json).getType());
+        assertEquals(Bundle.BundleType.COLLECTION, FhirBundleContextHolder.parseBundle(FhirWireFormat.XML, xml).getType());
+    }
+}
@@ -0,0 +1,79 @@
+package org.openmrs.module.shrclient.util;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.openmrs.module.fhir.utils.PropertyKeyConstants.HTTP_MAX_CONNECTIONS_PER_ROUTE;
+
+public class HttpClientPoolTest {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(8089);
+
+    private HttpClientPool httpClientPool;
+
+    @Before
+    public void setUp() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(HTTP_MAX_CONNECTIONS_PER_ROUTE, "2");
+        httpClientPool = new HttpClientPool(properties);
+
+        stubFor(get(urlEqualTo("/moved"))
+                .willReturn(aResponse()
+                        .withStatus(302)
+                        .withHeader("Location", "http://localhost:8089/target")));
+        stubFor(get(urlEqualTo("/target"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("target")));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        httpClientPool.destroy();
+    }
+
+    @Test
+    public void shouldFollowRedirectsWhenAllowed() throws Exception {
+        int status = httpClientPool.execute(new HttpGet("http://localhost:8089/moved"), true, statusHandler());
+
+        assertEquals(200, status);
+        verify(1, getRequestedFor(urlEqualTo("/target")));
+    }
+
+    @Test
+    public void shouldNotFollowRedirectsWhenDisallowed() throws Exception {
+        int status = httpClientPool.execute(new HttpGet("http://localhost:8089/moved"), false, statusHandler());
+
+        assertEquals(302, status);
+        verify(0, getRequestedFor(urlEqualTo("/target")));
+    }
+
+    @Test
+    public void shouldReleaseConnectionsBackToPool() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, (int) httpClientPool.execute(new HttpGet("http://localhost:8089/target"), false, statusHandler()));
+        }
+        verify(10, getRequestedFor(urlEqualTo("/target")));
+    }
+
+    private ResponseHandler<Integer> statusHandler() {
+        return new ResponseHandler<Integer>() {
+            @Override
+            public Integer handleResponse(HttpResponse response) throws IOException {
+                return response.getStatusLine().getStatusCode();
+            }
+        };
+    }
+}
@@ -0,0 +1,120 @@
+package org.openmrs.module.shrclient.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.openmrs.module.shrclient.identity.IdentityUnauthorizedException;
+import org.openmrs.module.shrclient.model.Patient;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class MciPatientCacheTest {
+    @Mock
+    private PropertiesReader propertiesReader;
+
+    private MciPatientCache cache;
+    private Map<String, Patient> mciPatients;
+    private List<String> loadedHealthIds;
+    private MciPatientCache.PatientLoader loader;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        when(propertiesReader.getMciPatientCacheTtlSeconds()).thenReturn(60);
+        when(propertiesReader.getMciPatientCacheSize()).thenReturn(2);
+        cache = new MciPatientCache(propertiesReader);
+        mciPatients = new HashMap<>();
+        loadedHealthIds = new ArrayList<>();
+        loader = new MciPatientCache.PatientLoader() {
+            @Override
+            public Patient load(String healthId) throws IdentityUnauthorizedException {
+                loadedHealthIds.add(healthId);
+                return mciPatients.get(healthId);
+            }
+        };
+    }
+
+    @Test
+    public void shouldReadAPatientOnceUntilRefreshed() throws Exception {
+        Patient patient = addPatient("HID1", true, null);
+
+        assertSame(patient, cache.getPatient("HID1", loader));
+        assertSame(patient, cache.getPatient("HID1", loader));
+        assertEquals(asList("HID1"), loadedHealthIds);
+
+        cache.refreshPatient("HID1", loader);
+        assertEquals(asList("HID1", "HID1"), loadedHealthIds);
+    }
+
+    @Test
+    public void shouldNotKeepPatientsWhenTheCacheIsTurnedOff() throws Exception {
+        when(propertiesReader.getMciPatientCacheTtlSeconds()).thenReturn(0);
+        addPatient("HID1", true, null);
+
+        cache.getPatient("HID1", loader);
+        cache.getPatient("HID1", loader);
+
+        assertEquals(asList("HID1", "HID1"), loadedHealthIds);
+    }
+
+    @Test
+    public void shouldDropTheLeastRecentlyUsedPatientBeyondTheCacheSize() throws Exception {
+        addPatient("HID1", true, null);
+        addPatient("HID2", true, null);
+        addPatient("HID3", true, null);
+
+        cache.getPatient("HID1", loader);
+        cache.getPatient("HID2", loader);
+        cache.getPatient("HID1", loader);
+        cache.getPatient("HID3", loader);
+        cache.getPatient("HID1", loader);
+        cache.getPatient("HID2", loader);
+
+        assertEquals(asList("HID1", "HID2", "HID3", "HID2"), loadedHealthIds);
+    }
+
+    @Test
+    public void shouldFollowAndKeepMergeChains() throws Exception {
+        Patient inactivePatient = addPatient("HID1", false, "HID2");
+        Patient activePatient = addPatient("HID2", true, null);
+
+        List<Patient> chain = cache.getMergeChain("HID1", loader);
+        assertEquals(asList(inactivePatient, activePatient), chain);
+        assertEquals(asList(inactivePatient, activePatient), cache.getMergeChain("HID1", loader));
+        assertEquals(asList("HID1", "HID2"), loadedHealthIds);
+    }
+
+    @Test
+    public void shouldDropPatientsAndMergeChainsOfAnUpdatedPatient() throws Exception {
+        addPatient("HID1", false, "HID2");
+        addPatient("HID2", true, null);
+        cache.getMergeChain("HID1", loader);
+
+        Patient furtherMergedPatient = addPatient("HID2", false, "HID3");
+        Patient activePatient = addPatient("HID3", true, null);
+        cache.invalidate("HID2");
+
+        List<Patient> chain = cache.getMergeChain("HID1", loader);
+        assertEquals(3, chain.size());
+        assertSame(furtherMergedPatient, chain.get(1));
+        assertSame(activePatient, chain.get(2));
+    }
+
+    private Patient addPatient(String healthId, boolean active, String mergedWith) {
+        Patient patient = new Patient();
+        patient.setHealthId(healthId);
+        patient.setActive(active);
+        patient.setMergedWith(mergedWith);
+        mciPatients.put(healthId, patient);
+        return patient;
+    }
+}
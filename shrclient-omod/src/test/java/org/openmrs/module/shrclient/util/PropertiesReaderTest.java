@@ -0,0 +1,70 @@
+package org.openmrs.module.shrclient.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Properties;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class PropertiesReaderTest {
+    private static final long RELOAD_CHECK_INTERVAL = 100;
+
+    @Rule
+    public TemporaryFolder applicationDataDirectory = new TemporaryFolder();
+
+    private PropertiesReader propertiesReader;
+
+    @Before
+    public void setUp() throws Exception {
+        for (String resourceName : asList("fr.properties", "tr_atomfeed_properties.properties", "pr.properties",
+                "facility_instance.properties", "shr.properties", "fhir_mapping.properties")) {
+            writeProperties(resourceName, "");
+        }
+        writeProperties("mci.properties", "mci.patientContext=/api/v1/patients");
+        propertiesReader = new PropertiesReader(applicationDataDirectory.getRoot(), RELOAD_CHECK_INTERVAL);
+    }
+
+    @Test
+    public void shouldReturnTheSameSystemPropertiesUntilAFileChanges() throws Exception {
+        SystemProperties systemProperties = propertiesReader.getSystemProperties();
+
+        assertSame(systemProperties, propertiesReader.getSystemProperties());
+    }
+
+    @Test
+    public void shouldReloadAFileChangedAfterTheCheckInterval() throws Exception {
+        SystemProperties systemProperties = propertiesReader.getSystemProperties();
+        File mciProperties = writeProperties("mci.properties", "mci.patientContext=/api/v2/patients");
+        mciProperties.setLastModified(mciProperties.lastModified() + 2000);
+
+        Thread.sleep(RELOAD_CHECK_INTERVAL * 2);
+
+        assertNotSame(systemProperties, propertiesReader.getSystemProperties());
+        assertEquals("/api/v2/patients", propertiesReader.getMciPatientContext());
+    }
+
+    @Test
+    public void shouldNotReloadAnUnchangedFile() throws Exception {
+        SystemProperties systemProperties = propertiesReader.getSystemProperties();
+        Properties mciProperties = propertiesReader.getMciProperties();
+
+        Thread.sleep(RELOAD_CHECK_INTERVAL * 2);
+
+        assertSame(mciProperties, propertiesReader.getMciProperties());
+        assertSame(systemProperties, propertiesReader.getSystemProperties());
+    }
+
+    private File writeProperties(String resourceName, String content) throws Exception {
+        File file = new File(applicationDataDirectory.getRoot(), resourceName);
+        FileUtils.writeStringToFile(file, content);
+        return file;
+    }
+}
@@ -3,6 +3,8 @@ package org.openmrs.module.shrclient.util;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.openmrs.module.shrclient.model.Status;
@@ -10,7 +12,9 @@ import org.openmrs.module.shrclient.model.mci.api.MciPatientUpdateResponse;
 import org.openmrs.module.shrclient.model.Address;
 import org.openmrs.module.shrclient.model.Patient;
 
+import java.net.SocketTimeoutException;
 import java.util.Map;
+import java.util.Properties;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
@@ -27,16 +31,30 @@ import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class RestClientTest {
 
     @Rule
     public WireMockRule wireMockRule = new WireMockRule(8089);
 
+    private HttpClientPool httpClientPool;
+
+    @Before
+    public void setUp() throws Exception {
+        httpClientPool = new HttpClientPool(new Properties());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        httpClientPool.destroy();
+    }
+
     @Test
     public void shouldGetPatient() throws Exception {
         final Map<String, String> authHeader = Headers.getBasicAuthHeader("user", "password");
-        RestClient restClient = new RestClient("http://localhost:8089", authHeader);
+        RestClient restClient = new RestClient("http://localhost:8089", authHeader, httpClientPool);
 
         final String acceptHeader = "accept";
         final String contentTypeJson = "application/json";
@@ -68,10 +86,29 @@ public class RestClientTest {
                 .withHeader(authHeaderKey, matching(authHeader.get(authHeaderKey))));
     }
 
+    @Test
+    public void shouldGiveUpOnASlowServerAfterTheRequestTimeout() throws Exception {
+        RestClient restClient = new RestClient("http://localhost:8089", Headers.getBasicAuthHeader("user", "password"), httpClientPool);
+        stubFor(get(urlEqualTo("/patient/100"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("{}")
+                        .withFixedDelay(3000)));
+
+        long start = System.currentTimeMillis();
+        try {
+            restClient.get("/patient/100", Patient.class, 200);
+            fail("The request should have timed out");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof SocketTimeoutException);
+        }
+        assertTrue(System.currentTimeMillis() - start < 2000);
+    }
+
     @Test
     public void shouldPostPatientAndProcessErrors() throws Exception {
         final Map<String, String> authHeader = Headers.getBasicAuthHeader("user", "password");
-        RestClient restClient = new RestClient("http://localhost:8089", authHeader);
+        RestClient restClient = new RestClient("http://localhost:8089", authHeader, httpClientPool);
 
         final String contentTypeHeader = "Content-Type";
         final String contentTypeJson = "application/json";
@@ -116,7 +153,7 @@ public class RestClientTest {
     @Test
     public void shouldPostPatientAndIdentifyHealthId() throws Exception {
         final Map<String, String> authHeader = Headers.getBasicAuthHeader("user", "password");
-        RestClient restClient = new RestClient("http://localhost:8089", authHeader);
+        RestClient restClient = new RestClient("http://localhost:8089", authHeader, httpClientPool);
 
         final String authHeaderKey = "Authorization";
 
@@ -155,7 +192,7 @@ public class RestClientTest {
     @Test
     public void shouldPutPatientAndIdentifyHealthId() throws Exception {
         final Map<String, String> authHeader = Headers.getBasicAuthHeader("user", "password");
-        RestClient restClient = new RestClient("http://localhost:8089", authHeader);
+        RestClient restClient = new RestClient("http://localhost:8089", authHeader, httpClientPool);
         final String authHeaderKey = "Authorization";
         final String contentTypeHeader = "Content-Type";
         final String contentTypeJson = "application/json";
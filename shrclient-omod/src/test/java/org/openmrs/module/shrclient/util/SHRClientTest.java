@@ -0,0 +1,94 @@
+package org.openmrs.module.shrclient.util;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.junit.Assert.assertEquals;
+
+public class SHRClientTest {
+    private static final String ENCOUNTERS_URL = "/patients/hid01/encounters";
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(8089);
+
+    private HttpClientPool httpClientPool;
+
+    @Before
+    public void setUp() throws Exception {
+        httpClientPool = new HttpClientPool(new Properties());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        httpClientPool.destroy();
+    }
+
+    @Test
+    public void shouldPostBundleAsJsonWhenConfigured() throws Exception {
+        stubFor(post(urlEqualTo(ENCOUNTERS_URL))
+                .withHeader("Content-Type", containing("application/json"))
+                .willReturn(aResponse().withStatus(200).withBody("shr-enc-id")));
+
+        String response = getShrClient(FhirWireFormat.JSON).post(ENCOUNTERS_URL, getBundle());
+
+        assertEquals("shr-enc-id", response);
+        verify(1, postRequestedFor(urlEqualTo(ENCOUNTERS_URL)).withRequestBody(containing("\"resourceType\":\"Bundle\"")));
+    }
+
+    @Test
+    public void shouldFallBackToXmlWhenSHRDoesNotAcceptJson() throws Exception {
+        stubFor(post(urlEqualTo(ENCOUNTERS_URL))
+                .withHeader("Content-Type", containing("application/json"))
+                .willReturn(aResponse().withStatus(415)));
+        stubFor(post(urlEqualTo(ENCOUNTERS_URL))
+                .withHeader("Content-Type", containing("application/xml"))
+                .willReturn(aResponse().withStatus(200).withBody("shr-enc-id")));
+        SHRClient shrClient = getShrClient(FhirWireFormat.JSON);
+
+        assertEquals("shr-enc-id", shrClient.post(ENCOUNTERS_URL, getBundle()));
+        assertEquals("shr-enc-id", shrClient.post(ENCOUNTERS_URL, getBundle()));
+
+        verify(1, postRequestedFor(urlEqualTo(ENCOUNTERS_URL)).withHeader("Content-Type", containing("application/json")));
+        verify(2, postRequestedFor(urlEqualTo(ENCOUNTERS_URL)).withHeader("Content-Type", containing("application/xml")));
+    }
+
+    @Test
+    public void shouldIdentifyFormatOfReceivedContent() throws Exception {
+        assertEquals(FhirWireFormat.JSON, FhirWireFormat.of("\n  {\"resourceType\":\"Bundle\"}"));
+        assertEquals(FhirWireFormat.XML, FhirWireFormat.of("<Bundle xmlns=\"http://hl7.org/fhir\"/>"));
+        assertEquals(FhirWireFormat.XML, FhirWireFormat.fromProperty("Xml"));
+        assertEquals(FhirWireFormat.JSON, FhirWireFormat.fromProperty(" json "));
+    }
+
+    private SHRClient getShrClient(FhirWireFormat wireFormat) {
+        final Map<String, String> headers = new HashMap<>();
+        return new SHRClient("http://localhost:8089", new WebClient.HeaderProvider() {
+            @Override
+            public Map<String, String> getHeaders() {
+                return headers;
+            }
+        }, wireFormat, httpClientPool);
+    }
+
+    private Bundle getBundle() {
+        Bundle bundle = new Bundle();
+        bundle.setId("bundle-id");
+        bundle.setType(Bundle.BundleType.COLLECTION);
+        return bundle;
+    }
+}
@@ -3,12 +3,26 @@ package org.openmrs.module.shrclient.util;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openmrs.Encounter;
 import org.openmrs.User;
+import org.openmrs.Visit;
 import org.openmrs.api.UserService;
 import org.openmrs.module.fhir.utils.GlobalPropertyLookUpService;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.Statement;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -17,11 +31,25 @@ public class SystemUserServiceTest {
     private UserService userService;
     @Mock
     private GlobalPropertyLookUpService globalPropertyLookUpService;
+    @Mock
+    private Database database;
+    @Mock
+    private Connection connection;
+    @Mock
+    private Statement statement;
     private SystemUserService systemUserService;
 
     @Before
     public void setUp() throws Exception {
         initMocks(this);
+        when(connection.createStatement()).thenReturn(statement);
+        when(database.executeInTransaction(any(Database.TxWork.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return ((Database.TxWork) invocation.getArguments()[0]).execute(connection);
+            }
+        });
+        when(globalPropertyLookUpService.getGlobalPropertyIntegerValue("shr.system.user")).thenReturn(2);
         systemUserService = new SystemUserService(userService, null, globalPropertyLookUpService);
     }
 
@@ -33,7 +61,7 @@ public class SystemUserServiceTest {
         shrUser.setId(userId);
 
         openMrsPatient.setCreator(shrUser);
-        when(globalPropertyLookUpService.getGlobalPropertyValue("shr.system.user")).thenReturn("2");
+        when(globalPropertyLookUpService.getGlobalPropertyIntegerValue("shr.system.user")).thenReturn(2);
         when(userService.getUser(userId)).thenReturn(shrUser);
         assertTrue(systemUserService.isUpdatedByOpenMRSShrSystemUser(openMrsPatient));
 
@@ -42,4 +70,58 @@ public class SystemUserServiceTest {
         openMrsPatient.setCreator(bahmniUser);
         assertFalse(systemUserService.isUpdatedByOpenMRSShrSystemUser(openMrsPatient));
     }
+
+    @Test
+    public void shouldUpdateDeferredCreatorsInOneBatch() throws Exception {
+        systemUserService = new SystemUserService(userService, database, globalPropertyLookUpService);
+
+        systemUserService.deferCreatorUpdates();
+        systemUserService.setOpenmrsShrSystemUserAsCreator(getEncounter(10));
+        systemUserService.setOpenmrsShrSystemUserAsCreator(getEncounter(11));
+        Visit visit = new Visit(20);
+        systemUserService.setOpenmrsShrSystemUserAsCreator(visit);
+        verify(database, never()).executeInTransaction(any(Database.TxWork.class));
+
+        systemUserService.applyDeferredCreatorUpdates();
+
+        verify(database, times(1)).executeInTransaction(any(Database.TxWork.class));
+        verify(statement).addBatch("update encounter set creator = 2 where encounter_id in (10,11);");
+        verify(statement).addBatch("update visit set creator = 2 where visit_id in (20);");
+        verify(statement, times(1)).executeBatch();
+        verify(globalPropertyLookUpService, times(1)).getGlobalPropertyIntegerValue("shr.system.user");
+    }
+
+    @Test
+    public void shouldNotApplyTheCreatorUpdatesOfARolledBackTransaction() throws Exception {
+        systemUserService = new SystemUserService(userService, database, globalPropertyLookUpService);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            systemUserService.setOpenmrsShrSystemUserAsCreator(getEncounter(10));
+            systemUserService.setOpenmrsShrSystemUserAsCreator(getEncounter(11));
+            verify(database, never()).executeInTransaction(any(Database.TxWork.class));
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(database, never()).executeInTransaction(any(Database.TxWork.class));
+        assertNull(TransactionSynchronizationManager.getResource(systemUserService));
+    }
+
+    @Test
+    public void shouldUpdateTheCreatorAtOnceOutsideATransaction() throws Exception {
+        systemUserService = new SystemUserService(userService, database, globalPropertyLookUpService);
+
+        systemUserService.setOpenmrsShrSystemUserAsCreator(getEncounter(10));
+
+        verify(statement).addBatch("update encounter set creator = 2 where encounter_id in (10);");
+        verify(statement, times(1)).executeBatch();
+    }
+
+    private Encounter getEncounter(int encounterId) {
+        return new Encounter(encounterId);
+    }
 }
\ No newline at end of file